@@ -0,0 +1,150 @@
+package org.codejive.jsonc;
+
+import java.util.Random;
+import org.codejive.jsonc.parser.JsonParserConfig;
+
+/**
+ * Reproducible set of JSON documents used by the benchmarks. All documents are generated from a
+ * fixed seed so every run (and every machine) measures exactly the same input.
+ */
+public enum Corpus {
+    /** A typical small service configuration file. */
+    SMALL_CONFIG {
+        @Override
+        void generate(StringBuilder sb, Random rnd) {
+            sb.append("{\"name\":\"config-service\",\"version\":\"1.4.2\",\"enabled\":true,");
+            sb.append("\"port\":8080,\"timeout\":2.5,\"proxy\":null,");
+            sb.append("\"hosts\":[\"alpha.example.com\",\"beta.example.com\"],");
+            sb.append("\"limits\":{\"connections\":512,\"requests\":10000,\"burst\":1.75},");
+            sb.append("\"features\":{\"cache\":true,\"metrics\":false,\"tracing\":true}}");
+        }
+    },
+
+    /** Objects and arrays nested a few hundred levels deep. */
+    DEEP_NESTING {
+        @Override
+        void generate(StringBuilder sb, Random rnd) {
+            int depth = 500;
+            for (int i = 0; i < depth; i++) {
+                if (i % 2 == 0) {
+                    sb.append("{\"level").append(i).append("\":");
+                } else {
+                    sb.append("[").append(i).append(",");
+                }
+            }
+            sb.append("\"bottom\"");
+            for (int i = depth - 1; i >= 0; i--) {
+                sb.append(i % 2 == 0 ? '}' : ']');
+            }
+        }
+    },
+
+    /** A single array containing many small objects. */
+    WIDE_ARRAY {
+        @Override
+        void generate(StringBuilder sb, Random rnd) {
+            sb.append('[');
+            for (int i = 0; i < 10000; i++) {
+                if (i > 0) sb.append(',');
+                sb.append("{\"id\":").append(i);
+                sb.append(",\"name\":\"item").append(rnd.nextInt(100000)).append('"');
+                sb.append(",\"active\":").append(rnd.nextBoolean()).append('}');
+            }
+            sb.append(']');
+        }
+    },
+
+    /** Long strings where a large part of the characters need escaping. */
+    ESCAPED_STRINGS {
+        private final String[] escapes = {
+            "\\\"", "\\\\", "\\/", "\\b", "\\f", "\\n", "\\r", "\\t", "\\u00e9", "\\u4e2d"
+        };
+
+        @Override
+        void generate(StringBuilder sb, Random rnd) {
+            sb.append('[');
+            for (int i = 0; i < 1000; i++) {
+                if (i > 0) sb.append(',');
+                sb.append('"');
+                for (int j = 0; j < 40; j++) {
+                    if (rnd.nextInt(3) == 0) {
+                        sb.append(escapes[rnd.nextInt(escapes.length)]);
+                    } else {
+                        sb.append((char) ('a' + rnd.nextInt(26)));
+                    }
+                }
+                sb.append('"');
+            }
+            sb.append(']');
+        }
+    },
+
+    /** Arrays of integers and reals, the typical shape of metrics payloads. */
+    NUMERIC {
+        @Override
+        void generate(StringBuilder sb, Random rnd) {
+            sb.append("{\"timestamps\":[");
+            long ts = 1600000000000L;
+            for (int i = 0; i < 5000; i++) {
+                if (i > 0) sb.append(',');
+                ts += rnd.nextInt(1000);
+                sb.append(ts);
+            }
+            sb.append("],\"values\":[");
+            for (int i = 0; i < 5000; i++) {
+                if (i > 0) sb.append(',');
+                sb.append(rnd.nextGaussian() * 1000.0);
+            }
+            sb.append("],\"counts\":[");
+            for (int i = 0; i < 5000; i++) {
+                if (i > 0) sb.append(',');
+                sb.append(rnd.nextInt(2000) - 1000);
+            }
+            sb.append("]}");
+        }
+    },
+
+    /** A JSONC configuration file with line and block comments. */
+    JSONC_COMMENTS {
+        @Override
+        void generate(StringBuilder sb, Random rnd) {
+            sb.append("// Generated configuration\n{\n");
+            for (int i = 0; i < 200; i++) {
+                if (i > 0) sb.append(",\n");
+                sb.append("    /*\n     * Settings for section ").append(i).append("\n     */\n");
+                sb.append("    \"section").append(i).append("\": {\n");
+                sb.append("        \"enabled\": ").append(rnd.nextBoolean());
+                sb.append(", // toggled by ops\n");
+                sb.append("        \"weight\": ").append(rnd.nextInt(100)).append('\n');
+                sb.append("    }");
+            }
+            sb.append("\n}\n");
+        }
+
+        @Override
+        public JsonParserConfig config() {
+            return JsonParserConfig.defaults().enableComments(true);
+        }
+    };
+
+    private static final long SEED = 42L;
+
+    private String text;
+
+    abstract void generate(StringBuilder sb, Random rnd);
+
+    /** @return The parser configuration needed to parse this document */
+    public JsonParserConfig config() {
+        return JsonParserConfig.defaults();
+    }
+
+    /** @return The JSON text of this document */
+    public synchronized String text() {
+        if (text == null) {
+            StringBuilder sb = new StringBuilder();
+            generate(sb, new Random(SEED));
+            text = sb.toString();
+        }
+        return text;
+    }
+}
@@ -0,0 +1,87 @@
+package org.codejive.jsonc;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import org.codejive.jsonc.parser.JsonParseException;
+import org.codejive.jsonc.parser.JsonParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Measures serialization of parsed documents back into JSON text. */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class JsoncBenchmark {
+
+    @Param({
+        "SMALL_CONFIG",
+        "DEEP_NESTING",
+        "WIDE_ARRAY",
+        "ESCAPED_STRINGS",
+        "NUMERIC",
+        "JSONC_COMMENTS"
+    })
+    public Corpus document;
+
+    private static final JsonFormat PRETTY = JsonFormat.pretty().inlineArrayWidth(80);
+
+    private Object value;
+    private StringWriter writer;
+    private ByteArrayOutputStream bytes;
+
+    @Setup
+    public void setup() throws JsonParseException {
+        value = new JsonParser(document.config()).parse(document.text());
+        writer = new StringWriter();
+        bytes = new ByteArrayOutputStream();
+    }
+
+    @Benchmark
+    public String toJSONString() {
+        return Jsonc.toJSONString(value);
+    }
+
+    @Benchmark
+    public StringWriter writeJSONString() throws IOException {
+        writer.getBuffer().setLength(0);
+        Jsonc.writeJSONString(value, writer, true);
+        return writer;
+    }
+
+    @Benchmark
+    public String toPrettyJSONString() {
+        return Jsonc.toJSONString(value, PRETTY);
+    }
+
+    @Benchmark
+    public byte[] toJSONStringUtf8() {
+        return Jsonc.toJSONString(value).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public byte[] toJSONBytes() {
+        return Jsonc.toJSONBytes(value);
+    }
+
+    @Benchmark
+    public ByteArrayOutputStream writeJSONBytes() throws IOException {
+        bytes.reset();
+        Jsonc.writeJSONBytes(value, bytes);
+        return bytes;
+    }
+}
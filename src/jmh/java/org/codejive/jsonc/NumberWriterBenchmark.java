@@ -0,0 +1,87 @@
+package org.codejive.jsonc;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Measures writing arrays of numbers, like a time-series export does. */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class NumberWriterBenchmark {
+    private static final int COUNT = 10_000;
+
+    private final double[] doubles = new double[COUNT];
+    private final long[] longs = new long[COUNT];
+    private StringWriter out;
+    private JsonWriter writer;
+
+    @Setup
+    public void setup() {
+        Random rnd = new Random(42);
+        for (int i = 0; i < COUNT; i++) {
+            doubles[i] = rnd.nextGaussian() * Math.pow(10, rnd.nextInt(8) - 2);
+            longs[i] = 1_600_000_000_000L + rnd.nextInt(1_000_000_000);
+        }
+        out = new StringWriter();
+        writer = JsonWriter.of(out);
+    }
+
+    @Benchmark
+    public StringWriter doubleToString() {
+        out.getBuffer().setLength(0);
+        for (double d : doubles) {
+            out.write(Double.toString(d));
+            out.write(',');
+        }
+        return out;
+    }
+
+    @Benchmark
+    public StringWriter writeDoubles() throws IOException {
+        out.getBuffer().setLength(0);
+        writer.reset();
+        writer.beginArray();
+        for (double d : doubles) {
+            writer.value(d);
+        }
+        writer.endArray().flush();
+        return out;
+    }
+
+    @Benchmark
+    public StringWriter longToString() {
+        out.getBuffer().setLength(0);
+        for (long l : longs) {
+            out.write(Long.toString(l));
+            out.write(',');
+        }
+        return out;
+    }
+
+    @Benchmark
+    public StringWriter writeLongs() throws IOException {
+        out.getBuffer().setLength(0);
+        writer.reset();
+        writer.beginArray();
+        for (long l : longs) {
+            writer.value(l);
+        }
+        writer.endArray().flush();
+        return out;
+    }
+}
@@ -0,0 +1,247 @@
+package org.codejive.jsonc.parser;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import org.codejive.jsonc.Corpus;
+import org.codejive.jsonc.JsonPrimitive;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/** Measures the full parser, both building a tree and streaming events to a handler. */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class JsonParserBenchmark {
+
+    @Param({
+        "SMALL_CONFIG",
+        "DEEP_NESTING",
+        "WIDE_ARRAY",
+        "ESCAPED_STRINGS",
+        "NUMERIC",
+        "JSONC_COMMENTS"
+    })
+    public Corpus document;
+
+    // Selects only the first element of an array, for other documents nothing gets built at all
+    private static final PathFilter FIRST_ELEMENT = PathFilter.compile("$[0]");
+
+    // Shared by all invocations, like it would be by all parses in an application
+    private final SymbolTable symbols = new SymbolTable();
+
+    private JsonParserPool pool;
+
+    private String text;
+    private byte[] bytes;
+    private Path file;
+
+    @Setup
+    public void setup() throws IOException {
+        text = document.text();
+        bytes = text.getBytes(StandardCharsets.UTF_8);
+        pool = new JsonParserPool(document.config());
+        file = Files.createTempFile("jsonc-bench", ".json");
+        Files.write(file, bytes);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public Object parseReader() throws IOException, JsonParseException {
+        JsonParser parser = new JsonParser(document.config());
+        return parser.parse(new StringReader(text));
+    }
+
+    @Benchmark
+    public Object parseBytes() throws JsonParseException {
+        JsonParser parser = new JsonParser(document.config());
+        return parser.parse(bytes);
+    }
+
+    @Benchmark
+    public Object parsePresized() throws JsonParseException {
+        JsonParser parser = new JsonParser(document.config().presizeContainers(true));
+        return parser.parse(bytes);
+    }
+
+    @Benchmark
+    public Object parseNumericArrays() throws JsonParseException {
+        JsonParser parser = new JsonParser(document.config().numericArrays(true));
+        return parser.parse(bytes);
+    }
+
+    @Benchmark
+    public Object parseNumbers() throws JsonParseException {
+        JsonParser parser =
+                new JsonParser(document.config().parseNumbers(true).numericArrays(true));
+        return parser.parse(bytes);
+    }
+
+    @Benchmark
+    public Object parseSymbolTable() throws JsonParseException {
+        JsonParser parser = new JsonParser(document.config().symbolTable(symbols));
+        return parser.parse(bytes);
+    }
+
+    @Benchmark
+    public Object parsePooled() throws IOException, JsonParseException {
+        return pool.parse(new StringReader(text));
+    }
+
+    @Benchmark
+    public Object parseInputStream() throws IOException, JsonParseException {
+        JsonParser parser = new JsonParser(document.config());
+        return parser.parse(new ByteArrayInputStream(bytes));
+    }
+
+    @Benchmark
+    public Object parseMappedFile() throws IOException, JsonParseException {
+        JsonParser parser = new JsonParser(document.config());
+        return parser.parse(file);
+    }
+
+    @Benchmark
+    public void pullEvents(Blackhole bh) throws IOException, JsonParseException {
+        JsonReader reader = new JsonReader(bytes, document.config());
+        JsonReader.Event event;
+        while ((event = reader.next()) != JsonReader.Event.END_JSON) {
+            bh.consume(event);
+            bh.consume(reader.getString());
+        }
+    }
+
+    @Benchmark
+    public long skipDocument() throws IOException, JsonParseException {
+        JsonReader reader = new JsonReader(bytes, document.config());
+        reader.skipValue();
+        return reader.getPosition();
+    }
+
+    @Benchmark
+    public Object parseCompact() throws JsonParseException {
+        JsonParser parser = new JsonParser(document.config());
+        return parser.parse(bytes, new CompactTypeFactory());
+    }
+
+    @Benchmark
+    public Object parseLazy() throws JsonParseException {
+        JsonParser parser = new JsonParser(document.config());
+        return parser.parseLazy(bytes);
+    }
+
+    @Benchmark
+    public JsonTape parseTape() throws JsonParseException {
+        JsonParser parser = new JsonParser(document.config());
+        return parser.parseTape(bytes);
+    }
+
+    @Benchmark
+    public JsonSyntaxTree parseSyntaxTree() throws JsonParseException {
+        JsonParser parser = new JsonParser(document.config());
+        return parser.parseSyntaxTree(text);
+    }
+
+    @Benchmark
+    public String editSyntaxTree() throws JsonParseException {
+        JsonParser parser = new JsonParser(document.config());
+        JsonSyntaxTree tree = parser.parseSyntaxTree(text);
+        // Changes a single value, everything around it gets copied from the source
+        JsonSyntaxTree.Node root = tree.root();
+        if (root.size() > 0) {
+            root.get(0).set(1);
+        }
+        return tree.toString();
+    }
+
+    @Benchmark
+    public Object parseFiltered() throws JsonParseException {
+        JsonParser parser = new JsonParser(document.config());
+        return parser.parse(bytes, FIRST_ELEMENT);
+    }
+
+    @Benchmark
+    public void parseStringWithHandler(Blackhole bh) throws JsonParseException {
+        JsonParser parser = new JsonParser(document.config());
+        parser.parse(text, new BlackholeHandler(bh));
+    }
+
+    /** Handler that hands every event to JMH so none of the work can be optimized away. */
+    static class BlackholeHandler implements ContentHandler {
+        private final Blackhole bh;
+
+        BlackholeHandler(Blackhole bh) {
+            this.bh = bh;
+        }
+
+        @Override
+        public void startJSON() {}
+
+        @Override
+        public void endJSON() {}
+
+        @Override
+        public boolean startObject(Status status) {
+            bh.consume(status);
+            return true;
+        }
+
+        @Override
+        public boolean endObject(Status status) {
+            bh.consume(status);
+            return true;
+        }
+
+        @Override
+        public boolean startObjectEntry(String key) {
+            bh.consume(key);
+            return true;
+        }
+
+        @Override
+        public boolean endObjectEntry() {
+            return true;
+        }
+
+        @Override
+        public boolean startArray(Status status) {
+            bh.consume(status);
+            return true;
+        }
+
+        @Override
+        public boolean endArray(Status status) {
+            bh.consume(status);
+            return true;
+        }
+
+        @Override
+        public boolean primitive(
+                Status status, JsonPrimitive.Type type, String value, String rawValue) {
+            bh.consume(value);
+            bh.consume(rawValue);
+            return true;
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package org.codejive.jsonc.parser;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+import org.codejive.jsonc.Corpus;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures raw token throughput of the lexers, without any of the parser's state handling. Both
+ * lexers get to see the same input, the JSONC document is left out because the JFlex lexer has no
+ * support for comments.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class LexerBenchmark {
+
+    @Param({"SMALL_CONFIG", "DEEP_NESTING", "WIDE_ARRAY", "ESCAPED_STRINGS", "NUMERIC"})
+    public Corpus document;
+
+    private String text;
+    private CharLexer charLexer;
+
+    @Setup
+    public void setup() {
+        text = document.text();
+        charLexer = new CharLexer(JsonParserConfig.defaults());
+    }
+
+    @Benchmark
+    public void yylex(Blackhole bh) throws IOException, JsonParseException {
+        Yylex lexer = new Yylex(new StringReader(text));
+        Yytoken token;
+        while ((token = lexer.yylex()) != null) {
+            bh.consume(token);
+        }
+    }
+
+    @Benchmark
+    public void charLexer(Blackhole bh) throws IOException, JsonParseException {
+        CharLexer lexer = charLexer;
+        lexer.reset(text);
+        int token;
+        while ((token = lexer.next()) != JsonLexer.EOF) {
+            bh.consume(token);
+            if (JsonLexer.isPrimitive(token)) {
+                // Yylex always creates the Strings, so to be fair we have to do the same
+                bh.consume(lexer.value());
+            }
+        }
+    }
+}
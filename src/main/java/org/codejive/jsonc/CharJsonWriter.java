@@ -0,0 +1,128 @@
+package org.codejive.jsonc;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+
+/**
+ * A {@link JsonWriter} that collects its output in a char array. When it has a Writer the buffer
+ * gets written to it whenever it's full, otherwise the buffer grows to hold the entire document.
+ */
+final class CharJsonWriter extends JsonWriter {
+    static final int BUFFER_SIZE = 8192;
+
+    // Buffers that grew beyond this get dropped when the writer is released
+    private static final int MAX_RETAINED_SIZE = 64 * 1024;
+
+    private Writer out;
+    private char[] buf = new char[BUFFER_SIZE];
+    private int pos;
+
+    /** Creates a writer that keeps the entire document in its buffer. */
+    CharJsonWriter() {}
+
+    CharJsonWriter(Writer out) {
+        this.out = out;
+    }
+
+    /** Makes the writer ready for writing a new document to the given Writer. */
+    void reset(Writer out) {
+        this.out = out;
+        reset();
+    }
+
+    @Override
+    public void reset() {
+        pos = 0;
+        resetState();
+    }
+
+    /**
+     * Drops the reference to the output and the buffer if it grew too large, and sets all options
+     * back to their defaults.
+     */
+    void release() {
+        reset(null);
+        resetOptions();
+        if (buf.length > MAX_RETAINED_SIZE) {
+            buf = new char[BUFFER_SIZE];
+        }
+    }
+
+    /** @return The contents of the buffer, the entire document if there is no Writer */
+    String contents() {
+        return new String(buf, 0, pos);
+    }
+
+    @Override
+    void write(char c) throws IOException {
+        if (pos == buf.length) {
+            makeRoom(1);
+        }
+        buf[pos++] = c;
+    }
+
+    @Override
+    void write(String s, int start, int end) throws IOException {
+        int len = end - start;
+        if (len > buf.length - pos) {
+            if (out != null && len > buf.length) {
+                // Too large for the buffer anyway
+                flushBuffer();
+                out.write(s, start, len);
+                return;
+            }
+            makeRoom(len);
+        }
+        s.getChars(start, end, buf, pos);
+        pos += len;
+    }
+
+    @Override
+    void write(char[] c, int start, int end) throws IOException {
+        int len = end - start;
+        if (len > buf.length - pos) {
+            if (out != null && len > buf.length) {
+                // Too large for the buffer anyway
+                flushBuffer();
+                out.write(c, start, len);
+                return;
+            }
+            makeRoom(len);
+        }
+        System.arraycopy(c, start, buf, pos, len);
+        pos += len;
+    }
+
+    private void makeRoom(int len) throws IOException {
+        if (out != null) {
+            flushBuffer();
+        } else {
+            buf = Arrays.copyOf(buf, Math.max(buf.length * 2, pos + len));
+        }
+    }
+
+    @Override
+    void flushBuffer() throws IOException {
+        if (out != null && pos > 0) {
+            out.write(buf, 0, pos);
+            pos = 0;
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        flushBuffer();
+        if (out != null) {
+            out.flush();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        flushBuffer();
+        if (out != null) {
+            out.close();
+        }
+    }
+}
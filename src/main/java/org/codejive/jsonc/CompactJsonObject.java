@@ -0,0 +1,318 @@
+package org.codejive.jsonc;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.io.Writer;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * A JSON object that keeps its entries in the order they were added and uses a lot less memory than
+ * {@link JsonObject}. Keys and values are stored in two parallel arrays, small objects are searched
+ * linearly, larger ones get a small open-addressing hash index on top of the arrays. Removing
+ * entries is relatively expensive because the entries following it have to be moved.
+ *
+ * <p>The parser can be told to use this class instead of JsonObject by passing it a {@link
+ * org.codejive.jsonc.parser.CompactTypeFactory}.
+ */
+public class CompactJsonObject extends AbstractMap<String, Object>
+        implements JsonElement, Serializable {
+    private static final long serialVersionUID = -2316749106522745103L;
+
+    // Objects with at most this many entries don't get an index
+    private static final int LINEAR_LIMIT = 8;
+
+    private static final String[] NO_KEYS = new String[0];
+    private static final Object[] NO_VALUES = new Object[0];
+
+    private String[] keys;
+    private Object[] values;
+    private int size;
+    // Open-addressing hash table holding the positions of the entries plus one, 0 meaning empty
+    private transient int[] index;
+    private transient int modCount;
+    private transient Set<Map.Entry<String, Object>> entrySet;
+
+    public CompactJsonObject() {
+        this.keys = NO_KEYS;
+        this.values = NO_VALUES;
+    }
+
+    /**
+     * Constructs an empty object that has room for the given number of entries.
+     *
+     * @param capacity - The expected number of entries
+     */
+    public CompactJsonObject(int capacity) {
+        this.keys = capacity == 0 ? NO_KEYS : new String[capacity];
+        this.values = capacity == 0 ? NO_VALUES : new Object[capacity];
+    }
+
+    /**
+     * Allows creation of a CompactJsonObject from a Map. After that, both the generated object and
+     * the Map can be modified independently.
+     *
+     * @param map
+     */
+    public CompactJsonObject(Map<String, Object> map) {
+        this(map.size());
+        putAll(map);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return find(key) >= 0;
+    }
+
+    @Override
+    public Object get(Object key) {
+        int i = find(key);
+        return i >= 0 ? values[i] : null;
+    }
+
+    @Override
+    public Object put(String key, Object value) {
+        int i = find(key);
+        if (i >= 0) {
+            Object old = values[i];
+            values[i] = value;
+            return old;
+        }
+        if (size == keys.length) {
+            int capacity = Math.max(4, size + (size >> 1));
+            keys = Arrays.copyOf(keys, capacity);
+            values = Arrays.copyOf(values, capacity);
+        }
+        keys[size] = key;
+        values[size] = value;
+        size++;
+        modCount++;
+        if (index != null && size * 2 <= index.length) {
+            insert(index, key, size - 1);
+        } else if (size > LINEAR_LIMIT) {
+            rebuildIndex();
+        }
+        return null;
+    }
+
+    @Override
+    public Object remove(Object key) {
+        int i = find(key);
+        if (i < 0) {
+            return null;
+        }
+        Object old = values[i];
+        removeAt(i);
+        return old;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(keys, 0, size, null);
+        Arrays.fill(values, 0, size, null);
+        size = 0;
+        index = null;
+        modCount++;
+    }
+
+    @Override
+    public Set<Map.Entry<String, Object>> entrySet() {
+        if (entrySet == null) {
+            entrySet = new EntrySet();
+        }
+        return entrySet;
+    }
+
+    public void writeJSONString(Writer out) throws IOException {
+        Jsonc.writeJSONString(this, out, true);
+    }
+
+    @Override
+    public String toJSONString() {
+        return Jsonc.toJSONString(this, true);
+    }
+
+    @Override
+    public String toString() {
+        return Jsonc.toJSONString(this, false);
+    }
+
+    /** @return The position of the entry with the given key or -1 if there is none */
+    private int find(Object key) {
+        if (index == null) {
+            for (int i = 0; i < size; i++) {
+                Object k = keys[i];
+                if (k == key || (k != null && k.equals(key))) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+        int mask = index.length - 1;
+        for (int h = hash(key) & mask; ; h = (h + 1) & mask) {
+            int p = index[h];
+            if (p == 0) {
+                return -1;
+            }
+            if (Objects.equals(keys[p - 1], key)) {
+                return p - 1;
+            }
+        }
+    }
+
+    private void removeAt(int i) {
+        int moved = size - i - 1;
+        System.arraycopy(keys, i + 1, keys, i, moved);
+        System.arraycopy(values, i + 1, values, i, moved);
+        size--;
+        keys[size] = null;
+        values[size] = null;
+        modCount++;
+        // All the positions after the removed entry changed
+        if (size > LINEAR_LIMIT) {
+            rebuildIndex();
+        } else {
+            index = null;
+        }
+    }
+
+    private void rebuildIndex() {
+        int capacity = Integer.highestOneBit(size * 4 - 1);
+        int[] idx = new int[capacity];
+        for (int i = 0; i < size; i++) {
+            insert(idx, keys[i], i);
+        }
+        index = idx;
+    }
+
+    private static void insert(int[] index, String key, int position) {
+        int mask = index.length - 1;
+        int h = hash(key) & mask;
+        while (index[h] != 0) {
+            h = (h + 1) & mask;
+        }
+        index[h] = position + 1;
+    }
+
+    private static int hash(Object key) {
+        int h = Objects.hashCode(key);
+        return h ^ (h >>> 16);
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        if (size > LINEAR_LIMIT) {
+            rebuildIndex();
+        }
+    }
+
+    private final class EntrySet extends AbstractSet<Map.Entry<String, Object>> {
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public void clear() {
+            CompactJsonObject.this.clear();
+        }
+
+        @Override
+        public Iterator<Map.Entry<String, Object>> iterator() {
+            return new Iterator<Map.Entry<String, Object>>() {
+                private int next;
+                private int last = -1;
+                private int expectedModCount = modCount;
+
+                @Override
+                public boolean hasNext() {
+                    return next < size;
+                }
+
+                @Override
+                public Map.Entry<String, Object> next() {
+                    if (modCount != expectedModCount) {
+                        throw new ConcurrentModificationException();
+                    }
+                    if (next >= size) {
+                        throw new NoSuchElementException();
+                    }
+                    last = next++;
+                    return new Entry(last);
+                }
+
+                @Override
+                public void remove() {
+                    if (last < 0) {
+                        throw new IllegalStateException();
+                    }
+                    if (modCount != expectedModCount) {
+                        throw new ConcurrentModificationException();
+                    }
+                    removeAt(last);
+                    next = last;
+                    last = -1;
+                    expectedModCount = modCount;
+                }
+            };
+        }
+    }
+
+    /** Entry that reads and writes through to the arrays, valid until entries get removed. */
+    private final class Entry implements Map.Entry<String, Object> {
+        private final int position;
+
+        Entry(int position) {
+            this.position = position;
+        }
+
+        @Override
+        public String getKey() {
+            return keys[position];
+        }
+
+        @Override
+        public Object getValue() {
+            return values[position];
+        }
+
+        @Override
+        public Object setValue(Object value) {
+            Object old = values[position];
+            values[position] = value;
+            return old;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Map.Entry)) {
+                return false;
+            }
+            Map.Entry<?, ?> e = (Map.Entry<?, ?>) o;
+            return Objects.equals(getKey(), e.getKey()) && Objects.equals(getValue(), e.getValue());
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(getKey()) ^ Objects.hashCode(getValue());
+        }
+
+        @Override
+        public String toString() {
+            return getKey() + "=" + getValue();
+        }
+    }
+}
@@ -14,6 +14,15 @@ public class JsonArray extends ArrayList<Object> implements JsonElement {
         super();
     }
 
+    /**
+     * Constructs an empty JSONArray with room for the given number of elements.
+     *
+     * @param capacity - The expected number of elements
+     */
+    public JsonArray(int capacity) {
+        super(capacity);
+    }
+
     /**
      * Constructs a JSONArray containing the elements of the specified collection, in the order they
      * are returned by the collection's iterator.
@@ -0,0 +1,153 @@
+package org.codejive.jsonc;
+
+import java.util.Arrays;
+
+/**
+ * A JSON array of real numbers that stores its elements in a {@code double[]}. Elements can be
+ * added as {@link JsonPrimitive}s, the same way as for a normal {@link JsonArray}, or directly
+ * using {@link #add(double)}. Reading them back with {@link #get(int)} creates new JsonPrimitives,
+ * use {@link #getDouble(int)} to avoid that.
+ *
+ * <p>Only the values of the numbers are kept, not the way they were written: they get returned and
+ * written using the shortest text that reads back as the same double, the way {@link
+ * Double#toString(double)} writes them since Java 19. So {@code 1.50} comes back as {@code 1.5}.
+ * Adding anything but a real number, including integers, turns the array into a normal JsonArray,
+ * see {@link #isPrimitive()}.
+ */
+public class JsonDoubleArray extends PrimitiveJsonArray {
+    private static final long serialVersionUID = 2841470931925374861L;
+
+    private static final double[] NO_VALUES = new double[0];
+
+    private double[] values;
+
+    public JsonDoubleArray() {
+        this.values = NO_VALUES;
+    }
+
+    /**
+     * Constructs an empty array with room for the given number of elements.
+     *
+     * @param capacity - The expected number of elements
+     */
+    public JsonDoubleArray(int capacity) {
+        this.values = capacity == 0 ? NO_VALUES : new double[capacity];
+    }
+
+    /**
+     * Constructs an array containing the given values.
+     *
+     * @param values - The values of the array, none of them can be infinite or NaN
+     */
+    public JsonDoubleArray(double[] values) {
+        this(values.length);
+        for (double value : values) {
+            add(value);
+        }
+    }
+
+    /** @throws IllegalArgumentException if the value is infinite or NaN */
+    public void add(double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            throw new IllegalArgumentException("JSON does not allow " + value);
+        }
+        if (isPrimitive()) {
+            insert(count, value);
+            modCount++;
+        } else {
+            super.add(new JsonPrimitive(value));
+        }
+    }
+
+    /**
+     * Returns the element at the given position as a double.
+     *
+     * @throws ClassCastException when the array is no longer primitive and the element is not a
+     *     {@link JsonPrimitive}
+     * @throws NumberFormatException when the element is not a number
+     */
+    public double getDouble(int index) {
+        if (isPrimitive()) {
+            checkIndex(index);
+            return values[index];
+        }
+        return ((JsonPrimitive) get(index)).toDouble();
+    }
+
+    /** @return A copy of the elements of this array as doubles */
+    public double[] toDoubleArray() {
+        if (isPrimitive()) {
+            return Arrays.copyOf(values, count);
+        }
+        double[] result = new double[size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = getDouble(i);
+        }
+        return result;
+    }
+
+    @Override
+    JsonPrimitive element(int index) {
+        return new JsonPrimitive(values[index]);
+    }
+
+    @Override
+    boolean setElement(int index, Object value) {
+        double d = toDouble(value);
+        if (Double.isNaN(d)) {
+            return false;
+        }
+        values[index] = d;
+        return true;
+    }
+
+    @Override
+    boolean insertElement(int index, Object value) {
+        double d = toDouble(value);
+        if (Double.isNaN(d)) {
+            return false;
+        }
+        insert(index, d);
+        return true;
+    }
+
+    @Override
+    void removeElement(int index) {
+        System.arraycopy(values, index + 1, values, index, count - index - 1);
+        count--;
+    }
+
+    @Override
+    void release() {
+        values = NO_VALUES;
+    }
+
+    private void insert(int index, double value) {
+        if (count == values.length) {
+            values = Arrays.copyOf(values, Math.max(8, count + (count >> 1)));
+        }
+        if (index < count) {
+            System.arraycopy(values, index, values, index + 1, count - index);
+        }
+        values[index] = value;
+        count++;
+    }
+
+    /** @return The value as a double, or NaN if the value is not a real number */
+    static double toDouble(Object value) {
+        if (value instanceof JsonPrimitive) {
+            JsonPrimitive p = (JsonPrimitive) value;
+            if (p.type == JsonPrimitive.Type.REAL) {
+                try {
+                    double d = Double.parseDouble(p.toString());
+                    if (!Double.isInfinite(d)) {
+                        return d;
+                    }
+                } catch (NumberFormatException e) {
+                    // Not a number we can store
+                }
+            }
+        }
+        return Double.NaN;
+    }
+}
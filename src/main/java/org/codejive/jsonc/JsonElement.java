@@ -1,5 +1,18 @@
 package org.codejive.jsonc;
 
+import java.io.IOException;
+import java.io.OutputStream;
+
 public interface JsonElement {
     String toJSONString();
+
+    /**
+     * Writes the JSON text of this element to the given stream, encoded as UTF-8. The stream
+     * doesn't get flushed.
+     *
+     * @param out - The stream to write to
+     */
+    default void writeTo(OutputStream out) throws IOException {
+        Jsonc.writeJSONBytes(this, out);
+    }
 }
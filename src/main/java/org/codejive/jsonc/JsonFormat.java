@@ -0,0 +1,95 @@
+package org.codejive.jsonc;
+
+/**
+ * Determines the layout of the JSON text written by a {@link JsonWriter}. The default is the
+ * compact form without any whitespace, {@link #pretty()} gives the usual human-readable form.
+ * Whitespace gets written while the values are written, there is no separate formatting pass.
+ */
+public class JsonFormat {
+    private int indent;
+    private String newline = "\n";
+    private boolean spaceAfterColon;
+    private boolean sortKeys;
+    private int inlineArrayWidth;
+
+    /** @return The format without any whitespace, which is the default */
+    public static JsonFormat compact() {
+        return new JsonFormat();
+    }
+
+    /** @return A format that puts each member and element on its own line, indented by 2 */
+    public static JsonFormat pretty() {
+        return new JsonFormat().indent(2).spaceAfterColon(true);
+    }
+
+    public int indent() {
+        return indent;
+    }
+
+    /**
+     * The number of spaces to indent each level of nesting with. When this is 0, which is the
+     * default, the output is a single line.
+     */
+    public JsonFormat indent(int indent) {
+        if (indent < 0) {
+            throw new IllegalArgumentException("Indent must not be negative");
+        }
+        this.indent = indent;
+        return this;
+    }
+
+    public String newline() {
+        return newline;
+    }
+
+    /** The line separator to use when indenting: "\n", which is the default, "\r\n" or "\r". */
+    public JsonFormat newline(String newline) {
+        if (!"\n".equals(newline) && !"\r\n".equals(newline) && !"\r".equals(newline)) {
+            throw new IllegalArgumentException("Not a line separator");
+        }
+        this.newline = newline;
+        return this;
+    }
+
+    public boolean spaceAfterColon() {
+        return spaceAfterColon;
+    }
+
+    /** Write a space between the name and the value of object members. */
+    public JsonFormat spaceAfterColon(boolean spaceAfterColon) {
+        this.spaceAfterColon = spaceAfterColon;
+        return this;
+    }
+
+    public boolean sortKeys() {
+        return sortKeys;
+    }
+
+    /**
+     * Write the members of Maps in the order of their names instead of in the order the Map returns
+     * them. This only affects Maps written using {@link JsonWriter#value(Object)}, names written
+     * using {@link JsonWriter#name(String)} are always written as they come.
+     */
+    public JsonFormat sortKeys(boolean sortKeys) {
+        this.sortKeys = sortKeys;
+        return this;
+    }
+
+    public int inlineArrayWidth() {
+        return inlineArrayWidth;
+    }
+
+    /**
+     * Write arrays that contain no objects or arrays on a single line, like <code>[1, 2, 3]</code>,
+     * when that line is at most this many characters long. This only has an effect when indenting
+     * and only for Collections written using {@link JsonWriter#value(Object)}. The default is 0,
+     * which means that every element goes on its own line.
+     */
+    public JsonFormat inlineArrayWidth(int inlineArrayWidth) {
+        if (inlineArrayWidth < 0) {
+            throw new IllegalArgumentException("Width must not be negative");
+        }
+        this.inlineArrayWidth = inlineArrayWidth;
+        return this;
+    }
+}
@@ -0,0 +1,163 @@
+package org.codejive.jsonc;
+
+import java.util.Arrays;
+
+/**
+ * A JSON array of integers that stores its elements in a {@code long[]}. Elements can be added as
+ * {@link JsonPrimitive}s, the same way as for a normal {@link JsonArray}, or directly using {@link
+ * #add(long)}. Reading them back with {@link #get(int)} creates new JsonPrimitives, use {@link
+ * #getLong(int)} to avoid that.
+ *
+ * <p>Only integers that fit in a long and that are written the way {@link Long#toString(long)}
+ * would write them are stored as primitives, so no information gets lost. Adding any other element
+ * turns the array into a normal JsonArray, see {@link #isPrimitive()}.
+ */
+public class JsonLongArray extends PrimitiveJsonArray {
+    private static final long serialVersionUID = -8032751937415265409L;
+
+    private static final long[] NO_VALUES = new long[0];
+
+    private long[] values;
+
+    public JsonLongArray() {
+        this.values = NO_VALUES;
+    }
+
+    /**
+     * Constructs an empty array with room for the given number of elements.
+     *
+     * @param capacity - The expected number of elements
+     */
+    public JsonLongArray(int capacity) {
+        this.values = capacity == 0 ? NO_VALUES : new long[capacity];
+    }
+
+    /**
+     * Constructs an array containing the given values.
+     *
+     * @param values - The values of the array
+     */
+    public JsonLongArray(long[] values) {
+        this.values = values.clone();
+        this.count = values.length;
+    }
+
+    public void add(long value) {
+        if (isPrimitive()) {
+            insert(count, value);
+            modCount++;
+        } else {
+            super.add(new JsonPrimitive(value));
+        }
+    }
+
+    /**
+     * Returns the element at the given position as a long.
+     *
+     * @throws ClassCastException when the array is no longer primitive and the element is not a
+     *     {@link JsonPrimitive}
+     * @throws NumberFormatException when the element is not an integer
+     */
+    public long getLong(int index) {
+        if (isPrimitive()) {
+            checkIndex(index);
+            return values[index];
+        }
+        return ((JsonPrimitive) get(index)).toLong();
+    }
+
+    /** @return A copy of the elements of this array as longs */
+    public long[] toLongArray() {
+        if (isPrimitive()) {
+            return Arrays.copyOf(values, count);
+        }
+        long[] result = new long[size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = getLong(i);
+        }
+        return result;
+    }
+
+    @Override
+    JsonPrimitive element(int index) {
+        return new JsonPrimitive(values[index]);
+    }
+
+    @Override
+    boolean setElement(int index, Object value) {
+        if (!isLong(value)) {
+            return false;
+        }
+        values[index] = Long.parseLong(value.toString());
+        return true;
+    }
+
+    @Override
+    boolean insertElement(int index, Object value) {
+        if (!isLong(value)) {
+            return false;
+        }
+        insert(index, Long.parseLong(value.toString()));
+        return true;
+    }
+
+    @Override
+    void removeElement(int index) {
+        System.arraycopy(values, index + 1, values, index, count - index - 1);
+        count--;
+    }
+
+    @Override
+    void release() {
+        values = NO_VALUES;
+    }
+
+    private void insert(int index, long value) {
+        if (count == values.length) {
+            values = Arrays.copyOf(values, Math.max(8, count + (count >> 1)));
+        }
+        if (index < count) {
+            System.arraycopy(values, index, values, index + 1, count - index);
+        }
+        values[index] = value;
+        count++;
+    }
+
+    /**
+     * @return true if the value is an integer that can be stored as a long without losing anything
+     */
+    static boolean isLong(Object value) {
+        if (!(value instanceof JsonPrimitive)) {
+            return false;
+        }
+        JsonPrimitive p = (JsonPrimitive) value;
+        return p.type == JsonPrimitive.Type.INTEGER
+                && p.toString().equals(p.rawValue())
+                && isCanonical(p.toString());
+    }
+
+    // Checks if the text is exactly what Long.toString() returns for its value
+    private static boolean isCanonical(String s) {
+        int len = s.length();
+        int start = len > 0 && s.charAt(0) == '-' ? 1 : 0;
+        int digits = len - start;
+        if (digits == 0 || digits > 19) {
+            return false;
+        }
+        if (s.charAt(start) == '0') {
+            // "0" is fine, but not "-0" or leading zeroes
+            return len == 1;
+        }
+        for (int i = start; i < len; i++) {
+            char c = s.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        if (digits == 19) {
+            String limit = start == 0 ? "9223372036854775807" : "9223372036854775808";
+            return s.substring(start).compareTo(limit) <= 0;
+        }
+        return true;
+    }
+}
@@ -13,6 +13,16 @@ public class JsonObject extends HashMap<String, Object> implements JsonElement {
         super();
     }
 
+    /**
+     * Constructs an empty JSONObject that can hold the given number of entries without having to
+     * grow.
+     *
+     * @param capacity - The expected number of entries
+     */
+    public JsonObject(int capacity) {
+        super(capacity < 3 ? capacity + 1 : (int) (capacity / 0.75f + 1.0f));
+    }
+
     /**
      * Allows creation of a JSONObject from a Map. After that, both the generated JSONObject and the
      * Map can be modified independently.
@@ -2,8 +2,16 @@ package org.codejive.jsonc;
 
 import java.io.IOException;
 import java.io.Writer;
-import java.util.Objects;
 
+/**
+ * A JSON string, number, boolean or null. The value is kept as text, the way it appeared in the
+ * input. Converting it to a number or boolean only happens once, the result gets cached, as does
+ * the hash code.
+ *
+ * <p>For strings the decoded value and the raw value, with its escapes as they appeared in the
+ * input, can differ. A primitive can be created with only one of the two, the other one is then
+ * derived from it the first time it's needed.
+ */
 public class JsonPrimitive implements JsonElement {
     public enum Type {
         STRING,
@@ -13,20 +21,64 @@ public class JsonPrimitive implements JsonElement {
         NULL
     };
 
+    static final JsonPrimitive TRUE = new JsonPrimitive(Type.BOOLEAN, "true");
+    static final JsonPrimitive FALSE = new JsonPrimitive(Type.BOOLEAN, "false");
+    static final JsonPrimitive NULL = new JsonPrimitive(Type.NULL, "null");
+
     final Type type;
-    final String value;
-    final String rawValue;
+    // At most one of these is null, it gets derived from the other one when needed
+    private String value;
+    private String rawValue;
+
+    // The result of value(), only set once it's known. As for the hash and the derived value or
+    // raw value these are racy but harmless: every thread computes the same immutable result
+    private Object converted;
+    private int hash;
 
     public JsonPrimitive(Type type, String value) {
         this(type, value, value);
     }
 
+    /**
+     * Creates a primitive with both its value and the raw value as it appeared in the input. For
+     * strings either of the two can be null, it then gets derived from the other one: the value by
+     * decoding the escapes in the raw value, the raw value by escaping the value.
+     *
+     * @param type - The type of the primitive
+     * @param value - The value with all escapes decoded
+     * @param rawValue - The value as it appeared in the input
+     */
     public JsonPrimitive(Type type, String value, String rawValue) {
         this.type = type;
         this.value = value;
         this.rawValue = rawValue;
     }
 
+    /**
+     * Creates an integer primitive for a value that is already known as a long.
+     *
+     * @param value - The value of the integer
+     */
+    public JsonPrimitive(long value) {
+        this(Type.INTEGER, Long.toString(value));
+        this.converted = value;
+    }
+
+    /**
+     * Creates a real number primitive for a value that is already known as a double. Its text is
+     * the shortest one that reads back as the same double.
+     *
+     * @param value - The value of the number
+     */
+    public JsonPrimitive(double value) {
+        this(Type.REAL, NumberWriter.toString(value));
+        this.converted = value;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
     boolean isString() {
         return type == Type.STRING;
     }
@@ -52,29 +104,40 @@ public class JsonPrimitive implements JsonElement {
     }
 
     public Long toLong() {
-        return Long.parseLong(value);
+        if (isInteger()) {
+            return (Long) value();
+        }
+        return Long.parseLong(toString());
     }
 
     public double toDouble() {
-        return Double.parseDouble(value);
+        Object v = converted;
+        // Integers of less than 19 characters always fit a long
+        if (v == null && (isReal() || (isInteger() && toString().length() < 19))) {
+            v = value();
+        }
+        return v instanceof Number ? ((Number) v).doubleValue() : Double.parseDouble(toString());
     }
 
     public boolean toBoolean() {
-        return Boolean.parseBoolean(value);
+        return Boolean.parseBoolean(toString());
     }
 
     public Object value() {
-        if (isString()) {
-            return toString();
-        } else if (isInteger()) {
-            return toLong();
-        } else if (isReal()) {
-            return toDouble();
-        } else if (isBoolean()) {
-            return toBoolean();
-        } else {
-            return null;
+        Object v = converted;
+        if (v == null && !isNull()) {
+            if (isString()) {
+                v = toString();
+            } else if (isInteger()) {
+                v = Long.parseLong(toString());
+            } else if (isReal()) {
+                v = Double.parseDouble(toString());
+            } else {
+                v = toBoolean();
+            }
+            converted = v;
         }
+        return v;
     }
 
     @Override
@@ -82,12 +145,20 @@ public class JsonPrimitive implements JsonElement {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         JsonPrimitive that = (JsonPrimitive) o;
-        return type == that.type && rawValue.equals(that.rawValue);
+        if (hash != 0 && that.hash != 0 && hash != that.hash) {
+            return false;
+        }
+        return type == that.type && rawValue().equals(that.rawValue());
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(type, rawValue);
+        int h = hash;
+        if (h == 0) {
+            h = 31 * type.ordinal() + rawValue().hashCode();
+            hash = h;
+        }
+        return h;
     }
 
     public void writeJSONString(Writer out) throws IOException {
@@ -99,8 +170,23 @@ public class JsonPrimitive implements JsonElement {
         return Jsonc.toJSONString(this, true);
     }
 
+    /** @return The value as it appeared in the input */
+    String rawValue() {
+        String r = rawValue;
+        if (r == null && value != null) {
+            r = isString() ? Jsonc.escape(value) : value;
+            rawValue = r;
+        }
+        return r;
+    }
+
     @Override
     public String toString() {
-        return value;
+        String v = value;
+        if (v == null && rawValue != null) {
+            v = isString() ? Jsonc.unescape(rawValue) : rawValue;
+            value = v;
+        }
+        return v;
     }
 }
@@ -0,0 +1,696 @@
+package org.codejive.jsonc;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Writes JSON text one token at a time. The output is collected in a buffer that gets written out
+ * in large blocks, strings are escaped straight into that buffer. Writing a complete object looks
+ * like this:
+ *
+ * <pre>{@code
+ * JsonWriter writer = JsonWriter.of(out);
+ * writer.beginObject()
+ *         .name("id").value(42)
+ *         .name("tags").beginArray().value("a").value("b").endArray()
+ *         .endObject();
+ * writer.flush();
+ * }</pre>
+ *
+ * Besides the single tokens any value that {@link Jsonc#writeJSONString(Object, Writer, boolean)}
+ * supports, like {@link JsonObject}s and {@link JsonArray}s, can be written using {@link
+ * #value(Object)}. The output is always a single JSON value, using the writer in a way that would
+ * result in invalid JSON throws an {@link IllegalStateException}.
+ *
+ * <p>By default the output is compact, without any whitespace. Indentation, sorted keys and the
+ * like can be set using {@link #format(JsonFormat)}.
+ *
+ * <p>A writer can be used for any number of documents, one after the other, by calling {@link
+ * #reset()} in between. Please note that JsonWriter is NOT thread-safe.
+ */
+public abstract class JsonWriter implements Closeable, Flushable {
+    // The states of the values on the stack
+    private static final byte EMPTY_DOCUMENT = 0;
+    private static final byte NONEMPTY_DOCUMENT = 1;
+    private static final byte EMPTY_ARRAY = 2;
+    private static final byte NONEMPTY_ARRAY = 3;
+    private static final byte EMPTY_OBJECT = 4;
+    private static final byte DANGLING_NAME = 5;
+    private static final byte NONEMPTY_OBJECT = 6;
+
+    private byte[] stack = new byte[16];
+    private int depth;
+
+    // The remaining members or elements of the Maps and Collections being written by value(Object),
+    // at the same depth as their states on the stack
+    private Iterator<?>[] iterators = new Iterator<?>[16];
+
+    // For each ASCII character the character that follows the backslash when it gets escaped,
+    // UNICODE for a unicode escape or 0 if it doesn't need to be escaped
+    static final byte[] ESCAPES = new byte[128];
+    private static final byte[] ESCAPES_NO_SLASH;
+    private static final byte UNICODE = 'u';
+    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+    static {
+        for (int i = 0; i < 0x20; i++) {
+            ESCAPES[i] = UNICODE;
+        }
+        ESCAPES[0x7F] = UNICODE;
+        ESCAPES['"'] = '"';
+        ESCAPES['\\'] = '\\';
+        ESCAPES['\b'] = 'b';
+        ESCAPES['\f'] = 'f';
+        ESCAPES['\n'] = 'n';
+        ESCAPES['\r'] = 'r';
+        ESCAPES['\t'] = 't';
+        ESCAPES_NO_SLASH = ESCAPES.clone();
+        ESCAPES['/'] = '/';
+    }
+
+    private byte[] escapes = ESCAPES;
+    private boolean escapeSymbols = true;
+
+    private static final Comparator<Map.Entry<?, ?>> BY_NAME =
+            Comparator.comparing(e -> String.valueOf(e.getKey()));
+
+    // The layout, as set by format()
+    private int indent;
+    private String newline = "\n";
+    private boolean spaceAfterColon;
+    private boolean sortKeys;
+    private int inlineArrayWidth;
+
+    // A newline followed by spaces, the start of a line at any depth is a prefix of it
+    private char[] lines = new char[0];
+
+    // Set while writing the elements of an array that fits on a single line
+    private boolean inline;
+
+    // Numbers get written here first
+    private final char[] digits = new char[NumberWriter.MAX_LENGTH];
+
+    // Writes the decoded values of JsonPrimitives, as done by the toString() methods
+    boolean decoded;
+
+    JsonWriter() {}
+
+    /**
+     * Creates a writer that writes its output to the given Writer.
+     *
+     * @param out - The Writer to write to
+     * @return A new JsonWriter
+     */
+    public static JsonWriter of(Writer out) {
+        return new CharJsonWriter(out);
+    }
+
+    /**
+     * Creates a writer that writes its output to the given stream, encoded as UTF-8.
+     *
+     * @param out - The stream to write to
+     * @return A new JsonWriter
+     */
+    public static JsonWriter of(OutputStream out) {
+        return new Utf8JsonWriter(out);
+    }
+
+    /**
+     * Creates a writer that puts its output in the given buffer, encoded as UTF-8. Everything that
+     * doesn't fit in the buffer results in a {@link java.nio.BufferOverflowException}.
+     *
+     * @param bb - The buffer to write to
+     * @return A new JsonWriter
+     */
+    public static JsonWriter of(ByteBuffer bb) {
+        return new Utf8JsonWriter(bb);
+    }
+
+    /** Writes a single ASCII character. */
+    abstract void write(char c) throws IOException;
+
+    /** Writes the characters in the given range as they are. */
+    abstract void write(String s, int start, int end) throws IOException;
+
+    /** Writes the ASCII characters in the given range. */
+    abstract void write(char[] c, int start, int end) throws IOException;
+
+    /** Writes out everything that's in the buffer, without flushing the underlying output. */
+    abstract void flushBuffer() throws IOException;
+
+    void write(String s) throws IOException {
+        write(s, 0, s.length());
+    }
+
+    /**
+     * Makes the writer ready for writing a new document to the same output. Anything that is still
+     * in the buffer gets discarded.
+     */
+    public abstract void reset();
+
+    /** Resets the state, for use by the implementations of {@link #reset()}. */
+    void resetState() {
+        stack[0] = EMPTY_DOCUMENT;
+        depth = 0;
+        inline = false;
+        Arrays.fill(iterators, null);
+    }
+
+    public boolean escapeSlashes() {
+        return escapes == ESCAPES;
+    }
+
+    /**
+     * Escape forward slashes in strings, which is the default. JSON doesn't require it, it only
+     * helps when the output ends up in an HTML script element.
+     */
+    public JsonWriter escapeSlashes(boolean escapeSlashes) {
+        this.escapes = escapeSlashes ? ESCAPES : ESCAPES_NO_SLASH;
+        return this;
+    }
+
+    public boolean escapeSymbols() {
+        return escapeSymbols;
+    }
+
+    /**
+     * Escape the characters from U+2000 through U+20FF in strings, which is the default. That range
+     * contains general punctuation, super- and subscripts and currency symbols. JSON doesn't
+     * require them to be escaped, but for instance the line and paragraph separators (U+2028 and
+     * U+2029) aren't allowed in JavaScript strings before ES2019.
+     */
+    public JsonWriter escapeSymbols(boolean escapeSymbols) {
+        this.escapeSymbols = escapeSymbols;
+        return this;
+    }
+
+    /**
+     * Sets the layout of the output. The settings are copied, changing the format afterwards has no
+     * effect on this writer.
+     *
+     * @param format - The format to use
+     * @return This writer
+     */
+    public JsonWriter format(JsonFormat format) {
+        indent = format.indent();
+        spaceAfterColon = format.spaceAfterColon();
+        sortKeys = format.sortKeys();
+        inlineArrayWidth = format.inlineArrayWidth();
+        if (!newline.equals(format.newline())) {
+            newline = format.newline();
+            lines = new char[0];
+        }
+        return this;
+    }
+
+    /** Sets all options back to their defaults. */
+    void resetOptions() {
+        escapes = ESCAPES;
+        escapeSymbols = true;
+        decoded = false;
+        indent = 0;
+        spaceAfterColon = false;
+        sortKeys = false;
+        inlineArrayWidth = 0;
+    }
+
+    /** @return true if a complete JSON value has been written */
+    public boolean isComplete() {
+        return depth == 0 && stack[0] == NONEMPTY_DOCUMENT;
+    }
+
+    public JsonWriter beginObject() throws IOException {
+        beforeValue();
+        push(EMPTY_OBJECT);
+        write('{');
+        return this;
+    }
+
+    public JsonWriter endObject() throws IOException {
+        byte state = stack[depth];
+        if (state != EMPTY_OBJECT && state != NONEMPTY_OBJECT) {
+            throw new IllegalStateException(
+                    state == DANGLING_NAME ? "Expected a value" : "Not in an object");
+        }
+        depth--;
+        if (state == NONEMPTY_OBJECT && indent > 0) {
+            newLine(depth);
+        }
+        write('}');
+        return this;
+    }
+
+    public JsonWriter beginArray() throws IOException {
+        beforeValue();
+        push(EMPTY_ARRAY);
+        write('[');
+        return this;
+    }
+
+    public JsonWriter endArray() throws IOException {
+        byte state = stack[depth];
+        if (state != EMPTY_ARRAY && state != NONEMPTY_ARRAY) {
+            throw new IllegalStateException("Not in an array");
+        }
+        depth--;
+        if (state == NONEMPTY_ARRAY && indent > 0 && !inline) {
+            newLine(depth);
+        }
+        write(']');
+        return this;
+    }
+
+    /**
+     * Writes the name of the next member of an object.
+     *
+     * @param name - The name, must not be null
+     * @return This writer
+     */
+    public JsonWriter name(String name) throws IOException {
+        byte state = stack[depth];
+        if (state == NONEMPTY_OBJECT) {
+            write(',');
+        } else if (state != EMPTY_OBJECT) {
+            throw new IllegalStateException(
+                    state == DANGLING_NAME ? "Expected a value" : "Not in an object");
+        }
+        if (indent > 0) {
+            newLine(depth);
+        }
+        stack[depth] = DANGLING_NAME;
+        write('"');
+        writeEscaped(name);
+        write('"');
+        write(':');
+        if (spaceAfterColon) {
+            write(' ');
+        }
+        return this;
+    }
+
+    /**
+     * Writes a string value.
+     *
+     * @param s - The value, null results in a JSON null
+     * @return This writer
+     */
+    public JsonWriter value(String s) throws IOException {
+        if (s == null) {
+            return nullValue();
+        }
+        beforeValue();
+        write('"');
+        writeEscaped(s);
+        write('"');
+        return this;
+    }
+
+    public JsonWriter value(long l) throws IOException {
+        beforeValue();
+        write(digits, 0, NumberWriter.write(l, digits, 0));
+        return this;
+    }
+
+    /**
+     * Writes a real number, using the shortest text that reads back as the same double. The result
+     * is the same as that of {@link Double#toString(double)} since Java 19.
+     *
+     * @param d - The value
+     * @return This writer
+     * @throws IllegalArgumentException if the value is infinite or NaN
+     */
+    public JsonWriter value(double d) throws IOException {
+        if (Double.isNaN(d) || Double.isInfinite(d)) {
+            throw new IllegalArgumentException("JSON does not allow " + d);
+        }
+        beforeValue();
+        write(digits, 0, NumberWriter.write(d, digits, 0));
+        return this;
+    }
+
+    public JsonWriter value(boolean b) throws IOException {
+        beforeValue();
+        write(b ? "true" : "false");
+        return this;
+    }
+
+    public JsonWriter nullValue() throws IOException {
+        beforeValue();
+        write("null");
+        return this;
+    }
+
+    /**
+     * Writes a value that is already JSON text, without any checks or escaping.
+     *
+     * @param json - The JSON text of the value
+     * @return This writer
+     */
+    public JsonWriter jsonValue(String json) throws IOException {
+        beforeValue();
+        write(json);
+        return this;
+    }
+
+    /**
+     * Writes any value the same way {@link Jsonc#writeJSONString(Object, Writer, boolean)} does.
+     * Maps become objects and collections become arrays, their contents get written as well.
+     * Infinite and NaN numbers become null. Values of any other type are written using the result
+     * of their <code>toString()</code> method as JSON text.
+     *
+     * @param value - The value to write
+     * @return This writer
+     */
+    public JsonWriter value(Object value) throws IOException {
+        if (!(value instanceof Map) && !(value instanceof Collection)) {
+            return scalar(value);
+        }
+        // Maps and Collections get walked using a stack of iterators instead of recursively, so
+        // how deeply they can be nested isn't limited by the size of the call stack
+        int base = depth;
+        open(value);
+        while (depth > base) {
+            Iterator<?> it = iterators[depth];
+            boolean array = stack[depth] == EMPTY_ARRAY || stack[depth] == NONEMPTY_ARRAY;
+            if (!it.hasNext()) {
+                iterators[depth] = null;
+                if (array) {
+                    endArray();
+                    inline = false;
+                } else {
+                    endObject();
+                }
+                continue;
+            }
+            Object next = it.next();
+            if (!array) {
+                Map.Entry<?, ?> entry = (Map.Entry<?, ?>) next;
+                name(String.valueOf(entry.getKey()));
+                next = entry.getValue();
+            }
+            if (next instanceof Map || next instanceof Collection) {
+                open(next);
+            } else {
+                scalar(next);
+            }
+        }
+        return this;
+    }
+
+    private JsonWriter scalar(Object value) throws IOException {
+        if (value == null) {
+            return nullValue();
+        }
+        if (value instanceof JsonPrimitive) {
+            return primitive((JsonPrimitive) value);
+        }
+        if (value instanceof String) {
+            return value((String) value);
+        }
+        if (value instanceof Double) {
+            double d = (Double) value;
+            return Double.isNaN(d) || Double.isInfinite(d) ? nullValue() : value(d);
+        }
+        if (value instanceof Float) {
+            float f = (Float) value;
+            return Float.isNaN(f) || Float.isInfinite(f)
+                    ? nullValue()
+                    : jsonValue(value.toString());
+        }
+        if (value instanceof Long
+                || value instanceof Integer
+                || value instanceof Short
+                || value instanceof Byte) {
+            return value(((Number) value).longValue());
+        }
+        if (value instanceof Number) {
+            return jsonValue(value.toString());
+        }
+        if (value instanceof Boolean) {
+            return value(((Boolean) value).booleanValue());
+        }
+        return jsonValue(value.toString());
+    }
+
+    private JsonWriter primitive(JsonPrimitive p) throws IOException {
+        String text = decoded ? p.toString() : p.rawValue();
+        beforeValue();
+        if (p.isString()) {
+            write('"');
+            write(text);
+            write('"');
+        } else {
+            write(text);
+        }
+        return this;
+    }
+
+    /**
+     * Starts writing a Map or Collection, which leaves its iterator on the stack. Arrays of
+     * primitive numbers can't contain anything else and get written right away.
+     */
+    private void open(Object value) throws IOException {
+        if (value instanceof Map) {
+            Map<?, ?> map = (Map<?, ?>) value;
+            beginObject();
+            if (sortKeys && map.size() > 1) {
+                Map.Entry<?, ?>[] entries = map.entrySet().toArray(new Map.Entry<?, ?>[0]);
+                Arrays.sort(entries, BY_NAME);
+                iterators[depth] = Arrays.asList(entries).iterator();
+            } else {
+                iterators[depth] = map.entrySet().iterator();
+            }
+            return;
+        }
+        Collection<?> collection = (Collection<?>) value;
+        beginArray();
+        inline = indent > 0 && inlineArrayWidth > 0 && fitsOnLine(collection);
+        if (collection instanceof PrimitiveJsonArray
+                && ((PrimitiveJsonArray) collection).isPrimitive()) {
+            // No need to create JsonPrimitives for the elements
+            int size = collection.size();
+            if (collection instanceof JsonLongArray) {
+                JsonLongArray arr = (JsonLongArray) collection;
+                for (int i = 0; i < size; i++) {
+                    value(arr.getLong(i));
+                }
+                endArray();
+                inline = false;
+                return;
+            }
+            if (collection instanceof JsonDoubleArray) {
+                JsonDoubleArray arr = (JsonDoubleArray) collection;
+                for (int i = 0; i < size; i++) {
+                    value(arr.getDouble(i));
+                }
+                endArray();
+                inline = false;
+                return;
+            }
+        }
+        iterators[depth] = collection.iterator();
+    }
+
+    // Checks if the elements are all scalars that fit within the inline width together. Stops
+    // measuring as soon as they don't, so this never looks at more than a line's worth of values
+    private boolean fitsOnLine(Collection<?> collection) {
+        // Each element is followed by either ", " or the closing bracket, which together with the
+        // opening bracket takes the same width
+        int remaining = inlineArrayWidth;
+        if (collection instanceof PrimitiveJsonArray
+                && ((PrimitiveJsonArray) collection).isPrimitive()) {
+            int size = collection.size();
+            if (collection instanceof JsonLongArray) {
+                JsonLongArray arr = (JsonLongArray) collection;
+                for (int i = 0; i < size && remaining >= 0; i++) {
+                    remaining -= NumberWriter.write(arr.getLong(i), digits, 0) + 2;
+                }
+                return remaining >= 0;
+            }
+            if (collection instanceof JsonDoubleArray) {
+                JsonDoubleArray arr = (JsonDoubleArray) collection;
+                for (int i = 0; i < size && remaining >= 0; i++) {
+                    remaining -= width(arr.getDouble(i)) + 2;
+                }
+                return remaining >= 0;
+            }
+        }
+        for (Object value : collection) {
+            int width = width(value);
+            if (width < 0) {
+                return false;
+            }
+            remaining -= width + 2;
+            if (remaining < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // The number of characters value(Object) writes for a scalar, -1 for objects and arrays
+    private int width(Object value) {
+        if (value == null) {
+            return 4;
+        }
+        if (value instanceof JsonPrimitive) {
+            JsonPrimitive p = (JsonPrimitive) value;
+            String text = decoded ? p.toString() : p.rawValue();
+            return p.isString() ? text.length() + 2 : text.length();
+        }
+        if (value instanceof String) {
+            return width((String) value);
+        }
+        if (value instanceof Double) {
+            return width((double) (Double) value);
+        }
+        if (value instanceof Float) {
+            float f = (Float) value;
+            return Float.isNaN(f) || Float.isInfinite(f) ? 4 : value.toString().length();
+        }
+        if (value instanceof Long
+                || value instanceof Integer
+                || value instanceof Short
+                || value instanceof Byte) {
+            return NumberWriter.write(((Number) value).longValue(), digits, 0);
+        }
+        if (value instanceof Boolean) {
+            return (Boolean) value ? 4 : 5;
+        }
+        if (value instanceof Map || value instanceof Collection) {
+            return -1;
+        }
+        return value.toString().length();
+    }
+
+    private int width(double d) {
+        return Double.isNaN(d) || Double.isInfinite(d) ? 4 : NumberWriter.write(d, digits, 0);
+    }
+
+    private int width(String s) {
+        final int len = s.length();
+        int width = len + 2;
+        if (width > inlineArrayWidth) {
+            // Doesn't fit anyway, no need to look for escapes
+            return width;
+        }
+        int i = indexOfEscape(s, 0, escapes, escapeSymbols);
+        while (i < len) {
+            char ch = s.charAt(i);
+            width += ch < 128 && escapes[ch] != UNICODE ? 1 : 5;
+            i = indexOfEscape(s, i + 1, escapes, escapeSymbols);
+        }
+        return width;
+    }
+
+    // Writes the contents of a string, escaping everything that needs to be escaped. Runs of
+    // characters that need no escaping are copied as a whole
+    void writeEscaped(String s) throws IOException {
+        final int len = s.length();
+        int start = 0;
+        while (true) {
+            int i = indexOfEscape(s, start, escapes, escapeSymbols);
+            if (start < i) {
+                write(s, start, i);
+            }
+            if (i == len) {
+                return;
+            }
+            char ch = s.charAt(i);
+            byte esc = ch < 128 ? escapes[ch] : UNICODE;
+            write('\\');
+            if (esc == UNICODE) {
+                write('u');
+                write(HEX[(ch >> 12) & 0xF]);
+                write(HEX[(ch >> 8) & 0xF]);
+                write(HEX[(ch >> 4) & 0xF]);
+                write(HEX[ch & 0xF]);
+            } else {
+                write((char) esc);
+            }
+            start = i + 1;
+        }
+    }
+
+    /**
+     * Finds the first character that must be escaped.
+     *
+     * @param s - The String to search
+     * @param start - The index to start at
+     * @param escapes - The table of escapes for ASCII characters
+     * @param symbols - Escape the characters from U+2000 through U+20FF or not
+     * @return The index of the character or the length of the String if there is none
+     */
+    static int indexOfEscape(String s, int start, byte[] escapes, boolean symbols) {
+        final int len = s.length();
+        for (int i = start; i < len; i++) {
+            char ch = s.charAt(i);
+            if (ch < 128) {
+                if (escapes[ch] != 0) {
+                    return i;
+                }
+            } else if (ch <= '\u009F' || (symbols && ch >= '\u2000' && ch <= '\u20FF')) {
+                // Reference: http://www.unicode.org/versions/Unicode5.1.0/
+                return i;
+            }
+        }
+        return len;
+    }
+
+    private void beforeValue() throws IOException {
+        switch (stack[depth]) {
+            case EMPTY_DOCUMENT:
+                stack[depth] = NONEMPTY_DOCUMENT;
+                break;
+            case EMPTY_ARRAY:
+                stack[depth] = NONEMPTY_ARRAY;
+                if (indent > 0 && !inline) {
+                    newLine(depth);
+                }
+                break;
+            case NONEMPTY_ARRAY:
+                write(',');
+                if (inline) {
+                    write(' ');
+                } else if (indent > 0) {
+                    newLine(depth);
+                }
+                break;
+            case DANGLING_NAME:
+                stack[depth] = NONEMPTY_OBJECT;
+                break;
+            case NONEMPTY_DOCUMENT:
+                throw new IllegalStateException("JSON must have only one top-level value");
+            default:
+                throw new IllegalStateException("Expected a name");
+        }
+    }
+
+    // Writes a newline and the indentation for the given depth
+    private void newLine(int depth) throws IOException {
+        int len = newline.length() + depth * indent;
+        if (len > lines.length) {
+            lines = new char[Math.max(len, Math.max(lines.length * 2, 64))];
+            Arrays.fill(lines, ' ');
+            newline.getChars(0, newline.length(), lines, 0);
+        }
+        write(lines, 0, len);
+    }
+
+    private void push(byte state) {
+        if (++depth == stack.length) {
+            stack = Arrays.copyOf(stack, depth * 2);
+            iterators = Arrays.copyOf(iterators, depth * 2);
+        }
+        stack[depth] = state;
+    }
+}
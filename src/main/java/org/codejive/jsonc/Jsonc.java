@@ -1,31 +1,42 @@
 package org.codejive.jsonc;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.Reader;
 import java.io.StringReader;
-import java.io.StringWriter;
 import java.io.Writer;
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
 import java.util.Collection;
-// import java.util.List;
-import java.util.Iterator;
 import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
 import org.codejive.jsonc.parser.JsonParseException;
 import org.codejive.jsonc.parser.JsonParser;
+import org.codejive.jsonc.parser.JsonParserPool;
 
 public class Jsonc {
+    // Used by the parse methods, so their buffers get reused from one call to the next
+    private static final JsonParserPool PARSERS = new JsonParserPool();
+
+    // The same goes for the writers used by the write and toJSONString methods
+    private static final ArrayBlockingQueue<CharJsonWriter> WRITERS =
+            new ArrayBlockingQueue<>(2 * Runtime.getRuntime().availableProcessors());
+    private static final ArrayBlockingQueue<Utf8JsonWriter> UTF8_WRITERS =
+            new ArrayBlockingQueue<>(2 * Runtime.getRuntime().availableProcessors());
 
     public static JsonPrimitive string(String s) {
         return new JsonPrimitive(JsonPrimitive.Type.STRING, s);
     }
 
     public static JsonPrimitive number(int n) {
-        return new JsonPrimitive(JsonPrimitive.Type.INTEGER, Integer.toString(n));
+        return new JsonPrimitive((long) n);
     }
 
     public static JsonPrimitive number(long l) {
-        return new JsonPrimitive(JsonPrimitive.Type.INTEGER, Long.toString(l));
+        return new JsonPrimitive(l);
     }
 
     public static JsonPrimitive number(BigInteger bi) {
@@ -37,19 +48,21 @@ public class Jsonc {
     }
 
     public static JsonPrimitive number(double d) {
-        return new JsonPrimitive(JsonPrimitive.Type.REAL, Double.toString(d));
+        return new JsonPrimitive(d);
     }
 
     public static JsonPrimitive number(BigDecimal bd) {
         return new JsonPrimitive(JsonPrimitive.Type.REAL, bd.toString());
     }
 
+    /** @return The shared instance for the given boolean */
     public static JsonPrimitive bool(boolean b) {
-        return new JsonPrimitive(JsonPrimitive.Type.BOOLEAN, Boolean.toString(b));
+        return b ? JsonPrimitive.TRUE : JsonPrimitive.FALSE;
     }
 
+    /** @return The shared instance for null */
     public static JsonPrimitive nil() {
-        return new JsonPrimitive(JsonPrimitive.Type.NULL, "null");
+        return JsonPrimitive.NULL;
     }
 
     /**
@@ -66,8 +79,7 @@ public class Jsonc {
      */
     public static Object parse(Reader in) {
         try {
-            JsonParser parser = new JsonParser();
-            return parser.parse(in);
+            return PARSERS.parse(in);
         } catch (Exception e) {
             return null;
         }
@@ -101,13 +113,49 @@ public class Jsonc {
      * @throws JsonParseException
      */
     public static Object parseWithException(Reader in) throws IOException, JsonParseException {
-        JsonParser parser = new JsonParser();
-        return parser.parse(in);
+        return PARSERS.parse(in);
     }
 
     public static Object parseWithException(String s) throws JsonParseException {
-        JsonParser parser = new JsonParser();
-        return parser.parse(s);
+        return PARSERS.parse(s);
+    }
+
+    /**
+     * Parse UTF-8 encoded JSON text into java object from the input stream, without decoding it to
+     * characters first.
+     *
+     * @see JsonParser#parse(InputStream)
+     * @param in
+     * @return Instance of the following: org.json.simple.JSONObject, org.json.simple.JSONArray,
+     *     java.lang.String, java.lang.Number, java.lang.Boolean, null
+     * @throws IOException
+     * @throws JsonParseException
+     */
+    public static Object parseWithException(InputStream in) throws IOException, JsonParseException {
+        return PARSERS.parse(in);
+    }
+
+    public static Object parseWithException(byte[] b) throws JsonParseException {
+        return PARSERS.parse(b);
+    }
+
+    public static Object parseWithException(ByteBuffer bb) throws JsonParseException {
+        return PARSERS.parse(bb);
+    }
+
+    /**
+     * Parse the UTF-8 encoded JSON text in the given file into java object. The file is
+     * memory-mapped instead of being read.
+     *
+     * @see JsonParser#parse(Path)
+     * @param file
+     * @return Instance of the following: org.json.simple.JSONObject, org.json.simple.JSONArray,
+     *     java.lang.String, java.lang.Number, java.lang.Boolean, null
+     * @throws IOException
+     * @throws JsonParseException
+     */
+    public static Object parseWithException(Path file) throws IOException, JsonParseException {
+        return PARSERS.parse(file);
     }
 
     /**
@@ -115,71 +163,158 @@ public class Jsonc {
      *
      * @param value
      * @param out
+     * @see JsonWriter#value(Object)
      */
     public static void writeJSONString(Object value, Writer out, boolean raw) throws IOException {
-        if (value == null) {
-            out.write("null");
-            return;
+        CharJsonWriter writer = acquireWriter(out, raw);
+        try {
+            writer.value(value);
+            writer.flushBuffer();
+        } finally {
+            releaseWriter(writer);
         }
+    }
 
-        if (value instanceof JsonPrimitive) {
-            writeJSONString((JsonPrimitive) value, out, raw);
-            return;
+    /** Convert an object to JSON text. */
+    public static String toJSONString(Object value, boolean raw) {
+        CharJsonWriter writer = acquireWriter(null, raw);
+        try {
+            writer.value(value);
+            return writer.contents();
+        } catch (IOException e) {
+            // This should never happen without a Writer
+            throw new RuntimeException(e);
+        } finally {
+            releaseWriter(writer);
         }
+    }
 
-        if (value instanceof String) {
-            out.write('\"');
-            out.write(escape((String) value));
-            out.write('\"');
-            return;
+    /**
+     * Encode an object into JSON text using the given layout and write it to out.
+     *
+     * @param value - The value to write
+     * @param out - The Writer to write to
+     * @param format - The layout of the text
+     * @see JsonWriter#format(JsonFormat)
+     */
+    public static void writeJSONString(Object value, Writer out, JsonFormat format)
+            throws IOException {
+        CharJsonWriter writer = acquireWriter(out, true);
+        try {
+            writer.format(format).value(value);
+            writer.flushBuffer();
+        } finally {
+            releaseWriter(writer);
         }
+    }
 
-        if (value instanceof Double) {
-            if (((Double) value).isInfinite() || ((Double) value).isNaN()) out.write("null");
-            else out.write(value.toString());
-            return;
+    /** Convert an object to JSON text using the given layout. */
+    public static String toJSONString(Object value, JsonFormat format) {
+        CharJsonWriter writer = acquireWriter(null, true);
+        try {
+            writer.format(format).value(value);
+            return writer.contents();
+        } catch (IOException e) {
+            // This should never happen without a Writer
+            throw new RuntimeException(e);
+        } finally {
+            releaseWriter(writer);
         }
+    }
 
-        if (value instanceof Float) {
-            if (((Float) value).isInfinite() || ((Float) value).isNaN()) out.write("null");
-            else out.write(value.toString());
-            return;
+    /**
+     * Encode an object into JSON text and write it to out as UTF-8. The stream doesn't get flushed.
+     *
+     * @param value - The value to write
+     * @param out - The stream to write to
+     * @see JsonWriter#value(Object)
+     */
+    public static void writeJSONBytes(Object value, OutputStream out) throws IOException {
+        Utf8JsonWriter writer = acquireUtf8Writer(out, null);
+        try {
+            writer.value(value);
+            writer.flushBuffer();
+        } finally {
+            releaseUtf8Writer(writer);
         }
+    }
 
-        if (value instanceof Number) {
-            out.write(value.toString());
-            return;
+    /**
+     * Encode an object into JSON text and put it in the given buffer as UTF-8, starting at its
+     * current position.
+     *
+     * @param value - The value to write
+     * @param bb - The buffer to write to
+     * @throws java.nio.BufferOverflowException if the result doesn't fit in the buffer
+     */
+    public static void writeJSONBytes(Object value, ByteBuffer bb) {
+        Utf8JsonWriter writer = acquireUtf8Writer(null, bb);
+        try {
+            writer.value(value);
+            writer.flushBuffer();
+        } catch (IOException e) {
+            // This should never happen for a ByteBuffer
+            throw new RuntimeException(e);
+        } finally {
+            releaseUtf8Writer(writer);
         }
+    }
 
-        if (value instanceof Boolean) {
-            out.write(value.toString());
-            return;
-        }
+    /**
+     * Encode an object into JSON text and put it in the given array as UTF-8, starting at index 0.
+     *
+     * @param value - The value to write
+     * @param b - The array to write to
+     * @return The number of bytes written
+     * @throws java.nio.BufferOverflowException if the result doesn't fit in the array
+     */
+    public static int writeJSONBytes(Object value, byte[] b) {
+        ByteBuffer bb = ByteBuffer.wrap(b);
+        writeJSONBytes(value, bb);
+        return bb.position();
+    }
 
-        if (value instanceof Map) {
-            writeJSONString((Map) value, out, raw);
-            return;
+    /** Convert an object to JSON text, encoded as UTF-8. */
+    public static byte[] toJSONBytes(Object value) {
+        Utf8JsonWriter writer = acquireUtf8Writer(null, null);
+        try {
+            writer.value(value);
+            return writer.contents();
+        } catch (IOException e) {
+            // This should never happen without an output
+            throw new RuntimeException(e);
+        } finally {
+            releaseUtf8Writer(writer);
         }
+    }
 
-        if (value instanceof Collection) {
-            writeJSONString((Collection) value, out, raw);
-            return;
+    private static CharJsonWriter acquireWriter(Writer out, boolean raw) {
+        CharJsonWriter writer = WRITERS.poll();
+        if (writer == null) {
+            writer = new CharJsonWriter();
         }
-
-        out.write(value.toString());
+        writer.reset(out);
+        writer.decoded = !raw;
+        return writer;
     }
 
-    /** Convert an object to JSON text. */
-    public static String toJSONString(Object value, boolean raw) {
-        final StringWriter writer = new StringWriter();
+    private static void releaseWriter(CharJsonWriter writer) {
+        writer.release();
+        WRITERS.offer(writer);
+    }
 
-        try {
-            writeJSONString(value, writer, raw);
-            return writer.toString();
-        } catch (IOException e) {
-            // This should never happen for a StringWriter
-            throw new RuntimeException(e);
+    private static Utf8JsonWriter acquireUtf8Writer(OutputStream out, ByteBuffer bb) {
+        Utf8JsonWriter writer = UTF8_WRITERS.poll();
+        if (writer == null) {
+            writer = new Utf8JsonWriter();
         }
+        writer.reset(out, bb);
+        return writer;
+    }
+
+    private static void releaseUtf8Writer(Utf8JsonWriter writer) {
+        writer.release();
+        UTF8_WRITERS.offer(writer);
     }
 
     /** Convert an object to JSON text. */
@@ -194,66 +329,79 @@ public class Jsonc {
 
     /**
      * Escape quotes, \, /, \r, \n, \b, \f, \t and other control characters (U+0000 through U+001F).
+     * Strings that contain nothing that needs escaping are returned as they are.
      *
      * @param s
      * @return
+     * @see JsonWriter#value(String)
      */
     public static String escape(String s) {
         if (s == null) return null;
-        StringBuffer sb = new StringBuffer();
-        escape(s, sb);
-        return sb.toString();
+        if (JsonWriter.indexOfEscape(s, 0, JsonWriter.ESCAPES, true) == s.length()) {
+            return s;
+        }
+        CharJsonWriter writer = acquireWriter(null, true);
+        try {
+            writer.writeEscaped(s);
+            return writer.contents();
+        } catch (IOException e) {
+            // This should never happen without a Writer
+            throw new RuntimeException(e);
+        } finally {
+            releaseWriter(writer);
+        }
     }
 
     /**
-     * @param s - Must not be null.
-     * @param sb
+     * Decode the escapes in the contents of a JSON string, the reverse of {@link #escape(String)}.
+     * Unknown escapes result in the escaped character itself.
+     *
+     * @param s
+     * @return
      */
-    static void escape(String s, StringBuffer sb) {
+    public static String unescape(String s) {
+        if (s == null) return null;
+        int i = s.indexOf('\\');
+        if (i < 0) return s;
         final int len = s.length();
-        for (int i = 0; i < len; i++) {
+        StringBuilder sb = new StringBuilder(len);
+        sb.append(s, 0, i);
+        for (; i < len; i++) {
             char ch = s.charAt(i);
+            if (ch != '\\' || i + 1 == len) {
+                sb.append(ch);
+                continue;
+            }
+            ch = s.charAt(++i);
             switch (ch) {
-                case '"':
-                    sb.append("\\\"");
-                    break;
-                case '\\':
-                    sb.append("\\\\");
-                    break;
-                case '\b':
-                    sb.append("\\b");
-                    break;
-                case '\f':
-                    sb.append("\\f");
+                case 'b':
+                    sb.append('\b');
                     break;
-                case '\n':
-                    sb.append("\\n");
+                case 'f':
+                    sb.append('\f');
                     break;
-                case '\r':
-                    sb.append("\\r");
+                case 'n':
+                    sb.append('\n');
                     break;
-                case '\t':
-                    sb.append("\\t");
+                case 'r':
+                    sb.append('\r');
                     break;
-                case '/':
-                    sb.append("\\/");
+                case 't':
+                    sb.append('\t');
                     break;
-                default:
-                    // Reference: http://www.unicode.org/versions/Unicode5.1.0/
-                    if ((ch >= '\u0000' && ch <= '\u001F')
-                            || (ch >= '\u007F' && ch <= '\u009F')
-                            || (ch >= '\u2000' && ch <= '\u20FF')) {
-                        String ss = Integer.toHexString(ch);
-                        sb.append("\\u");
-                        for (int k = 0; k < 4 - ss.length(); k++) {
-                            sb.append('0');
-                        }
-                        sb.append(ss.toUpperCase());
-                    } else {
-                        sb.append(ch);
+                case 'u':
+                    if (i + 4 < len) {
+                        sb.append((char) Integer.parseInt(s.substring(i + 1, i + 5), 16));
+                        i += 4;
+                        break;
                     }
+                    // fall through
+                default:
+                    sb.append(ch);
+                    break;
             }
-        } // for
+        }
+        return sb.toString();
     }
 
     /**
@@ -268,28 +416,7 @@ public class Jsonc {
      */
     public static void writeJSONString(Collection<Object> collection, Writer out, boolean raw)
             throws IOException {
-        if (collection == null) {
-            out.write("null");
-            return;
-        }
-
-        boolean first = true;
-        Iterator<Object> iter = collection.iterator();
-
-        out.write('[');
-        while (iter.hasNext()) {
-            if (first) first = false;
-            else out.write(',');
-
-            Object value = iter.next();
-            if (value == null) {
-                out.write("null");
-                continue;
-            }
-
-            writeJSONString(value, out, raw);
-        }
-        out.write(']');
+        writeJSONString((Object) collection, out, raw);
     }
 
     /**
@@ -301,15 +428,7 @@ public class Jsonc {
      * @return JSON text, or "null" if list is null.
      */
     public static String toJSONString(Collection<Object> collection, boolean raw) {
-        final StringWriter writer = new StringWriter();
-
-        try {
-            writeJSONString(collection, writer, raw);
-            return writer.toString();
-        } catch (IOException e) {
-            // This should never happen for a StringWriter
-            throw new RuntimeException(e);
-        }
+        return toJSONString((Object) collection, raw);
     }
 
     /**
@@ -322,26 +441,7 @@ public class Jsonc {
      */
     public static void writeJSONString(Map<String, Object> map, Writer out, boolean raw)
             throws IOException {
-        if (map == null) {
-            out.write("null");
-            return;
-        }
-
-        boolean first = true;
-        Iterator<Map.Entry<String, Object>> iter = map.entrySet().iterator();
-
-        out.write('{');
-        while (iter.hasNext()) {
-            if (first) first = false;
-            else out.write(',');
-            Map.Entry<String, Object> entry = iter.next();
-            out.write('\"');
-            out.write(escape(String.valueOf(entry.getKey())));
-            out.write('\"');
-            out.write(':');
-            writeJSONString(entry.getValue(), out, raw);
-        }
-        out.write('}');
+        writeJSONString((Object) map, out, raw);
     }
 
     /**
@@ -352,38 +452,15 @@ public class Jsonc {
      * @return JSON text, or "null" if map is null.
      */
     public static String toJSONString(Map<String, Object> map, boolean raw) {
-        final StringWriter writer = new StringWriter();
-
-        try {
-            writeJSONString(map, writer, raw);
-            return writer.toString();
-        } catch (IOException e) {
-            // This should never happen with a StringWriter
-            throw new RuntimeException(e);
-        }
+        return toJSONString((Object) map, raw);
     }
 
     public static void writeJSONString(JsonPrimitive p, Writer out, boolean raw)
             throws IOException {
-        String val = raw ? p.rawValue : p.value;
-        if (p.isString()) {
-            out.write("\"");
-            out.write(val);
-            out.write("\"");
-        } else {
-            out.write(val);
-        }
+        writeJSONString((Object) p, out, raw);
     }
 
     public static String toJSONString(JsonPrimitive p, boolean raw) {
-        final StringWriter writer = new StringWriter();
-
-        try {
-            writeJSONString(p, writer, raw);
-            return writer.toString();
-        } catch (IOException e) {
-            // This should never happen with a StringWriter
-            throw new RuntimeException(e);
-        }
+        return toJSONString((Object) p, raw);
     }
 }
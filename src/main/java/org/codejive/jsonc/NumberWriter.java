@@ -0,0 +1,363 @@
+package org.codejive.jsonc;
+
+import java.math.BigInteger;
+
+/**
+ * Turns longs and doubles into text, writing the characters straight into an array. Everything that
+ * turns doubles into JSON text uses this, so a double always gets the same text.
+ *
+ * <p>Doubles are written using the Schubfach algorithm by Raffaello Giulietti, the same one {@link
+ * Double#toString(double)} uses since Java 19, with the same result: the shortest decimal that
+ * reads back as the same double, in the same format. Older versions of Double.toString() sometimes
+ * write more digits than needed, and they allocate quite a bit. See "The Schubfach way to render
+ * doubles" by Raffaello Giulietti for the details.
+ */
+public final class NumberWriter {
+    // Enough for "-9223372036854775808" and "-2.2250738585072014E-308"
+    static final int MAX_LENGTH = 24;
+
+    private static final char[] DIGIT_PAIRS = new char[200];
+
+    // 10^0 through 10^18
+    private static final long[] POW10 = new long[19];
+
+    // The precision of a double in bits, the minimum exponent and the minimum significand
+    private static final int P = 53;
+    private static final int Q_MIN = -1074;
+    private static final long C_MIN = 1L << (P - 1);
+    // Subnormals with a smaller significand get one extra digit
+    private static final int C_TINY = 3;
+    // The range of the decimal exponents and the maximum number of digits
+    private static final int K_MIN = -324;
+    private static final int K_MAX = 292;
+    private static final int H = 17;
+
+    private static final long MASK_63 = (1L << 63) - 1;
+    private static final int MASK_28 = (1 << 28) - 1;
+
+    // For each k in K_MIN..K_MAX the two halves g1 and g0 of the 126 bit number g, with
+    // (g - 1) 2^r <= 10^-k < g 2^r for the r that makes 2^125 <= g < 2^126
+    private static final long[] G = new long[2 * (K_MAX - K_MIN + 1)];
+
+    static {
+        for (int i = 0; i < 100; i++) {
+            DIGIT_PAIRS[2 * i] = (char) ('0' + i / 10);
+            DIGIT_PAIRS[2 * i + 1] = (char) ('0' + i % 10);
+        }
+        POW10[0] = 1;
+        for (int i = 1; i < POW10.length; i++) {
+            POW10[i] = 10 * POW10[i - 1];
+        }
+        BigInteger n = BigInteger.ONE;
+        for (int k = 0; k >= K_MIN; k--) {
+            int shift = 126 - n.bitLength();
+            setG(k, shift >= 0 ? n.shiftLeft(shift) : n.shiftRight(-shift));
+            n = n.multiply(BigInteger.TEN);
+        }
+        BigInteger d = BigInteger.ONE;
+        for (int k = 1; k <= K_MAX; k++) {
+            d = d.multiply(BigInteger.TEN);
+            setG(k, BigInteger.ONE.shiftLeft(125 + d.bitLength()).divide(d));
+        }
+    }
+
+    private static void setG(int k, BigInteger floor) {
+        BigInteger g = floor.add(BigInteger.ONE);
+        G[2 * (k - K_MIN)] = g.shiftRight(63).longValue();
+        G[2 * (k - K_MIN) + 1] = g.longValue() & MASK_63;
+    }
+
+    private NumberWriter() {}
+
+    /**
+     * Turns a double into the shortest text that reads back as the same double, the same way {@link
+     * Double#toString(double)} does since Java 19.
+     *
+     * @param v - The value
+     * @return The text for the value
+     */
+    public static String toString(double v) {
+        char[] buf = new char[MAX_LENGTH];
+        return new String(buf, 0, write(v, buf, 0));
+    }
+
+    /**
+     * Writes a long using pairs of digits.
+     *
+     * @param v - The value to write
+     * @param buf - The array to write to, must have room for {@link #MAX_LENGTH} characters
+     * @param pos - The index to start writing at
+     * @return The index following the last character that was written
+     */
+    static int write(long v, char[] buf, int pos) {
+        if (v < 0) {
+            if (v == Long.MIN_VALUE) {
+                "-9223372036854775808".getChars(0, 20, buf, pos);
+                return pos + 20;
+            }
+            buf[pos++] = '-';
+            v = -v;
+        }
+        int len = 1;
+        while (len < POW10.length && v >= POW10[len]) {
+            len++;
+        }
+        int end = pos + len;
+        int p = end;
+        while (v >= Integer.MAX_VALUE) {
+            long q = v / 100;
+            int r = (int) (v - 100 * q) << 1;
+            v = q;
+            buf[--p] = DIGIT_PAIRS[r + 1];
+            buf[--p] = DIGIT_PAIRS[r];
+        }
+        int i = (int) v;
+        while (i >= 100) {
+            int q = i / 100;
+            int r = (i - 100 * q) << 1;
+            i = q;
+            buf[--p] = DIGIT_PAIRS[r + 1];
+            buf[--p] = DIGIT_PAIRS[r];
+        }
+        if (i >= 10) {
+            buf[--p] = DIGIT_PAIRS[(i << 1) + 1];
+            buf[--p] = DIGIT_PAIRS[i << 1];
+        } else {
+            buf[--p] = (char) ('0' + i);
+        }
+        return end;
+    }
+
+    /**
+     * Writes a double the way {@link Double#toString(double)} does since Java 19.
+     *
+     * @param v - The value to write
+     * @param buf - The array to write to, must have room for {@link #MAX_LENGTH} characters
+     * @param pos - The index to start writing at
+     * @return The index following the last character that was written
+     */
+    static int write(double v, char[] buf, int pos) {
+        long bits = Double.doubleToRawLongBits(v);
+        long t = bits & (C_MIN - 1);
+        int bq = (int) (bits >>> (P - 1)) & 0x7FF;
+        if (bq == 0x7FF) {
+            String s = t != 0 ? "NaN" : bits < 0 ? "-Infinity" : "Infinity";
+            s.getChars(0, s.length(), buf, pos);
+            return pos + s.length();
+        }
+        if (bits < 0) {
+            buf[pos++] = '-';
+        }
+        if (bq != 0) {
+            // A normal value, with mq = -q
+            int mq = -Q_MIN + 1 - bq;
+            long c = C_MIN | t;
+            if (0 < mq && mq < P) {
+                // Integers have an exact representation that is short enough
+                long f = c >> mq;
+                if (f << mq == c) {
+                    return toChars(f, 0, buf, pos);
+                }
+            }
+            return toDecimal(-mq, c, 0, buf, pos);
+        }
+        if (t != 0) {
+            // A subnormal value
+            return t < C_TINY
+                    ? toDecimal(Q_MIN, 10 * t, -1, buf, pos)
+                    : toDecimal(Q_MIN, t, 0, buf, pos);
+        }
+        buf[pos++] = '0';
+        buf[pos++] = '.';
+        buf[pos++] = '0';
+        return pos;
+    }
+
+    // Finds the shortest decimal in the rounding interval of c 2^q and writes it
+    private static int toDecimal(int q, long c, int dk, char[] buf, int pos) {
+        int out = (int) c & 0x1;
+        long cb = c << 2;
+        long cbr = cb + 2;
+        long cbl;
+        int k;
+        if (c != C_MIN || q == Q_MIN) {
+            cbl = cb - 2;
+            k = flog10pow2(q);
+        } else {
+            // The interval is asymmetric at powers of two
+            cbl = cb - 1;
+            k = flog10threeQuartersPow2(q);
+        }
+        int h = q + flog2pow10(-k) + 2;
+
+        long g1 = G[2 * (k - K_MIN)];
+        long g0 = G[2 * (k - K_MIN) + 1];
+
+        long vb = rop(g1, g0, cb << h);
+        long vbl = rop(g1, g0, cbl << h);
+        long vbr = rop(g1, g0, cbr << h);
+
+        long s = vb >> 2;
+        if (s >= 100) {
+            // Try one digit less first: sp10 = 10 floor(s / 10)
+            long sp10 = 10 * multiplyHigh(s, 115_292_150_460_684_698L << 4);
+            long tp10 = sp10 + 10;
+            boolean upin = vbl + out <= sp10 << 2;
+            boolean wpin = (tp10 << 2) + out <= vbr;
+            if (upin != wpin) {
+                return toChars(upin ? sp10 : tp10, k, buf, pos);
+            }
+        }
+
+        long t = s + 1;
+        boolean uin = vbl + out <= s << 2;
+        boolean win = (t << 2) + out <= vbr;
+        if (uin != win) {
+            return toChars(uin ? s : t, k + dk, buf, pos);
+        }
+        // Both are in the interval, take the closest one, or the even one on a tie
+        long cmp = vb - ((s + t) << 1);
+        return toChars(cmp < 0 || cmp == 0 && (s & 0x1) == 0 ? s : t, k + dk, buf, pos);
+    }
+
+    // Rounds to odd, (g1 2^63 + g0) cp 2^-127
+    private static long rop(long g1, long g0, long cp) {
+        long x1 = multiplyHigh(g0, cp);
+        long y0 = g1 * cp;
+        long y1 = multiplyHigh(g1, cp);
+        long z = (y0 >>> 1) + x1;
+        long vbp = y1 + (z >>> 63);
+        return vbp | ((z & MASK_63) + MASK_63) >>> 63;
+    }
+
+    // Writes f 10^e in plain format when 10^-3 <= f 10^e < 10^7, in scientific notation otherwise
+    private static int toChars(long f, int e, char[] buf, int pos) {
+        int len = flog10pow2(Long.SIZE - Long.numberOfLeadingZeros(f));
+        if (f >= POW10[len]) {
+            len++;
+        }
+        // Make f exactly H digits long, so f 10^e = 0.f 10^e
+        f *= POW10[H - len];
+        e += len;
+
+        // Split f in its first digit h, the next 8 digits m and the last 8 digits l
+        long hm = multiplyHigh(f, 193_428_131_138_340_668L) >>> 20;
+        int l = (int) (f - 100_000_000 * hm);
+        int h = (int) (hm * 1_441_151_881 >>> 57);
+        int m = (int) (hm - 100_000_000 * h);
+
+        if (0 < e && e <= 7) {
+            // Plain format without leading zeroes
+            buf[pos++] = (char) ('0' + h);
+            int y = y(m);
+            int i = 1;
+            for (; i < e; i++) {
+                int d = 10 * y;
+                buf[pos++] = (char) ('0' + (d >>> 28));
+                y = d & MASK_28;
+            }
+            buf[pos++] = '.';
+            for (; i <= 8; i++) {
+                int d = 10 * y;
+                buf[pos++] = (char) ('0' + (d >>> 28));
+                y = d & MASK_28;
+            }
+            return lowDigits(l, buf, pos);
+        }
+        if (-3 < e && e <= 0) {
+            // Plain format with leading zeroes
+            buf[pos++] = '0';
+            buf[pos++] = '.';
+            for (; e < 0; e++) {
+                buf[pos++] = '0';
+            }
+            buf[pos++] = (char) ('0' + h);
+            pos = write8Digits(m, buf, pos);
+            return lowDigits(l, buf, pos);
+        }
+        buf[pos++] = (char) ('0' + h);
+        buf[pos++] = '.';
+        pos = write8Digits(m, buf, pos);
+        pos = lowDigits(l, buf, pos);
+        return exponent(e - 1, buf, pos);
+    }
+
+    private static int lowDigits(int l, char[] buf, int pos) {
+        if (l != 0) {
+            pos = write8Digits(l, buf, pos);
+        }
+        // Remove trailing zeroes, but keep the one right after the '.'
+        while (buf[pos - 1] == '0') {
+            pos--;
+        }
+        if (buf[pos - 1] == '.') {
+            pos++;
+        }
+        return pos;
+    }
+
+    // Writes the 8 digits of m, left to right
+    private static int write8Digits(int m, char[] buf, int pos) {
+        int y = y(m);
+        for (int i = 0; i < 8; i++) {
+            int d = 10 * y;
+            buf[pos++] = (char) ('0' + (d >>> 28));
+            y = d & MASK_28;
+        }
+        return pos;
+    }
+
+    // floor((a + 1) 2^28 / 10^8) - 1
+    private static int y(int a) {
+        return (int) (multiplyHigh((long) (a + 1) << 28, 193_428_131_138_340_668L) >>> 20) - 1;
+    }
+
+    private static int exponent(int e, char[] buf, int pos) {
+        buf[pos++] = 'E';
+        if (e < 0) {
+            buf[pos++] = '-';
+            e = -e;
+        }
+        if (e >= 100) {
+            buf[pos++] = (char) ('0' + e / 100);
+            e %= 100;
+            buf[pos++] = DIGIT_PAIRS[e << 1];
+            buf[pos++] = DIGIT_PAIRS[(e << 1) + 1];
+        } else if (e >= 10) {
+            buf[pos++] = DIGIT_PAIRS[e << 1];
+            buf[pos++] = DIGIT_PAIRS[(e << 1) + 1];
+        } else {
+            buf[pos++] = (char) ('0' + e);
+        }
+        return pos;
+    }
+
+    // floor(log10(2^e))
+    private static int flog10pow2(int e) {
+        return (int) (e * 661_971_961_083L >> 41);
+    }
+
+    // floor(log10(3/4 2^e))
+    private static int flog10threeQuartersPow2(int e) {
+        return (int) ((e * 661_971_961_083L + -274_743_187_321L) >> 41);
+    }
+
+    // floor(log2(10^e))
+    private static int flog2pow10(int e) {
+        return (int) (e * 913_124_641_741L >> 38);
+    }
+
+    // Math.multiplyHigh(), which needs Java 9
+    private static long multiplyHigh(long x, long y) {
+        long x1 = x >> 32;
+        long x2 = x & 0xFFFFFFFFL;
+        long y1 = y >> 32;
+        long y2 = y & 0xFFFFFFFFL;
+        long z2 = x2 * y2;
+        long t = x1 * y2 + (z2 >>> 32);
+        long z1 = t & 0xFFFFFFFFL;
+        long z0 = t >> 32;
+        z1 += x2 * y1;
+        return x1 * y1 + z0 + (z1 >> 32);
+    }
+}
@@ -0,0 +1,465 @@
+package org.codejive.jsonc;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+
+/**
+ * Base class for JSON arrays that store their elements in an array of primitives instead of as
+ * {@link JsonPrimitive} objects. Elements are still returned as JsonPrimitives, they get created on
+ * the fly. As soon as an element gets added that can't be stored as a primitive the array
+ * "inflates": all of its elements get moved to the normal {@link JsonArray} storage and from then
+ * on it behaves exactly like a normal JsonArray. The same happens for the less common bulk
+ * operations.
+ */
+abstract class PrimitiveJsonArray extends JsonArray {
+    private static final long serialVersionUID = 4012620593367950346L;
+
+    // The number of elements, as long as the array isn't inflated
+    int count;
+    private boolean inflated;
+
+    /** @return The element at the given index, which is less than count */
+    abstract JsonPrimitive element(int index);
+
+    /**
+     * Stores the value at the given index, the index is less than count.
+     *
+     * @return false if the value can't be stored as a primitive
+     */
+    abstract boolean setElement(int index, Object value);
+
+    /**
+     * Inserts the value at the given index, moving the elements following it. Takes care of
+     * incrementing count.
+     *
+     * @return false if the value can't be stored as a primitive
+     */
+    abstract boolean insertElement(int index, Object value);
+
+    /** Removes the element at the given index, moving the elements following it. */
+    abstract void removeElement(int index);
+
+    /** Drops the primitive storage after the array got inflated. */
+    abstract void release();
+
+    /** @return true if the elements are stored as primitives */
+    public boolean isPrimitive() {
+        return !inflated;
+    }
+
+    /** Moves all elements to the normal JsonArray storage. */
+    void inflate() {
+        if (!inflated) {
+            super.ensureCapacity(count);
+            for (int i = 0; i < count; i++) {
+                super.add(element(i));
+            }
+            inflated = true;
+            count = 0;
+            release();
+        }
+    }
+
+    void checkIndex(int index) {
+        if (index < 0 || index >= count) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + count);
+        }
+    }
+
+    @Override
+    public int size() {
+        return inflated ? super.size() : count;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    @Override
+    public Object get(int index) {
+        if (inflated) {
+            return super.get(index);
+        }
+        checkIndex(index);
+        return element(index);
+    }
+
+    @Override
+    public Object set(int index, Object element) {
+        if (!inflated) {
+            checkIndex(index);
+            JsonPrimitive old = element(index);
+            if (setElement(index, element)) {
+                return old;
+            }
+            inflate();
+        }
+        return super.set(index, element);
+    }
+
+    @Override
+    public boolean add(Object o) {
+        if (!inflated) {
+            if (insertElement(count, o)) {
+                modCount++;
+                return true;
+            }
+            inflate();
+        }
+        return super.add(o);
+    }
+
+    @Override
+    public void add(int index, Object element) {
+        if (!inflated) {
+            if (index < 0 || index > count) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + count);
+            }
+            if (insertElement(index, element)) {
+                modCount++;
+                return;
+            }
+            inflate();
+        }
+        super.add(index, element);
+    }
+
+    @Override
+    public Object remove(int index) {
+        if (inflated) {
+            return super.remove(index);
+        }
+        checkIndex(index);
+        JsonPrimitive old = element(index);
+        removeElement(index);
+        modCount++;
+        return old;
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        if (inflated) {
+            return super.remove(o);
+        }
+        int i = indexOf(o);
+        if (i < 0) {
+            return false;
+        }
+        remove(i);
+        return true;
+    }
+
+    @Override
+    public void clear() {
+        if (inflated) {
+            super.clear();
+        } else {
+            count = 0;
+            modCount++;
+        }
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return indexOf(o) >= 0;
+    }
+
+    @Override
+    public int indexOf(Object o) {
+        if (inflated) {
+            return super.indexOf(o);
+        }
+        for (int i = 0; i < count; i++) {
+            if (element(i).equals(o)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public int lastIndexOf(Object o) {
+        if (inflated) {
+            return super.lastIndexOf(o);
+        }
+        for (int i = count - 1; i >= 0; i--) {
+            if (element(i).equals(o)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public Object[] toArray() {
+        if (inflated) {
+            return super.toArray();
+        }
+        Object[] result = new Object[count];
+        for (int i = 0; i < count; i++) {
+            result[i] = element(i);
+        }
+        return result;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T[] toArray(T[] a) {
+        if (inflated) {
+            return super.toArray(a);
+        }
+        T[] result = a.length >= count ? a : Arrays.copyOf(a, count);
+        for (int i = 0; i < count; i++) {
+            result[i] = (T) element(i);
+        }
+        if (result.length > count) {
+            result[count] = null;
+        }
+        return result;
+    }
+
+    @Override
+    public boolean addAll(Collection<?> c) {
+        if (inflated) {
+            return super.addAll(c);
+        }
+        for (Object o : c) {
+            add(o);
+        }
+        return !c.isEmpty();
+    }
+
+    @Override
+    public boolean addAll(int index, Collection<?> c) {
+        inflate();
+        return super.addAll(index, c);
+    }
+
+    @Override
+    public boolean removeAll(Collection<?> c) {
+        inflate();
+        return super.removeAll(c);
+    }
+
+    @Override
+    public boolean retainAll(Collection<?> c) {
+        inflate();
+        return super.retainAll(c);
+    }
+
+    @Override
+    public boolean removeIf(Predicate<? super Object> filter) {
+        inflate();
+        return super.removeIf(filter);
+    }
+
+    @Override
+    public void replaceAll(UnaryOperator<Object> operator) {
+        inflate();
+        super.replaceAll(operator);
+    }
+
+    @Override
+    public void sort(Comparator<? super Object> c) {
+        inflate();
+        super.sort(c);
+    }
+
+    @Override
+    public List<Object> subList(int fromIndex, int toIndex) {
+        inflate();
+        return super.subList(fromIndex, toIndex);
+    }
+
+    @Override
+    public void trimToSize() {
+        if (inflated) {
+            super.trimToSize();
+        }
+    }
+
+    @Override
+    public void ensureCapacity(int minCapacity) {
+        if (inflated) {
+            super.ensureCapacity(minCapacity);
+        }
+    }
+
+    @Override
+    public Object clone() {
+        inflate();
+        return super.clone();
+    }
+
+    @Override
+    public Iterator<Object> iterator() {
+        return inflated ? super.iterator() : new Itr(0);
+    }
+
+    @Override
+    public ListIterator<Object> listIterator() {
+        return inflated ? super.listIterator() : new Itr(0);
+    }
+
+    @Override
+    public ListIterator<Object> listIterator(int index) {
+        if (inflated) {
+            return super.listIterator(index);
+        }
+        if (index < 0 || index > count) {
+            throw new IndexOutOfBoundsException("Index: " + index);
+        }
+        return new Itr(index);
+    }
+
+    @Override
+    public void forEach(Consumer<? super Object> action) {
+        if (inflated) {
+            super.forEach(action);
+        } else {
+            for (int i = 0; i < count; i++) {
+                action.accept(element(i));
+            }
+        }
+    }
+
+    @Override
+    public Spliterator<Object> spliterator() {
+        return inflated ? super.spliterator() : Spliterators.spliterator(this, Spliterator.ORDERED);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o == this) {
+            return true;
+        }
+        if (!(o instanceof List)) {
+            return false;
+        }
+        List<?> other = (List<?>) o;
+        if (other.size() != size()) {
+            return false;
+        }
+        Iterator<?> it = other.iterator();
+        for (Object e : this) {
+            if (!Objects.equals(e, it.next())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = 1;
+        for (Object e : this) {
+            hash = 31 * hash + Objects.hashCode(e);
+        }
+        return hash;
+    }
+
+    // Serialized as a plain JsonArray, the elements are stored as primitives
+    Object writeReplace() {
+        return new JsonArray(this);
+    }
+
+    /** Iterator that works by calling the list's own methods, so it survives inflation. */
+    private final class Itr implements ListIterator<Object> {
+        private int cursor;
+        private int last = -1;
+        private int expectedModCount = modCount;
+
+        Itr(int index) {
+            this.cursor = index;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return cursor < size();
+        }
+
+        @Override
+        public Object next() {
+            checkModCount();
+            if (cursor >= size()) {
+                throw new NoSuchElementException();
+            }
+            last = cursor++;
+            return get(last);
+        }
+
+        @Override
+        public boolean hasPrevious() {
+            return cursor > 0;
+        }
+
+        @Override
+        public Object previous() {
+            checkModCount();
+            if (cursor <= 0) {
+                throw new NoSuchElementException();
+            }
+            last = --cursor;
+            return get(last);
+        }
+
+        @Override
+        public int nextIndex() {
+            return cursor;
+        }
+
+        @Override
+        public int previousIndex() {
+            return cursor - 1;
+        }
+
+        @Override
+        public void remove() {
+            if (last < 0) {
+                throw new IllegalStateException();
+            }
+            checkModCount();
+            PrimitiveJsonArray.this.remove(last);
+            cursor = last;
+            last = -1;
+            expectedModCount = modCount;
+        }
+
+        @Override
+        public void set(Object o) {
+            if (last < 0) {
+                throw new IllegalStateException();
+            }
+            checkModCount();
+            PrimitiveJsonArray.this.set(last, o);
+            expectedModCount = modCount;
+        }
+
+        @Override
+        public void add(Object o) {
+            checkModCount();
+            PrimitiveJsonArray.this.add(cursor++, o);
+            last = -1;
+            expectedModCount = modCount;
+        }
+
+        private void checkModCount() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+        }
+    }
+}
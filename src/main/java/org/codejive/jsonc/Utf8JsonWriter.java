@@ -0,0 +1,183 @@
+package org.codejive.jsonc;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * A {@link JsonWriter} that encodes its output as UTF-8 straight into a byte array, no
+ * CharsetEncoder or intermediate Strings involved. The buffer gets written to the OutputStream or
+ * put in the ByteBuffer whenever it's full, without either of those it grows to hold the entire
+ * document.
+ */
+final class Utf8JsonWriter extends JsonWriter {
+    static final int BUFFER_SIZE = 8192;
+
+    // Buffers that grew beyond this get dropped when the writer is released
+    private static final int MAX_RETAINED_SIZE = 64 * 1024;
+
+    private OutputStream out;
+    private ByteBuffer bb;
+    private byte[] buf = new byte[BUFFER_SIZE];
+    private int pos;
+
+    /** Creates a writer that keeps the entire document in its buffer. */
+    Utf8JsonWriter() {}
+
+    Utf8JsonWriter(OutputStream out) {
+        this.out = out;
+    }
+
+    Utf8JsonWriter(ByteBuffer bb) {
+        this.bb = bb;
+    }
+
+    /** Makes the writer ready for writing a new document to the given stream or buffer. */
+    void reset(OutputStream out, ByteBuffer bb) {
+        this.out = out;
+        this.bb = bb;
+        reset();
+    }
+
+    @Override
+    public void reset() {
+        pos = 0;
+        resetState();
+    }
+
+    /**
+     * Drops the references to the output and the buffer if it grew too large, and sets all options
+     * back to their defaults.
+     */
+    void release() {
+        reset(null, null);
+        resetOptions();
+        if (buf.length > MAX_RETAINED_SIZE) {
+            buf = new byte[BUFFER_SIZE];
+        }
+    }
+
+    /** @return The contents of the buffer, the entire document if there is no output */
+    byte[] contents() {
+        return Arrays.copyOf(buf, pos);
+    }
+
+    @Override
+    void write(char c) throws IOException {
+        if (pos == buf.length) {
+            makeRoom(1);
+        }
+        buf[pos++] = (byte) c;
+    }
+
+    @Override
+    void write(String s, int start, int end) throws IOException {
+        int i = start;
+        while (i < end) {
+            if (pos == buf.length) {
+                makeRoom(end - i);
+            }
+            // Most text is ASCII, which gets copied as it is for as long as it fits
+            final byte[] buf = this.buf;
+            int p = pos;
+            int limit = Math.min(end, i + buf.length - p);
+            while (i < limit) {
+                char c = s.charAt(i);
+                if (c >= 0x80) {
+                    break;
+                }
+                buf[p++] = (byte) c;
+                i++;
+            }
+            pos = p;
+            if (i < limit) {
+                i = encode(s, i, end);
+            }
+        }
+    }
+
+    @Override
+    void write(char[] c, int start, int end) throws IOException {
+        int i = start;
+        while (i < end) {
+            if (pos == buf.length) {
+                makeRoom(end - i);
+            }
+            // With an output the buffer doesn't grow, so large ranges get written in parts
+            final byte[] buf = this.buf;
+            int p = pos;
+            int limit = Math.min(end, i + buf.length - p);
+            while (i < limit) {
+                buf[p++] = (byte) c[i++];
+            }
+            pos = p;
+        }
+    }
+
+    // Encodes the non-ASCII character at the given index, returns the index of the next one
+    private int encode(String s, int i, int end) throws IOException {
+        if (buf.length - pos < 4) {
+            makeRoom(4);
+        }
+        final byte[] buf = this.buf;
+        char c = s.charAt(i++);
+        if (c < 0x800) {
+            buf[pos++] = (byte) (0xC0 | (c >> 6));
+            buf[pos++] = (byte) (0x80 | (c & 0x3F));
+        } else if (!Character.isSurrogate(c)) {
+            buf[pos++] = (byte) (0xE0 | (c >> 12));
+            buf[pos++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+            buf[pos++] = (byte) (0x80 | (c & 0x3F));
+        } else if (Character.isHighSurrogate(c)
+                && i < end
+                && Character.isLowSurrogate(s.charAt(i))) {
+            int cp = Character.toCodePoint(c, s.charAt(i++));
+            buf[pos++] = (byte) (0xF0 | (cp >> 18));
+            buf[pos++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+            buf[pos++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+            buf[pos++] = (byte) (0x80 | (cp & 0x3F));
+        } else {
+            // Unpaired surrogates can't be encoded, same as String.getBytes() does
+            buf[pos++] = '?';
+        }
+        return i;
+    }
+
+    private void makeRoom(int len) throws IOException {
+        if (out != null || bb != null) {
+            flushBuffer();
+        } else {
+            buf = Arrays.copyOf(buf, Math.max(buf.length * 2, pos + len));
+        }
+    }
+
+    @Override
+    void flushBuffer() throws IOException {
+        if (pos > 0) {
+            if (out != null) {
+                out.write(buf, 0, pos);
+                pos = 0;
+            } else if (bb != null) {
+                bb.put(buf, 0, pos);
+                pos = 0;
+            }
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        flushBuffer();
+        if (out != null) {
+            out.flush();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        flushBuffer();
+        if (out != null) {
+            out.close();
+        }
+    }
+}
@@ -0,0 +1,607 @@
+package org.codejive.jsonc.parser;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+
+/**
+ * Hand-written lexer that scans JSON text directly in a char[] buffer. Unlike the JFlex generated
+ * {@link Yylex} it doesn't allocate anything while scanning: tokens are just codes plus offsets
+ * into the buffer and Strings are only created when {@link #value()} or {@link #rawValue()} get
+ * called.
+ *
+ * <p>The input can either be a {@link Reader} or a {@link CharSequence}. The buffer gets refilled
+ * from either of them when needed, tokens that don't fit in the buffer will cause it to grow.
+ */
+final class CharLexer extends JsonLexer {
+    private static final int BUFFER_SIZE = 16384;
+
+    private final JsonParserConfig config;
+
+    private Reader in;
+    private CharSequence seq;
+    private int seqPos;
+
+    private char[] buf = new char[0];
+    private int pos;
+    private int limit;
+    // The position in the input of the first character in the buffer
+    private long offset;
+    private boolean eof;
+
+    private int token;
+    private int tokenStart;
+    private int valueStart;
+    private int valueEnd;
+    private boolean hasEscapes;
+    private String value;
+    private String rawValue;
+    private char[] scratch;
+
+    CharLexer(JsonParserConfig config) {
+        this.config = config;
+    }
+
+    @Override
+    void reset(Reader in) {
+        this.in = in;
+        this.seq = null;
+        if (buf.length < BUFFER_SIZE) {
+            buf = new char[BUFFER_SIZE];
+        }
+        resetState();
+    }
+
+    @Override
+    void reset(CharSequence s) {
+        this.in = null;
+        this.seq = s;
+        this.seqPos = 0;
+        // No need for a big buffer if the text is small
+        int size = Math.min(BUFFER_SIZE, Math.max(s.length(), 64));
+        if (buf.length < size) {
+            buf = new char[size];
+        }
+        resetState();
+    }
+
+    /**
+     * Reset the lexer to start reading the given text at the given position. Meant for scanning
+     * single tokens, so the buffer starts out small and only grows when a token doesn't fit.
+     */
+    void reset(CharSequence s, int start) {
+        this.in = null;
+        this.seq = s;
+        this.seqPos = start;
+        if (buf.length == 0) {
+            buf = new char[64];
+        }
+        resetState();
+        offset = start;
+    }
+
+    @Override
+    void release() {
+        in = null;
+        seq = null;
+        value = null;
+        rawValue = null;
+        if (buf.length > BUFFER_SIZE) {
+            buf = new char[0];
+        }
+        if (scratch != null && scratch.length > BUFFER_SIZE) {
+            scratch = null;
+        }
+    }
+
+    private void resetState() {
+        pos = 0;
+        limit = 0;
+        offset = 0;
+        eof = false;
+        token = EOF;
+        tokenStart = 0;
+        value = null;
+        rawValue = null;
+    }
+
+    @Override
+    long getPosition() {
+        return offset + tokenStart;
+    }
+
+    @Override
+    long getEndPosition() {
+        return offset + pos;
+    }
+
+    @Override
+    int token() {
+        return token;
+    }
+
+    @Override
+    int next() throws IOException, JsonParseException {
+        value = null;
+        rawValue = null;
+        for (; ; ) {
+            if (pos == limit) {
+                tokenStart = pos;
+                if (!fill()) {
+                    return token = EOF;
+                }
+            }
+            char c = buf[pos];
+            switch (c) {
+                case ' ':
+                case '\t':
+                case '\n':
+                case '\r':
+                case '\f':
+                    pos++;
+                    continue;
+                case '{':
+                    tokenStart = pos++;
+                    return token = LEFT_BRACE;
+                case '}':
+                    tokenStart = pos++;
+                    return token = RIGHT_BRACE;
+                case '[':
+                    tokenStart = pos++;
+                    return token = LEFT_SQUARE;
+                case ']':
+                    tokenStart = pos++;
+                    return token = RIGHT_SQUARE;
+                case ',':
+                    tokenStart = pos++;
+                    return token = ITEM_SEPARATOR;
+                case ':':
+                    tokenStart = pos++;
+                    return token = PAIR_SEPARATOR;
+                case '"':
+                    return token = scanString();
+                case '-':
+                case '0':
+                case '1':
+                case '2':
+                case '3':
+                case '4':
+                case '5':
+                case '6':
+                case '7':
+                case '8':
+                case '9':
+                    return token = scanNumber();
+                case 't':
+                    return token = scanLiteral("true", TRUE);
+                case 'f':
+                    return token = scanLiteral("false", FALSE);
+                case 'n':
+                    return token = scanLiteral("null", NULL);
+                case '/':
+                    if (config.enableComments()) {
+                        skipComment();
+                        continue;
+                    }
+                    // Fall through
+                default:
+                    tokenStart = pos;
+                    throw JsonParseException.unexpectedChar(offset + pos, c);
+            }
+        }
+    }
+
+    @Override
+    int skip() throws IOException, JsonParseException {
+        value = null;
+        rawValue = null;
+        int depth = skipDepth;
+        for (; ; ) {
+            char[] b = buf;
+            int l = limit;
+            int p = pos;
+            while (p < l) {
+                char c = b[p];
+                if (c == '"' || c == '/') {
+                    break;
+                } else if (c == '{' || c == '[') {
+                    depth++;
+                } else if ((c == '}' || c == ']') && --depth == 0) {
+                    skipDepth = 0;
+                    tokenStart = p;
+                    pos = p + 1;
+                    return token = c == '}' ? RIGHT_BRACE : RIGHT_SQUARE;
+                }
+                p++;
+            }
+            pos = p;
+            skipDepth = depth;
+            if (p == l) {
+                tokenStart = p;
+                if (!fill()) {
+                    return token = EOF;
+                }
+            } else if (b[p] == '"') {
+                if (!skipString()) {
+                    return token = EOF;
+                }
+            } else if (config.enableComments()) {
+                skipComment();
+            } else {
+                pos++;
+            }
+        }
+    }
+
+    /** Skips the string starting at pos without looking at its contents, except for escapes. */
+    private boolean skipString() throws IOException {
+        tokenStart = pos;
+        int p = pos + 1;
+        for (; ; ) {
+            char[] b = buf;
+            int l = limit;
+            while (p < l) {
+                char c = b[p];
+                if (c == '"') {
+                    pos = p + 1;
+                    return true;
+                }
+                p += c == '\\' ? 2 : 1;
+            }
+            pos = p;
+            if (!fill()) {
+                // Unterminated string
+                tokenStart = limit;
+                pos = limit;
+                return false;
+            }
+            p = pos;
+        }
+    }
+
+    private int scanString() throws IOException, JsonParseException {
+        tokenStart = pos;
+        hasEscapes = false;
+        int p = pos + 1;
+        for (; ; ) {
+            char[] b = buf;
+            int l = limit;
+            char c = 0;
+            while (p < l && (c = b[p]) != '"' && c != '\\') {
+                p++;
+            }
+            if (p == l) {
+                pos = p;
+                if (!fill()) {
+                    // Unterminated string
+                    tokenStart = pos;
+                    return EOF;
+                }
+                p = pos;
+            } else if (c == '"') {
+                break;
+            } else {
+                pos = p;
+                if (!ensure(2)) {
+                    tokenStart = limit;
+                    pos = limit;
+                    return EOF;
+                }
+                char e = buf[pos + 1];
+                switch (e) {
+                    case '"':
+                    case '\\':
+                    case '/':
+                    case 'b':
+                    case 'f':
+                    case 'n':
+                    case 'r':
+                    case 't':
+                        p = pos + 2;
+                        break;
+                    case 'u':
+                        if (!ensure(6)
+                                || hex(buf[pos + 2]) < 0
+                                || hex(buf[pos + 3]) < 0
+                                || hex(buf[pos + 4]) < 0
+                                || hex(buf[pos + 5]) < 0) {
+                            throw JsonParseException.unexpectedChar(offset + pos, e);
+                        }
+                        p = pos + 6;
+                        break;
+                    default:
+                        throw JsonParseException.unexpectedChar(offset + pos, e);
+                }
+                hasEscapes = true;
+            }
+        }
+        valueStart = tokenStart + 1;
+        valueEnd = p;
+        pos = p + 1;
+        return STRING;
+    }
+
+    private int scanNumber() throws IOException, JsonParseException {
+        tokenStart = pos;
+        int token = INTEGER;
+        int i = 0;
+        int c = peek(0);
+        if (c == '-') {
+            c = peek(++i);
+            if (!isDigit(c)) {
+                throw JsonParseException.unexpectedChar(offset + tokenStart, '-');
+            }
+        }
+        while (isDigit(c)) {
+            c = peek(++i);
+        }
+        if (c == '.' && isDigit(peek(i + 1))) {
+            token = REAL;
+            i += 2;
+            while (isDigit(c = peek(i))) {
+                i++;
+            }
+        }
+        if (c == 'e' || c == 'E') {
+            int j = i + 1;
+            int s = peek(j);
+            if (s == '+' || s == '-') {
+                s = peek(++j);
+            }
+            if (isDigit(s)) {
+                token = REAL;
+                i = j + 1;
+                while (isDigit(peek(i))) {
+                    i++;
+                }
+            }
+        }
+        valueStart = tokenStart;
+        valueEnd = tokenStart + i;
+        pos = valueEnd;
+        return token;
+    }
+
+    private int scanLiteral(String literal, int token) throws IOException, JsonParseException {
+        tokenStart = pos;
+        for (int i = 1; i < literal.length(); i++) {
+            if (peek(i) != literal.charAt(i)) {
+                throw JsonParseException.unexpectedChar(offset + tokenStart, literal.charAt(0));
+            }
+        }
+        pos = tokenStart + literal.length();
+        return token;
+    }
+
+    private void skipComment() throws IOException, JsonParseException {
+        tokenStart = pos;
+        int c = peek(1);
+        if (c == '/') {
+            pos += 2;
+            for (; ; ) {
+                if (pos == limit) {
+                    tokenStart = pos;
+                    if (!fill()) {
+                        return;
+                    }
+                }
+                c = buf[pos];
+                if (c == '\n' || c == '\r') {
+                    return;
+                }
+                pos++;
+            }
+        } else if (c == '*') {
+            pos += 2;
+            for (; ; ) {
+                if (pos == limit) {
+                    tokenStart = pos;
+                    if (!fill()) {
+                        throw JsonParseException.unexpectedToken(offset + pos, TEXT_EOF);
+                    }
+                }
+                if (buf[pos] == '*') {
+                    tokenStart = pos;
+                    if (peek(1) == '/') {
+                        pos += 2;
+                        return;
+                    }
+                }
+                pos++;
+            }
+        } else {
+            throw JsonParseException.unexpectedChar(offset + tokenStart, '/');
+        }
+    }
+
+    /**
+     * Returns the character at the given index relative to the start of the current token,
+     * refilling the buffer when necessary.
+     *
+     * @return The character or -1 if the end of the input was reached
+     */
+    private int peek(int i) throws IOException {
+        while (tokenStart + i >= limit) {
+            if (!fill()) {
+                return -1;
+            }
+        }
+        return buf[tokenStart + i];
+    }
+
+    /** Makes sure at least n characters starting at pos are available in the buffer. */
+    private boolean ensure(int n) throws IOException {
+        while (limit - pos < n) {
+            if (!fill()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Reads more input into the buffer. Everything before the start of the current token gets
+     * discarded, the buffer is only grown when a single token doesn't fit.
+     */
+    private boolean fill() throws IOException {
+        if (eof) {
+            return false;
+        }
+        if (tokenStart > 0) {
+            int keep = limit - tokenStart;
+            System.arraycopy(buf, tokenStart, buf, 0, keep);
+            offset += tokenStart;
+            pos -= tokenStart;
+            limit = keep;
+            tokenStart = 0;
+        }
+        if (limit == buf.length) {
+            buf = Arrays.copyOf(buf, buf.length * 2);
+        }
+        int n = read(buf, limit, buf.length - limit);
+        if (n < 0) {
+            eof = true;
+            return false;
+        }
+        limit += n;
+        return true;
+    }
+
+    private int read(char[] b, int off, int len) throws IOException {
+        if (seq != null) {
+            int n = Math.min(len, seq.length() - seqPos);
+            if (n <= 0) {
+                return -1;
+            }
+            if (seq instanceof String) {
+                ((String) seq).getChars(seqPos, seqPos + n, b, off);
+            } else {
+                for (int i = 0; i < n; i++) {
+                    b[off + i] = seq.charAt(seqPos + i);
+                }
+            }
+            seqPos += n;
+            return n;
+        } else if (in != null) {
+            int n;
+            do {
+                n = in.read(b, off, len);
+            } while (n == 0);
+            return n;
+        } else {
+            return -1;
+        }
+    }
+
+    @Override
+    String value() {
+        if (value == null) {
+            switch (token) {
+                case STRING:
+                    value =
+                            hasEscapes
+                                    ? decode()
+                                    : new String(buf, valueStart, valueEnd - valueStart);
+                    break;
+                case INTEGER:
+                case REAL:
+                    value = new String(buf, valueStart, valueEnd - valueStart);
+                    break;
+                default:
+                    value = text();
+                    break;
+            }
+        }
+        return value;
+    }
+
+    @Override
+    boolean isEscaped() {
+        return token == STRING && hasEscapes;
+    }
+
+    @Override
+    String key() {
+        if (symbols != null && token == STRING && value == null) {
+            value =
+                    hasEscapes
+                            ? symbols.intern(decode())
+                            : symbols.intern(buf, valueStart, valueEnd);
+        }
+        return value();
+    }
+
+    @Override
+    boolean isLong() {
+        return token == INTEGER && NumberParser.fitsLong(buf, valueStart, valueEnd);
+    }
+
+    @Override
+    long longValue() {
+        return NumberParser.parseLong(buf, valueStart, valueEnd);
+    }
+
+    @Override
+    double doubleValue() {
+        return NumberParser.parseDouble(buf, valueStart, valueEnd);
+    }
+
+    @Override
+    String rawValue() {
+        if (rawValue == null) {
+            if (token == STRING && hasEscapes) {
+                rawValue = new String(buf, valueStart, valueEnd - valueStart);
+            } else {
+                rawValue = value();
+            }
+        }
+        return rawValue;
+    }
+
+    private String decode() {
+        int len = valueEnd - valueStart;
+        if (scratch == null || scratch.length < len) {
+            scratch = new char[Math.max(len, 64)];
+        }
+        char[] out = scratch;
+        int n = 0;
+        for (int p = valueStart; p < valueEnd; p++) {
+            char c = buf[p];
+            if (c != '\\') {
+                out[n++] = c;
+                continue;
+            }
+            c = buf[++p];
+            switch (c) {
+                case 'b':
+                    out[n++] = '\b';
+                    break;
+                case 'f':
+                    out[n++] = '\f';
+                    break;
+                case 'n':
+                    out[n++] = '\n';
+                    break;
+                case 'r':
+                    out[n++] = '\r';
+                    break;
+                case 't':
+                    out[n++] = '\t';
+                    break;
+                case 'u':
+                    out[n++] =
+                            (char)
+                                    (hex(buf[p + 1]) << 12
+                                            | hex(buf[p + 2]) << 8
+                                            | hex(buf[p + 3]) << 4
+                                            | hex(buf[p + 4]));
+                    p += 4;
+                    break;
+                default:
+                    out[n++] = c;
+                    break;
+            }
+        }
+        return new String(out, 0, n);
+    }
+}
@@ -0,0 +1,47 @@
+package org.codejive.jsonc.parser;
+
+import org.codejive.jsonc.CompactJsonObject;
+import org.codejive.jsonc.JsonArray;
+import org.codejive.jsonc.JsonPrimitive;
+
+/**
+ * Type factory that creates {@link CompactJsonObject}s for JSON objects, which keep the order of
+ * their keys and use a lot less memory than the default {@link org.codejive.jsonc.JsonObject}s.
+ * Arrays and primitives are the same as the parser creates by default.
+ */
+public class CompactTypeFactory implements TypeFactory {
+    @Override
+    public CompactJsonObject createObjectContainer() {
+        return new CompactJsonObject();
+    }
+
+    @Override
+    public CompactJsonObject createObjectContainer(int capacity) {
+        return new CompactJsonObject(capacity);
+    }
+
+    @Override
+    public JsonArray createArrayContainer() {
+        return new JsonArray();
+    }
+
+    @Override
+    public JsonArray createArrayContainer(int capacity) {
+        return new JsonArray(capacity);
+    }
+
+    @Override
+    public Object createPrimitive(JsonPrimitive.Type type, String value, String rawValue) {
+        return JsonParser.DefaultTypeFactory.primitive(type, value, rawValue);
+    }
+
+    @Override
+    public Object createPrimitive(long value) {
+        return new JsonPrimitive(value);
+    }
+
+    @Override
+    public Object createPrimitive(double value) {
+        return new JsonPrimitive(value);
+    }
+}
@@ -2,6 +2,7 @@ package org.codejive.jsonc.parser;
 
 import java.io.IOException;
 import org.codejive.jsonc.JsonPrimitive;
+import org.codejive.jsonc.NumberWriter;
 
 /** A simplified and stoppable SAX-like content handler for stream processing of JSON text. */
 public interface ContentHandler {
@@ -102,4 +103,36 @@ public interface ContentHandler {
      */
     boolean primitive(Status status, JsonPrimitive.Type type, String value, String rawValue)
             throws JsonParseException, IOException;
+
+    /**
+     * Receive notification of an integer value that fits in a long. Only used when {@link
+     * JsonParserConfig#parseNumbers(boolean)} is enabled, the default implementation passes the
+     * value on to {@link #primitive(Status, JsonPrimitive.Type, String, String)} as text.
+     *
+     * @param status - The current parse status
+     * @param value - The value of the integer
+     * @return false if the handler wants to stop parsing after return.
+     * @throws JsonParseException
+     */
+    default boolean primitiveLong(Status status, long value)
+            throws JsonParseException, IOException {
+        String text = Long.toString(value);
+        return primitive(status, JsonPrimitive.Type.INTEGER, text, text);
+    }
+
+    /**
+     * Receive notification of a real number. Only used when {@link
+     * JsonParserConfig#parseNumbers(boolean)} is enabled, the default implementation passes the
+     * value on to {@link #primitive(Status, JsonPrimitive.Type, String, String)} as text.
+     *
+     * @param status - The current parse status
+     * @param value - The value of the number
+     * @return false if the handler wants to stop parsing after return.
+     * @throws JsonParseException
+     */
+    default boolean primitiveDouble(Status status, double value)
+            throws JsonParseException, IOException {
+        String text = NumberWriter.toString(value);
+        return primitive(status, JsonPrimitive.Type.REAL, text, text);
+    }
 }
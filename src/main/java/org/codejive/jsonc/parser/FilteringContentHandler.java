@@ -0,0 +1,216 @@
+package org.codejive.jsonc.parser;
+
+import java.io.IOException;
+import java.util.Arrays;
+import org.codejive.jsonc.JsonPrimitive;
+
+/**
+ * Content handler that only passes on the parts of a document selected by a {@link PathFilter} to a
+ * {@link JsonParser.DefaultContentHandler}. The objects and arrays leading up to the selected
+ * values are kept, so the result has the same shape as the original document. Everything else is
+ * skipped by the parser without creating any values for it.
+ */
+class FilteringContentHandler implements ContentHandler {
+    private final JsonParser parser;
+    private final PathFilter filter;
+    private final JsonParser.DefaultContentHandler delegate;
+
+    // For each open container that is on the way to selected values: the paths that are still
+    // live, the number of elements seen (for arrays) and if the current entry was passed on (for
+    // objects)
+    private int[][] live = new int[8][];
+    private int[] counts = new int[8];
+    private boolean[] entryPassed = new boolean[8];
+    private int depth;
+
+    // The nesting depth inside a value that was selected as a whole
+    private int fullDepth;
+    // The paths that matched the key of the current object entry
+    private int[] entryLive;
+    private String entryKey;
+    // Set when the contents of a container are skipped, its end must not be passed on
+    private boolean skippedEnd;
+    private boolean hasResult;
+
+    FilteringContentHandler(JsonParser parser, PathFilter filter, TypeFactory typeFactory) {
+        this.parser = parser;
+        this.filter = filter;
+        this.delegate = new JsonParser.DefaultContentHandler(typeFactory);
+    }
+
+    Object getResult() {
+        return hasResult ? delegate.getResult() : null;
+    }
+
+    @Override
+    public void startJSON() {
+        delegate.startJSON();
+        depth = 0;
+        fullDepth = 0;
+        skippedEnd = false;
+        hasResult = false;
+    }
+
+    @Override
+    public void endJSON() {
+        if (hasResult) {
+            delegate.endJSON();
+        }
+    }
+
+    @Override
+    public boolean startObject(Status status) {
+        if (startContainer(status)) {
+            delegate.startObject(status);
+        }
+        return true;
+    }
+
+    @Override
+    public boolean endObject(Status status) {
+        if (endContainer()) {
+            delegate.endObject(status);
+        }
+        return true;
+    }
+
+    @Override
+    public boolean startArray(Status status) {
+        if (startContainer(status)) {
+            delegate.startArray(status);
+        }
+        return true;
+    }
+
+    @Override
+    public boolean endArray(Status status) {
+        if (endContainer()) {
+            delegate.endArray(status);
+        }
+        return true;
+    }
+
+    @Override
+    public boolean startObjectEntry(String key) {
+        if (fullDepth > 0) {
+            return delegate.startObjectEntry(key);
+        }
+        entryPassed[depth - 1] = false;
+        entryLive = filter.match(live[depth - 1], depth - 1, key, -1);
+        if (entryLive == null) {
+            parser.skip();
+        } else {
+            entryKey = key;
+        }
+        return true;
+    }
+
+    @Override
+    public boolean endObjectEntry() {
+        if (fullDepth > 0 || entryPassed[depth - 1]) {
+            delegate.endObjectEntry();
+        }
+        return true;
+    }
+
+    @Override
+    public boolean primitive(
+            Status status, JsonPrimitive.Type type, String value, String rawValue) {
+        if (fullDepth > 0 || select(status, false) == PathFilter.FULL) {
+            hasResult |= status == Status.TOPLEVEL;
+            delegate.primitive(status, type, value, rawValue);
+        }
+        return true;
+    }
+
+    @Override
+    public boolean primitiveLong(Status status, long value) throws JsonParseException, IOException {
+        if (fullDepth > 0 || select(status, false) == PathFilter.FULL) {
+            hasResult |= status == Status.TOPLEVEL;
+            delegate.primitiveLong(status, value);
+        }
+        return true;
+    }
+
+    @Override
+    public boolean primitiveDouble(Status status, double value)
+            throws JsonParseException, IOException {
+        if (fullDepth > 0 || select(status, false) == PathFilter.FULL) {
+            hasResult |= status == Status.TOPLEVEL;
+            delegate.primitiveDouble(status, value);
+        }
+        return true;
+    }
+
+    /** @return true if the start of the container should be passed on */
+    private boolean startContainer(Status status) {
+        if (fullDepth > 0) {
+            fullDepth++;
+            return true;
+        }
+        int[] paths = select(status, true);
+        if (paths == null) {
+            parser.skip();
+            skippedEnd = true;
+            return false;
+        }
+        if (paths == PathFilter.FULL) {
+            fullDepth = 1;
+        } else {
+            push(paths);
+        }
+        hasResult |= status == Status.TOPLEVEL;
+        return true;
+    }
+
+    /** @return true if the end of the container should be passed on */
+    private boolean endContainer() {
+        if (skippedEnd) {
+            skippedEnd = false;
+            return false;
+        }
+        if (fullDepth > 0) {
+            fullDepth--;
+        } else {
+            depth--;
+        }
+        return true;
+    }
+
+    /**
+     * Determines if the value that is starting gets selected. If it does the key of the object
+     * entry it belongs to gets passed on. Primitives can only be selected as a whole, containers
+     * also when they lead up to selected values.
+     *
+     * @return The paths that are live for the value, {@link PathFilter#FULL} if it gets selected as
+     *     a whole or null if it's not selected at all
+     */
+    private int[] select(Status status, boolean container) {
+        int[] paths;
+        if (status == Status.TOPLEVEL) {
+            paths = filter.root();
+        } else if (status == Status.ARRAY) {
+            int index = counts[depth - 1]++;
+            paths = filter.match(live[depth - 1], depth - 1, null, index);
+        } else {
+            paths = entryLive;
+            if (paths == PathFilter.FULL || (paths != null && container)) {
+                entryPassed[depth - 1] = true;
+                delegate.startObjectEntry(entryKey);
+            }
+        }
+        return paths;
+    }
+
+    private void push(int[] paths) {
+        if (depth == live.length) {
+            live = Arrays.copyOf(live, depth * 2);
+            counts = Arrays.copyOf(counts, depth * 2);
+            entryPassed = Arrays.copyOf(entryPassed, depth * 2);
+        }
+        live[depth] = paths;
+        counts[depth] = 0;
+        entryPassed[depth] = false;
+        depth++;
+    }
+}
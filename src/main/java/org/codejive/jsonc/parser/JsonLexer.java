@@ -0,0 +1,243 @@
+package org.codejive.jsonc.parser;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import org.codejive.jsonc.JsonPrimitive;
+
+/**
+ * Base class for the lexers used by {@link JsonParser}. Tokens are returned as simple int codes,
+ * the values of primitive tokens are only turned into Strings when they are asked for.
+ */
+abstract class JsonLexer {
+    static final int EOF = 0;
+    static final int LEFT_BRACE = 1;
+    static final int RIGHT_BRACE = 2;
+    static final int LEFT_SQUARE = 3;
+    static final int RIGHT_SQUARE = 4;
+    static final int ITEM_SEPARATOR = 5;
+    static final int PAIR_SEPARATOR = 6;
+    static final int STRING = 7;
+    static final int INTEGER = 8;
+    static final int REAL = 9;
+    static final int TRUE = 10;
+    static final int FALSE = 11;
+    static final int NULL = 12;
+    /** Returned by lexers that get their input pushed to them when they need more of it. */
+    static final int NEED_INPUT = -1;
+
+    static final String TEXT_EOF = "<EOF>";
+
+    private static final String[] TEXTS = {
+        TEXT_EOF, "{", "}", "[", "]", ",", ":", null, null, null, "true", "false", "null"
+    };
+
+    private static final JsonPrimitive.Type[] TYPES = {
+        null,
+        null,
+        null,
+        null,
+        null,
+        null,
+        null,
+        JsonPrimitive.Type.STRING,
+        JsonPrimitive.Type.INTEGER,
+        JsonPrimitive.Type.REAL,
+        JsonPrimitive.Type.BOOLEAN,
+        JsonPrimitive.Type.BOOLEAN,
+        JsonPrimitive.Type.NULL
+    };
+
+    // The nesting depth while skipping
+    int skipDepth;
+    // Canonical Strings for keys, null when keys aren't deduplicated
+    SymbolTable symbols;
+
+    /**
+     * Reset the lexer to start reading from the given reader. Only supported by lexers that work on
+     * characters.
+     *
+     * @param in - The new character reader.
+     */
+    void reset(Reader in) {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Reset the lexer to start reading from the given text.
+     *
+     * @param s - The text to tokenize.
+     */
+    void reset(CharSequence s) {
+        reset(new StringReader(s.toString()));
+    }
+
+    /**
+     * Drops all references to the input and the buffers that grew beyond their normal size, so a
+     * lexer that's kept around for reuse doesn't keep any of it alive. The lexer must be reset
+     * before it can be used again.
+     */
+    void release() {}
+
+    /**
+     * Scans the next token.
+     *
+     * @return The code of the token that was found, {@link #EOF} at the end of the input
+     * @throws IOException
+     * @throws JsonParseException
+     */
+    abstract int next() throws IOException, JsonParseException;
+
+    /**
+     * Starts skipping the contents of the object or array whose opening token was just returned by
+     * {@link #next()}. Call {@link #skip()} to do the actual skipping.
+     */
+    void startSkip() {
+        skipDepth = 1;
+    }
+
+    /**
+     * Skips input up to and including the brace or bracket that closes the container that skipping
+     * was started for. The skipped input is only looked at to keep track of the nesting depth, its
+     * tokens aren't validated and their values are never turned into Strings.
+     *
+     * @return The closing token, which becomes the current token, {@link #EOF} if the input ended
+     *     first or {@link #NEED_INPUT} if more input has to be pushed before skipping can continue
+     * @throws IOException
+     * @throws JsonParseException
+     */
+    int skip() throws IOException, JsonParseException {
+        for (; ; ) {
+            int t = next();
+            switch (t) {
+                case LEFT_BRACE:
+                case LEFT_SQUARE:
+                    skipDepth++;
+                    break;
+                case RIGHT_BRACE:
+                case RIGHT_SQUARE:
+                    if (--skipDepth == 0) {
+                        return t;
+                    }
+                    break;
+                case EOF:
+                case NEED_INPUT:
+                    return t;
+                default:
+                    break;
+            }
+        }
+    }
+
+    /** @return The position of the beginning of the current token. */
+    abstract long getPosition();
+
+    /**
+     * @return The position right after the end of the current token. Only supported by the
+     *     hand-written lexers.
+     */
+    long getEndPosition() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Returns the value of the current token. Must be called before the next call to {@link
+     * #next()}.
+     *
+     * @return The value of the current primitive token with all escapes decoded
+     */
+    abstract String value();
+
+    /**
+     * Returns the value of the current token as it appeared in the input. Must be called before the
+     * next call to {@link #next()}.
+     *
+     * @return The raw value of the current primitive token
+     */
+    abstract String rawValue();
+
+    /**
+     * Returns the value of the current token for use as the key of an object entry. When there is a
+     * symbol table the value of string tokens is its canonical String. Must be called before the
+     * next call to {@link #next()}.
+     *
+     * @return The value of the current primitive token with all escapes decoded
+     */
+    String key() {
+        return symbols != null && token() == STRING ? symbols.intern(value()) : value();
+    }
+
+    /**
+     * @return true if the current token is a string that contains escapes, so its value and raw
+     *     value differ. Must be called before the next call to {@link #next()}.
+     */
+    boolean isEscaped() {
+        return token() == STRING && !value().equals(rawValue());
+    }
+
+    /** @return The code of the current token */
+    abstract int token();
+
+    /**
+     * @return true if the current token is an integer that fits in a long. Must be called before
+     *     the next call to {@link #next()}.
+     */
+    boolean isLong() {
+        if (token() != INTEGER) {
+            return false;
+        }
+        char[] chars = value().toCharArray();
+        return NumberParser.fitsLong(chars, 0, chars.length);
+    }
+
+    /**
+     * Returns the value of the current integer token. Only valid if {@link #isLong()} returns true.
+     * Must be called before the next call to {@link #next()}.
+     *
+     * @return The value of the current integer token
+     */
+    long longValue() {
+        return Long.parseLong(value());
+    }
+
+    /**
+     * Returns the value of the current integer or real token as a double. Must be called before the
+     * next call to {@link #next()}.
+     *
+     * @return The value of the current numeric token
+     */
+    double doubleValue() {
+        return Double.parseDouble(value());
+    }
+
+    /** @return A textual representation of the current token, used for error messages */
+    String text() {
+        int token = token();
+        return isPrimitive(token) && TEXTS[token] == null ? value() : TEXTS[token];
+    }
+
+    static boolean isPrimitive(int token) {
+        return token >= STRING;
+    }
+
+    static JsonPrimitive.Type primitiveType(int token) {
+        return TYPES[token];
+    }
+
+    static boolean isDigit(int c) {
+        return c >= '0' && c <= '9';
+    }
+
+    /** @return The value of the given hexadecimal digit or -1 if it isn't one */
+    static int hex(int c) {
+        if (c >= '0' && c <= '9') {
+            return c - '0';
+        } else if (c >= 'a' && c <= 'f') {
+            return c - 'a' + 10;
+        } else if (c >= 'A' && c <= 'F') {
+            return c - 'A' + 10;
+        } else {
+            return -1;
+        }
+    }
+}
@@ -18,6 +18,10 @@ public class JsonParseException extends Exception {
     }
 
     public static JsonParseException unexpectedToken(long position, Yytoken unexpected) {
+        return unexpectedToken(position, unexpected.toString());
+    }
+
+    public static JsonParseException unexpectedToken(long position, String unexpected) {
         return new JsonParseException(
                 position,
                 ERROR_UNEXPECTED_TOKEN,
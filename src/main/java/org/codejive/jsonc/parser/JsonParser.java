@@ -1,16 +1,25 @@
 package org.codejive.jsonc.parser;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.Reader;
-import java.io.StringReader;
-import java.util.LinkedList;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import org.codejive.jsonc.JsonArray;
 import org.codejive.jsonc.JsonObject;
 import org.codejive.jsonc.JsonPrimitive;
+import org.codejive.jsonc.Jsonc;
 
-/** Parser for JSON text. Please note that JSONParser is NOT thread-safe. */
+/**
+ * Parser for JSON text. Please note that JSONParser is NOT thread-safe. A parser can be used for
+ * any number of documents though, one after the other, reusing its buffers. Use a {@link
+ * JsonParserPool} to share parsers between threads.
+ */
 public class JsonParser {
     public enum Status {
         INIT,
@@ -25,12 +34,30 @@ public class JsonParser {
 
     private final JsonParserConfig config;
 
-    private final Yylex lexer = new Yylex(null);
+    private final JsonLexer charLexer;
+    private Utf8Lexer utf8Lexer;
+    // Used instead of the legacy lexer for lazy documents, which need to know where tokens start
+    private CharLexer lazyLexer;
+    private JsonLexer lexer;
 
-    private Yytoken token = null;
-    private LinkedList<Status> handlerStatusStack;
-    LinkedList<Status> statusStack;
+    // The current token, NEED_INPUT when it has been consumed and the next one must be scanned
+    private int token = JsonLexer.NEED_INPUT;
+    private int previousToken = JsonLexer.EOF;
+    private String pendingKey;
+    private String pendingRawKey;
+    private boolean skipping;
+    private boolean skipEntryValue;
+    // When false keys and primitive values are passed to the content handler as null
+    private boolean decodeValues = true;
+    private ContentHandler feedHandler;
+    // The statuses of the open containers and object entries as ordinals, the innermost one last.
+    // A depth of -1 means no parse has been started since the last reset
+    private byte[] statusStack;
+    private int statusDepth = -1;
     private Status status = Status.INIT;
+    // The handlers that build the values returned by the parse methods, kept for reuse
+    private DefaultContentHandler valueHandler;
+    private PresizingContentHandler presizingHandler;
 
     public JsonParser() {
         this(JsonParserConfig.defaults());
@@ -38,18 +65,42 @@ public class JsonParser {
 
     public JsonParser(JsonParserConfig config) {
         this.config = config;
+        this.charLexer = config.legacyLexer() ? new YylexLexer() : new CharLexer(config);
+        this.charLexer.symbols = config.symbolTable();
+        this.lexer = charLexer;
     }
 
-    private Status peekStatus(LinkedList<Status> statusStack) {
-        if (statusStack.isEmpty()) return Status.IN_ERROR;
-        return statusStack.getFirst();
+    private static final Status[] STATUSES = Status.values();
+
+    private static final DefaultTypeFactory DEFAULT_TYPE_FACTORY = new DefaultTypeFactory();
+
+    private Status peekStatus() {
+        if (statusDepth <= 0) return Status.IN_ERROR;
+        return STATUSES[statusStack[statusDepth - 1]];
+    }
+
+    private void pushStatus(Status status) {
+        if (statusDepth == statusStack.length) {
+            statusStack = Arrays.copyOf(statusStack, statusDepth * 2);
+        }
+        statusStack[statusDepth++] = (byte) status.ordinal();
+    }
+
+    private void replaceStatus(Status status) {
+        statusStack[statusDepth - 1] = (byte) status.ordinal();
     }
 
     /** Reset the parser to the initial state without resetting the underlying reader. */
     public void reset() {
-        token = null;
+        token = JsonLexer.NEED_INPUT;
+        previousToken = JsonLexer.EOF;
+        pendingKey = null;
+        pendingRawKey = null;
+        skipping = false;
+        skipEntryValue = false;
         status = Status.INIT;
-        handlerStatusStack = null;
+        statusDepth = -1;
+        feedHandler = null;
     }
 
     /**
@@ -60,29 +111,365 @@ public class JsonParser {
      * @throws JsonParseException
      */
     public void reset(Reader in) {
-        lexer.yyreset(in);
+        lexer = charLexer;
+        lexer.reset(in);
+        reset();
+    }
+
+    /**
+     * Reset the parser to the initial state with a new UTF-8 encoded byte stream.
+     *
+     * @param in - The new byte stream.
+     */
+    public void reset(InputStream in) {
+        utf8Lexer().reset(in);
+        lexer = utf8Lexer;
+        reset();
+    }
+
+    void reset(CharSequence s) {
+        lexer = charLexer;
+        lexer.reset(s);
+        reset();
+    }
+
+    void reset(byte[] b, int off, int len) {
+        utf8Lexer().reset(b, off, len);
+        lexer = utf8Lexer;
+        reset();
+    }
+
+    private void reset(ByteBuffer bb) {
+        utf8Lexer().reset(bb);
+        lexer = utf8Lexer;
         reset();
     }
 
-    /** @return The position of the beginning of the current token. */
+    /**
+     * Drops all references to the last input and to anything that was created while parsing it, and
+     * shrinks the buffers that grew beyond their normal size. Meant for parsers that are kept
+     * around for reuse, like the ones in a {@link JsonParserPool}, so they don't keep the last
+     * document alive. The buffers of normal size are kept, so the next parse doesn't have to
+     * allocate them again. The parser must be reset, which all the parse methods that take input
+     * do, before it can be used again.
+     */
+    public void release() {
+        reset();
+        charLexer.release();
+        if (utf8Lexer != null) {
+            utf8Lexer.release();
+        }
+        if (lazyLexer != null) {
+            lazyLexer.release();
+        }
+        lexer = charLexer;
+        if (valueHandler != null) {
+            valueHandler.clear();
+        }
+        if (presizingHandler != null) {
+            presizingHandler.clear();
+        }
+    }
+
+    /** @return A handler that builds the parsed value, reused for as long as possible */
+    private ContentHandler valueHandler(TypeFactory typeFactory) {
+        if (config.presizeContainers() || config.numericArrays()) {
+            if (presizingHandler == null || presizingHandler.typeFactory != typeFactory) {
+                presizingHandler = new PresizingContentHandler(typeFactory, config.numericArrays());
+            }
+            return presizingHandler;
+        }
+        if (valueHandler == null || valueHandler.typeFactory != typeFactory) {
+            valueHandler = new DefaultContentHandler(typeFactory);
+        }
+        return valueHandler;
+    }
+
+    /** @return The value built by the given handler, which then forgets about it */
+    private static Object takeResult(ContentHandler handler) {
+        Object result;
+        if (handler instanceof PresizingContentHandler) {
+            PresizingContentHandler pch = (PresizingContentHandler) handler;
+            result = pch.getResult();
+            pch.clear();
+        } else {
+            DefaultContentHandler dch = (DefaultContentHandler) handler;
+            result = dch.getResult();
+            dch.clear();
+        }
+        return result;
+    }
+
+    private Utf8Lexer utf8Lexer() {
+        if (utf8Lexer == null) {
+            utf8Lexer = new Utf8Lexer(config);
+            utf8Lexer.symbols = config.symbolTable();
+        }
+        return utf8Lexer;
+    }
+
+    /**
+     * @return The position of the beginning of the current token. When parsing bytes this is a byte
+     *     offset, otherwise it's a character offset.
+     */
     public long getPosition() {
         return lexer.getPosition();
     }
 
+    /** @return The position right after the end of the current token */
+    long getEndPosition() {
+        return lexer.getEndPosition();
+    }
+
     public Object parse(String s) throws JsonParseException {
-        return parse(s, new DefaultTypeFactory());
+        return parse(s, DEFAULT_TYPE_FACTORY);
     }
 
     public Object parse(String s, TypeFactory typeFactory) throws JsonParseException {
-        DefaultContentHandler dch = new DefaultContentHandler(typeFactory);
-        parse(s, dch);
-        return dch.getResult();
+        ContentHandler handler = valueHandler(typeFactory);
+        parse(s, handler);
+        return takeResult(handler);
     }
 
     public Object parse(Reader in) throws IOException, JsonParseException {
-        DefaultContentHandler dch = new DefaultContentHandler(new DefaultTypeFactory());
-        parse(in, dch);
-        return dch.getResult();
+        ContentHandler handler = valueHandler(DEFAULT_TYPE_FACTORY);
+        parse(in, handler);
+        return takeResult(handler);
+    }
+
+    /**
+     * Parses UTF-8 encoded JSON text. The bytes are scanned in place, without first decoding them
+     * to characters.
+     *
+     * @param b - The UTF-8 encoded JSON text
+     * @return The parsed value
+     * @throws JsonParseException
+     */
+    public Object parse(byte[] b) throws JsonParseException {
+        return parse(b, DEFAULT_TYPE_FACTORY);
+    }
+
+    public Object parse(byte[] b, TypeFactory typeFactory) throws JsonParseException {
+        ContentHandler handler = valueHandler(typeFactory);
+        parse(b, handler);
+        return takeResult(handler);
+    }
+
+    /**
+     * Parses the remaining UTF-8 encoded bytes in the given buffer. The position of the buffer is
+     * left unchanged.
+     *
+     * @param bb - The buffer containing the UTF-8 encoded JSON text
+     * @return The parsed value
+     * @throws JsonParseException
+     */
+    public Object parse(ByteBuffer bb) throws JsonParseException {
+        ContentHandler handler = valueHandler(DEFAULT_TYPE_FACTORY);
+        parse(bb, handler);
+        return takeResult(handler);
+    }
+
+    public Object parse(InputStream in) throws IOException, JsonParseException {
+        ContentHandler handler = valueHandler(DEFAULT_TYPE_FACTORY);
+        parse(in, handler);
+        return takeResult(handler);
+    }
+
+    /**
+     * Parses the UTF-8 encoded JSON text in the given file.
+     *
+     * @see #parse(Path, ContentHandler)
+     * @param file - The file to parse
+     * @return The parsed value
+     * @throws IOException
+     * @throws JsonParseException
+     */
+    public Object parse(Path file) throws IOException, JsonParseException {
+        ContentHandler handler = valueHandler(DEFAULT_TYPE_FACTORY);
+        parse(file, handler);
+        return takeResult(handler);
+    }
+
+    /**
+     * Parses JSON text, but only creates the values selected by the given filter. The objects and
+     * arrays leading up to the selected values are kept, so the result has the same shape as the
+     * full document would have, everything else gets skipped without creating any values for it.
+     *
+     * @param s - The JSON text to parse
+     * @param filter - The paths of the values to select
+     * @return The parsed value, null if it was a top-level primitive that wasn't selected
+     * @throws JsonParseException
+     */
+    public Object parse(String s, PathFilter filter) throws JsonParseException {
+        FilteringContentHandler fch =
+                new FilteringContentHandler(this, filter, DEFAULT_TYPE_FACTORY);
+        parse(s, fch);
+        return fch.getResult();
+    }
+
+    /**
+     * Parses UTF-8 encoded JSON text, but only creates the values selected by the given filter.
+     *
+     * @see #parse(String, PathFilter)
+     */
+    public Object parse(byte[] b, PathFilter filter) throws JsonParseException {
+        FilteringContentHandler fch =
+                new FilteringContentHandler(this, filter, DEFAULT_TYPE_FACTORY);
+        parse(b, fch);
+        return fch.getResult();
+    }
+
+    /**
+     * Parses JSON text, but only creates the values selected by the given filter.
+     *
+     * @see #parse(String, PathFilter)
+     */
+    public Object parse(Reader in, PathFilter filter) throws IOException, JsonParseException {
+        FilteringContentHandler fch =
+                new FilteringContentHandler(this, filter, DEFAULT_TYPE_FACTORY);
+        parse(in, fch);
+        return fch.getResult();
+    }
+
+    /**
+     * Parses UTF-8 encoded JSON text, but only creates the values selected by the given filter.
+     *
+     * @see #parse(String, PathFilter)
+     */
+    public Object parse(InputStream in, PathFilter filter) throws IOException, JsonParseException {
+        FilteringContentHandler fch =
+                new FilteringContentHandler(this, filter, DEFAULT_TYPE_FACTORY);
+        parse(in, fch);
+        return fch.getResult();
+    }
+
+    /**
+     * Parses UTF-8 encoded JSON text into a lazy document. Parsing only validates the text and
+     * records the structure of the document in a compact index, objects and arrays are returned as
+     * views that decode their contents from the original bytes the first time they get accessed.
+     * This makes parsing large documents of which only a small part is used a lot cheaper. The
+     * array must not be modified as long as any of the views is still in use.
+     *
+     * @param b - The UTF-8 encoded JSON text
+     * @return A {@link JsonObject} or {@link JsonArray} view or a {@link JsonPrimitive} for
+     *     top-level primitive values
+     * @throws JsonParseException
+     */
+    public Object parseLazy(byte[] b) throws JsonParseException {
+        LazyDocument.Builder builder = new LazyDocument.Builder(this, b.length);
+        decodeValues = false;
+        try {
+            parse(b, builder);
+        } finally {
+            decodeValues = true;
+        }
+        return new LazyDocument(config, b, 0, b.length, builder).root();
+    }
+
+    /**
+     * Parses JSON text into a lazy document. This never uses the legacy lexer, just like parsing
+     * bytes doesn't.
+     *
+     * @see #parseLazy(byte[])
+     * @param s - The JSON text
+     * @return A {@link JsonObject} or {@link JsonArray} view or a {@link JsonPrimitive} for
+     *     top-level primitive values
+     * @throws JsonParseException
+     */
+    public Object parseLazy(String s) throws JsonParseException {
+        LazyDocument.Builder builder = new LazyDocument.Builder(this, s.length());
+        decodeValues = false;
+        try {
+            if (charLexer instanceof CharLexer) {
+                parse(s, builder);
+            } else {
+                if (lazyLexer == null) {
+                    lazyLexer = new CharLexer(config);
+                    lazyLexer.symbols = config.symbolTable();
+                }
+                lexer = lazyLexer;
+                lexer.reset(s);
+                reset();
+                parse(builder, false);
+            }
+        } catch (IOException ie) {
+            // Can't happen when reading from a String
+            throw JsonParseException.error(-1, ie);
+        } finally {
+            decodeValues = true;
+        }
+        return new LazyDocument(config, s, builder).root();
+    }
+
+    /**
+     * Parses JSON text into a {@link JsonTape}, a compact representation of the document that only
+     * uses two arrays no matter how many values it holds.
+     *
+     * @param s - The JSON text
+     * @return The tape
+     * @throws JsonParseException
+     */
+    public JsonTape parseTape(String s) throws JsonParseException {
+        JsonTape.Builder builder = new JsonTape.Builder();
+        parse(s, builder);
+        return builder.getResult();
+    }
+
+    /**
+     * Parses UTF-8 encoded JSON text into a {@link JsonTape}.
+     *
+     * @see #parseTape(String)
+     */
+    public JsonTape parseTape(byte[] b) throws JsonParseException {
+        JsonTape.Builder builder = new JsonTape.Builder();
+        parse(b, builder);
+        return builder.getResult();
+    }
+
+    /**
+     * Parses JSON text into a {@link JsonTape}.
+     *
+     * @see #parseTape(String)
+     */
+    public JsonTape parseTape(Reader in) throws IOException, JsonParseException {
+        JsonTape.Builder builder = new JsonTape.Builder();
+        parse(in, builder);
+        return builder.getResult();
+    }
+
+    /**
+     * Parses UTF-8 encoded JSON text into a {@link JsonTape}.
+     *
+     * @see #parseTape(String)
+     */
+    public JsonTape parseTape(InputStream in) throws IOException, JsonParseException {
+        JsonTape.Builder builder = new JsonTape.Builder();
+        parse(in, builder);
+        return builder.getResult();
+    }
+
+    /**
+     * Parses JSON text into a {@link JsonSyntaxTree}, which keeps all comments and whitespace so
+     * the text can be edited and written back without losing any of its formatting.
+     *
+     * @param s - The JSON text
+     * @return The syntax tree
+     * @throws JsonParseException
+     * @throws UnsupportedOperationException if the parser is configured to use the legacy lexer
+     */
+    public JsonSyntaxTree parseSyntaxTree(String s) throws JsonParseException {
+        if (config.legacyLexer()) {
+            throw new UnsupportedOperationException(
+                    "Syntax trees can't be created using the legacy lexer");
+        }
+        JsonSyntaxTree.Builder builder = new JsonSyntaxTree.Builder(this, config, s);
+        decodeValues = false;
+        try {
+            parse(s, builder);
+        } finally {
+            decodeValues = true;
+        }
+        return builder.getResult();
     }
 
     static class DefaultTypeFactory implements TypeFactory {
@@ -91,21 +478,60 @@ public class JsonParser {
             return new JsonObject();
         }
 
+        @Override
+        public JsonObject createObjectContainer(int capacity) {
+            return new JsonObject(capacity);
+        }
+
         @Override
         public JsonArray createArrayContainer() {
             return new JsonArray();
         }
 
+        @Override
+        public JsonArray createArrayContainer(int capacity) {
+            return new JsonArray(capacity);
+        }
+
         @Override
         public Object createPrimitive(JsonPrimitive.Type type, String value, String rawValue) {
+            return primitive(type, value, rawValue);
+        }
+
+        /** Creates a JsonPrimitive, using the shared instances for true, false and null. */
+        static JsonPrimitive primitive(JsonPrimitive.Type type, String value, String rawValue) {
+            if (type == JsonPrimitive.Type.BOOLEAN && value != null && value.equals(rawValue)) {
+                if ("true".equals(value)) {
+                    return Jsonc.bool(true);
+                } else if ("false".equals(value)) {
+                    return Jsonc.bool(false);
+                }
+            } else if (type == JsonPrimitive.Type.NULL && "null".equals(rawValue)) {
+                return Jsonc.nil();
+            }
             return new JsonPrimitive(type, value, rawValue);
         }
+
+        @Override
+        public Object createPrimitive(long value) {
+            return new JsonPrimitive(value);
+        }
+
+        @Override
+        public Object createPrimitive(double value) {
+            return new JsonPrimitive(value);
+        }
     }
 
     static class DefaultContentHandler implements ContentHandler {
-        private final TypeFactory typeFactory;
+        final TypeFactory typeFactory;
 
-        private LinkedList<Object> valueStack;
+        // The containers that are still open, the innermost one last
+        private Object[] stack = new Object[16];
+        private int depth;
+        // The key of the object entry whose value comes next
+        private String pendingKey;
+        private Object root;
         private Object result;
 
         public DefaultContentHandler(TypeFactory typeFactory) {
@@ -118,13 +544,21 @@ public class JsonParser {
 
         @Override
         public void startJSON() {
-            valueStack = new LinkedList<>();
+            clear();
+        }
+
+        /** Drops all references to the values that were built. */
+        void clear() {
+            Arrays.fill(stack, 0, depth, null);
+            depth = 0;
+            pendingKey = null;
+            root = null;
             result = null;
         }
 
         @Override
         public void endJSON() {
-            result = valueStack.removeFirst();
+            result = root;
         }
 
         @Override
@@ -136,15 +570,13 @@ public class JsonParser {
 
         @Override
         public boolean endObject(Status status) {
-            if (valueStack.size() > 1) {
-                valueStack.removeFirst();
-            }
+            stack[--depth] = null;
             return true;
         }
 
         @Override
         public boolean startObjectEntry(String key) {
-            valueStack.addFirst(key);
+            pendingKey = key;
             return true;
         }
 
@@ -162,9 +594,7 @@ public class JsonParser {
 
         @Override
         public boolean endArray(Status status) {
-            if (valueStack.size() > 1) {
-                valueStack.removeFirst();
-            }
+            stack[--depth] = null;
             return true;
         }
 
@@ -175,38 +605,74 @@ public class JsonParser {
             return true;
         }
 
+        @Override
+        public boolean primitiveLong(Status status, long value) {
+            addElement(status, typeFactory.createPrimitive(value), true);
+            return true;
+        }
+
+        @Override
+        public boolean primitiveDouble(Status status, double value) {
+            addElement(status, typeFactory.createPrimitive(value), true);
+            return true;
+        }
+
         private void addElement(Status status, Object element, boolean isPrimitive) {
             switch (status) {
                 case OBJECT:
-                    String key = (String) valueStack.removeFirst();
-                    Map<String, Object> parent = (Map<String, Object>) valueStack.getFirst();
-                    parent.put(key, element);
+                    Map<String, Object> parent = (Map<String, Object>) stack[depth - 1];
+                    parent.put(pendingKey, element);
+                    pendingKey = null;
                     break;
                 case ARRAY:
-                    List<Object> val = (List<Object>) valueStack.getFirst();
+                    List<Object> val = (List<Object>) stack[depth - 1];
                     val.add(element);
                     break;
+                case TOPLEVEL:
+                    root = element;
+                    break;
             }
-            if (!isPrimitive || status == Status.TOPLEVEL) {
-                valueStack.addFirst(element);
+            if (!isPrimitive) {
+                if (depth == stack.length) {
+                    stack = Arrays.copyOf(stack, depth * 2);
+                }
+                stack[depth++] = element;
             }
         }
     }
 
-    private void nextToken() throws JsonParseException, IOException {
-        token = lexer.yylex();
-        if (token == null) token = Yytoken.TYPE_EOF;
-    }
-
     public void parse(String s, ContentHandler contentHandler) throws JsonParseException {
         parse(s, contentHandler, false);
     }
 
     public void parse(String s, ContentHandler contentHandler, boolean isResume)
             throws JsonParseException {
-        StringReader in = new StringReader(s);
         try {
-            parse(in, contentHandler, isResume);
+            if (!isResume || statusDepth < 0) {
+                reset(s);
+                isResume = false;
+            }
+            parse(contentHandler, isResume);
+        } catch (IOException ie) {
+            /*
+             * Actually it will never happen.
+             */
+            throw JsonParseException.error(-1, ie);
+        }
+    }
+
+    public void parse(byte[] b, ContentHandler contentHandler) throws JsonParseException {
+        parse(b, contentHandler, false);
+    }
+
+    public void parse(byte[] b, ContentHandler contentHandler, boolean isResume)
+            throws JsonParseException {
+        try {
+            if (!isResume || statusDepth < 0) {
+                reset(b, 0, b.length);
+                isResume = false;
+            }
+            parse(contentHandler, isResume);
         } catch (IOException ie) {
             /*
              * Actually it will never happen.
@@ -215,6 +681,178 @@ public class JsonParser {
         }
     }
 
+    public void parse(ByteBuffer bb, ContentHandler contentHandler) throws JsonParseException {
+        try {
+            reset(bb);
+            parse(contentHandler, false);
+        } catch (IOException ie) {
+            /*
+             * Actually it will never happen.
+             */
+            throw JsonParseException.error(-1, ie);
+        }
+    }
+
+    /**
+     * Stream processing of the UTF-8 encoded JSON text in the given file. The file is memory-mapped
+     * (in chunks for files larger than 1GB) instead of being read, so the amount of heap used while
+     * parsing stays constant no matter how large the file is.
+     *
+     * @see ContentHandler
+     * @param file - The file to parse
+     * @param contentHandler
+     * @throws IOException
+     * @throws JsonParseException
+     */
+    public void parse(Path file, ContentHandler contentHandler)
+            throws IOException, JsonParseException {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            utf8Lexer().reset(ch);
+            lexer = utf8Lexer;
+            reset();
+            parse(contentHandler, false);
+        }
+    }
+
+    public void parse(InputStream in, ContentHandler contentHandler)
+            throws IOException, JsonParseException {
+        parse(in, contentHandler, false);
+    }
+
+    /**
+     * Prepares the parser for non-blocking processing of UTF-8 encoded JSON text. Instead of the
+     * parser reading its input, the input gets pushed to it in chunks of any size using {@link
+     * #feed(byte[], int, int)} or {@link #feed(ByteBuffer)}, followed by a call to {@link
+     * #endOfInput()}. The content handler gets called as soon as the input for an event is
+     * complete, a chunk may end anywhere, even in the middle of a string, number or escape. If the
+     * handler asks to stop, parsing continues with the next call to one of the feed methods.
+     *
+     * @see ContentHandler
+     * @param contentHandler
+     * @throws IOException
+     * @throws JsonParseException
+     */
+    public void startFeed(ContentHandler contentHandler) throws IOException, JsonParseException {
+        utf8Lexer().resetFeed();
+        lexer = utf8Lexer;
+        reset();
+        feedHandler = contentHandler;
+        parse(contentHandler, false);
+    }
+
+    /**
+     * Pushes the next chunk of input to the parser.
+     *
+     * @see #startFeed(ContentHandler)
+     * @param b - The array holding the UTF-8 encoded input
+     * @throws IOException
+     * @throws JsonParseException
+     */
+    public void feed(byte[] b) throws IOException, JsonParseException {
+        feed(b, 0, b.length);
+    }
+
+    /**
+     * Pushes the next chunk of input to the parser. The bytes are copied, so the array can be
+     * reused as soon as this method returns.
+     *
+     * @see #startFeed(ContentHandler)
+     * @param b - The array holding the UTF-8 encoded input
+     * @param off - The offset of the chunk in the array
+     * @param len - The length of the chunk
+     * @throws IOException
+     * @throws JsonParseException
+     */
+    public void feed(byte[] b, int off, int len) throws IOException, JsonParseException {
+        checkFeeding();
+        utf8Lexer.feed(b, off, len);
+        parse(feedHandler, true);
+    }
+
+    /**
+     * Pushes the remaining bytes of the given buffer to the parser, afterwards the buffer will have
+     * no bytes remaining.
+     *
+     * @see #startFeed(ContentHandler)
+     * @param bb - The buffer holding the UTF-8 encoded input
+     * @throws IOException
+     * @throws JsonParseException
+     */
+    public void feed(ByteBuffer bb) throws IOException, JsonParseException {
+        checkFeeding();
+        utf8Lexer.feed(bb);
+        parse(feedHandler, true);
+    }
+
+    /**
+     * Signals the parser that all input has been fed. This finishes parsing, throwing an exception
+     * if the input was incomplete.
+     *
+     * @see #startFeed(ContentHandler)
+     * @throws IOException
+     * @throws JsonParseException
+     */
+    public void endOfInput() throws IOException, JsonParseException {
+        checkFeeding();
+        utf8Lexer.endOfInput();
+        parse(feedHandler, true);
+    }
+
+    /**
+     * Skips the contents of the object or array that was just started, or the value of the object
+     * entry that was just started. Can be called from {@link ContentHandler#startObject}, {@link
+     * ContentHandler#startArray} or {@link ContentHandler#startObjectEntry}, or right after the
+     * parser returned because one of those asked it to stop.
+     *
+     * <p>The skipped input is scanned for nothing but quotes, braces and brackets, so it's not
+     * validated and no values get created for it. A skipped object or array is still closed by a
+     * call to {@link ContentHandler#endObject} or {@link ContentHandler#endArray}, a skipped object
+     * entry by a call to {@link ContentHandler#endObjectEntry}.
+     *
+     * @throws IllegalStateException if the parser is not right at the start of an object, array or
+     *     object entry
+     */
+    public void skip() {
+        if (token == JsonLexer.NEED_INPUT && !skipping) {
+            if (status == Status.PASSED_PAIR_KEY && previousToken != JsonLexer.PAIR_SEPARATOR) {
+                skipEntryValue = true;
+                return;
+            } else if ((status == Status.IN_OBJECT && previousToken == JsonLexer.LEFT_BRACE)
+                    || (status == Status.IN_ARRAY && previousToken == JsonLexer.LEFT_SQUARE)) {
+                lexer.startSkip();
+                skipping = true;
+                return;
+            }
+        }
+        throw new IllegalStateException(
+                "Can only skip right after the start of an object, array or object entry");
+    }
+
+    private void checkFeeding() {
+        if (feedHandler == null) {
+            throw new IllegalStateException("startFeed() must be called first");
+        }
+    }
+
+    /**
+     * Stream processing of UTF-8 encoded JSON text.
+     *
+     * @see #parse(Reader, ContentHandler, boolean)
+     * @param in
+     * @param contentHandler
+     * @param isResume - Indicates if it continues previous parsing operation.
+     * @throws IOException
+     * @throws JsonParseException
+     */
+    public void parse(InputStream in, ContentHandler contentHandler, boolean isResume)
+            throws IOException, JsonParseException {
+        if (!isResume || statusDepth < 0) {
+            reset(in);
+            isResume = false;
+        }
+        parse(contentHandler, isResume);
+    }
+
     public void parse(Reader in, ContentHandler contentHandler)
             throws IOException, JsonParseException {
         parse(in, contentHandler, false);
@@ -234,260 +872,315 @@ public class JsonParser {
      */
     public void parse(Reader in, ContentHandler contentHandler, boolean isResume)
             throws IOException, JsonParseException {
-        if (!isResume) {
+        if (!isResume || statusDepth < 0) {
             reset(in);
-            handlerStatusStack = new LinkedList<>();
-        } else {
-            if (handlerStatusStack == null) {
-                isResume = false;
-                reset(in);
-                handlerStatusStack = new LinkedList<>();
-            }
+            isResume = false;
         }
+        parse(contentHandler, isResume);
+    }
 
-        statusStack = handlerStatusStack;
+    void parse(ContentHandler contentHandler, boolean isResume)
+            throws IOException, JsonParseException {
+        if (!isResume) {
+            if (statusStack == null) {
+                statusStack = new byte[16];
+            }
+            statusDepth = 0;
+        }
 
         try {
-            nextToken();
-            do {
-                switch (status) {
-                    case INIT:
-                        contentHandler.startJSON();
-                        if (token instanceof Yytoken.YyPrimitiveToken) {
-                            if (config.allowToplevelValues()) {
-                                if (handlePrimitiveValue(contentHandler)) return;
-                                status = Status.IN_FINISHED_VALUE;
-                                statusStack.addFirst(status);
-                            } else {
-                                status = Status.IN_ERROR;
-                                throw JsonParseException.unexpectedToken(getPosition(), token);
-                            }
-                        } else if (Yytoken.TYPE_LEFT_BRACE == token) {
-                            handleObjectStart(contentHandler);
-                        } else if (Yytoken.TYPE_LEFT_SQUARE == token) {
-                            if (handleArrayStart(contentHandler)) return;
-                        } else {
-                            status = Status.IN_ERROR;
-                        } // inner switch
-                        break;
+            if (!isResume) {
+                contentHandler.startJSON();
+            }
+            while (status != Status.END) {
+                // IN_PAIR_VALUE doesn't look at the current token, so don't wait for one
+                if (token == JsonLexer.NEED_INPUT && (status != Status.IN_PAIR_VALUE || skipping)) {
+                    token = skipping ? lexer.skip() : lexer.next();
+                    if (token == JsonLexer.NEED_INPUT) {
+                        // Wait for more input to be fed to the parser
+                        return;
+                    }
+                    if (skipping) {
+                        skipping = false;
+                        if (status == Status.IN_PAIR_VALUE && token != JsonLexer.EOF) {
+                            // The end of a skipped object entry value isn't reported
+                            consumeToken();
+                        }
+                    }
+                }
+                if (!step(contentHandler)) return;
+            }
+        } catch (IOException | JsonParseException | RuntimeException | Error ie) {
+            status = Status.IN_ERROR;
+            throw ie;
+        }
+    }
 
-                    case IN_FINISHED_VALUE:
-                        status = Status.IN_ERROR;
-                        break;
+    /**
+     * Processes the current token, or in the case of {@link Status#IN_PAIR_VALUE} just the end of
+     * an object entry. All state gets updated <i>before</i> the content handler gets called, so
+     * parsing can be resumed right after the callback when the handler asks to stop.
+     *
+     * @return false if the content handler wants to stop parsing
+     */
+    private boolean step(ContentHandler contentHandler) throws IOException, JsonParseException {
+        switch (status) {
+            case INIT:
+                if (JsonLexer.isPrimitive(token)) {
+                    if (config.allowToplevelValues()) {
+                        status = Status.IN_FINISHED_VALUE;
+                        pushStatus(status);
+                        return handlePrimitiveValue(contentHandler, ContentHandler.Status.TOPLEVEL);
+                    }
+                } else if (JsonLexer.LEFT_BRACE == token) {
+                    return handleObjectStart(contentHandler);
+                } else if (JsonLexer.LEFT_SQUARE == token) {
+                    return handleArrayStart(contentHandler);
+                }
+                break;
 
-                    case IN_OBJECT:
-                        if (Yytoken.TYPE_ITEM_SEPARATOR == token) {
-                            nextToken();
-                            handleMissingObjectItem();
-                            handleTrailingSeparator();
-                        } else if (token instanceof Yytoken.YyPrimitiveToken) {
-                            if (config.allowObjectPrimitiveKeys()
-                                    || token instanceof Yytoken.YyStringToken) {
-                                if (handleObjectKey(contentHandler)) return;
-                            } else {
-                                status = Status.IN_ERROR;
-                            }
-                        } else if (Yytoken.TYPE_RIGHT_BRACE == token) {
-                            if (handleObjectEnd(contentHandler)) return;
-                        } else {
-                            status = Status.IN_ERROR;
-                        } // inner switch
-                        break;
+            case IN_FINISHED_VALUE:
+                if (JsonLexer.EOF == token) {
+                    status = Status.END;
+                    contentHandler.endJSON();
+                    return true;
+                }
+                break;
 
-                    case PASSED_PAIR_KEY:
-                        nextToken();
-                        if (token instanceof Yytoken.YyPrimitiveToken) {
-                            if (handlePrimitiveValue(contentHandler)) return;
-                            if (!contentHandler.endObjectEntry()) return;
-                            statusStack.removeFirst();
-                            status = peekStatus(statusStack);
-                        } else if (Yytoken.TYPE_LEFT_SQUARE == token) {
-                            statusStack.removeFirst();
-                            statusStack.addFirst(Status.IN_PAIR_VALUE);
-                            if (handleArrayStart(contentHandler)) return;
-                        } else if (Yytoken.TYPE_LEFT_BRACE == token) {
-                            statusStack.removeFirst();
-                            statusStack.addFirst(Status.IN_PAIR_VALUE);
-                            handleObjectStart(contentHandler);
-                        } else {
-                            status = Status.IN_ERROR;
-                        }
+            case IN_OBJECT:
+                if (previousToken == JsonLexer.LEFT_BRACE
+                        || previousToken == JsonLexer.ITEM_SEPARATOR) {
+                    if (JsonLexer.ITEM_SEPARATOR == token) {
+                        // Missing key:values are not allowed
                         break;
-
-                    case IN_PAIR_VALUE:
-                        /*
-                         * Status.IN_PAIR_VALUE is just a marker to indicate the end of an object entry, it
-                         * doesn't process any token, therefore delay consuming token until next round.
-                         */
-                        statusStack.removeFirst();
-                        status = peekStatus(statusStack);
-                        if (!contentHandler.endObjectEntry()) return;
+                    }
+                    if (previousToken == JsonLexer.ITEM_SEPARATOR && isIllegalTrailingSeparator()) {
                         break;
+                    }
+                }
+                if (JsonLexer.ITEM_SEPARATOR == token) {
+                    consumeToken();
+                    return true;
+                } else if (JsonLexer.isPrimitive(token)) {
+                    if (config.allowObjectPrimitiveKeys() || token == JsonLexer.STRING) {
+                        return handleObjectKey(contentHandler);
+                    }
+                } else if (JsonLexer.RIGHT_BRACE == token) {
+                    return handleObjectEnd(contentHandler);
+                }
+                break;
 
-                    case IN_ARRAY:
-                        if (Yytoken.TYPE_ITEM_SEPARATOR == token) {
-                            nextToken();
-                            if (handleMissingArrayValue(contentHandler)) return;
-                            handleTrailingSeparator();
-                        } else if (token instanceof Yytoken.YyPrimitiveToken) {
-                            if (handlePrimitiveValue(contentHandler)) return;
-                        } else if (Yytoken.TYPE_RIGHT_SQUARE == token) {
-                            handleArrayEnd(contentHandler);
-                        } else if (Yytoken.TYPE_LEFT_BRACE == token) {
-                            handleObjectStart(contentHandler);
-                        } else if (Yytoken.TYPE_LEFT_SQUARE == token) {
-                            if (handleArrayStart(contentHandler)) return;
-                        } else {
-                            status = Status.IN_ERROR;
-                        } // inner switch
-                        break;
+            case PASSED_PAIR_KEY:
+                if (previousToken != JsonLexer.PAIR_SEPARATOR) {
+                    if (JsonLexer.PAIR_SEPARATOR == token) {
+                        consumeToken();
+                        return true;
+                    }
+                    skipEntryValue = false;
+                    if (config.allowObjectValuesAsKeys()) {
+                        return handleMissingObjectValue(contentHandler);
+                    }
+                    // Missing colon
+                    break;
+                }
+                if (skipEntryValue && isValueToken(token)) {
+                    skipEntryValue = false;
+                    replaceStatus(Status.IN_PAIR_VALUE);
+                    status = Status.IN_PAIR_VALUE;
+                    if (!JsonLexer.isPrimitive(token)) {
+                        lexer.startSkip();
+                        skipping = true;
+                    }
+                    consumeToken();
+                    return true;
+                } else if (JsonLexer.isPrimitive(token)) {
+                    replaceStatus(Status.IN_PAIR_VALUE);
+                    status = Status.IN_PAIR_VALUE;
+                    return handlePrimitiveValue(contentHandler, ContentHandler.Status.OBJECT);
+                } else if (JsonLexer.LEFT_SQUARE == token) {
+                    replaceStatus(Status.IN_PAIR_VALUE);
+                    return handleArrayStart(contentHandler);
+                } else if (JsonLexer.LEFT_BRACE == token) {
+                    replaceStatus(Status.IN_PAIR_VALUE);
+                    return handleObjectStart(contentHandler);
+                }
+                break;
 
-                    case END:
-                        return;
+            case IN_PAIR_VALUE:
+                /*
+                 * Status.IN_PAIR_VALUE is just a marker to indicate the end of an object entry, it
+                 * doesn't process any token.
+                 */
+                statusDepth--;
+                status = peekStatus();
+                return contentHandler.endObjectEntry();
 
-                    case IN_ERROR:
-                        throw JsonParseException.unexpectedToken(getPosition(), token);
-                } // switch
-                if (status == Status.IN_ERROR) {
-                    throw JsonParseException.unexpectedToken(getPosition(), token);
+            case IN_ARRAY:
+                if (previousToken == JsonLexer.LEFT_SQUARE
+                        || previousToken == JsonLexer.ITEM_SEPARATOR) {
+                    if (JsonLexer.ITEM_SEPARATOR == token && !config.allowMissingArrayValues()) {
+                        // Missing values are not allowed
+                        break;
+                    }
+                    if (previousToken == JsonLexer.ITEM_SEPARATOR && isIllegalTrailingSeparator()) {
+                        break;
+                    }
+                    if (JsonLexer.ITEM_SEPARATOR == token) {
+                        return handleMissingArrayValue(contentHandler);
+                    }
                 }
-            } while (token != Yytoken.TYPE_EOF);
-        } catch (IOException | JsonParseException | RuntimeException | Error ie) {
-            status = Status.IN_ERROR;
-            throw ie;
-        }
+                if (JsonLexer.ITEM_SEPARATOR == token) {
+                    consumeToken();
+                    return true;
+                } else if (JsonLexer.isPrimitive(token)) {
+                    return handlePrimitiveValue(contentHandler, ContentHandler.Status.ARRAY);
+                } else if (JsonLexer.RIGHT_SQUARE == token) {
+                    return handleArrayEnd(contentHandler);
+                } else if (JsonLexer.LEFT_BRACE == token) {
+                    return handleObjectStart(contentHandler);
+                } else if (JsonLexer.LEFT_SQUARE == token) {
+                    return handleArrayStart(contentHandler);
+                }
+                break;
 
-        if (status == Status.IN_FINISHED_VALUE) {
-            contentHandler.endJSON();
-            status = Status.END;
-            return;
-        }
+            case END:
+                return true;
 
+            case IN_ERROR:
+                break;
+        }
         status = Status.IN_ERROR;
-        throw JsonParseException.unexpectedToken(getPosition(), token);
+        throw JsonParseException.unexpectedToken(getPosition(), lexer.text());
+    }
+
+    private void consumeToken() {
+        previousToken = token;
+        token = JsonLexer.NEED_INPUT;
     }
 
     private boolean handleArrayStart(ContentHandler contentHandler)
             throws JsonParseException, IOException {
-        if (!contentHandler.startArray(toHandlerStatus(status))) return true;
+        ContentHandler.Status handlerStatus = toHandlerStatus(status);
         status = Status.IN_ARRAY;
-        statusStack.addFirst(status);
-        nextToken();
-        return handleMissingArrayValue(contentHandler);
+        pushStatus(status);
+        consumeToken();
+        return contentHandler.startArray(handlerStatus);
     }
 
     private boolean handleArrayEnd(ContentHandler contentHandler)
             throws JsonParseException, IOException {
-        if (statusStack.size() > 1) {
-            statusStack.removeFirst();
-            status = peekStatus(statusStack);
-        } else {
-            status = Status.IN_FINISHED_VALUE;
-        }
-        if (!contentHandler.endArray(toHandlerStatus(status))) return true;
-        nextToken();
-        return false;
+        popStatus();
+        consumeToken();
+        return contentHandler.endArray(toHandlerStatus(status));
     }
 
-    private void handleObjectStart(ContentHandler contentHandler)
+    private boolean handleObjectStart(ContentHandler contentHandler)
             throws JsonParseException, IOException {
-        if (!contentHandler.startObject(toHandlerStatus(status))) return;
+        ContentHandler.Status handlerStatus = toHandlerStatus(status);
         status = Status.IN_OBJECT;
-        statusStack.addFirst(status);
-        nextToken();
-        handleMissingObjectItem();
+        pushStatus(status);
+        consumeToken();
+        return contentHandler.startObject(handlerStatus);
     }
 
     private boolean handleObjectEnd(ContentHandler contentHandler)
             throws JsonParseException, IOException {
-        if (statusStack.size() > 1) {
-            statusStack.removeFirst();
-            status = peekStatus(statusStack);
+        popStatus();
+        consumeToken();
+        return contentHandler.endObject(toHandlerStatus(status));
+    }
+
+    private void popStatus() {
+        if (statusDepth > 1) {
+            statusDepth--;
+            status = peekStatus();
         } else {
             status = Status.IN_FINISHED_VALUE;
         }
-        if (!contentHandler.endObject(toHandlerStatus(status))) return true;
-        nextToken();
-        return false;
     }
 
     private boolean handleObjectKey(ContentHandler contentHandler)
             throws JsonParseException, IOException {
-        Yytoken keyToken = token;
-        if (!contentHandler.startObjectEntry(keyToken.value)) return true;
+        String key = decodeValues ? lexer.key() : null;
+        if (config.allowObjectValuesAsKeys()) {
+            // The key is only remembered when it might have to be used as a value
+            pendingKey = lexer.key();
+            pendingRawKey = lexer.rawValue();
+        }
         status = Status.PASSED_PAIR_KEY;
-        statusStack.addFirst(status);
-        nextToken();
-        handleMissingObjectValue(contentHandler, keyToken.value, keyToken.rawValue);
-        return false;
+        pushStatus(status);
+        consumeToken();
+        return contentHandler.startObjectEntry(key);
     }
 
-    private boolean handlePrimitiveValue(ContentHandler contentHandler)
+    private boolean handlePrimitiveValue(
+            ContentHandler contentHandler, ContentHandler.Status handlerStatus)
             throws JsonParseException, IOException {
-        Yytoken.YyPrimitiveToken ptoken = (Yytoken.YyPrimitiveToken) token;
-        if (!contentHandler.primitive(
-                toHandlerStatus(status), ptoken.type, token.value, token.rawValue)) return true;
-        nextToken();
-        return false;
-    }
-
-    private boolean handleMissingArrayValue(ContentHandler contentHandler)
-            throws JsonParseException, IOException {
-        if (token == Yytoken.TYPE_ITEM_SEPARATOR) {
-            if (config.allowMissingArrayValues()) {
-                // Missing values are allowed, so we add a `null`
-                return !contentHandler.primitive(
-                        // NB the raw value below is empty ON PURPOSE!
-                        // If the value gets turned into a string again we want to be
-                        // sure that it will not be represented as "null" but as the
-                        // missing value that it start out as.
-                        ContentHandler.Status.ARRAY, JsonPrimitive.Type.NULL, "null", "");
-            } else {
-                // Missing values are not allowed
-                status = Status.IN_ERROR;
+        int type = token;
+        consumeToken();
+        if (!decodeValues) {
+            return contentHandler.primitive(
+                    handlerStatus, JsonLexer.primitiveType(type), null, null);
+        }
+        if (config.parseNumbers()) {
+            // Numbers that don't fit are passed as text
+            if (type == JsonLexer.INTEGER && lexer.isLong()) {
+                return contentHandler.primitiveLong(handlerStatus, lexer.longValue());
+            } else if (type == JsonLexer.REAL) {
+                double d = lexer.doubleValue();
+                if (!Double.isInfinite(d)) {
+                    return contentHandler.primitiveDouble(handlerStatus, d);
+                }
             }
         }
-        return false;
+        if (config.stringValues() != JsonParserConfig.StringValues.BOTH && lexer.isEscaped()) {
+            // Only one of the two forms gets created, the other one is derived when needed
+            boolean raw = config.stringValues() == JsonParserConfig.StringValues.RAW;
+            return contentHandler.primitive(
+                    handlerStatus,
+                    JsonPrimitive.Type.STRING,
+                    raw ? null : lexer.value(),
+                    raw ? lexer.rawValue() : null);
+        }
+        return contentHandler.primitive(
+                handlerStatus, JsonLexer.primitiveType(type), lexer.value(), lexer.rawValue());
     }
 
-    private void handleMissingObjectItem() {
-        if (token == Yytoken.TYPE_ITEM_SEPARATOR) {
-            // Missing key:values are not allowed
-            status = Status.IN_ERROR;
-        }
+    private boolean handleMissingArrayValue(ContentHandler contentHandler)
+            throws JsonParseException, IOException {
+        // Missing values are allowed, so we add a `null`. The separator itself is left to be
+        // processed as usual, the previous token gets changed so we don't end up here again.
+        previousToken = JsonLexer.NULL;
+        return contentHandler.primitive(
+                // NB the raw value below is empty ON PURPOSE!
+                // If the value gets turned into a string again we want to be
+                // sure that it will not be represented as "null" but as the
+                // missing value that it start out as.
+                ContentHandler.Status.ARRAY, JsonPrimitive.Type.NULL, "null", "");
     }
 
-    private void handleMissingObjectValue(
-            ContentHandler contentHandler, String keyValue, String rawKeyValue)
+    private boolean handleMissingObjectValue(ContentHandler contentHandler)
             throws JsonParseException, IOException {
-        if (token != Yytoken.TYPE_PAIR_SEPARATOR) {
-            if (config.allowObjectValuesAsKeys()) {
-                // Missing values are allowed, so we add a value equal to the key
-                contentHandler.primitive(
-                        ContentHandler.Status.OBJECT,
-                        JsonPrimitive.Type.STRING,
-                        keyValue,
-                        rawKeyValue);
-                statusStack.removeFirst();
-                status = peekStatus(statusStack);
-            } else {
-                // Missing colon
-                status = Status.IN_ERROR;
-            }
-        }
+        // Missing values are allowed, so we add a value equal to the key
+        statusDepth--;
+        status = peekStatus();
+        String key = pendingKey;
+        String rawKey = pendingRawKey;
+        pendingKey = null;
+        pendingRawKey = null;
+        return contentHandler.primitive(
+                ContentHandler.Status.OBJECT, JsonPrimitive.Type.STRING, key, rawKey);
     }
 
-    private void handleTrailingSeparator() {
-        if (!config.allowTrailingSeparator() && !isValueToken(token)) {
-            // Trailing separators are not allowed
-            status = Status.IN_ERROR;
-        }
+    private boolean isIllegalTrailingSeparator() {
+        // Trailing separators are only allowed when configured
+        return !config.allowTrailingSeparator() && !isValueToken(token);
     }
 
-    private boolean isValueToken(Yytoken token) {
-        return token == Yytoken.TYPE_LEFT_BRACE
-                || token == Yytoken.TYPE_LEFT_SQUARE
-                || token instanceof Yytoken.YyPrimitiveToken;
+    private boolean isValueToken(int token) {
+        return token == JsonLexer.LEFT_BRACE
+                || token == JsonLexer.LEFT_SQUARE
+                || JsonLexer.isPrimitive(token);
     }
 
     private ContentHandler.Status toHandlerStatus(Status status) {
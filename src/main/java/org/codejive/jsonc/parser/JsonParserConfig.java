@@ -1,6 +1,16 @@
 package org.codejive.jsonc.parser;
 
 public class JsonParserConfig {
+    /** Which forms of the values of strings with escapes get created while parsing. */
+    public enum StringValues {
+        /** Both the decoded value and the raw value */
+        BOTH,
+        /** Only the raw value, the decoded value gets derived from it when needed */
+        RAW,
+        /** Only the decoded value, the raw value gets derived from it by escaping it again */
+        DECODED
+    }
+
     private boolean allowToplevelValues;
     private boolean allowTrailingSeparator;
     private boolean allowMissingArrayValues;
@@ -9,6 +19,12 @@ public class JsonParserConfig {
     private boolean allowSingleQuotedStrings;
     private boolean allowUnquotedStrings;
     private boolean enableComments;
+    private boolean legacyLexer;
+    private boolean presizeContainers;
+    private boolean numericArrays;
+    private boolean parseNumbers;
+    private SymbolTable symbolTable;
+    private StringValues stringValues = StringValues.BOTH;
 
     public static JsonParserConfig defaults() {
         return new JsonParserConfig()
@@ -111,4 +127,105 @@ public class JsonParserConfig {
         this.enableComments = enableComments;
         return this;
     }
+
+    public boolean legacyLexer() {
+        return legacyLexer;
+    }
+
+    /**
+     * Use the old JFlex generated lexer instead of the hand-written one. The old lexer is slower,
+     * allocates more and doesn't support comments, it's only kept as a fallback.
+     */
+    public JsonParserConfig legacyLexer(boolean legacyLexer) {
+        this.legacyLexer = legacyLexer;
+        return this;
+    }
+
+    public boolean presizeContainers() {
+        return presizeContainers;
+    }
+
+    /**
+     * Create objects and arrays at their final size. The values of a container are collected until
+     * it ends, then it gets created with {@link TypeFactory#createObjectContainer(int)} or {@link
+     * TypeFactory#createArrayContainer(int)} and filled in one go, so it never has to grow. Only
+     * affects the parse methods that return the parsed value.
+     */
+    public JsonParserConfig presizeContainers(boolean presizeContainers) {
+        this.presizeContainers = presizeContainers;
+        return this;
+    }
+
+    public boolean numericArrays() {
+        return numericArrays;
+    }
+
+    /**
+     * Store arrays of numbers in a {@link org.codejive.jsonc.JsonLongArray} or {@link
+     * org.codejive.jsonc.JsonDoubleArray}, which keep their elements in a {@code long[]} or {@code
+     * double[]} instead of as separate primitive objects. The type of the first element decides
+     * which one gets used, an array that turns out to hold anything else falls back to normal
+     * storage at that element. Real numbers only keep their value, see {@link
+     * org.codejive.jsonc.JsonDoubleArray}. Other arrays are created by the type factory as usual.
+     * Implies {@link #presizeContainers(boolean)} and only affects the parse methods that return
+     * the parsed value.
+     */
+    public JsonParserConfig numericArrays(boolean numericArrays) {
+        this.numericArrays = numericArrays;
+        return this;
+    }
+
+    public boolean parseNumbers() {
+        return parseNumbers;
+    }
+
+    /**
+     * Turn numbers into longs and doubles while parsing, straight from the input buffer, and pass
+     * them to {@link ContentHandler#primitiveLong} and {@link ContentHandler#primitiveDouble}
+     * instead of as text. Numbers that don't fit in a long or a double are still passed as text.
+     * The original text of the numbers is not kept, so when they end up being turned into text
+     * again they are written the way {@link Long#toString(long)} and {@link
+     * Double#toString(double)} (of Java 19 and later) write them: {@code 1.50} becomes {@code 1.5}.
+     * Leave this disabled when numbers need to be kept exactly as they were written.
+     */
+    public JsonParserConfig parseNumbers(boolean parseNumbers) {
+        this.parseNumbers = parseNumbers;
+        return this;
+    }
+
+    public SymbolTable symbolTable() {
+        return symbolTable;
+    }
+
+    /**
+     * Use the given symbol table to get canonical Strings for the keys of objects, so keys that
+     * occur many times all share the same String instance. The table is used by every parser that
+     * uses this configuration and can be shared with other configurations as well, see {@link
+     * SymbolTable}. Null, the default, disables this.
+     */
+    public JsonParserConfig symbolTable(SymbolTable symbolTable) {
+        this.symbolTable = symbolTable;
+        return this;
+    }
+
+    public StringValues stringValues() {
+        return stringValues;
+    }
+
+    /**
+     * Choose which forms of the values of strings with escapes get created. By default both the
+     * decoded value and the raw value, as it appeared in the input, get passed to {@link
+     * ContentHandler#primitive}, which for these strings means keeping twice the characters. With
+     * {@link StringValues#RAW} only the raw value gets passed and the value is null, with {@link
+     * StringValues#DECODED} it's the other way around. The primitives created by the parser derive
+     * the missing form when it's first needed, content handlers that use this must be prepared to
+     * do the same. Deriving the raw value from the decoded one escapes it the way {@link
+     * org.codejive.jsonc.Jsonc#escape(String)} does, which isn't necessarily the way it appeared in
+     * the input, so use {@code DECODED} only when the output doesn't have to match the input
+     * exactly. Strings without escapes only ever have a single String for both forms.
+     */
+    public JsonParserConfig stringValues(StringValues stringValues) {
+        this.stringValues = stringValues;
+        return this;
+    }
 }
@@ -0,0 +1,153 @@
+package org.codejive.jsonc.parser;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * A thread-safe pool of {@link JsonParser}s that all use the same configuration. Parsers aren't
+ * thread-safe themselves, but creating one for every document means allocating its buffers and
+ * stacks over and over again, which for small documents costs more than the actual parsing. The
+ * pool hands out parsers that were used before, so all of that gets reused, including the symbol
+ * table when the configuration has one.
+ *
+ * <p>The parse methods take care of everything. For anything else a parser can be taken from the
+ * pool using {@link #acquire()}, it must be returned to the pool using {@link #release(JsonParser)}
+ * and must not be used after that:
+ *
+ * <pre>{@code
+ * JsonParser parser = pool.acquire();
+ * try {
+ *     parser.parse(reader, handler);
+ * } finally {
+ *     pool.release(parser);
+ * }
+ * }</pre>
+ *
+ * The pool never blocks: when all parsers are in use a new one gets created and parsers that are
+ * released while the pool is full are simply dropped. Released parsers don't keep any references to
+ * the documents they parsed, see {@link JsonParser#release()}.
+ */
+public final class JsonParserPool {
+    private final JsonParserConfig config;
+    private final ArrayBlockingQueue<JsonParser> parsers;
+
+    /** Creates a pool of parsers using the default configuration. */
+    public JsonParserPool() {
+        this(JsonParserConfig.defaults());
+    }
+
+    /**
+     * Creates a pool of parsers using the given configuration, keeping at most twice as many idle
+     * parsers as there are processors.
+     *
+     * @param config - The configuration for the parsers
+     */
+    public JsonParserPool(JsonParserConfig config) {
+        this(config, 2 * Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates a pool of parsers using the given configuration.
+     *
+     * @param config - The configuration for the parsers, it must not be changed anymore
+     * @param maxIdle - The maximum number of idle parsers that are kept in the pool
+     */
+    public JsonParserPool(JsonParserConfig config, int maxIdle) {
+        if (maxIdle <= 0) {
+            throw new IllegalArgumentException("Invalid maximum: " + maxIdle);
+        }
+        this.config = config;
+        this.parsers = new ArrayBlockingQueue<>(maxIdle);
+    }
+
+    /** @return The configuration used by the parsers of this pool */
+    public JsonParserConfig config() {
+        return config;
+    }
+
+    /** @return The number of idle parsers in the pool */
+    public int idle() {
+        return parsers.size();
+    }
+
+    /** @return A parser from the pool, or a new one if the pool is empty */
+    public JsonParser acquire() {
+        JsonParser parser = parsers.poll();
+        return parser != null ? parser : new JsonParser(config);
+    }
+
+    /**
+     * Returns a parser to the pool. It must have been acquired from this pool and must not be used
+     * anymore afterwards.
+     *
+     * @param parser - The parser to return
+     */
+    public void release(JsonParser parser) {
+        parser.release();
+        parsers.offer(parser);
+    }
+
+    /** @see JsonParser#parse(String) */
+    public Object parse(String s) throws JsonParseException {
+        JsonParser parser = acquire();
+        try {
+            return parser.parse(s);
+        } finally {
+            release(parser);
+        }
+    }
+
+    /** @see JsonParser#parse(Reader) */
+    public Object parse(Reader in) throws IOException, JsonParseException {
+        JsonParser parser = acquire();
+        try {
+            return parser.parse(in);
+        } finally {
+            release(parser);
+        }
+    }
+
+    /** @see JsonParser#parse(byte[]) */
+    public Object parse(byte[] b) throws JsonParseException {
+        JsonParser parser = acquire();
+        try {
+            return parser.parse(b);
+        } finally {
+            release(parser);
+        }
+    }
+
+    /** @see JsonParser#parse(ByteBuffer) */
+    public Object parse(ByteBuffer bb) throws JsonParseException {
+        JsonParser parser = acquire();
+        try {
+            return parser.parse(bb);
+        } finally {
+            release(parser);
+        }
+    }
+
+    /** @see JsonParser#parse(Path) */
+    public Object parse(Path file) throws IOException, JsonParseException {
+        JsonParser parser = acquire();
+        try {
+            return parser.parse(file);
+        } finally {
+            release(parser);
+        }
+    }
+
+    /** @see JsonParser#parse(InputStream) */
+    public Object parse(InputStream in) throws IOException, JsonParseException {
+        JsonParser parser = acquire();
+        try {
+            return parser.parse(in);
+        } finally {
+            release(parser);
+        }
+    }
+}
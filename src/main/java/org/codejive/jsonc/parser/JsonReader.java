@@ -0,0 +1,425 @@
+package org.codejive.jsonc.parser;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import org.codejive.jsonc.JsonPrimitive;
+import org.codejive.jsonc.Jsonc;
+import org.codejive.jsonc.NumberWriter;
+
+/**
+ * Pull parser for JSON text. Instead of having a {@link ContentHandler} called for each event, the
+ * caller asks for the next event with {@link #next()} and can then look at its value, skip parts it
+ * isn't interested in or simply stop reading.
+ *
+ * <p>The reader uses the same state machine and {@link JsonParserConfig} options as {@link
+ * JsonParser}, so it accepts and rejects exactly the same input. Please note that JsonReader is NOT
+ * thread-safe.
+ */
+public class JsonReader implements Closeable {
+    public enum Event {
+        START_OBJECT,
+        END_OBJECT,
+        START_ARRAY,
+        END_ARRAY,
+        KEY,
+        VALUE,
+        END_JSON
+    }
+
+    private final JsonParser parser;
+    private final Closeable source;
+    private final EventHandler handler = new EventHandler();
+
+    private boolean started;
+
+    // The current event
+    private Event event;
+    private JsonPrimitive.Type type;
+    private String value;
+    private String rawValue;
+    // The bits of the long or double of a value that was passed as a number instead of as text
+    private long number;
+
+    // The event the parser reported last, which is ahead of the current one after a peek()
+    private boolean peeked;
+    private Event nextEvent;
+    private JsonPrimitive.Type nextType;
+    private String nextValue;
+    private String nextRawValue;
+    private long nextNumber;
+
+    public JsonReader(String s) {
+        this(s, JsonParserConfig.defaults());
+    }
+
+    public JsonReader(String s, JsonParserConfig config) {
+        this.parser = new JsonParser(config);
+        this.source = null;
+        parser.reset((CharSequence) s);
+    }
+
+    public JsonReader(Reader in) {
+        this(in, JsonParserConfig.defaults());
+    }
+
+    public JsonReader(Reader in, JsonParserConfig config) {
+        this.parser = new JsonParser(config);
+        this.source = in;
+        parser.reset(in);
+    }
+
+    /**
+     * Creates a reader for UTF-8 encoded JSON text.
+     *
+     * @param in - The UTF-8 encoded input
+     */
+    public JsonReader(InputStream in) {
+        this(in, JsonParserConfig.defaults());
+    }
+
+    public JsonReader(InputStream in, JsonParserConfig config) {
+        this.parser = new JsonParser(config);
+        this.source = in;
+        parser.reset(in);
+    }
+
+    public JsonReader(byte[] b) {
+        this(b, JsonParserConfig.defaults());
+    }
+
+    public JsonReader(byte[] b, JsonParserConfig config) {
+        this.parser = new JsonParser(config);
+        this.source = null;
+        parser.reset(b, 0, b.length);
+    }
+
+    /**
+     * Advances to the next event. Object entries result in a {@link Event#KEY} event followed by
+     * the events for the entry's value. At the end of the input {@link Event#END_JSON} is returned,
+     * from then on it will be returned for every call.
+     *
+     * @return The next event
+     * @throws IOException
+     * @throws JsonParseException
+     */
+    public Event next() throws IOException, JsonParseException {
+        if (!peeked) {
+            read();
+        }
+        peeked = false;
+        event = nextEvent;
+        type = nextType;
+        value = nextValue;
+        rawValue = nextRawValue;
+        number = nextNumber;
+        return event;
+    }
+
+    /**
+     * Returns the next event without advancing to it. The values of the current event stay
+     * available until {@link #next()} gets called.
+     *
+     * @return The next event
+     * @throws IOException
+     * @throws JsonParseException
+     */
+    public Event peek() throws IOException, JsonParseException {
+        if (!peeked) {
+            read();
+            peeked = true;
+        }
+        return nextEvent;
+    }
+
+    private void read() throws IOException, JsonParseException {
+        if (nextEvent == Event.END_JSON) {
+            return;
+        }
+        nextEvent = null;
+        nextType = null;
+        nextValue = null;
+        nextRawValue = null;
+        parser.parse(handler, started);
+        started = true;
+    }
+
+    /** @return The current event, null if {@link #next()} hasn't been called yet */
+    public Event getEvent() {
+        return event;
+    }
+
+    /**
+     * Advances to the next event, which must be the start of an object.
+     *
+     * @throws IOException
+     * @throws JsonParseException
+     */
+    public void beginObject() throws IOException, JsonParseException {
+        expect(Event.START_OBJECT);
+    }
+
+    /**
+     * Advances to the next event, which must be the end of an object.
+     *
+     * @throws IOException
+     * @throws JsonParseException
+     */
+    public void endObject() throws IOException, JsonParseException {
+        expect(Event.END_OBJECT);
+    }
+
+    /**
+     * Advances to the next event, which must be the start of an array.
+     *
+     * @throws IOException
+     * @throws JsonParseException
+     */
+    public void beginArray() throws IOException, JsonParseException {
+        expect(Event.START_ARRAY);
+    }
+
+    /**
+     * Advances to the next event, which must be the end of an array.
+     *
+     * @throws IOException
+     * @throws JsonParseException
+     */
+    public void endArray() throws IOException, JsonParseException {
+        expect(Event.END_ARRAY);
+    }
+
+    /**
+     * Advances to the next event, which must be the key of an object entry.
+     *
+     * @return The key
+     * @throws IOException
+     * @throws JsonParseException
+     */
+    public String nextKey() throws IOException, JsonParseException {
+        expect(Event.KEY);
+        return value;
+    }
+
+    private void expect(Event expected) throws IOException, JsonParseException {
+        Event e = next();
+        if (e != expected) {
+            throw JsonParseException.unexpectedToken(getPosition(), text());
+        }
+    }
+
+    /**
+     * Skips the next value, including all of its contents if it's an object or an array. When the
+     * next event is a key, the key and its value are skipped. Skipped objects and arrays are only
+     * scanned for quotes, braces and brackets, their contents are not validated.
+     *
+     * @throws IOException
+     * @throws JsonParseException
+     */
+    public void skipValue() throws IOException, JsonParseException {
+        switch (next()) {
+            case KEY:
+                parser.skip();
+                break;
+            case START_OBJECT:
+                parser.skip();
+                endObject();
+                break;
+            case START_ARRAY:
+                parser.skip();
+                endArray();
+                break;
+            case VALUE:
+                break;
+            default:
+                throw JsonParseException.unexpectedToken(getPosition(), text());
+        }
+    }
+
+    /** @return The type of the current value, only valid for {@link Event#VALUE} events */
+    public JsonPrimitive.Type getType() {
+        return type;
+    }
+
+    /**
+     * @return The current key or value as a String, null for any other events. For a JSON null this
+     *     returns the String "null", use {@link #isNull()} to check for nulls.
+     */
+    public String getString() {
+        if (value == null && event == Event.VALUE && rawValue != null) {
+            // A string that was passed with only its raw value
+            value = Jsonc.unescape(rawValue);
+        } else if (value == null && event == Event.VALUE) {
+            // A number that was parsed by the parser itself
+            value =
+                    type == JsonPrimitive.Type.INTEGER
+                            ? Long.toString(number)
+                            : NumberWriter.toString(Double.longBitsToDouble(number));
+            rawValue = value;
+        }
+        return value;
+    }
+
+    /** @return The current key or value exactly as it appeared in the input */
+    public String getRawString() {
+        return rawValue != null ? rawValue : getString();
+    }
+
+    /** @return true if the current value is a JSON null */
+    public boolean isNull() {
+        return type == JsonPrimitive.Type.NULL;
+    }
+
+    /**
+     * Returns the current value as a long. Real numbers are truncated.
+     *
+     * @return The current value
+     * @throws IllegalStateException if the current event isn't a numeric value
+     */
+    public long getLong() {
+        if (type == JsonPrimitive.Type.INTEGER) {
+            return value == null ? number : Long.parseLong(value);
+        } else if (type == JsonPrimitive.Type.REAL) {
+            return (long) getDouble();
+        }
+        throw new IllegalStateException("Current value is not a number but " + type);
+    }
+
+    /**
+     * @return The current value as a double
+     * @throws IllegalStateException if the current event isn't a numeric value
+     */
+    public double getDouble() {
+        if (value == null && type == JsonPrimitive.Type.INTEGER) {
+            return number;
+        } else if (value == null && type == JsonPrimitive.Type.REAL) {
+            return Double.longBitsToDouble(number);
+        } else if (type == JsonPrimitive.Type.INTEGER || type == JsonPrimitive.Type.REAL) {
+            return Double.parseDouble(value);
+        }
+        throw new IllegalStateException("Current value is not a number but " + type);
+    }
+
+    /**
+     * @return The current value as a boolean
+     * @throws IllegalStateException if the current event isn't a boolean value
+     */
+    public boolean getBoolean() {
+        if (type == JsonPrimitive.Type.BOOLEAN) {
+            return Boolean.parseBoolean(value);
+        }
+        throw new IllegalStateException("Current value is not a boolean but " + type);
+    }
+
+    /**
+     * @return The position of the beginning of the token of the current event. When reading bytes
+     *     this is a byte offset, otherwise it's a character offset.
+     */
+    public long getPosition() {
+        return parser.getPosition();
+    }
+
+    private String text() {
+        if (event == null || event == Event.END_JSON) {
+            return JsonLexer.TEXT_EOF;
+        }
+        switch (event) {
+            case START_OBJECT:
+                return "{";
+            case END_OBJECT:
+                return "}";
+            case START_ARRAY:
+                return "[";
+            case END_ARRAY:
+                return "]";
+            default:
+                return getString();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (source != null) {
+            source.close();
+        }
+    }
+
+    /** Records each event and then asks the parser to stop, so it returns control to next(). */
+    private final class EventHandler implements ContentHandler {
+        @Override
+        public void startJSON() {}
+
+        @Override
+        public void endJSON() {
+            nextEvent = Event.END_JSON;
+        }
+
+        @Override
+        public boolean startObject(Status status) {
+            nextEvent = Event.START_OBJECT;
+            return false;
+        }
+
+        @Override
+        public boolean endObject(Status status) {
+            nextEvent = Event.END_OBJECT;
+            return false;
+        }
+
+        @Override
+        public boolean startObjectEntry(String key) {
+            nextEvent = Event.KEY;
+            nextValue = key;
+            nextRawValue = key;
+            return false;
+        }
+
+        @Override
+        public boolean endObjectEntry() {
+            return true;
+        }
+
+        @Override
+        public boolean startArray(Status status) {
+            nextEvent = Event.START_ARRAY;
+            return false;
+        }
+
+        @Override
+        public boolean endArray(Status status) {
+            nextEvent = Event.END_ARRAY;
+            return false;
+        }
+
+        @Override
+        public boolean primitive(
+                Status status, JsonPrimitive.Type type, String value, String rawValue) {
+            nextEvent = Event.VALUE;
+            nextType = type;
+            nextValue = value;
+            nextRawValue = rawValue;
+            return false;
+        }
+
+        @Override
+        public boolean primitiveLong(Status status, long value) {
+            nextEvent = Event.VALUE;
+            nextType = JsonPrimitive.Type.INTEGER;
+            nextValue = null;
+            nextRawValue = null;
+            nextNumber = value;
+            return false;
+        }
+
+        @Override
+        public boolean primitiveDouble(Status status, double value) {
+            nextEvent = Event.VALUE;
+            nextType = JsonPrimitive.Type.REAL;
+            nextValue = null;
+            nextRawValue = null;
+            nextNumber = Double.doubleToRawLongBits(value);
+            return false;
+        }
+    }
+}
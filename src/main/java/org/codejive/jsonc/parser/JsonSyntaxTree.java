@@ -0,0 +1,836 @@
+package org.codejive.jsonc.parser;
+
+import java.io.CharArrayWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import org.codejive.jsonc.JsonArray;
+import org.codejive.jsonc.JsonObject;
+import org.codejive.jsonc.JsonPrimitive;
+import org.codejive.jsonc.Jsonc;
+
+/**
+ * Concrete syntax tree of a JSON or JSONC document, created by {@link
+ * JsonParser#parseSyntaxTree(String)}. Unlike the other representations it keeps everything that is
+ * in the text: comments, whitespace, separators and the exact way each value was written. The nodes
+ * only hold offsets into the source text, the comments and whitespace around a value are simply the
+ * text between those offsets.
+ *
+ * <p>Values can be replaced, added and removed using the methods of {@link Node}. Writing the tree
+ * copies every part of the source that wasn't changed as it is, adjacent parts in a single block,
+ * so only the values that were set get written anew. New values are written in the compact form,
+ * new entries and elements get the same indentation as the ones before them:
+ *
+ * <pre>{@code
+ * JsonSyntaxTree tree = new JsonParser(JsonParserConfig.strictJsonc()).parseSyntaxTree(text);
+ * tree.root().get("server").set("port", 8080);
+ * tree.root().get("plugins").add("metrics");
+ * tree.writeTo(out);
+ * }</pre>
+ *
+ * Please note that JsonSyntaxTree is NOT thread-safe.
+ */
+public final class JsonSyntaxTree {
+    private final String source;
+    private final CharLexer lexer;
+    // Checks the text of values that were set, which must be plain JSON whatever the config
+    private final CharLexer valueLexer = new CharLexer(JsonParserConfig.strictJson());
+    private Node root;
+
+    private JsonSyntaxTree(JsonParserConfig config, String source) {
+        this.source = source;
+        this.lexer = new CharLexer(config);
+    }
+
+    /** @return The top-level value of the document */
+    public Node root() {
+        return root;
+    }
+
+    /** @return The text the tree was parsed from */
+    public String source() {
+        return source;
+    }
+
+    /**
+     * Writes the text of the document, including all changes that were made to it.
+     *
+     * @param out - The Writer to write to
+     */
+    public void writeTo(Writer out) throws IOException {
+        Output o = new Output(out, source);
+        o.copy(0, root.slotStart);
+        o.value(root);
+        o.copy(root.slotEnd, source.length());
+        o.flush();
+    }
+
+    /** @return The text of the document, including all changes that were made to it */
+    @Override
+    public String toString() {
+        CharArrayWriter out = new CharArrayWriter(source.length() + 16);
+        try {
+            writeTo(out);
+        } catch (IOException e) {
+            // This should never happen for a CharArrayWriter
+            throw new UncheckedIOException(e);
+        }
+        return out.toString();
+    }
+
+    /**
+     * A value in the tree, along with its key when it is an entry of an object. Besides the value
+     * each node knows the comments and whitespace in front of it and the separator and comments
+     * following it on the same line, which all go with it when it gets removed.
+     */
+    public static final class Node {
+        private final JsonSyntaxTree tree;
+        private Node parent;
+        private JsonTape.Type type;
+
+        // Where the value is in the source, start is -1 for values that were set
+        private int start = -1;
+        private int end;
+        // The JSON text of primitive values that were set
+        private String json;
+        // The value the parser made up for a missing value, which has no text of its own
+        private JsonPrimitive synthetic;
+        // The entries or elements of objects and arrays
+        private List<Node> children;
+        // Where the text between the last child and the closing bracket starts
+        private int tail;
+        private boolean trailingComma;
+
+        // The key of object entries, keyStart is -1 for entries that were added
+        private String key;
+        private int keyStart = -1;
+        private int keyEnd;
+
+        // Where the node was in the source: the comments and whitespace in front of it, the value
+        // and the separator and comments after it. The leadStart is -1 for nodes that were added
+        private int leadStart = -1;
+        private int slotStart;
+        private int slotEnd;
+        private int comma = -1;
+        private int sepEnd;
+
+        // Set when the node or anything in it was changed
+        private boolean changed;
+
+        private Node(JsonSyntaxTree tree, JsonTape.Type type) {
+            this.tree = tree;
+            this.type = type;
+        }
+
+        public JsonTape.Type type() {
+            return type;
+        }
+
+        /** @return The object or array this node is part of, null for the root */
+        public Node parent() {
+            return parent;
+        }
+
+        /** @return The key of this node, null if it's not an entry of an object */
+        public String key() {
+            if (key == null && keyStart >= 0) {
+                key = tree.scan(tree.source, keyStart).value();
+            }
+            return key;
+        }
+
+        /** @return The number of entries or elements, 0 for primitives */
+        public int size() {
+            return children != null ? children.size() : 0;
+        }
+
+        /** @return The entries or elements of this object or array, in the order of the text */
+        public List<Node> children() {
+            return children != null
+                    ? Collections.unmodifiableList(children)
+                    : Collections.emptyList();
+        }
+
+        /**
+         * @param index - The index of the entry or element
+         * @return The entry or element at the given index
+         */
+        public Node get(int index) {
+            if (children == null) {
+                throw new IllegalStateException("Not an object or array");
+            }
+            return children.get(index);
+        }
+
+        /**
+         * @param key - The key of the entry
+         * @return The entry with the given key or null if there is none. When a key appears more
+         *     than once, the last one is returned, just like the parser keeps the last one.
+         */
+        public Node get(String key) {
+            int index = indexOf(key);
+            return index >= 0 ? children.get(index) : null;
+        }
+
+        /**
+         * @return The current value of this node, objects and arrays are returned as new {@link
+         *     JsonObject}s and {@link JsonArray}s
+         */
+        public Object value() {
+            if (synthetic != null) {
+                return synthetic;
+            }
+            switch (type) {
+                case OBJECT:
+                    JsonObject obj = new JsonObject();
+                    for (Node child : children) {
+                        obj.put(child.key(), child.value());
+                    }
+                    return obj;
+                case ARRAY:
+                    JsonArray arr = new JsonArray();
+                    for (Node child : children) {
+                        arr.add(child.value());
+                    }
+                    return arr;
+                default:
+                    JsonLexer lexer =
+                            json != null ? tree.scan(json, 0) : tree.scan(tree.source, start);
+                    return JsonParser.DefaultTypeFactory.primitive(
+                            JsonLexer.primitiveType(lexer.token()),
+                            lexer.value(),
+                            lexer.rawValue());
+            }
+        }
+
+        /** @return The comments and whitespace in front of this node, empty for added nodes */
+        public String leadingTrivia() {
+            return leadStart >= 0 ? tree.source.substring(leadStart, slotBegin()) : "";
+        }
+
+        /**
+         * @return The comments following this node on the same line, after the separator if there
+         *     is one, empty for added nodes
+         */
+        public String trailingTrivia() {
+            if (leadStart < 0) {
+                return "";
+            }
+            return tree.source.substring(comma >= 0 ? comma + 1 : slotEnd, sepEnd);
+        }
+
+        /**
+         * Replaces the value of this node. Maps become objects and collections become arrays, any
+         * other value is turned into JSON text the same way {@link Jsonc#toJSONString(Object)}
+         * does. The key and the comments around the node stay as they are.
+         *
+         * @param value - The new value
+         * @return This node
+         * @throws IllegalArgumentException if the value doesn't result in a valid JSON value
+         */
+        public Node set(Object value) {
+            assign(value);
+            markChanged();
+            return this;
+        }
+
+        /**
+         * Sets the value of the entry with the given key, adding a new entry at the end of the
+         * object if there is none.
+         *
+         * @param key - The key of the entry
+         * @param value - The new value
+         * @return The entry
+         * @see #set(Object)
+         */
+        public Node set(String key, Object value) {
+            int index = indexOf(key);
+            if (index >= 0) {
+                return children.get(index).set(value);
+            }
+            Node entry = new Node(tree, null);
+            entry.key = key;
+            entry.assign(value);
+            attach(children.size(), entry);
+            return entry;
+        }
+
+        /**
+         * Adds an element at the end of this array.
+         *
+         * @param value - The value of the element
+         * @return The new element
+         * @see #set(Object)
+         */
+        public Node add(Object value) {
+            checkArray();
+            return add(children.size(), value);
+        }
+
+        /**
+         * Inserts an element into this array.
+         *
+         * @param index - The index of the new element
+         * @param value - The value of the element
+         * @return The new element
+         * @see #set(Object)
+         */
+        public Node add(int index, Object value) {
+            checkArray();
+            Node element = new Node(tree, null);
+            element.assign(value);
+            attach(index, element);
+            return element;
+        }
+
+        /**
+         * Removes the entry or element at the given index, along with the comments in front of it
+         * and following it on the same line.
+         *
+         * @param index - The index of the entry or element
+         * @return The removed node
+         */
+        public Node remove(int index) {
+            Node node = get(index);
+            children.remove(index);
+            node.parent = null;
+            markChanged();
+            return node;
+        }
+
+        /**
+         * Removes the entry with the given key.
+         *
+         * @param key - The key of the entry
+         * @return The removed entry or null if there is none
+         * @see #remove(int)
+         */
+        public Node remove(String key) {
+            int index = indexOf(key);
+            return index >= 0 ? remove(index) : null;
+        }
+
+        /** @return The JSON text of the value of this node, including all changes made to it */
+        public String toJSONString() {
+            CharArrayWriter out = new CharArrayWriter();
+            try {
+                Output o = new Output(out, tree.source);
+                o.value(this);
+                o.flush();
+            } catch (IOException e) {
+                // This should never happen for a CharArrayWriter
+                throw new UncheckedIOException(e);
+            }
+            return out.toString();
+        }
+
+        @Override
+        public String toString() {
+            return toJSONString();
+        }
+
+        private int indexOf(String key) {
+            if (type != JsonTape.Type.OBJECT) {
+                throw new IllegalStateException("Not an object");
+            }
+            for (int i = children.size() - 1; i >= 0; i--) {
+                if (key.equals(children.get(i).key())) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        private void checkArray() {
+            if (type != JsonTape.Type.ARRAY) {
+                throw new IllegalStateException("Not an array");
+            }
+        }
+
+        private void attach(int index, Node node) {
+            node.parent = this;
+            children.add(index, node);
+            markChanged();
+        }
+
+        private void markChanged() {
+            for (Node node = this; node != null && !node.changed; node = node.parent) {
+                node.changed = true;
+            }
+        }
+
+        // Where the text of the node starts, which for entries is their key
+        private int slotBegin() {
+            return keyStart >= 0 ? keyStart : slotStart;
+        }
+
+        private void assign(Object value) {
+            // The new value gets built and checked completely before anything changes
+            Node node = tree.create(value);
+            type = node.type;
+            start = -1;
+            json = node.json;
+            synthetic = null;
+            children = node.children;
+            trailingComma = false;
+            if (children != null) {
+                for (Node child : children) {
+                    child.parent = this;
+                }
+            }
+        }
+    }
+
+    /** Creates a detached node for a value that was set. */
+    private Node create(Object value) {
+        if (value instanceof Node) {
+            value = ((Node) value).value();
+        }
+        Node node = new Node(this, null);
+        if (value instanceof Map) {
+            node.type = JsonTape.Type.OBJECT;
+            node.children = new ArrayList<>();
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                Node child = create(entry.getValue());
+                child.key = String.valueOf(entry.getKey());
+                child.parent = node;
+                node.children.add(child);
+            }
+        } else if (value instanceof Collection) {
+            node.type = JsonTape.Type.ARRAY;
+            node.children = new ArrayList<>();
+            for (Object element : (Collection<?>) value) {
+                Node child = create(element);
+                child.parent = node;
+                node.children.add(child);
+            }
+        } else {
+            String json = Jsonc.toJSONString(value);
+            node.type = valueType(json);
+            node.json = json;
+        }
+        return node;
+    }
+
+    /**
+     * Determines the type of the JSON text of a value that was set, which must consist of exactly
+     * one primitive value.
+     */
+    private JsonTape.Type valueType(String json) {
+        try {
+            valueLexer.reset(json, 0);
+            int token = valueLexer.next();
+            if (valueLexer.getEndPosition() == json.length()
+                    && valueLexer.next() == JsonLexer.EOF) {
+                return primitiveType(token);
+            }
+        } catch (IOException | JsonParseException e) {
+            throw new IllegalArgumentException("Not a valid JSON value: " + json, e);
+        }
+        throw new IllegalArgumentException("Not a valid JSON value: " + json);
+    }
+
+    /** Scans the single token that starts at the given position in the text. */
+    private JsonLexer scan(String text, int pos) {
+        try {
+            lexer.reset(text, pos);
+            lexer.next();
+            return lexer;
+        } catch (IOException | JsonParseException e) {
+            throw new IllegalArgumentException("Not a valid JSON value: " + text, e);
+        }
+    }
+
+    private static JsonTape.Type primitiveType(int token) {
+        switch (token) {
+            case JsonLexer.STRING:
+                return JsonTape.Type.STRING;
+            case JsonLexer.INTEGER:
+                return JsonTape.Type.INTEGER;
+            case JsonLexer.REAL:
+                return JsonTape.Type.REAL;
+            case JsonLexer.TRUE:
+            case JsonLexer.FALSE:
+                return JsonTape.Type.BOOLEAN;
+            case JsonLexer.NULL:
+                return JsonTape.Type.NULL;
+            default:
+                throw new IllegalArgumentException("Not a JSON primitive");
+        }
+    }
+
+    /**
+     * Works out where the comments and separators around the children of a container are. Each
+     * child gets the text up to its separator and the comments following that on the same line, the
+     * next child starts right after that.
+     */
+    private void layout(Node container) {
+        List<Node> children = container.children;
+        int pos = container.start + 1;
+        int close = container.end - 1;
+        for (int i = 0; i < children.size(); i++) {
+            Node child = children.get(i);
+            int next = i + 1 < children.size() ? children.get(i + 1).slotBegin() : close;
+            child.leadStart = pos;
+            child.comma = indexOfComma(child.end, next);
+            child.sepEnd = endOfComments(child.comma >= 0 ? child.comma + 1 : child.end, next);
+            pos = child.sepEnd;
+        }
+        container.tail = pos;
+        container.trailingComma =
+                !children.isEmpty() && children.get(children.size() - 1).comma >= 0;
+    }
+
+    /** @return The position of the comma between the given positions, -1 if there is none */
+    private int indexOfComma(int from, int to) {
+        int i = from;
+        while (i < to) {
+            char c = source.charAt(i);
+            if (c == ',') {
+                return i;
+            } else if (c == '/' && i + 1 < to) {
+                i = endOfComment(i, to);
+            } else {
+                i++;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return The end of the comments that follow on the same line, or the given position if there
+     *     are none
+     */
+    private int endOfComments(int from, int to) {
+        int end = from;
+        int i = from;
+        while (i < to) {
+            char c = source.charAt(i);
+            if (c == ' ' || c == '\t') {
+                i++;
+            } else if (c == '/' && i + 1 < to) {
+                i = end = endOfComment(i, to);
+            } else {
+                break;
+            }
+        }
+        return end;
+    }
+
+    /** @return The position right after the comment that starts at the given position */
+    private int endOfComment(int i, int to) {
+        if (source.charAt(i + 1) == '*') {
+            int e = source.indexOf("*/", i + 2);
+            return e >= 0 ? Math.min(e + 2, to) : to;
+        }
+        while (i < to && source.charAt(i) != '\n' && source.charAt(i) != '\r') {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * Writes nodes, copying the parts of the source that weren't changed. Parts that follow each
+     * other in the source are collected and copied in one go.
+     */
+    private static final class Output {
+        private final Writer out;
+        private final String source;
+        private int copyStart = -1;
+        private int copyEnd = -1;
+
+        Output(Writer out, String source) {
+            this.out = out;
+            this.source = source;
+        }
+
+        void copy(int start, int end) throws IOException {
+            if (start == end) {
+                return;
+            }
+            if (start != copyEnd) {
+                flush();
+                copyStart = start;
+            }
+            copyEnd = end;
+        }
+
+        void write(String s) throws IOException {
+            flush();
+            out.write(s);
+        }
+
+        void flush() throws IOException {
+            if (copyStart >= 0) {
+                out.write(source, copyStart, copyEnd - copyStart);
+                copyStart = -1;
+                copyEnd = -1;
+            }
+        }
+
+        void value(Node node) throws IOException {
+            if (node.start >= 0 && !node.changed) {
+                copy(node.start, node.end);
+                return;
+            }
+            if (node.children == null) {
+                write(node.json);
+                return;
+            }
+            boolean object = node.type == JsonTape.Type.OBJECT;
+            boolean parsed = node.start >= 0;
+            if (parsed) {
+                copy(node.start, node.start + 1);
+            } else {
+                write(object ? "{" : "[");
+            }
+            List<Node> children = node.children;
+            int n = children.size();
+            String lead = null;
+            String colon = null;
+            for (int i = 0; i < n; i++) {
+                Node child = children.get(i);
+                if (lead == null) {
+                    lead = leadTemplate(node);
+                    colon = colonTemplate(node);
+                }
+                boolean comma = i < n - 1 || node.trailingComma;
+                if (child.leadStart >= 0) {
+                    int from = child.leadStart;
+                    int to = child.slotBegin();
+                    boolean wasFirst = from == node.start + 1;
+                    if ((i == 0) != wasFirst && !hasLineBreak(from, to)) {
+                        // Moved to or away from the first position, the spaces in front of it on
+                        // the same line belong to the position, not the node
+                        while (from < to && isBlank(source.charAt(from))) {
+                            from++;
+                        }
+                        if (i > 0) {
+                            write(lead);
+                        }
+                    }
+                    copy(from, child.slotStart);
+                    value(child);
+                    if (child.comma >= 0) {
+                        copy(child.slotEnd, child.comma);
+                        if (comma) {
+                            copy(child.comma, child.comma + 1);
+                        }
+                        copy(child.comma + 1, child.sepEnd);
+                    } else {
+                        if (comma) {
+                            write(",");
+                        }
+                        copy(child.slotEnd, child.sepEnd);
+                    }
+                } else {
+                    if (i > 0 || lead.indexOf('\n') >= 0) {
+                        write(lead);
+                    }
+                    if (object) {
+                        write("\"" + Jsonc.escape(child.key) + "\"");
+                        write(colon);
+                    }
+                    value(child);
+                    if (comma) {
+                        write(",");
+                    }
+                }
+            }
+            if (parsed) {
+                copy(node.tail, node.end);
+            } else {
+                write(object ? "}" : "]");
+            }
+        }
+
+        // The line break and indentation in front of the last child that is from the source, only
+        // the spaces if it's on the same line as the one before it
+        private String leadTemplate(Node node) {
+            for (int i = node.children.size() - 1; i >= 0; i--) {
+                Node child = node.children.get(i);
+                if (child.leadStart >= 0) {
+                    int to = child.slotBegin();
+                    int from = to;
+                    while (from > child.leadStart && isBlank(source.charAt(from - 1))) {
+                        from--;
+                    }
+                    if (from > child.leadStart && source.charAt(from - 1) == '\n') {
+                        from--;
+                        if (from > child.leadStart && source.charAt(from - 1) == '\r') {
+                            from--;
+                        }
+                    }
+                    return source.substring(from, to);
+                }
+            }
+            return "";
+        }
+
+        // The colon between the keys and values of the entries that are from the source, with
+        // the same spacing
+        private String colonTemplate(Node node) {
+            if (node.type != JsonTape.Type.OBJECT) {
+                return null;
+            }
+            for (Node child : node.children) {
+                if (child.keyStart >= 0) {
+                    String colon = source.substring(child.keyEnd, child.slotStart);
+                    if (colon.trim().equals(":")) {
+                        return colon;
+                    }
+                }
+            }
+            return ":";
+        }
+
+        private boolean hasLineBreak(int from, int to) {
+            for (int i = from; i < to; i++) {
+                char c = source.charAt(i);
+                if (c == '\n' || c == '\r') {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private static boolean isBlank(char c) {
+            return c == ' ' || c == '\t';
+        }
+    }
+
+    /**
+     * Content handler that builds the tree. The parser must be set to not decode any values, it
+     * then passes null for all keys and values, except for the ones it made up itself.
+     */
+    static final class Builder implements ContentHandler {
+        private final JsonParser parser;
+        private final JsonSyntaxTree tree;
+
+        private Node root;
+        // The containers that are currently open
+        private Node[] open = new Node[16];
+        private int depth;
+        // The position of the key of the current object entry
+        private int keyStart;
+        private int keyEnd;
+
+        Builder(JsonParser parser, JsonParserConfig config, String s) {
+            this.parser = parser;
+            this.tree = new JsonSyntaxTree(config, s);
+        }
+
+        JsonSyntaxTree getResult() {
+            tree.root = root;
+            return tree;
+        }
+
+        @Override
+        public void startJSON() {
+            root = null;
+            depth = 0;
+        }
+
+        @Override
+        public void endJSON() {
+            root.leadStart = 0;
+            root.sepEnd = tree.source.length();
+        }
+
+        @Override
+        public boolean startObject(Status status) {
+            startContainer(JsonTape.Type.OBJECT);
+            return true;
+        }
+
+        @Override
+        public boolean endObject(Status status) {
+            endContainer();
+            return true;
+        }
+
+        @Override
+        public boolean startObjectEntry(String key) {
+            keyStart = (int) parser.getPosition();
+            keyEnd = (int) parser.getEndPosition();
+            return true;
+        }
+
+        @Override
+        public boolean endObjectEntry() {
+            return true;
+        }
+
+        @Override
+        public boolean startArray(Status status) {
+            startContainer(JsonTape.Type.ARRAY);
+            return true;
+        }
+
+        @Override
+        public boolean endArray(Status status) {
+            endContainer();
+            return true;
+        }
+
+        @Override
+        public boolean primitive(
+                Status status, JsonPrimitive.Type type, String value, String rawValue) {
+            // The types of primitives have the same names
+            Node node = new Node(tree, JsonTape.Type.valueOf(type.name()));
+            if (value == null) {
+                node.start = (int) parser.getPosition();
+                node.end = (int) parser.getEndPosition();
+            } else {
+                // Values that were missing go where they would have been
+                node.start = status == Status.OBJECT ? keyEnd : (int) parser.getPosition();
+                node.end = node.start;
+                node.synthetic = new JsonPrimitive(type, value, rawValue);
+            }
+            node.slotStart = node.start;
+            node.slotEnd = node.end;
+            add(node);
+            return true;
+        }
+
+        private void startContainer(JsonTape.Type type) {
+            Node node = new Node(tree, type);
+            node.start = (int) parser.getPosition();
+            node.slotStart = node.start;
+            node.children = new ArrayList<>();
+            add(node);
+            if (depth == open.length) {
+                open = Arrays.copyOf(open, depth * 2);
+            }
+            open[depth++] = node;
+        }
+
+        private void endContainer() {
+            Node node = open[--depth];
+            open[depth] = null;
+            node.end = (int) parser.getEndPosition();
+            node.slotEnd = node.end;
+            tree.layout(node);
+        }
+
+        private void add(Node node) {
+            if (depth == 0) {
+                root = node;
+                return;
+            }
+            Node parent = open[depth - 1];
+            node.parent = parent;
+            if (parent.type == JsonTape.Type.OBJECT) {
+                node.keyStart = keyStart;
+                node.keyEnd = keyEnd;
+            }
+            parent.children.add(node);
+        }
+    }
+}
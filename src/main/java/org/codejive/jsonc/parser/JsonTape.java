@@ -0,0 +1,563 @@
+package org.codejive.jsonc.parser;
+
+import java.util.Arrays;
+import org.codejive.jsonc.JsonArray;
+import org.codejive.jsonc.JsonObject;
+import org.codejive.jsonc.JsonPrimitive;
+import org.codejive.jsonc.Jsonc;
+import org.codejive.jsonc.NumberWriter;
+
+/**
+ * Compact, read-only representation of a parsed JSON document. Instead of a tree of maps, lists and
+ * primitives the whole document is stored in a single long array, the "tape", plus a single char
+ * array holding all of its strings. Values are referred to by their position on the tape, the
+ * navigation methods like {@link #get(int, String)}, {@link #get(int, int)}, {@link #first(int)}
+ * and {@link #next(int)} take and return those positions, so walking a document doesn't create any
+ * objects at all. Use {@link #toValue(int)} to turn (part of) the document into a normal tree.
+ *
+ * <p>A tape gets created by {@link JsonParser#parseTape(String)} and its overloads, or by passing a
+ * {@link Builder} to any of the parser's methods that take a {@link ContentHandler}.
+ *
+ * <p>Each word on the tape has a tag in its highest 8 bits and a payload in the rest:
+ *
+ * <ul>
+ *   <li>objects and arrays start with a word holding the number of their entries or elements (24
+ *       bits, saturated) and the position of the word that ends them (32 bits), and end with a word
+ *       holding the position of their start
+ *   <li>object entries are a key word followed by the value
+ *   <li>strings, keys and numbers that don't fit a long hold the offset of their text in the string
+ *       buffer, where each text is preceded by its length as two chars
+ *   <li>integers that fit a long are a tag word followed by a word holding the value itself, real
+ *       numbers that were passed to the builder as doubles are a tag word followed by a word
+ *       holding the bits of the double
+ *   <li>booleans and nulls are just a tag word
+ * </ul>
+ */
+public final class JsonTape {
+    public enum Type {
+        OBJECT,
+        ARRAY,
+        STRING,
+        INTEGER,
+        REAL,
+        BOOLEAN,
+        NULL
+    }
+
+    private static final int START_OBJECT = 1;
+    private static final int END_OBJECT = 2;
+    private static final int START_ARRAY = 3;
+    private static final int END_ARRAY = 4;
+    private static final int KEY = 5;
+    private static final int STRING = 6;
+    private static final int LONG = 7;
+    private static final int INTEGER = 8;
+    private static final int REAL = 9;
+    private static final int TRUE = 10;
+    private static final int FALSE = 11;
+    private static final int NULL = 12;
+    private static final int DOUBLE = 13;
+
+    private static final int MAX_SIZE = 0xFFFFFF;
+    private static final long PAYLOAD_MASK = (1L << 56) - 1;
+
+    private final long[] tape;
+    private final char[] strings;
+
+    private JsonTape(long[] tape, char[] strings) {
+        this.tape = tape;
+        this.strings = strings;
+    }
+
+    /** @return The position of the document's top-level value */
+    public int root() {
+        return 0;
+    }
+
+    /** @return The type of the value at the given position */
+    public Type getType(int node) {
+        switch (tag(node)) {
+            case START_OBJECT:
+                return Type.OBJECT;
+            case START_ARRAY:
+                return Type.ARRAY;
+            case STRING:
+                return Type.STRING;
+            case LONG:
+            case INTEGER:
+                return Type.INTEGER;
+            case REAL:
+            case DOUBLE:
+                return Type.REAL;
+            case TRUE:
+            case FALSE:
+                return Type.BOOLEAN;
+            case NULL:
+                return Type.NULL;
+            default:
+                throw new IllegalArgumentException("Not the position of a value: " + node);
+        }
+    }
+
+    /**
+     * @return The number of entries of the object or elements of the array at the given position
+     * @throws IllegalStateException if the value is not an object or an array
+     */
+    public int size(int node) {
+        checkContainer(node);
+        int size = (int) (tape[node] >>> 32) & MAX_SIZE;
+        if (size == MAX_SIZE) {
+            // Too large to be stored, count them instead
+            size = 0;
+            for (int n = first(node); n >= 0; n = next(n)) {
+                size++;
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Looks up an entry of an object. Like with {@link JsonObject} the last entry wins if the key
+     * appears more than once.
+     *
+     * @param node - The position of the object
+     * @param key - The key to look for
+     * @return The position of the entry's value or -1 if the object doesn't have the key
+     * @throws IllegalStateException if the value is not an object
+     */
+    public int get(int node, String key) {
+        if (tag(node) != START_OBJECT) {
+            throw new IllegalStateException("Value is not an object but " + getType(node));
+        }
+        int result = -1;
+        for (int n = first(node); n >= 0; n = next(n)) {
+            if (textEquals((int) tape[n - 1], key)) {
+                result = n;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Looks up an element of an array.
+     *
+     * @param node - The position of the array
+     * @param index - The index of the element
+     * @return The position of the element or -1 if the array doesn't have that many elements
+     * @throws IllegalStateException if the value is not an array
+     */
+    public int get(int node, int index) {
+        if (tag(node) != START_ARRAY) {
+            throw new IllegalStateException("Value is not an array but " + getType(node));
+        }
+        int n = first(node);
+        for (int i = 0; i < index && n >= 0; i++) {
+            n = next(n);
+        }
+        return index < 0 ? -1 : n;
+    }
+
+    /**
+     * @return The position of the value of the first entry of the object or the first element of
+     *     the array at the given position, -1 if it's empty
+     * @throws IllegalStateException if the value is not an object or an array
+     */
+    public int first(int node) {
+        checkContainer(node);
+        return valueAt(node + 1);
+    }
+
+    /**
+     * @return The position of the value of the entry or element following the one at the given
+     *     position, -1 if it was the last one
+     */
+    public int next(int node) {
+        return valueAt(skip(node));
+    }
+
+    /**
+     * @return The key of the object entry whose value is at the given position
+     * @throws IllegalStateException if the value is not part of an object entry
+     */
+    public String key(int node) {
+        if (node == 0 || tag(node - 1) != KEY) {
+            throw new IllegalStateException("Value is not part of an object entry");
+        }
+        return text((int) tape[node - 1]);
+    }
+
+    /**
+     * Returns the value at the given position as a String. Works for all primitive values, numbers
+     * are returned exactly as they appeared in the input unless {@link
+     * JsonParserConfig#parseNumbers(boolean)} was enabled.
+     *
+     * @return The value as a String
+     * @throws IllegalStateException if the value is an object or an array
+     */
+    public String asString(int node) {
+        switch (tag(node)) {
+            case STRING:
+            case INTEGER:
+            case REAL:
+                return text((int) tape[node]);
+            case LONG:
+                return Long.toString(tape[node + 1]);
+            case DOUBLE:
+                return NumberWriter.toString(Double.longBitsToDouble(tape[node + 1]));
+            case TRUE:
+                return "true";
+            case FALSE:
+                return "false";
+            case NULL:
+                return "null";
+            default:
+                throw new IllegalStateException("Value is not a primitive but " + getType(node));
+        }
+    }
+
+    /**
+     * Returns the value at the given position as a long. Real numbers are truncated.
+     *
+     * @return The value as a long
+     * @throws IllegalStateException if the value isn't a number
+     * @throws NumberFormatException if the value is an integer that doesn't fit a long
+     */
+    public long asLong(int node) {
+        switch (tag(node)) {
+            case LONG:
+                return tape[node + 1];
+            case INTEGER:
+                return Long.parseLong(text((int) tape[node]));
+            case REAL:
+                return (long) Double.parseDouble(text((int) tape[node]));
+            case DOUBLE:
+                return (long) Double.longBitsToDouble(tape[node + 1]);
+            default:
+                throw new IllegalStateException("Value is not a number but " + getType(node));
+        }
+    }
+
+    /**
+     * @return The value at the given position as a double
+     * @throws IllegalStateException if the value isn't a number
+     */
+    public double asDouble(int node) {
+        switch (tag(node)) {
+            case LONG:
+                return tape[node + 1];
+            case DOUBLE:
+                return Double.longBitsToDouble(tape[node + 1]);
+            case INTEGER:
+            case REAL:
+                return Double.parseDouble(text((int) tape[node]));
+            default:
+                throw new IllegalStateException("Value is not a number but " + getType(node));
+        }
+    }
+
+    /**
+     * @return The value at the given position as a boolean
+     * @throws IllegalStateException if the value isn't a boolean
+     */
+    public boolean asBoolean(int node) {
+        switch (tag(node)) {
+            case TRUE:
+                return true;
+            case FALSE:
+                return false;
+            default:
+                throw new IllegalStateException("Value is not a boolean but " + getType(node));
+        }
+    }
+
+    /** @return true if the value at the given position is a JSON null */
+    public boolean isNull(int node) {
+        return tag(node) == NULL;
+    }
+
+    /**
+     * Turns the value at the given position into the same objects that {@link JsonParser} would
+     * return for it. Strings only keep their decoded value, not the way they were escaped.
+     *
+     * @return A {@link JsonObject}, {@link JsonArray} or {@link JsonPrimitive}
+     */
+    public Object toValue(int node) {
+        switch (tag(node)) {
+            case START_OBJECT:
+                JsonObject obj = new JsonObject();
+                for (int n = first(node); n >= 0; n = next(n)) {
+                    obj.put(key(n), toValue(n));
+                }
+                return obj;
+            case START_ARRAY:
+                JsonArray arr = new JsonArray();
+                for (int n = first(node); n >= 0; n = next(n)) {
+                    arr.add(toValue(n));
+                }
+                return arr;
+            case LONG:
+                return new JsonPrimitive(tape[node + 1]);
+            case DOUBLE:
+                return new JsonPrimitive(Double.longBitsToDouble(tape[node + 1]));
+            default:
+                String text = asString(node);
+                return JsonParser.DefaultTypeFactory.primitive(
+                        primitiveType(getType(node)), text, text);
+        }
+    }
+
+    private static JsonPrimitive.Type primitiveType(Type type) {
+        return JsonPrimitive.Type.valueOf(type.name());
+    }
+
+    private int tag(int node) {
+        return (int) (tape[node] >>> 56);
+    }
+
+    private void checkContainer(int node) {
+        int tag = tag(node);
+        if (tag != START_OBJECT && tag != START_ARRAY) {
+            throw new IllegalStateException(
+                    "Value is not an object or an array but " + getType(node));
+        }
+    }
+
+    /** @return The position on the tape right after the value at the given position */
+    private int skip(int node) {
+        switch (tag(node)) {
+            case START_OBJECT:
+            case START_ARRAY:
+                return (int) tape[node] + 1;
+            case LONG:
+            case DOUBLE:
+                return node + 2;
+            default:
+                return node + 1;
+        }
+    }
+
+    /** @return The position of the value starting at the given word, -1 if there isn't one */
+    private int valueAt(int p) {
+        if (p >= tape.length) {
+            return -1;
+        }
+        switch (tag(p)) {
+            case END_OBJECT:
+            case END_ARRAY:
+                return -1;
+            case KEY:
+                return p + 1;
+            default:
+                return p;
+        }
+    }
+
+    private int textLength(int offset) {
+        return (strings[offset] << 16) | strings[offset + 1];
+    }
+
+    private String text(int offset) {
+        return new String(strings, offset + 2, textLength(offset));
+    }
+
+    private boolean textEquals(int offset, String s) {
+        int len = textLength(offset);
+        if (len != s.length()) {
+            return false;
+        }
+        for (int i = 0; i < len; i++) {
+            if (strings[offset + 2 + i] != s.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Content handler that writes everything it gets passed to a tape. Can be reused, but the
+     * result of the last parse has to be retrieved before starting the next one.
+     */
+    public static final class Builder implements ContentHandler {
+        private long[] tape = new long[64];
+        private int size;
+        private char[] strings = new char[256];
+        private int length;
+        // The positions on the tape of the objects and arrays that are currently open
+        private int[] open = new int[16];
+        private int[] counts = new int[16];
+        private int depth;
+        private JsonTape result;
+
+        /** @return The tape, null if nothing has been parsed completely yet */
+        public JsonTape getResult() {
+            return result;
+        }
+
+        @Override
+        public void startJSON() {
+            size = 0;
+            length = 0;
+            depth = 0;
+            result = null;
+        }
+
+        @Override
+        public void endJSON() {
+            result = new JsonTape(Arrays.copyOf(tape, size), Arrays.copyOf(strings, length));
+        }
+
+        @Override
+        public boolean startObject(Status status) {
+            startContainer(status, START_OBJECT);
+            return true;
+        }
+
+        @Override
+        public boolean endObject(Status status) {
+            endContainer(END_OBJECT);
+            return true;
+        }
+
+        @Override
+        public boolean startObjectEntry(String key) {
+            counts[depth - 1]++;
+            add(KEY, text(key));
+            return true;
+        }
+
+        @Override
+        public boolean endObjectEntry() {
+            return true;
+        }
+
+        @Override
+        public boolean startArray(Status status) {
+            startContainer(status, START_ARRAY);
+            return true;
+        }
+
+        @Override
+        public boolean endArray(Status status) {
+            endContainer(END_ARRAY);
+            return true;
+        }
+
+        @Override
+        public boolean primitive(
+                Status status, JsonPrimitive.Type type, String value, String rawValue) {
+            countElement(status);
+            switch (type) {
+                case STRING:
+                    // Only the raw value is passed when the config asks for that
+                    add(STRING, text(value != null ? value : Jsonc.unescape(rawValue)));
+                    break;
+                case INTEGER:
+                    if (isCanonicalLong(value)) {
+                        add(LONG, 0);
+                        add(0, 0);
+                        tape[size - 1] = Long.parseLong(value);
+                    } else {
+                        add(INTEGER, text(value));
+                    }
+                    break;
+                case REAL:
+                    add(REAL, text(value));
+                    break;
+                case BOOLEAN:
+                    add(Boolean.parseBoolean(value) ? TRUE : FALSE, 0);
+                    break;
+                default:
+                    add(NULL, 0);
+                    break;
+            }
+            return true;
+        }
+
+        @Override
+        public boolean primitiveLong(Status status, long value) {
+            countElement(status);
+            add(LONG, 0);
+            add(0, 0);
+            tape[size - 1] = value;
+            return true;
+        }
+
+        @Override
+        public boolean primitiveDouble(Status status, double value) {
+            countElement(status);
+            add(DOUBLE, 0);
+            add(0, 0);
+            tape[size - 1] = Double.doubleToRawLongBits(value);
+            return true;
+        }
+
+        private void startContainer(Status status, int tag) {
+            countElement(status);
+            if (depth == open.length) {
+                open = Arrays.copyOf(open, depth * 2);
+                counts = Arrays.copyOf(counts, depth * 2);
+            }
+            open[depth] = size;
+            counts[depth] = 0;
+            depth++;
+            add(tag, 0);
+        }
+
+        private void endContainer(int tag) {
+            depth--;
+            int start = open[depth];
+            long count = Math.min(counts[depth], MAX_SIZE);
+            tape[start] |= (count << 32) | size;
+            add(tag, start);
+        }
+
+        private void countElement(Status status) {
+            if (status == Status.ARRAY) {
+                counts[depth - 1]++;
+            }
+        }
+
+        private void add(int tag, long payload) {
+            if (size == tape.length) {
+                tape = Arrays.copyOf(tape, size * 2);
+            }
+            tape[size++] = ((long) tag << 56) | (payload & PAYLOAD_MASK);
+        }
+
+        /** Appends the text to the string buffer and returns its offset. */
+        private int text(String s) {
+            int len = s.length();
+            if (length + len + 2 > strings.length) {
+                strings = Arrays.copyOf(strings, Math.max(length + len + 2, strings.length * 2));
+            }
+            int offset = length;
+            strings[offset] = (char) (len >>> 16);
+            strings[offset + 1] = (char) len;
+            s.getChars(0, len, strings, offset + 2);
+            length += len + 2;
+            return offset;
+        }
+
+        /**
+         * @return true if the integer fits a long and is written the way Long.toString() would
+         *     write it, so it can be stored as a number without losing anything
+         */
+        private static boolean isCanonicalLong(String s) {
+            int len = s.length();
+            int start = s.charAt(0) == '-' ? 1 : 0;
+            if (len == start || len - start > 19) {
+                return false;
+            }
+            if (s.charAt(start) == '0') {
+                // Only "0" itself, not "-0" or numbers with leading zeros
+                return len == 1;
+            }
+            if (len - start < 19) {
+                return true;
+            }
+            // As long as Long.MAX_VALUE, compare against its digits
+            String max = start == 1 ? "9223372036854775808" : "9223372036854775807";
+            return s.substring(start).compareTo(max) <= 0;
+        }
+    }
+}
@@ -0,0 +1,275 @@
+package org.codejive.jsonc.parser;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import org.codejive.jsonc.JsonPrimitive;
+
+/**
+ * Structural index over JSON text, created by {@link JsonParser#parseLazy(byte[])} and {@link
+ * JsonParser#parseLazy(String)}. Parsing only records where each value starts and how containers
+ * are nested, keys and values get decoded from the original text by the {@link LazyJsonObject} and
+ * {@link LazyJsonArray} views when they are first accessed.
+ *
+ * <p>The index is a single int array in which every value is a node:
+ *
+ * <ul>
+ *   <li>a primitive is {@code PRIMITIVE, offset}
+ *   <li>a value made up by the parser for a missing value is {@code SYNTHETIC, slot}, the slot
+ *       being its position in the array of extra values
+ *   <li>an object is {@code OBJECT, size, end} followed by its entries, each being the offset of
+ *       the key followed by the node of the value
+ *   <li>an array is {@code ARRAY, size, end} followed by the nodes of its elements
+ * </ul>
+ *
+ * Where {@code end} is the position in the index right after the container, so whole containers can
+ * be stepped over.
+ */
+final class LazyDocument {
+    static final int PRIMITIVE = 0;
+    static final int SYNTHETIC = 1;
+    static final int OBJECT = 2;
+    static final int ARRAY = 3;
+
+    private final byte[] bytes;
+    private final int off;
+    private final int len;
+    private final CharSequence text;
+
+    private final int[] index;
+    private final JsonPrimitive[] extras;
+
+    private final Utf8Lexer utf8Lexer;
+    private final CharLexer charLexer;
+    private final JsonParserConfig.StringValues stringValues;
+
+    LazyDocument(JsonParserConfig config, byte[] b, int off, int len, Builder builder) {
+        this.bytes = b;
+        this.off = off;
+        this.len = len;
+        this.text = null;
+        this.index = builder.index();
+        this.extras = builder.extras();
+        this.utf8Lexer = new Utf8Lexer(config);
+        this.utf8Lexer.symbols = config.symbolTable();
+        this.charLexer = null;
+        this.stringValues = config.stringValues();
+    }
+
+    LazyDocument(JsonParserConfig config, CharSequence s, Builder builder) {
+        this.bytes = null;
+        this.off = 0;
+        this.len = s.length();
+        this.text = s;
+        this.index = builder.index();
+        this.extras = builder.extras();
+        this.utf8Lexer = null;
+        this.charLexer = new CharLexer(config);
+        this.charLexer.symbols = config.symbolTable();
+        this.stringValues = config.stringValues();
+    }
+
+    /** @return The top-level value of the document */
+    Object root() {
+        return value(0);
+    }
+
+    /** @return The number of entries or elements of the container at the given node */
+    int size(int node) {
+        return index[node + 1];
+    }
+
+    synchronized void loadObject(int node, Map<String, Object> obj) {
+        int n = index[node + 1];
+        int p = node + 3;
+        for (int i = 0; i < n; i++) {
+            String key = scan(index[p]).key();
+            obj.put(key, value(p + 1));
+            p = next(p + 1);
+        }
+    }
+
+    synchronized void loadArray(int node, List<Object> arr) {
+        int n = index[node + 1];
+        int p = node + 3;
+        for (int i = 0; i < n; i++) {
+            arr.add(value(p));
+            p = next(p);
+        }
+    }
+
+    /** @return The value of the given node, objects and arrays are returned as unloaded views */
+    private Object value(int node) {
+        switch (index[node]) {
+            case PRIMITIVE:
+                JsonLexer lexer = scan(index[node + 1]);
+                if (stringValues != JsonParserConfig.StringValues.BOTH && lexer.isEscaped()) {
+                    boolean raw = stringValues == JsonParserConfig.StringValues.RAW;
+                    return new JsonPrimitive(
+                            JsonPrimitive.Type.STRING,
+                            raw ? null : lexer.value(),
+                            raw ? lexer.rawValue() : null);
+                }
+                return JsonParser.DefaultTypeFactory.primitive(
+                        JsonLexer.primitiveType(lexer.token()), lexer.value(), lexer.rawValue());
+            case SYNTHETIC:
+                return extras[index[node + 1]];
+            case OBJECT:
+                return new LazyJsonObject(this, node);
+            default:
+                return new LazyJsonArray(this, node);
+        }
+    }
+
+    /** @return The position in the index of the node following the given one */
+    private int next(int node) {
+        return index[node] >= OBJECT ? index[node + 2] : node + 2;
+    }
+
+    /** Scans the single token that starts at the given offset in the text. */
+    private JsonLexer scan(int offset) {
+        try {
+            JsonLexer lexer;
+            if (bytes != null) {
+                utf8Lexer.reset(bytes, off + offset, len - offset);
+                lexer = utf8Lexer;
+            } else {
+                charLexer.reset(text, offset);
+                lexer = charLexer;
+            }
+            lexer.next();
+            return lexer;
+        } catch (IOException | JsonParseException e) {
+            // The text was parsed successfully before, so it must have been changed since
+            throw new IllegalStateException("Unable to decode value at position " + offset, e);
+        }
+    }
+
+    /**
+     * Content handler that builds the index. The parser must be set to not decode any values, it
+     * then passes null for all keys and values, except for the ones it made up itself.
+     */
+    static final class Builder implements ContentHandler {
+        private final JsonParser parser;
+
+        private int[] index;
+        private int size;
+        private List<JsonPrimitive> extras;
+        // The positions in the index of the containers that are currently open
+        private int[] open = new int[16];
+        private int depth;
+
+        Builder(JsonParser parser, int textLength) {
+            this.parser = parser;
+            // A rough guess that avoids most of the growing for typical documents
+            this.index = new int[Math.max(16, textLength / 8)];
+        }
+
+        int[] index() {
+            return index;
+        }
+
+        JsonPrimitive[] extras() {
+            return extras == null ? null : extras.toArray(new JsonPrimitive[0]);
+        }
+
+        @Override
+        public void startJSON() {
+            size = 0;
+            depth = 0;
+            extras = null;
+        }
+
+        @Override
+        public void endJSON() {
+            index = Arrays.copyOf(index, size);
+        }
+
+        @Override
+        public boolean startObject(Status status) {
+            startContainer(status, OBJECT);
+            return true;
+        }
+
+        @Override
+        public boolean endObject(Status status) {
+            endContainer();
+            return true;
+        }
+
+        @Override
+        public boolean startObjectEntry(String key) {
+            index[open[depth - 1] + 1]++;
+            ensure(1);
+            index[size++] = (int) parser.getPosition();
+            return true;
+        }
+
+        @Override
+        public boolean endObjectEntry() {
+            return true;
+        }
+
+        @Override
+        public boolean startArray(Status status) {
+            startContainer(status, ARRAY);
+            return true;
+        }
+
+        @Override
+        public boolean endArray(Status status) {
+            endContainer();
+            return true;
+        }
+
+        @Override
+        public boolean primitive(
+                Status status, JsonPrimitive.Type type, String value, String rawValue) {
+            countElement(status);
+            ensure(2);
+            if (value == null) {
+                index[size] = PRIMITIVE;
+                index[size + 1] = (int) parser.getPosition();
+            } else {
+                if (extras == null) {
+                    extras = new ArrayList<>();
+                }
+                index[size] = SYNTHETIC;
+                index[size + 1] = extras.size();
+                extras.add(new JsonPrimitive(type, value, rawValue));
+            }
+            size += 2;
+            return true;
+        }
+
+        private void startContainer(Status status, int type) {
+            countElement(status);
+            ensure(3);
+            if (depth == open.length) {
+                open = Arrays.copyOf(open, depth * 2);
+            }
+            open[depth++] = size;
+            index[size] = type;
+            index[size + 1] = 0;
+            size += 3;
+        }
+
+        private void endContainer() {
+            index[open[--depth] + 2] = size;
+        }
+
+        private void countElement(Status status) {
+            if (status == Status.ARRAY) {
+                index[open[depth - 1] + 1]++;
+            }
+        }
+
+        private void ensure(int n) {
+            if (size + n > index.length) {
+                index = Arrays.copyOf(index, Math.max(size + n, index.length * 2));
+            }
+        }
+    }
+}
@@ -0,0 +1,241 @@
+package org.codejive.jsonc.parser;
+
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+import org.codejive.jsonc.JsonArray;
+
+/**
+ * A {@link JsonArray} that is a view on an array in a {@link LazyDocument}. Its elements are only
+ * decoded from the document's text when the array gets accessed for the first time, after that it
+ * behaves exactly like a normal JsonArray. Objects and arrays nested inside of it are views that
+ * are loaded on first access as well.
+ */
+final class LazyJsonArray extends JsonArray {
+    private static final long serialVersionUID = -6170214127939413417L;
+
+    // Set to null once the elements have been loaded
+    private transient LazyDocument document;
+    private final transient int node;
+
+    LazyJsonArray(LazyDocument document, int node) {
+        this.document = document;
+        this.node = node;
+    }
+
+    boolean isLoaded() {
+        return document == null;
+    }
+
+    private void load() {
+        if (document != null) {
+            LazyDocument doc = document;
+            document = null;
+            super.ensureCapacity(doc.size(node));
+            doc.loadArray(node, this);
+        }
+    }
+
+    @Override
+    public void trimToSize() {
+        load();
+        super.trimToSize();
+    }
+
+    @Override
+    public void ensureCapacity(int minCapacity) {
+        load();
+        super.ensureCapacity(minCapacity);
+    }
+
+    @Override
+    public int size() {
+        load();
+        return super.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        load();
+        return super.isEmpty();
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        load();
+        return super.contains(o);
+    }
+
+    @Override
+    public int indexOf(Object o) {
+        load();
+        return super.indexOf(o);
+    }
+
+    @Override
+    public int lastIndexOf(Object o) {
+        load();
+        return super.lastIndexOf(o);
+    }
+
+    @Override
+    public Object clone() {
+        load();
+        return super.clone();
+    }
+
+    @Override
+    public Object[] toArray() {
+        load();
+        return super.toArray();
+    }
+
+    @Override
+    public <T> T[] toArray(T[] a) {
+        load();
+        return super.toArray(a);
+    }
+
+    @Override
+    public Object get(int index) {
+        load();
+        return super.get(index);
+    }
+
+    @Override
+    public Object set(int index, Object element) {
+        load();
+        return super.set(index, element);
+    }
+
+    @Override
+    public boolean add(Object o) {
+        load();
+        return super.add(o);
+    }
+
+    @Override
+    public void add(int index, Object element) {
+        load();
+        super.add(index, element);
+    }
+
+    @Override
+    public Object remove(int index) {
+        load();
+        return super.remove(index);
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        load();
+        return super.remove(o);
+    }
+
+    @Override
+    public void clear() {
+        load();
+        super.clear();
+    }
+
+    @Override
+    public boolean addAll(Collection<?> c) {
+        load();
+        return super.addAll(c);
+    }
+
+    @Override
+    public boolean addAll(int index, Collection<?> c) {
+        load();
+        return super.addAll(index, c);
+    }
+
+    @Override
+    public boolean removeAll(Collection<?> c) {
+        load();
+        return super.removeAll(c);
+    }
+
+    @Override
+    public boolean retainAll(Collection<?> c) {
+        load();
+        return super.retainAll(c);
+    }
+
+    @Override
+    public ListIterator<Object> listIterator(int index) {
+        load();
+        return super.listIterator(index);
+    }
+
+    @Override
+    public ListIterator<Object> listIterator() {
+        load();
+        return super.listIterator();
+    }
+
+    @Override
+    public Iterator<Object> iterator() {
+        load();
+        return super.iterator();
+    }
+
+    @Override
+    public List<Object> subList(int fromIndex, int toIndex) {
+        load();
+        return super.subList(fromIndex, toIndex);
+    }
+
+    @Override
+    public void forEach(Consumer<? super Object> action) {
+        load();
+        super.forEach(action);
+    }
+
+    @Override
+    public Spliterator<Object> spliterator() {
+        load();
+        return super.spliterator();
+    }
+
+    @Override
+    public boolean removeIf(Predicate<? super Object> filter) {
+        load();
+        return super.removeIf(filter);
+    }
+
+    @Override
+    public void replaceAll(UnaryOperator<Object> operator) {
+        load();
+        super.replaceAll(operator);
+    }
+
+    @Override
+    public void sort(Comparator<? super Object> c) {
+        load();
+        super.sort(c);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        load();
+        return super.equals(o);
+    }
+
+    @Override
+    public int hashCode() {
+        load();
+        return super.hashCode();
+    }
+
+    // Serialized as a plain JsonArray, the document isn't serializable
+    private Object writeReplace() {
+        return new JsonArray(this);
+    }
+}
@@ -0,0 +1,207 @@
+package org.codejive.jsonc.parser;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import org.codejive.jsonc.JsonObject;
+
+/**
+ * A {@link JsonObject} that is a view on an object in a {@link LazyDocument}. Its entries are only
+ * decoded from the document's text when the object gets accessed for the first time, after that it
+ * behaves exactly like a normal JsonObject. Objects and arrays nested inside of it are views that
+ * are loaded on first access as well.
+ */
+final class LazyJsonObject extends JsonObject {
+    private static final long serialVersionUID = 2486245386523011127L;
+
+    // Set to null once the entries have been loaded
+    private transient LazyDocument document;
+    private final transient int node;
+
+    LazyJsonObject(LazyDocument document, int node) {
+        this.document = document;
+        this.node = node;
+    }
+
+    boolean isLoaded() {
+        return document == null;
+    }
+
+    private void load() {
+        if (document != null) {
+            LazyDocument doc = document;
+            document = null;
+            doc.loadObject(node, this);
+        }
+    }
+
+    @Override
+    public int size() {
+        load();
+        return super.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        load();
+        return super.isEmpty();
+    }
+
+    @Override
+    public Object get(Object key) {
+        load();
+        return super.get(key);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        load();
+        return super.containsKey(key);
+    }
+
+    @Override
+    public Object put(String key, Object value) {
+        load();
+        return super.put(key, value);
+    }
+
+    @Override
+    public void putAll(Map<? extends String, ?> m) {
+        load();
+        super.putAll(m);
+    }
+
+    @Override
+    public Object remove(Object key) {
+        load();
+        return super.remove(key);
+    }
+
+    @Override
+    public void clear() {
+        load();
+        super.clear();
+    }
+
+    @Override
+    public boolean containsValue(Object value) {
+        load();
+        return super.containsValue(value);
+    }
+
+    @Override
+    public Set<String> keySet() {
+        load();
+        return super.keySet();
+    }
+
+    @Override
+    public Collection<Object> values() {
+        load();
+        return super.values();
+    }
+
+    @Override
+    public Set<Map.Entry<String, Object>> entrySet() {
+        load();
+        return super.entrySet();
+    }
+
+    @Override
+    public Object getOrDefault(Object key, Object defaultValue) {
+        load();
+        return super.getOrDefault(key, defaultValue);
+    }
+
+    @Override
+    public Object putIfAbsent(String key, Object value) {
+        load();
+        return super.putIfAbsent(key, value);
+    }
+
+    @Override
+    public boolean remove(Object key, Object value) {
+        load();
+        return super.remove(key, value);
+    }
+
+    @Override
+    public boolean replace(String key, Object oldValue, Object newValue) {
+        load();
+        return super.replace(key, oldValue, newValue);
+    }
+
+    @Override
+    public Object replace(String key, Object value) {
+        load();
+        return super.replace(key, value);
+    }
+
+    @Override
+    public Object computeIfAbsent(
+            String key, Function<? super String, ? extends Object> mappingFunction) {
+        load();
+        return super.computeIfAbsent(key, mappingFunction);
+    }
+
+    @Override
+    public Object computeIfPresent(
+            String key, BiFunction<? super String, ? super Object, ? extends Object> remapping) {
+        load();
+        return super.computeIfPresent(key, remapping);
+    }
+
+    @Override
+    public Object compute(
+            String key, BiFunction<? super String, ? super Object, ? extends Object> remapping) {
+        load();
+        return super.compute(key, remapping);
+    }
+
+    @Override
+    public Object merge(
+            String key,
+            Object value,
+            BiFunction<? super Object, ? super Object, ? extends Object> remapping) {
+        load();
+        return super.merge(key, value, remapping);
+    }
+
+    @Override
+    public void forEach(BiConsumer<? super String, ? super Object> action) {
+        load();
+        super.forEach(action);
+    }
+
+    @Override
+    public void replaceAll(BiFunction<? super String, ? super Object, ? extends Object> function) {
+        load();
+        super.replaceAll(function);
+    }
+
+    @Override
+    public Object clone() {
+        load();
+        return super.clone();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        load();
+        return super.equals(o);
+    }
+
+    @Override
+    public int hashCode() {
+        load();
+        return super.hashCode();
+    }
+
+    // Serialized as a plain JsonObject, the document isn't serializable
+    private Object writeReplace() {
+        return new JsonObject(this);
+    }
+}
@@ -0,0 +1,289 @@
+package org.codejive.jsonc.parser;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Turns the text of JSON numbers into longs and doubles directly from the buffers of the lexers,
+ * without creating Strings first. The text is assumed to be a valid JSON number as scanned by the
+ * lexer.
+ *
+ * <p>Doubles are first tried using Clinger's fast path, which is exact when both the digits and the
+ * power of ten fit in a double. Otherwise the Eisel-Lemire algorithm is used, which multiplies the
+ * digits with a 128-bit approximation of the power of ten and only gives up in the rare cases where
+ * that approximation isn't precise enough to decide the rounding. Numbers with more than 19
+ * significant digits, subnormal results and the cases the algorithm gives up on are handed to
+ * {@link Double#parseDouble(String)}.
+ */
+final class NumberParser {
+    private static final int SMALLEST_POWER_OF_TEN = -342;
+    private static final int LARGEST_POWER_OF_TEN = 308;
+
+    private static final double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15, 1e16,
+        1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    // For every power of five from SMALLEST_POWER_OF_TEN to LARGEST_POWER_OF_TEN the 128 most
+    // significant bits of its value, high word first. Negative powers are rounded up.
+    private static final long[] POWERS_OF_FIVE = powersOfFive();
+
+    private static final String MAX_LONG = "9223372036854775807";
+    private static final String MIN_LONG = "9223372036854775808";
+
+    private NumberParser() {}
+
+    /** @return true if the integer in the given range fits in a long */
+    static boolean fitsLong(char[] b, int start, int end) {
+        boolean negative = b[start] == '-';
+        int digits = end - start - (negative ? 1 : 0);
+        if (digits != 19) {
+            return digits < 19;
+        }
+        String limit = negative ? MIN_LONG : MAX_LONG;
+        for (int i = 0, p = end - 19; i < 19; i++, p++) {
+            if (b[p] != limit.charAt(i)) {
+                return b[p] < limit.charAt(i);
+            }
+        }
+        return true;
+    }
+
+    /** @see #fitsLong(char[], int, int) */
+    static boolean fitsLong(byte[] b, int start, int end) {
+        boolean negative = b[start] == '-';
+        int digits = end - start - (negative ? 1 : 0);
+        if (digits != 19) {
+            return digits < 19;
+        }
+        String limit = negative ? MIN_LONG : MAX_LONG;
+        for (int i = 0, p = end - 19; i < 19; i++, p++) {
+            if (b[p] != limit.charAt(i)) {
+                return b[p] < limit.charAt(i);
+            }
+        }
+        return true;
+    }
+
+    /** @return The value of the integer in the given range, which must fit in a long */
+    static long parseLong(char[] b, int start, int end) {
+        boolean negative = b[start] == '-';
+        // Accumulated as a negative number so Long.MIN_VALUE doesn't overflow
+        long value = 0;
+        for (int p = negative ? start + 1 : start; p < end; p++) {
+            value = value * 10 - (b[p] - '0');
+        }
+        return negative ? value : -value;
+    }
+
+    /** @see #parseLong(char[], int, int) */
+    static long parseLong(byte[] b, int start, int end) {
+        boolean negative = b[start] == '-';
+        long value = 0;
+        for (int p = negative ? start + 1 : start; p < end; p++) {
+            value = value * 10 - (b[p] - '0');
+        }
+        return negative ? value : -value;
+    }
+
+    /** @return The value of the number in the given range as a double */
+    static double parseDouble(char[] b, int start, int end) {
+        int p = start;
+        boolean negative = b[p] == '-';
+        if (negative) {
+            p++;
+        }
+        long significand = 0;
+        int digits = 0;
+        int exponent = 0;
+        for (; p < end && JsonLexer.isDigit(b[p]); p++) {
+            significand = significand * 10 + (b[p] - '0');
+            if (digits != 0 || b[p] != '0') {
+                digits++;
+            }
+        }
+        if (p < end && b[p] == '.') {
+            for (p++; p < end && JsonLexer.isDigit(b[p]); p++) {
+                significand = significand * 10 + (b[p] - '0');
+                if (digits != 0 || b[p] != '0') {
+                    digits++;
+                }
+                exponent--;
+            }
+        }
+        if (p < end) {
+            // The exponent, its value is capped because the result is zero or infinity anyway
+            boolean negativeExponent = b[++p] == '-';
+            if (negativeExponent || b[p] == '+') {
+                p++;
+            }
+            int e = 0;
+            for (; p < end; p++) {
+                if (e < 100000) {
+                    e = e * 10 + (b[p] - '0');
+                }
+            }
+            exponent += negativeExponent ? -e : e;
+        }
+        double d = digits <= 19 ? toDouble(negative, significand, exponent) : Double.NaN;
+        return Double.isNaN(d) ? Double.parseDouble(new String(b, start, end - start)) : d;
+    }
+
+    /** @see #parseDouble(char[], int, int) */
+    static double parseDouble(byte[] b, int start, int end) {
+        int p = start;
+        boolean negative = b[p] == '-';
+        if (negative) {
+            p++;
+        }
+        long significand = 0;
+        int digits = 0;
+        int exponent = 0;
+        for (; p < end && JsonLexer.isDigit(b[p]); p++) {
+            significand = significand * 10 + (b[p] - '0');
+            if (digits != 0 || b[p] != '0') {
+                digits++;
+            }
+        }
+        if (p < end && b[p] == '.') {
+            for (p++; p < end && JsonLexer.isDigit(b[p]); p++) {
+                significand = significand * 10 + (b[p] - '0');
+                if (digits != 0 || b[p] != '0') {
+                    digits++;
+                }
+                exponent--;
+            }
+        }
+        if (p < end) {
+            boolean negativeExponent = b[++p] == '-';
+            if (negativeExponent || b[p] == '+') {
+                p++;
+            }
+            int e = 0;
+            for (; p < end; p++) {
+                if (e < 100000) {
+                    e = e * 10 + (b[p] - '0');
+                }
+            }
+            exponent += negativeExponent ? -e : e;
+        }
+        double d = digits <= 19 ? toDouble(negative, significand, exponent) : Double.NaN;
+        return Double.isNaN(d)
+                ? Double.parseDouble(new String(b, start, end - start, StandardCharsets.ISO_8859_1))
+                : d;
+    }
+
+    /**
+     * Computes the double closest to {@code significand * 10^exponent}, where the significand is
+     * treated as an unsigned number.
+     *
+     * @return The double or NaN if it couldn't be determined
+     */
+    static double toDouble(boolean negative, long significand, int exponent) {
+        if (significand == 0) {
+            return negative ? -0.0 : 0.0;
+        }
+        if (exponent >= -22 && exponent <= 22 && significand > 0 && significand <= (1L << 53)) {
+            // Both the significand and the power of ten are exact doubles, so the result of a
+            // single multiplication or division is correctly rounded
+            double d = (double) significand;
+            d = exponent < 0 ? d / POWERS_OF_TEN[-exponent] : d * POWERS_OF_TEN[exponent];
+            return negative ? -d : d;
+        }
+        if (exponent < SMALLEST_POWER_OF_TEN) {
+            return negative ? -0.0 : 0.0;
+        }
+        if (exponent > LARGEST_POWER_OF_TEN) {
+            return negative ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY;
+        }
+        return eiselLemire(negative, significand, exponent);
+    }
+
+    private static double eiselLemire(boolean negative, long significand, int exponent) {
+        int index = 2 * (exponent - SMALLEST_POWER_OF_TEN);
+        int lz = Long.numberOfLeadingZeros(significand);
+        long w = significand << lz;
+
+        // Only the 55 most significant bits of the product matter, if the bits below them are all
+        // ones a carry from the lower half of the power of five could still change them
+        long high = multiplyHigh(w, POWERS_OF_FIVE[index]);
+        long low = w * POWERS_OF_FIVE[index];
+        if ((high & 0x1FF) == 0x1FF) {
+            long secondHigh = multiplyHigh(w, POWERS_OF_FIVE[index + 1]);
+            low += secondHigh;
+            if (Long.compareUnsigned(secondHigh, low) > 0) {
+                high++;
+            }
+        }
+        if (low == -1L && (exponent < -27 || exponent > 55)) {
+            // The approximation of the power of five isn't good enough to decide
+            return Double.NaN;
+        }
+
+        int upperBit = (int) (high >>> 63);
+        int shift = upperBit + 9;
+        long mantissa = high >>> shift;
+        int power2 = (((217706 * exponent) >> 16) + 63) + upperBit - lz + 1023;
+        if (power2 <= 0) {
+            // Subnormal numbers are left to the slow path
+            return Double.NaN;
+        }
+        if ((low == 0 || low == 1)
+                && exponent >= -4
+                && exponent <= 23
+                && (mantissa & 3) == 1
+                && (mantissa << shift) == high) {
+            // Exactly halfway between two doubles, round to even
+            mantissa &= ~1L;
+        }
+        mantissa += mantissa & 1;
+        mantissa >>>= 1;
+        if (mantissa >= (2L << 52)) {
+            mantissa = 1L << 52;
+            power2++;
+        }
+        mantissa &= ~(1L << 52);
+        if (power2 >= 0x7FF) {
+            return negative ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY;
+        }
+        long bits = mantissa | ((long) power2 << 52) | (negative ? 1L << 63 : 0);
+        return Double.longBitsToDouble(bits);
+    }
+
+    /** @return The high 64 bits of the unsigned 128-bit product of the two values */
+    static long multiplyHigh(long x, long y) {
+        long x0 = x & 0xFFFFFFFFL;
+        long x1 = x >>> 32;
+        long y0 = y & 0xFFFFFFFFL;
+        long y1 = y >>> 32;
+        long p01 = x0 * y1;
+        long middle = x1 * y0 + ((x0 * y0) >>> 32) + (p01 & 0xFFFFFFFFL);
+        return x1 * y1 + (middle >>> 32) + (p01 >>> 32);
+    }
+
+    private static long[] powersOfFive() {
+        long[] table = new long[2 * (LARGEST_POWER_OF_TEN - SMALLEST_POWER_OF_TEN + 1)];
+        BigInteger five = BigInteger.valueOf(5);
+        BigInteger mask = BigInteger.ONE.shiftLeft(64).subtract(BigInteger.ONE);
+        for (int q = SMALLEST_POWER_OF_TEN; q <= LARGEST_POWER_OF_TEN; q++) {
+            BigInteger c;
+            if (q < 0) {
+                BigInteger power = five.pow(-q);
+                int z = power.bitLength();
+                int b = q >= -27 ? z + 127 : 2 * z + 128;
+                c = BigInteger.ONE.shiftLeft(b).divide(power).add(BigInteger.ONE);
+                if (c.bitLength() > 128) {
+                    c = c.shiftRight(c.bitLength() - 128);
+                }
+            } else {
+                c = five.pow(q);
+                int bits = c.bitLength();
+                c = bits < 128 ? c.shiftLeft(128 - bits) : c.shiftRight(bits - 128);
+            }
+            int i = 2 * (q - SMALLEST_POWER_OF_TEN);
+            table[i] = c.shiftRight(64).longValue();
+            table[i + 1] = c.and(mask).longValue();
+        }
+        return table;
+    }
+}
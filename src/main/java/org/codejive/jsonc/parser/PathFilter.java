@@ -0,0 +1,185 @@
+package org.codejive.jsonc.parser;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * A set of paths that selects the parts of a JSON document that should be parsed, see {@link
+ * JsonParser#parse(String, PathFilter)}. Paths can be written as JSON Pointers (RFC 6901), like
+ * {@code /meta/version}, or as simple JSONPath expressions, like {@code $.items[*].id}. Supported
+ * in JSONPath expressions are the root {@code $}, child names ({@code .name} or {@code ['name']}),
+ * array indexes ({@code [0]}) and wildcards ({@code .*} or {@code [*]}).
+ */
+public class PathFilter {
+    // Marks a path that matched completely, meaning the whole value should be included
+    static final int[] FULL = new int[0];
+
+    // For each path the key and index of each of its segments. A segment with a key but no index
+    // only matches object keys, one with only an index only matches array elements, one with both
+    // (a JSON Pointer segment that is a number) matches either and one with neither matches all.
+    private final String[][] keys;
+    private final int[][] indexes;
+    private final int[] all;
+
+    private PathFilter(List<String[]> keys, List<int[]> indexes) {
+        this.keys = keys.toArray(new String[0][]);
+        this.indexes = indexes.toArray(new int[0][]);
+        this.all = new int[this.keys.length];
+        for (int i = 0; i < all.length; i++) {
+            all[i] = i;
+        }
+    }
+
+    public static PathFilter compile(String... paths) {
+        return compile(Arrays.asList(paths));
+    }
+
+    /**
+     * Compiles the given paths into a filter.
+     *
+     * @param paths - JSON Pointers or JSONPath expressions
+     * @return A filter that selects the values matching any of the paths
+     * @throws IllegalArgumentException if one of the paths is invalid
+     */
+    public static PathFilter compile(Collection<String> paths) {
+        List<String[]> keys = new ArrayList<>();
+        List<int[]> indexes = new ArrayList<>();
+        for (String path : paths) {
+            List<String> k = new ArrayList<>();
+            List<Integer> idx = new ArrayList<>();
+            if (path.startsWith("$")) {
+                parseJsonPath(path, k, idx);
+            } else if (path.isEmpty() || path.startsWith("/")) {
+                parsePointer(path, k, idx);
+            } else {
+                throw new IllegalArgumentException("Invalid path: " + path);
+            }
+            keys.add(k.toArray(new String[0]));
+            int[] ii = new int[idx.size()];
+            for (int i = 0; i < ii.length; i++) {
+                ii[i] = idx.get(i);
+            }
+            indexes.add(ii);
+        }
+        return new PathFilter(keys, indexes);
+    }
+
+    private static void parsePointer(String path, List<String> keys, List<Integer> indexes) {
+        int p = 0;
+        while (p < path.length()) {
+            int end = path.indexOf('/', p + 1);
+            if (end < 0) {
+                end = path.length();
+            }
+            String segment = path.substring(p + 1, end).replace("~1", "/").replace("~0", "~");
+            keys.add(segment);
+            indexes.add(toIndex(segment));
+            p = end;
+        }
+    }
+
+    private static void parseJsonPath(String path, List<String> keys, List<Integer> indexes) {
+        int p = 1;
+        int len = path.length();
+        while (p < len) {
+            char c = path.charAt(p);
+            if (c == '.') {
+                int end = p + 1;
+                while (end < len && path.charAt(end) != '.' && path.charAt(end) != '[') {
+                    end++;
+                }
+                String name = path.substring(p + 1, end);
+                if (name.isEmpty()) {
+                    throw new IllegalArgumentException("Invalid path: " + path);
+                }
+                addSegment(name.equals("*") ? null : name, -1, keys, indexes);
+                p = end;
+            } else if (c == '[') {
+                int end = path.indexOf(']', p);
+                if (end < 0) {
+                    throw new IllegalArgumentException("Invalid path: " + path);
+                }
+                String sel = path.substring(p + 1, end);
+                if (sel.equals("*")) {
+                    addSegment(null, -1, keys, indexes);
+                } else if (sel.length() >= 2
+                        && (sel.charAt(0) == '\'' || sel.charAt(0) == '"')
+                        && sel.charAt(sel.length() - 1) == sel.charAt(0)) {
+                    addSegment(sel.substring(1, sel.length() - 1), -1, keys, indexes);
+                } else {
+                    int index = toIndex(sel);
+                    if (index < 0) {
+                        throw new IllegalArgumentException("Invalid path: " + path);
+                    }
+                    addSegment(null, index, keys, indexes);
+                }
+                p = end + 1;
+            } else {
+                throw new IllegalArgumentException("Invalid path: " + path);
+            }
+        }
+    }
+
+    private static void addSegment(
+            String key, int index, List<String> keys, List<Integer> indexes) {
+        keys.add(key);
+        indexes.add(index);
+    }
+
+    private static int toIndex(String segment) {
+        if (segment.isEmpty() || segment.length() > 9) {
+            return -1;
+        }
+        for (int i = 0; i < segment.length(); i++) {
+            if (!JsonLexer.isDigit(segment.charAt(i))) {
+                return -1;
+            }
+        }
+        return Integer.parseInt(segment);
+    }
+
+    /** @return The indexes of all paths, or {@link #FULL} if one of them selects the root */
+    int[] root() {
+        for (String[] k : keys) {
+            if (k.length == 0) {
+                return FULL;
+            }
+        }
+        return all;
+    }
+
+    /**
+     * Determines which of the given live paths match a child of a value.
+     *
+     * @param live - The paths that matched the value so far
+     * @param depth - The number of path segments that were matched to get to the value
+     * @param key - The key of the child or null if it's an array element
+     * @param index - The index of the child or -1 if it's an object entry
+     * @return The paths that matched the child so far, {@link #FULL} if one of the paths matched
+     *     completely or null if none matched
+     */
+    int[] match(int[] live, int depth, String key, int index) {
+        int[] result = null;
+        int n = 0;
+        for (int p : live) {
+            String k = keys[p][depth];
+            int i = indexes[p][depth];
+            boolean matches =
+                    key != null
+                            ? (k == null ? i < 0 : k.equals(key))
+                            : (i < 0 ? k == null : i == index);
+            if (matches) {
+                if (keys[p].length == depth + 1) {
+                    return FULL;
+                }
+                if (result == null) {
+                    result = new int[live.length];
+                }
+                result[n++] = p;
+            }
+        }
+        return result == null || n == result.length ? result : Arrays.copyOf(result, n);
+    }
+}
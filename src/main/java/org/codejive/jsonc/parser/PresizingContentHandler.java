@@ -0,0 +1,231 @@
+package org.codejive.jsonc.parser;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import org.codejive.jsonc.JsonDoubleArray;
+import org.codejive.jsonc.JsonLongArray;
+import org.codejive.jsonc.JsonPrimitive;
+
+/**
+ * Content handler that creates objects and arrays at their final size. Instead of adding values to
+ * their container as they come in, the values of all containers that are still open are collected
+ * on a single stack. Only when a container ends, and so its size is known, it gets created using
+ * {@link TypeFactory#createObjectContainer(int)} or {@link TypeFactory#createArrayContainer(int)}
+ * and filled in one go.
+ *
+ * <p>Optionally arrays of numbers are created as {@link JsonLongArray}s or {@link
+ * JsonDoubleArray}s, chosen by looking at the first element of the array. Numbers that are passed
+ * as longs or doubles are then kept on a parallel stack of primitives until their array ends, so
+ * they go into the array without ever being turned into objects.
+ */
+class PresizingContentHandler implements ContentHandler {
+    final TypeFactory typeFactory;
+    private final boolean numericArrays;
+
+    // Stand-ins on the value stack for numbers that are kept on the number stack
+    private static final Object LONG = new Object();
+    private static final Object DOUBLE = new Object();
+
+    // The values of the open containers, for objects alternating with their keys
+    private Object[] values = new Object[64];
+    // The bits of the numbers whose values are LONG or DOUBLE
+    private long[] numbers;
+    private int size;
+    // For each open container the position on the value stack where its values start
+    private int[] starts = new int[16];
+    private int depth;
+    private Object result;
+
+    PresizingContentHandler(TypeFactory typeFactory) {
+        this(typeFactory, false);
+    }
+
+    PresizingContentHandler(TypeFactory typeFactory, boolean numericArrays) {
+        this.typeFactory = typeFactory;
+        this.numericArrays = numericArrays;
+    }
+
+    Object getResult() {
+        return result;
+    }
+
+    @Override
+    public void startJSON() {
+        size = 0;
+        depth = 0;
+        result = null;
+    }
+
+    /** Drops all references to the values that were built. */
+    void clear() {
+        // Values stay behind on the stack when their container ends
+        if (values.length > 4096) {
+            values = new Object[64];
+            numbers = null;
+        } else {
+            Arrays.fill(values, null);
+        }
+        size = 0;
+        depth = 0;
+        result = null;
+    }
+
+    @Override
+    public void endJSON() {}
+
+    @Override
+    public boolean startObject(Status status) {
+        open();
+        return true;
+    }
+
+    @Override
+    public boolean endObject(Status status) {
+        int start = starts[--depth];
+        Map<String, Object> obj = typeFactory.createObjectContainer((size - start) / 2);
+        for (int i = start; i < size; i += 2) {
+            obj.put((String) values[i], values[i + 1]);
+        }
+        size = start;
+        add(obj);
+        return true;
+    }
+
+    @Override
+    public boolean startObjectEntry(String key) {
+        push(key);
+        return true;
+    }
+
+    @Override
+    public boolean endObjectEntry() {
+        return true;
+    }
+
+    @Override
+    public boolean startArray(Status status) {
+        open();
+        return true;
+    }
+
+    @Override
+    public boolean endArray(Status status) {
+        int start = starts[--depth];
+        List<Object> arr = createArray(start, size - start);
+        for (int i = start; i < size; i++) {
+            Object value = values[i];
+            if (value == LONG) {
+                if (arr instanceof JsonLongArray) {
+                    ((JsonLongArray) arr).add(numbers[i]);
+                } else {
+                    arr.add(createPrimitive(numbers[i]));
+                }
+            } else if (value == DOUBLE) {
+                double d = Double.longBitsToDouble(numbers[i]);
+                if (arr instanceof JsonDoubleArray) {
+                    ((JsonDoubleArray) arr).add(d);
+                } else {
+                    arr.add(createPrimitive(d));
+                }
+            } else {
+                arr.add(value);
+            }
+        }
+        size = start;
+        add(arr);
+        return true;
+    }
+
+    @Override
+    public boolean primitive(
+            Status status, JsonPrimitive.Type type, String value, String rawValue) {
+        add(typeFactory.createPrimitive(type, value, rawValue));
+        return true;
+    }
+
+    @Override
+    public boolean primitiveLong(Status status, long value) {
+        if (numericArrays && status == Status.ARRAY) {
+            pushNumber(LONG, value);
+        } else {
+            add(createPrimitive(value));
+        }
+        return true;
+    }
+
+    @Override
+    public boolean primitiveDouble(Status status, double value) {
+        if (numericArrays && status == Status.ARRAY) {
+            pushNumber(DOUBLE, Double.doubleToRawLongBits(value));
+        } else {
+            add(createPrimitive(value));
+        }
+        return true;
+    }
+
+    private Object createPrimitive(long value) {
+        return typeFactory.createPrimitive(value);
+    }
+
+    private Object createPrimitive(double value) {
+        return typeFactory.createPrimitive(value);
+    }
+
+    private List<Object> createArray(int start, int length) {
+        if (numericArrays && length > 0) {
+            // Elements that don't fit make the array fall back to normal storage
+            Object first = values[start];
+            JsonPrimitive.Type type = null;
+            if (first == LONG) {
+                type = JsonPrimitive.Type.INTEGER;
+            } else if (first == DOUBLE) {
+                type = JsonPrimitive.Type.REAL;
+            } else if (first instanceof JsonPrimitive) {
+                type = ((JsonPrimitive) first).getType();
+            }
+            if (type == JsonPrimitive.Type.INTEGER) {
+                return new JsonLongArray(length);
+            } else if (type == JsonPrimitive.Type.REAL) {
+                return new JsonDoubleArray(length);
+            }
+        }
+        return typeFactory.createArrayContainer(length);
+    }
+
+    private void open() {
+        if (depth == starts.length) {
+            starts = Arrays.copyOf(starts, depth * 2);
+        }
+        starts[depth++] = size;
+    }
+
+    private void add(Object value) {
+        if (depth == 0) {
+            result = value;
+        } else {
+            push(value);
+        }
+    }
+
+    private void push(Object value) {
+        if (size == values.length) {
+            values = Arrays.copyOf(values, size * 2);
+        }
+        values[size++] = value;
+    }
+
+    private void pushNumber(Object kind, long bits) {
+        if (numbers == null) {
+            numbers = new long[values.length];
+        } else if (numbers.length < values.length) {
+            numbers = Arrays.copyOf(numbers, values.length);
+        }
+        if (size == values.length) {
+            values = Arrays.copyOf(values, size * 2);
+            numbers = Arrays.copyOf(numbers, size * 2);
+        }
+        numbers[size] = bits;
+        values[size++] = kind;
+    }
+}
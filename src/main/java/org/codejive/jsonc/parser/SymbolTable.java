@@ -0,0 +1,149 @@
+package org.codejive.jsonc.parser;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Canonical Strings for the keys of JSON objects. Documents that contain many objects of the same
+ * shape repeat the same keys over and over again, when a symbol table is set using {@link
+ * JsonParserConfig#symbolTable(SymbolTable)} every occurrence of a key results in the same String
+ * instance. Keys get hashed and compared straight from the buffer of the lexer, so a key that is
+ * already in the table costs no allocation at all.
+ *
+ * <p>The table has a fixed number of slots and each key can only go in one of them. A key that ends
+ * up in an occupied slot simply replaces the key that was there, so the table never grows and
+ * doesn't need to be cleared between documents. Keys that are longer than {@link #MAX_LENGTH}
+ * characters are never stored.
+ *
+ * <p>A symbol table can be shared by any number of parsers, also ones running at the same time in
+ * different threads. No locking is involved: Strings are immutable, so the worst that can happen
+ * when two threads race for the same slot is that one of them doesn't get the canonical instance.
+ */
+public final class SymbolTable {
+    /** The maximum length of the keys that are stored in the table. */
+    public static final int MAX_LENGTH = 64;
+
+    private static final int DEFAULT_CAPACITY = 4096;
+
+    private final String[] symbols;
+    private final int mask;
+
+    /** Creates a symbol table with room for 4096 keys. */
+    public SymbolTable() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates a symbol table with the given number of slots.
+     *
+     * @param capacity - The number of slots, rounded up to a power of two
+     */
+    public SymbolTable(int capacity) {
+        if (capacity <= 0 || capacity > (1 << 30)) {
+            throw new IllegalArgumentException("Invalid capacity: " + capacity);
+        }
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+        this.symbols = new String[size];
+        this.mask = size - 1;
+    }
+
+    /** @return The number of slots in the table */
+    public int capacity() {
+        return symbols.length;
+    }
+
+    /**
+     * Returns the canonical instance of the given String.
+     *
+     * @param s - The String to look up
+     * @return An equal String that was seen before or the given String
+     */
+    public String intern(String s) {
+        int len = s.length();
+        if (len > MAX_LENGTH) {
+            return s;
+        }
+        int slot = slot(s.hashCode());
+        String symbol = symbols[slot];
+        if (s.equals(symbol)) {
+            return symbol;
+        }
+        symbols[slot] = s;
+        return s;
+    }
+
+    /** @return The canonical String for the characters in the given range */
+    String intern(char[] b, int start, int end) {
+        int len = end - start;
+        if (len > MAX_LENGTH) {
+            return new String(b, start, len);
+        }
+        int h = 0;
+        for (int p = start; p < end; p++) {
+            h = 31 * h + b[p];
+        }
+        int slot = slot(h);
+        String symbol = symbols[slot];
+        if (symbol != null && matches(symbol, b, start, len)) {
+            return symbol;
+        }
+        symbol = new String(b, start, len);
+        symbols[slot] = symbol;
+        return symbol;
+    }
+
+    /** @return The canonical String for the ASCII characters in the given range */
+    String intern(byte[] b, int start, int end) {
+        int len = end - start;
+        if (len > MAX_LENGTH) {
+            return ascii(b, start, len);
+        }
+        int h = 0;
+        for (int p = start; p < end; p++) {
+            h = 31 * h + b[p];
+        }
+        int slot = slot(h);
+        String symbol = symbols[slot];
+        if (symbol != null && matches(symbol, b, start, len)) {
+            return symbol;
+        }
+        symbol = ascii(b, start, len);
+        symbols[slot] = symbol;
+        return symbol;
+    }
+
+    // Uses the same hash as String.hashCode(), so all three intern methods agree on the slot
+    private int slot(int h) {
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    private static boolean matches(String symbol, char[] b, int start, int len) {
+        if (symbol.length() != len) {
+            return false;
+        }
+        for (int i = 0; i < len; i++) {
+            if (symbol.charAt(i) != b[start + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean matches(String symbol, byte[] b, int start, int len) {
+        if (symbol.length() != len) {
+            return false;
+        }
+        for (int i = 0; i < len; i++) {
+            if (symbol.charAt(i) != b[start + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String ascii(byte[] b, int start, int len) {
+        return new String(b, start, len, StandardCharsets.ISO_8859_1);
+    }
+}
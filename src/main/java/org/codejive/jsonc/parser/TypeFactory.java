@@ -3,6 +3,7 @@ package org.codejive.jsonc.parser;
 import java.util.List;
 import java.util.Map;
 import org.codejive.jsonc.JsonPrimitive;
+import org.codejive.jsonc.NumberWriter;
 
 /** Type factory for creating the objects that represent/contain JSON values. */
 public interface TypeFactory {
@@ -13,6 +14,18 @@ public interface TypeFactory {
      */
     Map<String, Object> createObjectContainer();
 
+    /**
+     * Returns an empty Map object that has room for the given number of entries. Only called when
+     * the number of entries is known in advance, by default it simply calls {@link
+     * #createObjectContainer()}.
+     *
+     * @param capacity - The number of entries the object will get
+     * @return A Map object
+     */
+    default Map<String, Object> createObjectContainer(int capacity) {
+        return createObjectContainer();
+    }
+
     /**
      * Returns an empty List object
      *
@@ -20,10 +33,46 @@ public interface TypeFactory {
      */
     List<Object> createArrayContainer();
 
+    /**
+     * Returns an empty List object that has room for the given number of elements. Only called when
+     * the number of elements is known in advance, by default it simply calls {@link
+     * #createArrayContainer()}.
+     *
+     * @param capacity - The number of elements the array will get
+     * @return A List object
+     */
+    default List<Object> createArrayContainer(int capacity) {
+        return createArrayContainer();
+    }
+
     /**
      * Returns an object representing the provided primitive.
      *
      * @return An object
      */
     Object createPrimitive(JsonPrimitive.Type type, String value, String rawValue);
+
+    /**
+     * Returns an object representing an integer that the parser already turned into a long, see
+     * {@link JsonParserConfig#parseNumbers(boolean)}. By default it calls {@link
+     * #createPrimitive(JsonPrimitive.Type, String, String)} with the value as text.
+     *
+     * @return An object
+     */
+    default Object createPrimitive(long value) {
+        String text = Long.toString(value);
+        return createPrimitive(JsonPrimitive.Type.INTEGER, text, text);
+    }
+
+    /**
+     * Returns an object representing a real number that the parser already turned into a double,
+     * see {@link JsonParserConfig#parseNumbers(boolean)}. By default it calls {@link
+     * #createPrimitive(JsonPrimitive.Type, String, String)} with the value as text.
+     *
+     * @return An object
+     */
+    default Object createPrimitive(double value) {
+        String text = NumberWriter.toString(value);
+        return createPrimitive(JsonPrimitive.Type.REAL, text, text);
+    }
 }
@@ -0,0 +1,920 @@
+package org.codejive.jsonc.parser;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Hand-written lexer that scans UTF-8 encoded JSON text directly as bytes, skipping the decoding to
+ * UTF-16 that a {@link java.io.Reader} would need. All structural characters in JSON are ASCII, so
+ * the only place where the encoding matters is the contents of strings, and those only get decoded
+ * when {@link #value()} or {@link #rawValue()} get called.
+ *
+ * <p>The input can be a byte array or a heap {@link ByteBuffer}, which are scanned in place, or an
+ * {@link InputStream} or direct {@link ByteBuffer}, which are copied into the lexer's own buffer in
+ * blocks. All positions reported by this lexer are byte offsets.
+ *
+ * <p>Finally the input can be pushed to the lexer in chunks using {@link #feed(byte[], int, int)}.
+ * In that case {@link #next()} returns {@link #NEED_INPUT} when the end of the available input is
+ * reached before a token is complete. Strings, which can be very large, continue where they were
+ * cut short once more input has been fed, other partial tokens get scanned again from their start.
+ */
+final class Utf8Lexer extends JsonLexer {
+    private static final int BUFFER_SIZE = 16384;
+    private static final long MAP_CHUNK_SIZE = 1L << 30;
+    private static final char REPLACEMENT = '\uFFFD';
+
+    private final JsonParserConfig config;
+
+    private InputStream in;
+    private ByteBuffer src;
+    private FileChannel channel;
+    private long channelPos;
+    private long channelSize;
+    private long chunkSize;
+    private byte[] ownBuf;
+
+    private byte[] buf;
+    private int pos;
+    private int limit;
+    // The position in the input of the first byte in the buffer
+    private long offset;
+    private boolean eof;
+    private boolean atStart;
+    private boolean push;
+    private boolean starved;
+
+    // How far the string that was cut short by the end of the fed input got scanned, along with
+    // the absolute position where it starts. The length is 0 if there is no such string
+    private long partialStart;
+    private int partialLength;
+    private int partialBits;
+    private boolean partialEscapes;
+
+    private int token;
+    private int tokenStart;
+    private int valueStart;
+    private int valueEnd;
+    private boolean hasEscapes;
+    private boolean isAscii;
+    private String value;
+    private String rawValue;
+    private char[] scratch;
+
+    Utf8Lexer(JsonParserConfig config) {
+        this.config = config;
+    }
+
+    /** Reset the lexer to scan the given bytes in place. */
+    void reset(byte[] b, int off, int len) {
+        this.in = null;
+        this.src = null;
+        this.channel = null;
+        this.buf = b;
+        resetState(off, off + len, true);
+    }
+
+    /**
+     * Reset the lexer to scan the remaining bytes of the given buffer. The buffer's position is not
+     * changed.
+     */
+    void reset(ByteBuffer bb) {
+        if (bb.hasArray()) {
+            reset(bb.array(), bb.arrayOffset() + bb.position(), bb.remaining());
+        } else {
+            this.in = null;
+            this.src = bb.duplicate();
+            this.channel = null;
+            this.buf = ownBuffer();
+            resetState(0, 0, false);
+        }
+    }
+
+    /** Reset the lexer to read from the given stream. */
+    void reset(InputStream in) {
+        this.in = in;
+        this.src = null;
+        this.channel = null;
+        this.buf = ownBuffer();
+        resetState(0, 0, false);
+    }
+
+    /**
+     * Reset the lexer to read the contents of the given file channel, starting at its current
+     * position. The file is memory-mapped in chunks of at most 1GB and the lexer's buffer is
+     * refilled from the mapping using bulk copies, so there are no read() calls and the amount of
+     * heap used stays constant regardless of the size of the file.
+     */
+    void reset(FileChannel ch) throws IOException {
+        reset(ch, MAP_CHUNK_SIZE);
+    }
+
+    void reset(FileChannel ch, long chunkSize) throws IOException {
+        this.in = null;
+        this.src = null;
+        this.channel = ch;
+        this.channelPos = ch.position();
+        this.channelSize = ch.size();
+        this.chunkSize = chunkSize;
+        this.buf = ownBuffer();
+        resetState(0, 0, false);
+    }
+
+    /**
+     * Reset the lexer to scan input that gets pushed to it using {@link #feed(byte[], int, int)}
+     * and {@link #feed(ByteBuffer)}, until {@link #endOfInput()} gets called.
+     */
+    void resetFeed() {
+        this.in = null;
+        this.src = null;
+        this.channel = null;
+        this.buf = ownBuffer();
+        resetState(0, 0, false);
+        push = true;
+    }
+
+    /** Appends the given bytes to the input that is available for scanning. */
+    void feed(byte[] b, int off, int len) {
+        makeRoom(len);
+        System.arraycopy(b, off, buf, limit, len);
+        limit += len;
+    }
+
+    /** Appends the remaining bytes of the given buffer to the input, consuming them. */
+    void feed(ByteBuffer bb) {
+        int len = bb.remaining();
+        makeRoom(len);
+        bb.get(buf, limit, len);
+        limit += len;
+    }
+
+    /** Signals that no more input will be fed. */
+    void endOfInput() {
+        eof = true;
+    }
+
+    private void makeRoom(int len) {
+        if (!push || eof) {
+            throw new IllegalStateException("Lexer is not accepting input");
+        }
+        if (tokenStart > 0 && buf.length - limit < len) {
+            int shift = tokenStart;
+            int keep = limit - shift;
+            System.arraycopy(buf, shift, buf, 0, keep);
+            offset += shift;
+            pos -= shift;
+            limit = keep;
+            valueStart -= shift;
+            valueEnd -= shift;
+            tokenStart = 0;
+        }
+        if (buf.length - limit < len) {
+            buf = ownBuf = Arrays.copyOf(buf, Math.max(buf.length * 2, limit + len));
+        }
+    }
+
+    @Override
+    void release() {
+        in = null;
+        src = null;
+        channel = null;
+        value = null;
+        rawValue = null;
+        if (ownBuf != null && ownBuf.length > BUFFER_SIZE) {
+            ownBuf = null;
+        }
+        if (scratch != null && scratch.length > BUFFER_SIZE) {
+            scratch = null;
+        }
+        // Might be the caller's array
+        buf = ownBuf;
+    }
+
+    private byte[] ownBuffer() {
+        if (ownBuf == null) {
+            ownBuf = new byte[BUFFER_SIZE];
+        }
+        return ownBuf;
+    }
+
+    private void resetState(int start, int end, boolean eof) {
+        pos = start;
+        limit = end;
+        offset = -start;
+        this.eof = eof;
+        push = false;
+        token = EOF;
+        tokenStart = start;
+        value = null;
+        rawValue = null;
+        atStart = true;
+        partialLength = 0;
+    }
+
+    /** Skips the byte order mark that some tools like to put in front of UTF-8 files. */
+    private void skipBom() throws IOException {
+        if (peek(0) == 0xEF && peek(1) == 0xBB && peek(2) == 0xBF) {
+            pos += 3;
+        }
+    }
+
+    @Override
+    long getPosition() {
+        return offset + tokenStart;
+    }
+
+    @Override
+    long getEndPosition() {
+        return offset + pos;
+    }
+
+    @Override
+    int token() {
+        return token;
+    }
+
+    @Override
+    int next() throws IOException, JsonParseException {
+        value = null;
+        rawValue = null;
+        if (!push) {
+            return token = scan();
+        }
+        int start = pos;
+        boolean wasAtStart = atStart;
+        starved = false;
+        try {
+            int t = scan();
+            if (!starved) {
+                return token = t;
+            }
+        } catch (JsonParseException e) {
+            if (!starved) {
+                throw e;
+            }
+        }
+        // The available input ended halfway a token. A string continues from where it got cut
+        // short once more input has been fed, anything else gets scanned from the beginning again
+        if (partialLength > 0) {
+            pos = tokenStart;
+            atStart = false;
+        } else {
+            pos = start;
+            tokenStart = start;
+            atStart = wasAtStart;
+        }
+        return token = NEED_INPUT;
+    }
+
+    private int scan() throws IOException, JsonParseException {
+        if (atStart) {
+            atStart = false;
+            tokenStart = pos;
+            skipBom();
+        }
+        for (; ; ) {
+            if (pos == limit) {
+                tokenStart = pos;
+                if (!fill()) {
+                    return EOF;
+                }
+            }
+            byte c = buf[pos];
+            switch (c) {
+                case ' ':
+                case '\t':
+                case '\n':
+                case '\r':
+                case '\f':
+                    pos++;
+                    continue;
+                case '{':
+                    tokenStart = pos++;
+                    return LEFT_BRACE;
+                case '}':
+                    tokenStart = pos++;
+                    return RIGHT_BRACE;
+                case '[':
+                    tokenStart = pos++;
+                    return LEFT_SQUARE;
+                case ']':
+                    tokenStart = pos++;
+                    return RIGHT_SQUARE;
+                case ',':
+                    tokenStart = pos++;
+                    return ITEM_SEPARATOR;
+                case ':':
+                    tokenStart = pos++;
+                    return PAIR_SEPARATOR;
+                case '"':
+                    return scanString();
+                case '-':
+                case '0':
+                case '1':
+                case '2':
+                case '3':
+                case '4':
+                case '5':
+                case '6':
+                case '7':
+                case '8':
+                case '9':
+                    return scanNumber();
+                case 't':
+                    return scanLiteral("true", TRUE);
+                case 'f':
+                    return scanLiteral("false", FALSE);
+                case 'n':
+                    return scanLiteral("null", NULL);
+                case '/':
+                    if (config.enableComments()) {
+                        skipComment();
+                        continue;
+                    }
+                    // Fall through
+                default:
+                    tokenStart = pos;
+                    throw JsonParseException.unexpectedChar(offset + pos, charAt(pos));
+            }
+        }
+    }
+
+    @Override
+    int skip() throws IOException, JsonParseException {
+        if (push) {
+            // Partial strings and comments are simply scanned again by next()
+            return super.skip();
+        }
+        value = null;
+        rawValue = null;
+        int depth = skipDepth;
+        for (; ; ) {
+            byte[] b = buf;
+            int l = limit;
+            int p = pos;
+            while (p < l) {
+                byte c = b[p];
+                if (c == '"' || c == '/') {
+                    break;
+                } else if (c == '{' || c == '[') {
+                    depth++;
+                } else if ((c == '}' || c == ']') && --depth == 0) {
+                    skipDepth = 0;
+                    tokenStart = p;
+                    pos = p + 1;
+                    return token = c == '}' ? RIGHT_BRACE : RIGHT_SQUARE;
+                }
+                p++;
+            }
+            pos = p;
+            skipDepth = depth;
+            if (p == l) {
+                tokenStart = p;
+                if (!fill()) {
+                    return token = EOF;
+                }
+            } else if (b[p] == '"') {
+                if (!skipString()) {
+                    return token = EOF;
+                }
+            } else if (config.enableComments()) {
+                skipComment();
+            } else {
+                pos++;
+            }
+        }
+    }
+
+    /** Skips the string starting at pos without looking at its contents, except for escapes. */
+    private boolean skipString() throws IOException {
+        tokenStart = pos;
+        int p = pos + 1;
+        for (; ; ) {
+            byte[] b = buf;
+            int l = limit;
+            while (p < l) {
+                byte c = b[p];
+                if (c == '"') {
+                    pos = p + 1;
+                    return true;
+                }
+                p += c == '\\' ? 2 : 1;
+            }
+            pos = p;
+            if (!fill()) {
+                // Unterminated string
+                tokenStart = limit;
+                pos = limit;
+                return false;
+            }
+            p = pos;
+        }
+    }
+
+    private int scanString() throws IOException, JsonParseException {
+        tokenStart = pos;
+        int bits;
+        int p;
+        if (partialLength > 0 && partialStart == offset + pos) {
+            hasEscapes = partialEscapes;
+            bits = partialBits;
+            p = pos + partialLength;
+        } else {
+            hasEscapes = false;
+            bits = 0;
+            p = pos + 1;
+        }
+        partialLength = 0;
+        for (; ; ) {
+            byte[] b = buf;
+            int l = limit;
+            byte c = 0;
+            while (p < l && (c = b[p]) != '"' && c != '\\') {
+                bits |= c;
+                p++;
+            }
+            if (p == l) {
+                pos = p;
+                if (!fill()) {
+                    if (starved) {
+                        return suspendString(p, bits);
+                    }
+                    // Unterminated string
+                    tokenStart = pos;
+                    return EOF;
+                }
+                p = pos;
+            } else if (c == '"') {
+                break;
+            } else {
+                pos = p;
+                if (!ensure(2)) {
+                    if (starved) {
+                        return suspendString(p, bits);
+                    }
+                    tokenStart = limit;
+                    pos = limit;
+                    return EOF;
+                }
+                byte e = buf[pos + 1];
+                switch (e) {
+                    case '"':
+                    case '\\':
+                    case '/':
+                    case 'b':
+                    case 'f':
+                    case 'n':
+                    case 'r':
+                    case 't':
+                        p = pos + 2;
+                        break;
+                    case 'u':
+                        if (!ensure(6) && starved) {
+                            return suspendString(p, bits);
+                        }
+                        if (limit - pos < 6
+                                || hex(buf[pos + 2]) < 0
+                                || hex(buf[pos + 3]) < 0
+                                || hex(buf[pos + 4]) < 0
+                                || hex(buf[pos + 5]) < 0) {
+                            throw JsonParseException.unexpectedChar(offset + pos, 'u');
+                        }
+                        p = pos + 6;
+                        break;
+                    default:
+                        throw JsonParseException.unexpectedChar(offset + pos, charAt(pos + 1));
+                }
+                hasEscapes = true;
+            }
+        }
+        isAscii = bits >= 0;
+        valueStart = tokenStart + 1;
+        valueEnd = p;
+        pos = p + 1;
+        return STRING;
+    }
+
+    /**
+     * Remembers how far the current string got scanned when the fed input ran out, the escape or
+     * character at the given position is where scanning continues.
+     */
+    private int suspendString(int p, int bits) {
+        partialStart = offset + tokenStart;
+        partialLength = p - tokenStart;
+        partialBits = bits;
+        partialEscapes = hasEscapes;
+        return NEED_INPUT;
+    }
+
+    private int scanNumber() throws IOException, JsonParseException {
+        tokenStart = pos;
+        int token = INTEGER;
+        int i = 0;
+        int c = peek(0);
+        if (c == '-') {
+            c = peek(++i);
+            if (!isDigit(c)) {
+                throw JsonParseException.unexpectedChar(offset + tokenStart, '-');
+            }
+        }
+        while (isDigit(c)) {
+            c = peek(++i);
+        }
+        if (c == '.' && isDigit(peek(i + 1))) {
+            token = REAL;
+            i += 2;
+            while (isDigit(c = peek(i))) {
+                i++;
+            }
+        }
+        if (c == 'e' || c == 'E') {
+            int j = i + 1;
+            int s = peek(j);
+            if (s == '+' || s == '-') {
+                s = peek(++j);
+            }
+            if (isDigit(s)) {
+                token = REAL;
+                i = j + 1;
+                while (isDigit(peek(i))) {
+                    i++;
+                }
+            }
+        }
+        valueStart = tokenStart;
+        valueEnd = tokenStart + i;
+        pos = valueEnd;
+        return token;
+    }
+
+    private int scanLiteral(String literal, int token) throws IOException, JsonParseException {
+        tokenStart = pos;
+        for (int i = 1; i < literal.length(); i++) {
+            if (peek(i) != literal.charAt(i)) {
+                throw JsonParseException.unexpectedChar(offset + tokenStart, literal.charAt(0));
+            }
+        }
+        pos = tokenStart + literal.length();
+        return token;
+    }
+
+    private void skipComment() throws IOException, JsonParseException {
+        tokenStart = pos;
+        int c = peek(1);
+        if (c == '/') {
+            pos += 2;
+            for (; ; ) {
+                if (pos == limit) {
+                    tokenStart = pos;
+                    if (!fill()) {
+                        return;
+                    }
+                }
+                c = buf[pos];
+                if (c == '\n' || c == '\r') {
+                    return;
+                }
+                pos++;
+            }
+        } else if (c == '*') {
+            pos += 2;
+            for (; ; ) {
+                if (pos == limit) {
+                    tokenStart = pos;
+                    if (!fill()) {
+                        throw JsonParseException.unexpectedToken(offset + pos, TEXT_EOF);
+                    }
+                }
+                if (buf[pos] == '*') {
+                    tokenStart = pos;
+                    if (peek(1) == '/') {
+                        pos += 2;
+                        return;
+                    }
+                }
+                pos++;
+            }
+        } else {
+            throw JsonParseException.unexpectedChar(offset + tokenStart, '/');
+        }
+    }
+
+    /**
+     * Returns the byte at the given index relative to the start of the current token, refilling the
+     * buffer when necessary.
+     *
+     * @return The unsigned value of the byte or -1 if the end of the input was reached
+     */
+    private int peek(int i) throws IOException {
+        while (tokenStart + i >= limit) {
+            if (!fill()) {
+                return -1;
+            }
+        }
+        return buf[tokenStart + i] & 0xff;
+    }
+
+    /** Makes sure at least n bytes starting at pos are available in the buffer. */
+    private boolean ensure(int n) throws IOException {
+        while (limit - pos < n) {
+            if (!fill()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Reads more input into the buffer. Everything before the start of the current token gets
+     * discarded, the buffer is only grown when a single token doesn't fit.
+     */
+    private boolean fill() throws IOException {
+        if (eof) {
+            return false;
+        }
+        if (push) {
+            starved = true;
+            return false;
+        }
+        if (tokenStart > 0) {
+            int keep = limit - tokenStart;
+            System.arraycopy(buf, tokenStart, buf, 0, keep);
+            offset += tokenStart;
+            pos -= tokenStart;
+            limit = keep;
+            tokenStart = 0;
+        }
+        if (limit == buf.length) {
+            buf = ownBuf = Arrays.copyOf(buf, buf.length * 2);
+        }
+        int n = read(buf, limit, buf.length - limit);
+        if (n < 0) {
+            eof = true;
+            return false;
+        }
+        limit += n;
+        return true;
+    }
+
+    private int read(byte[] b, int off, int len) throws IOException {
+        if (src != null || channel != null) {
+            while (src == null || !src.hasRemaining()) {
+                if (!mapNextChunk()) {
+                    return -1;
+                }
+            }
+            int n = Math.min(len, src.remaining());
+            src.get(b, off, n);
+            return n;
+        } else if (in != null) {
+            int n;
+            do {
+                n = in.read(b, off, len);
+            } while (n == 0);
+            return n;
+        } else {
+            return -1;
+        }
+    }
+
+    private boolean mapNextChunk() throws IOException {
+        if (channel == null || channelPos >= channelSize) {
+            return false;
+        }
+        long size = Math.min(chunkSize, channelSize - channelPos);
+        src = channel.map(FileChannel.MapMode.READ_ONLY, channelPos, size);
+        channelPos += size;
+        return true;
+    }
+
+    /** Decodes the (possibly multi-byte) character at the given index, for error messages. */
+    private char charAt(int p) {
+        if (buf[p] >= 0) {
+            return (char) buf[p];
+        }
+        return new String(buf, p, Math.min(4, limit - p), StandardCharsets.UTF_8).charAt(0);
+    }
+
+    @Override
+    String value() {
+        if (value == null) {
+            switch (token) {
+                case STRING:
+                    if (hasEscapes) {
+                        value = decode();
+                    } else {
+                        value = slice();
+                    }
+                    break;
+                case INTEGER:
+                case REAL:
+                    value =
+                            new String(
+                                    buf,
+                                    valueStart,
+                                    valueEnd - valueStart,
+                                    StandardCharsets.ISO_8859_1);
+                    break;
+                default:
+                    value = text();
+                    break;
+            }
+        }
+        return value;
+    }
+
+    @Override
+    boolean isEscaped() {
+        return token == STRING && hasEscapes;
+    }
+
+    @Override
+    String key() {
+        if (symbols != null && token == STRING && value == null) {
+            // Only plain ASCII can be looked up without decoding it first
+            value =
+                    !hasEscapes && isAscii
+                            ? symbols.intern(buf, valueStart, valueEnd)
+                            : symbols.intern(hasEscapes ? decode() : slice());
+        }
+        return value();
+    }
+
+    @Override
+    boolean isLong() {
+        return token == INTEGER && NumberParser.fitsLong(buf, valueStart, valueEnd);
+    }
+
+    @Override
+    long longValue() {
+        return NumberParser.parseLong(buf, valueStart, valueEnd);
+    }
+
+    @Override
+    double doubleValue() {
+        return NumberParser.parseDouble(buf, valueStart, valueEnd);
+    }
+
+    @Override
+    String rawValue() {
+        if (rawValue == null) {
+            if (token == STRING && hasEscapes) {
+                rawValue = slice();
+            } else {
+                rawValue = value();
+            }
+        }
+        return rawValue;
+    }
+
+    private String slice() {
+        return new String(
+                buf,
+                valueStart,
+                valueEnd - valueStart,
+                isAscii ? StandardCharsets.ISO_8859_1 : StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Decodes both the UTF-8 sequences and the escapes in the current string token. Malformed
+     * sequences get replaced exactly like the JDK's decoder used by {@link #slice()} does: overlong
+     * forms, surrogates and values beyond U+10FFFF are invalid, and the longest part of a sequence
+     * that could have been valid becomes a single replacement character.
+     */
+    private String decode() {
+        int len = valueEnd - valueStart;
+        if (scratch == null || scratch.length < len) {
+            scratch = new char[Math.max(len, 64)];
+        }
+        char[] out = scratch;
+        byte[] b = buf;
+        int end = valueEnd;
+        int n = 0;
+        int p = valueStart;
+        while (p < end) {
+            int c = b[p];
+            if (c == '\\') {
+                c = b[p + 1];
+                switch (c) {
+                    case 'b':
+                        out[n++] = '\b';
+                        break;
+                    case 'f':
+                        out[n++] = '\f';
+                        break;
+                    case 'n':
+                        out[n++] = '\n';
+                        break;
+                    case 'r':
+                        out[n++] = '\r';
+                        break;
+                    case 't':
+                        out[n++] = '\t';
+                        break;
+                    case 'u':
+                        out[n++] =
+                                (char)
+                                        (hex(b[p + 2]) << 12
+                                                | hex(b[p + 3]) << 8
+                                                | hex(b[p + 4]) << 4
+                                                | hex(b[p + 5]));
+                        p += 4;
+                        break;
+                    default:
+                        out[n++] = (char) c;
+                        break;
+                }
+                p += 2;
+            } else if (c >= 0) {
+                out[n++] = (char) c;
+                p++;
+            } else if ((c >> 5) == -2 && (c & 0x1e) != 0) {
+                // Two bytes, C0 and C1 can only start overlong forms
+                if (p + 1 < end && isContinuation(b[p + 1])) {
+                    out[n++] = (char) (((c & 0x1f) << 6) | (b[p + 1] & 0x3f));
+                    p += 2;
+                } else {
+                    out[n++] = REPLACEMENT;
+                    p++;
+                }
+            } else if ((c >> 4) == -2) {
+                // Three bytes
+                if (p + 2 < end) {
+                    int b2 = b[p + 1];
+                    int b3 = b[p + 2];
+                    if (isMalformed3(c, b2) || !isContinuation(b3)) {
+                        out[n++] = REPLACEMENT;
+                        p += isMalformed3(c, b2) ? 1 : 2;
+                    } else {
+                        char ch = (char) (((c & 0x0f) << 12) | ((b2 & 0x3f) << 6) | (b3 & 0x3f));
+                        out[n++] = Character.isSurrogate(ch) ? REPLACEMENT : ch;
+                        p += 3;
+                    }
+                } else {
+                    // Cut short by the end of the string
+                    out[n++] = REPLACEMENT;
+                    p = p + 1 < end && isMalformed3(c, b[p + 1]) ? p + 1 : end;
+                }
+            } else if ((c >> 3) == -2) {
+                // Four bytes
+                if (p + 3 < end) {
+                    int b2 = b[p + 1];
+                    int b3 = b[p + 2];
+                    int b4 = b[p + 3];
+                    int cp =
+                            ((c & 0x07) << 18)
+                                    | ((b2 & 0x3f) << 12)
+                                    | ((b3 & 0x3f) << 6)
+                                    | (b4 & 0x3f);
+                    if (!isContinuation(b2)
+                            || !isContinuation(b3)
+                            || !isContinuation(b4)
+                            || !Character.isSupplementaryCodePoint(cp)) {
+                        out[n++] = REPLACEMENT;
+                        p += isMalformed4(c, b2) ? 1 : !isContinuation(b3) ? 2 : 3;
+                    } else {
+                        out[n++] = Character.highSurrogate(cp);
+                        out[n++] = Character.lowSurrogate(cp);
+                        p += 4;
+                    }
+                } else {
+                    // Cut short by the end of the string
+                    out[n++] = REPLACEMENT;
+                    if (p + 1 < end ? isMalformed4(c, b[p + 1]) : (c & 0xff) > 0xf4) {
+                        p++;
+                    } else if (p + 2 < end && !isContinuation(b[p + 2])) {
+                        p += 2;
+                    } else {
+                        p = end;
+                    }
+                }
+            } else {
+                out[n++] = REPLACEMENT;
+                p++;
+            }
+        }
+        return new String(out, 0, n);
+    }
+
+    private static boolean isContinuation(int b) {
+        return (b & 0xc0) == 0x80;
+    }
+
+    /** @return true if the second byte can't follow the first one in a three byte sequence */
+    private static boolean isMalformed3(int b1, int b2) {
+        return (b1 == (byte) 0xe0 && (b2 & 0xe0) == 0x80) || !isContinuation(b2);
+    }
+
+    /** @return true if the second byte can't follow the first one in a four byte sequence */
+    private static boolean isMalformed4(int b1, int b2) {
+        b1 &= 0xff;
+        b2 &= 0xff;
+        return b1 > 0xf4
+                || (b1 == 0xf0 && (b2 < 0x90 || b2 > 0xbf))
+                || (b1 == 0xf4 && (b2 & 0xf0) != 0x80)
+                || !isContinuation(b2);
+    }
+}
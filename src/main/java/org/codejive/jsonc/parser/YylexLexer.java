@@ -0,0 +1,84 @@
+package org.codejive.jsonc.parser;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Adapts the JFlex generated {@link Yylex} to the {@link JsonLexer} interface. Only used when
+ * {@link JsonParserConfig#legacyLexer()} is enabled.
+ */
+final class YylexLexer extends JsonLexer {
+    private final Yylex lexer = new Yylex(null);
+
+    private Yytoken yytoken;
+    private int token;
+
+    @Override
+    void reset(Reader in) {
+        lexer.yyreset(in);
+        yytoken = null;
+        token = EOF;
+    }
+
+    @Override
+    void release() {
+        // Also shrinks the buffer if it grew
+        lexer.yyreset(null);
+        yytoken = null;
+        token = EOF;
+    }
+
+    @Override
+    long getPosition() {
+        return lexer.getPosition();
+    }
+
+    @Override
+    int token() {
+        return token;
+    }
+
+    @Override
+    int next() throws IOException, JsonParseException {
+        yytoken = lexer.yylex();
+        return token = toToken(yytoken);
+    }
+
+    @Override
+    String value() {
+        return yytoken != null ? yytoken.value : text();
+    }
+
+    @Override
+    String rawValue() {
+        return yytoken != null ? yytoken.rawValue : text();
+    }
+
+    private static int toToken(Yytoken yytoken) {
+        if (yytoken == null || yytoken == Yytoken.TYPE_EOF) {
+            return EOF;
+        } else if (yytoken == Yytoken.TYPE_LEFT_BRACE) {
+            return LEFT_BRACE;
+        } else if (yytoken == Yytoken.TYPE_RIGHT_BRACE) {
+            return RIGHT_BRACE;
+        } else if (yytoken == Yytoken.TYPE_LEFT_SQUARE) {
+            return LEFT_SQUARE;
+        } else if (yytoken == Yytoken.TYPE_RIGHT_SQUARE) {
+            return RIGHT_SQUARE;
+        } else if (yytoken == Yytoken.TYPE_ITEM_SEPARATOR) {
+            return ITEM_SEPARATOR;
+        } else if (yytoken == Yytoken.TYPE_PAIR_SEPARATOR) {
+            return PAIR_SEPARATOR;
+        } else if (yytoken instanceof Yytoken.YyStringToken) {
+            return STRING;
+        } else if (yytoken instanceof Yytoken.YyIntegerToken) {
+            return INTEGER;
+        } else if (yytoken instanceof Yytoken.YyRealToken) {
+            return REAL;
+        } else if (yytoken instanceof Yytoken.YyBooleanToken) {
+            return "true".equals(yytoken.value) ? TRUE : FALSE;
+        } else {
+            return NULL;
+        }
+    }
+}
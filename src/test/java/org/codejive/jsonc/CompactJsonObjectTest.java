@@ -0,0 +1,91 @@
+package org.codejive.jsonc;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.nullValue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import org.codejive.jsonc.parser.CompactTypeFactory;
+import org.codejive.jsonc.parser.JsonParser;
+import org.junit.jupiter.api.Test;
+
+public class CompactJsonObjectTest {
+
+    @Test
+    public void testKeepsOrder() throws Exception {
+        String text = "{\"z\":1,\"a\":[2,{\"y\":3,\"b\":4}],\"m\":\"x\"}";
+        Object obj = new JsonParser().parse(text, new CompactTypeFactory());
+        assertThat(obj, instanceOf(CompactJsonObject.class));
+        assertThat(((CompactJsonObject) obj).toJSONString(), equalTo(text));
+    }
+
+    @Test
+    public void testPutGetRemove() {
+        CompactJsonObject obj = new CompactJsonObject();
+        Map<String, Object> expected = new HashMap<>();
+        // Crosses the point where the index gets created in both directions
+        for (int i = 0; i < 40; i++) {
+            obj.put("k" + i, i);
+            expected.put("k" + i, i);
+        }
+        assertThat(obj.put("k3", "x"), equalTo(3));
+        expected.put("k3", "x");
+        for (int i = 0; i < 40; i += 2) {
+            assertThat(obj.remove("k" + i), equalTo(expected.remove("k" + i)));
+        }
+        assertThat(obj, equalTo(expected));
+        assertThat(obj.get("k0"), nullValue());
+        assertThat(obj.get("k39"), equalTo(39));
+        assertThat(obj.containsKey("k3"), equalTo(true));
+        for (int i = 1; i < 35; i += 2) {
+            obj.remove("k" + i);
+        }
+        assertThat(obj.keySet(), contains("k35", "k37", "k39"));
+        assertThat(obj.get("k37"), equalTo(37));
+    }
+
+    @Test
+    public void testIteratorRemove() {
+        CompactJsonObject obj = new CompactJsonObject();
+        for (int i = 0; i < 10; i++) {
+            obj.put("k" + i, i);
+        }
+        Iterator<Map.Entry<String, Object>> iter = obj.entrySet().iterator();
+        while (iter.hasNext()) {
+            Map.Entry<String, Object> e = iter.next();
+            if ((Integer) e.getValue() % 3 != 0) {
+                iter.remove();
+            } else {
+                e.setValue(-(Integer) e.getValue());
+            }
+        }
+        assertThat(obj.toString(), equalTo("{\"k0\":0,\"k3\":-3,\"k6\":-6,\"k9\":-9}"));
+        assertThat(obj.get("k9"), equalTo(-9));
+    }
+
+    @Test
+    public void testSerializable() throws Exception {
+        CompactJsonObject obj = new CompactJsonObject();
+        for (int i = 0; i < 12; i++) {
+            obj.put("k" + i, "v" + i);
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(obj);
+        }
+        try (ObjectInputStream in =
+                new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            CompactJsonObject copy = (CompactJsonObject) in.readObject();
+            assertThat(copy, equalTo(obj));
+            assertThat(copy.get("k11"), equalTo("v11"));
+        }
+    }
+}
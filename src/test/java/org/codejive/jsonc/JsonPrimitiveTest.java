@@ -0,0 +1,80 @@
+package org.codejive.jsonc;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.codejive.jsonc.parser.JsonParser;
+import org.codejive.jsonc.parser.JsonParserConfig;
+import org.junit.jupiter.api.Test;
+
+public class JsonPrimitiveTest {
+
+    @Test
+    public void testConvertedValuesAreCached() {
+        JsonPrimitive l = new JsonPrimitive(JsonPrimitive.Type.INTEGER, "1234567");
+        assertThat(l.toLong(), equalTo(1234567L));
+        assertThat(l.value(), sameInstance(l.toLong()));
+        assertThat(l.toDouble(), equalTo(1234567.0));
+
+        JsonPrimitive d = new JsonPrimitive(JsonPrimitive.Type.REAL, "1.5e3");
+        assertThat(d.value(), sameInstance(d.value()));
+        assertThat(d.toDouble(), equalTo(1500.0));
+        assertThrows(NumberFormatException.class, d::toLong);
+
+        JsonPrimitive big = new JsonPrimitive(JsonPrimitive.Type.INTEGER, "12345678901234567890");
+        assertThat(big.toDouble(), equalTo(12345678901234567890.0));
+        assertThrows(NumberFormatException.class, big::toLong);
+
+        assertThat(new JsonPrimitive(42L).value(), equalTo(42L));
+        assertThat(new JsonPrimitive(0.25).toString(), equalTo("0.25"));
+        assertThat(new JsonPrimitive(JsonPrimitive.Type.STRING, "7").toLong(), equalTo(7L));
+        assertThat(new JsonPrimitive(JsonPrimitive.Type.NULL, "null").value(), equalTo(null));
+    }
+
+    @Test
+    public void testDerivedValues() {
+        JsonPrimitive raw = new JsonPrimitive(JsonPrimitive.Type.STRING, null, "a\\tb\\u00e9\\/");
+        assertThat(raw.toString(), equalTo("a\tbé/"));
+        assertThat(raw.toJSONString(), equalTo("\"a\\tb\\u00e9\\/\""));
+
+        JsonPrimitive decoded = new JsonPrimitive(JsonPrimitive.Type.STRING, "a\"b\n", null);
+        assertThat(decoded.toString(), equalTo("a\"b\n"));
+        assertThat(decoded.toJSONString(), equalTo("\"a\\\"b\\n\""));
+        assertThat(
+                decoded, equalTo(new JsonPrimitive(JsonPrimitive.Type.STRING, null, "a\\\"b\\n")));
+
+        assertThat(Jsonc.unescape("plain"), equalTo("plain"));
+        assertThat(Jsonc.unescape("\\b\\f\\n\\r\\t\\\"\\\\\\u4e2d"), equalTo("\b\f\n\r\t\"\\中"));
+    }
+
+    @Test
+    public void testEqualsAndHashCode() {
+        JsonPrimitive a = new JsonPrimitive(JsonPrimitive.Type.STRING, "x");
+        JsonPrimitive b = new JsonPrimitive(JsonPrimitive.Type.STRING, "x");
+        assertThat(a.hashCode(), equalTo(b.hashCode()));
+        assertThat(a, equalTo(b));
+        assertThat(a, not(equalTo(new JsonPrimitive(JsonPrimitive.Type.STRING, "y"))));
+        assertThat(
+                new JsonPrimitive(JsonPrimitive.Type.INTEGER, "1"),
+                not(equalTo(new JsonPrimitive(JsonPrimitive.Type.STRING, "1"))));
+        assertThat(Jsonc.number(3L), equalTo(new JsonPrimitive(JsonPrimitive.Type.INTEGER, "3")));
+    }
+
+    @Test
+    public void testSharedInstances() throws Exception {
+        assertThat(Jsonc.bool(true), sameInstance(Jsonc.bool(true)));
+        assertThat(Jsonc.nil(), sameInstance(Jsonc.nil()));
+        JsonArray arr = (JsonArray) new JsonParser().parse("[true, false, null]");
+        assertThat(arr.get(0), sameInstance(Jsonc.bool(true)));
+        assertThat(arr.get(1), sameInstance(Jsonc.bool(false)));
+        assertThat(arr.get(2), sameInstance(Jsonc.nil()));
+        // Missing values are nulls that have to be written back as nothing
+        JsonArray missing =
+                (JsonArray) new JsonParser(JsonParserConfig.lenientJson()).parse("[1,,2]");
+        assertThat(missing.get(1), not(sameInstance(Jsonc.nil())));
+        assertThat(missing.toJSONString(), equalTo("[1,,2]"));
+    }
+}
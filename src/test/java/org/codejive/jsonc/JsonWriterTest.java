@@ -0,0 +1,456 @@
+package org.codejive.jsonc;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayOutputStream;
+import java.io.StringWriter;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.codejive.jsonc.parser.JsonParser;
+import org.junit.jupiter.api.Test;
+
+public class JsonWriterTest {
+
+    @Test
+    public void testTokens() throws Exception {
+        StringWriter out = new StringWriter();
+        JsonWriter writer = JsonWriter.of(out);
+        writer.beginObject()
+                .name("id")
+                .value(42)
+                .name("pi")
+                .value(3.5)
+                .name("tags")
+                .beginArray()
+                .value("a")
+                .value(true)
+                .nullValue()
+                .beginObject()
+                .endObject()
+                .endArray()
+                .name("raw")
+                .jsonValue("[1,2]")
+                .name("none")
+                .value((String) null)
+                .endObject();
+        assertThat(writer.isComplete(), equalTo(true));
+        writer.flush();
+        assertThat(
+                out.toString(),
+                equalTo(
+                        "{\"id\":42,\"pi\":3.5,\"tags\":[\"a\",true,null,{}],\"raw\":[1,2],"
+                                + "\"none\":null}"));
+    }
+
+    @Test
+    public void testEscaping() throws Exception {
+        StringBuilder sb = new StringBuilder();
+        for (char c = 0; c < 0xFFFF; c++) {
+            sb.append(c);
+        }
+        String s = sb.toString();
+        String escaped = "\"" + escape(s) + "\"";
+        StringWriter out = new StringWriter();
+        JsonWriter writer = JsonWriter.of(out);
+        writer.beginObject().name(s).value(s).endObject().flush();
+        assertThat(out.toString(), equalTo("{" + escaped + ":" + escaped + "}"));
+        assertThat(Jsonc.escape(s), equalTo(escape(s)));
+
+        String clean = "nothing to escape here, é 中";
+        assertThat(Jsonc.escape(clean), sameInstance(clean));
+        assertThat(Jsonc.escape("a\u0001b\u2028"), equalTo("a\\u0001b\\u2028"));
+    }
+
+    @Test
+    public void testEscapeOptions() throws Exception {
+        String s = "a/b\u2028\u20ac\u0085\n";
+        StringWriter out = new StringWriter();
+        JsonWriter writer = JsonWriter.of(out).escapeSlashes(false).escapeSymbols(false);
+        writer.value(s).flush();
+        assertThat(out.toString(), equalTo("\"a/b\u2028\u20ac\\u0085\\n\""));
+        assertThat(writer.escapeSlashes(), equalTo(false));
+        assertThat(writer.escapeSymbols(), equalTo(false));
+
+        out.getBuffer().setLength(0);
+        writer.reset();
+        writer.escapeSlashes(true).value(s).flush();
+        assertThat(out.toString(), equalTo("\"a\\/b\u2028\u20ac\\u0085\\n\""));
+    }
+
+    @Test
+    public void testInvalidUse() throws Exception {
+        JsonWriter writer = JsonWriter.of(new StringWriter());
+        assertThrows(IllegalStateException.class, writer::endArray);
+        writer.beginObject();
+        assertThrows(IllegalStateException.class, () -> writer.value(1));
+        assertThrows(IllegalStateException.class, writer::endArray);
+        writer.name("a");
+        assertThrows(IllegalStateException.class, () -> writer.name("b"));
+        assertThrows(IllegalStateException.class, writer::endObject);
+        assertThrows(IllegalArgumentException.class, () -> writer.value(Double.NaN));
+        writer.value(1).endObject();
+        assertThrows(IllegalStateException.class, () -> writer.value(2));
+        assertThrows(IllegalStateException.class, writer::beginArray);
+    }
+
+    @Test
+    public void testReset() throws Exception {
+        StringWriter out = new StringWriter();
+        JsonWriter writer = JsonWriter.of(out);
+        writer.beginArray().value(1);
+        writer.reset();
+        assertThat(writer.isComplete(), equalTo(false));
+        writer.value("x").flush();
+        assertThat(out.toString(), equalTo("\"x\""));
+    }
+
+    @Test
+    public void testUtf8() throws Exception {
+        JsonObject obj = new JsonObject();
+        obj.put("ascii", Jsonc.string("plain text"));
+        obj.put("latin\u00e9", "caf\u00e9 \u00fc\u00df");
+        obj.put("cjk", "\u4e2d\u6587\u20ac\u2028");
+        obj.put("emoji", "\ud83d\ude00 x \ud83c\udf89");
+        obj.put("broken", "a\ud800b\udc00");
+        JsonArray arr = new JsonArray();
+        for (int i = 0; i < 2000; i++) {
+            arr.add(i % 3 == 0 ? "\u00e9\u4e2d\ud83d\ude00" : "value " + i);
+        }
+        obj.put("arr", arr);
+        byte[] expected = obj.toJSONString().getBytes(StandardCharsets.UTF_8);
+
+        assertThat(Jsonc.toJSONBytes(obj), equalTo(expected));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        obj.writeTo(out);
+        assertThat(out.toByteArray(), equalTo(expected));
+        out.reset();
+        JsonWriter.of(out).value(obj).flush();
+        assertThat(out.toByteArray(), equalTo(expected));
+
+        ByteBuffer bb = ByteBuffer.allocate(expected.length + 10);
+        bb.put((byte) ' ');
+        Jsonc.writeJSONBytes(obj, bb);
+        assertThat(bb.position(), equalTo(expected.length + 1));
+        assertThat(Arrays.copyOfRange(bb.array(), 1, bb.position()), equalTo(expected));
+
+        byte[] b = new byte[expected.length];
+        assertThat(Jsonc.writeJSONBytes(obj, b), equalTo(expected.length));
+        assertThat(b, equalTo(expected));
+        assertThrows(
+                BufferOverflowException.class,
+                () -> Jsonc.writeJSONBytes(obj, new byte[expected.length - 1]));
+    }
+
+    @Test
+    public void testLargeOutput() throws Exception {
+        JsonArray arr = new JsonArray();
+        char[] chars = new char[20000];
+        Arrays.fill(chars, 'x');
+        String large = new String(chars);
+        for (int i = 0; i < 3000; i++) {
+            arr.add(i % 1000 == 0 ? large : "value" + i);
+        }
+        StringWriter out = new StringWriter();
+        JsonWriter writer = JsonWriter.of(out);
+        writer.value(arr).flush();
+        assertThat(out.toString(), equalTo(Jsonc.toJSONString(arr)));
+        assertThat(
+                Jsonc.toJSONString(new JsonParser().parse(out.toString())),
+                equalTo(out.toString()));
+    }
+
+    @Test
+    public void testDeepNesting() throws Exception {
+        // Deeper than the call stack allows when every level takes a few frames
+        int depth = 5000;
+        Object value = Jsonc.number(1);
+        for (int i = 0; i < depth; i++) {
+            if (i % 2 == 0) {
+                value = new JsonArray(Collections.singletonList(value));
+            } else {
+                Map<String, Object> map = new LinkedHashMap<>();
+                map.put("a", value);
+                value = map;
+            }
+        }
+        StringBuilder expected = new StringBuilder();
+        for (int i = depth - 1; i >= 0; i--) {
+            expected.append(i % 2 == 0 ? "[" : "{\"a\":");
+        }
+        expected.append('1');
+        for (int i = 0; i < depth; i++) {
+            expected.append(i % 2 == 0 ? ']' : '}');
+        }
+        String json = expected.toString();
+        assertThat(Jsonc.toJSONString(value), equalTo(json));
+        assertThat(new String(Jsonc.toJSONBytes(value), StandardCharsets.UTF_8), equalTo(json));
+        String pretty =
+                Jsonc.toJSONString(value, JsonFormat.pretty().indent(1).inlineArrayWidth(80));
+        assertThat(pretty.replaceAll("\\s", ""), equalTo(json));
+        assertThat(new JsonParser().parseLazy(json).toString(), equalTo(json));
+    }
+
+    @Test
+    public void testDeepIndent() throws Exception {
+        // The indentation of the innermost lines is larger than the buffers of the writers
+        int depth = 1200;
+        Object value = Collections.emptyList();
+        for (int i = 0; i < depth; i++) {
+            value = Collections.singletonList(value);
+        }
+        JsonFormat format = JsonFormat.pretty().indent(8);
+        String expected = Jsonc.toJSONString(value, format);
+        assertThat(expected, containsString("\n" + spaces(8 * depth) + "[]"));
+
+        StringWriter out = new StringWriter();
+        Jsonc.writeJSONString(value, out, format);
+        assertThat(out.toString(), equalTo(expected));
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        JsonWriter writer = JsonWriter.of(bytes).format(format);
+        writer.value(value).flush();
+        assertThat(new String(bytes.toByteArray(), StandardCharsets.UTF_8), equalTo(expected));
+    }
+
+    @Test
+    public void testValues() throws Exception {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("d", Double.NaN);
+        map.put("f", 0.1f);
+        map.put("l", 12345678901L);
+        map.put("b", Boolean.FALSE);
+        map.put("s", "a\"b");
+        map.put("n", null);
+        map.put("p", Jsonc.string("q"));
+        map.put("longs", new JsonLongArray(new long[] {1, -2, Long.MIN_VALUE}));
+        map.put("doubles", new JsonDoubleArray(new double[] {0.5, -1e100, 3}));
+        assertThat(
+                Jsonc.toJSONString(map),
+                equalTo(
+                        "{\"d\":null,\"f\":0.1,\"l\":12345678901,\"b\":false,\"s\":\"a\\\"b\","
+                                + "\"n\":null,\"p\":\"q\",\"longs\":[1,-2,-9223372036854775808],"
+                                + "\"doubles\":[0.5,-1.0E100,3.0]}"));
+    }
+
+    @Test
+    public void testRawAndDecoded() throws Exception {
+        Object value = new JsonParser().parse("{\"k\":[\"a\\u00e9\\/b\"]}");
+        assertThat(Jsonc.toJSONString(value), equalTo("{\"k\":[\"a\\u00e9\\/b\"]}"));
+        assertThat(Jsonc.toString(value), equalTo("{\"k\":[\"aé/b\"]}"));
+        StringWriter out = new StringWriter();
+        Jsonc.writeJSONString(value, out, true);
+        assertThat(out.toString(), equalTo("{\"k\":[\"a\\u00e9\\/b\"]}"));
+    }
+
+    @Test
+    public void testPretty() throws Exception {
+        Object value =
+                new JsonParser()
+                        .parse(
+                                "{\"b\":[1,{\"x\":null,\"y\":[]}],\"a\":{},\"c\":\"s\",\"d\":[[true]]}");
+        assertThat(
+                Jsonc.toJSONString(value, JsonFormat.pretty().sortKeys(true)),
+                equalTo(
+                        "{\n"
+                                + "  \"a\": {},\n"
+                                + "  \"b\": [\n"
+                                + "    1,\n"
+                                + "    {\n"
+                                + "      \"x\": null,\n"
+                                + "      \"y\": []\n"
+                                + "    }\n"
+                                + "  ],\n"
+                                + "  \"c\": \"s\",\n"
+                                + "  \"d\": [\n"
+                                + "    [\n"
+                                + "      true\n"
+                                + "    ]\n"
+                                + "  ]\n"
+                                + "}"));
+        assertThat(
+                Jsonc.toJSONString(value, JsonFormat.compact()),
+                equalTo(Jsonc.toJSONString(value)));
+
+        JsonFormat format =
+                new JsonFormat().indent(4).newline("\r\n").sortKeys(true).inlineArrayWidth(20);
+        StringWriter out = new StringWriter();
+        Jsonc.writeJSONString(value, out, format);
+        assertThat(
+                out.toString(),
+                equalTo(
+                        "{\r\n"
+                                + "    \"a\":{},\r\n"
+                                + "    \"b\":[\r\n"
+                                + "        1,\r\n"
+                                + "        {\r\n"
+                                + "            \"x\":null,\r\n"
+                                + "            \"y\":[]\r\n"
+                                + "        }\r\n"
+                                + "    ],\r\n"
+                                + "    \"c\":\"s\",\r\n"
+                                + "    \"d\":[\r\n"
+                                + "        [true]\r\n"
+                                + "    ]\r\n"
+                                + "}"));
+
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("z", 1);
+        map.put("y", Collections.singletonMap("b", 2));
+        map.put("a", 3);
+        assertThat(
+                Jsonc.toJSONString(map, new JsonFormat().sortKeys(true)),
+                equalTo("{\"a\":3,\"y\":{\"b\":2},\"z\":1}"));
+        // Pooled writers go back to the compact form
+        assertThat(Jsonc.toJSONString(map), equalTo("{\"z\":1,\"y\":{\"b\":2},\"a\":3}"));
+    }
+
+    @Test
+    public void testPrettyTokens() throws Exception {
+        StringWriter out = new StringWriter();
+        JsonWriter writer = JsonWriter.of(out).format(JsonFormat.pretty().sortKeys(true));
+        writer.beginArray()
+                .beginObject()
+                .name("z")
+                .value(1)
+                .name("a")
+                .beginArray()
+                .endArray()
+                .endObject()
+                .value("x")
+                .endArray()
+                .flush();
+        assertThat(
+                out.toString(), equalTo("[\n  {\n    \"z\": 1,\n    \"a\": []\n  },\n  \"x\"\n]"));
+
+        // Deep enough to need more indentation than there is to begin with
+        out.getBuffer().setLength(0);
+        writer.reset();
+        for (int i = 0; i < 50; i++) {
+            writer.beginArray();
+        }
+        writer.value(0);
+        for (int i = 0; i < 50; i++) {
+            writer.endArray();
+        }
+        writer.flush();
+        assertThat(out.toString(), containsString("\n" + spaces(100) + "0\n" + spaces(98) + "]"));
+    }
+
+    @Test
+    public void testInlineArrays() throws Exception {
+        JsonFormat format = JsonFormat.pretty().inlineArrayWidth(16);
+        JsonArray arr = new JsonArray();
+        arr.add(new JsonLongArray(new long[] {1, 22, 333}));
+        arr.add(Arrays.asList(0.5, Double.NaN));
+        arr.add(Arrays.asList("ab", true));
+        arr.add(Arrays.asList("ab", null, true, 1));
+        arr.add(Arrays.asList("a\n\u0001", 1));
+        arr.add(Arrays.asList("a\n\u0001b", 1));
+        arr.add(new JsonLongArray(new long[] {1, 22, 333, 4444}));
+        arr.add(Arrays.asList(1, new JsonArray()));
+        arr.add(new JsonArray());
+        assertThat(
+                Jsonc.toJSONString(arr, format),
+                equalTo(
+                        "[\n"
+                                + "  [1, 22, 333],\n"
+                                + "  [0.5, null],\n"
+                                + "  [\"ab\", true],\n"
+                                + "  [\n"
+                                + "    \"ab\",\n"
+                                + "    null,\n"
+                                + "    true,\n"
+                                + "    1\n"
+                                + "  ],\n"
+                                + "  [\"a\\n\\u0001\", 1],\n"
+                                + "  [\n"
+                                + "    \"a\\n\\u0001b\",\n"
+                                + "    1\n"
+                                + "  ],\n"
+                                + "  [\n"
+                                + "    1,\n"
+                                + "    22,\n"
+                                + "    333,\n"
+                                + "    4444\n"
+                                + "  ],\n"
+                                + "  [\n"
+                                + "    1,\n"
+                                + "    []\n"
+                                + "  ],\n"
+                                + "  []\n"
+                                + "]"));
+    }
+
+    @Test
+    public void testFormatOptions() {
+        JsonFormat format = new JsonFormat();
+        assertThat(format.indent(), equalTo(0));
+        assertThat(format.newline(), equalTo("\n"));
+        assertThrows(IllegalArgumentException.class, () -> format.indent(-1));
+        assertThrows(IllegalArgumentException.class, () -> format.newline(" "));
+        assertThrows(IllegalArgumentException.class, () -> format.inlineArrayWidth(-1));
+    }
+
+    private static String spaces(int n) {
+        char[] c = new char[n];
+        Arrays.fill(c, ' ');
+        return new String(c);
+    }
+
+    // The way strings were escaped before there was a JsonWriter
+    private static String escape(String s) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < s.length(); i++) {
+            char ch = s.charAt(i);
+            switch (ch) {
+                case '"':
+                    sb.append("\\\"");
+                    break;
+                case '\\':
+                    sb.append("\\\\");
+                    break;
+                case '\b':
+                    sb.append("\\b");
+                    break;
+                case '\f':
+                    sb.append("\\f");
+                    break;
+                case '\n':
+                    sb.append("\\n");
+                    break;
+                case '\r':
+                    sb.append("\\r");
+                    break;
+                case '\t':
+                    sb.append("\\t");
+                    break;
+                case '/':
+                    sb.append("\\/");
+                    break;
+                default:
+                    if (ch <= 0x1F
+                            || (ch >= 0x7F && ch <= 0x9F)
+                            || (ch >= 0x2000 && ch <= 0x20FF)) {
+                        String ss = Integer.toHexString(ch);
+                        sb.append("\\u");
+                        for (int k = 0; k < 4 - ss.length(); k++) {
+                            sb.append('0');
+                        }
+                        sb.append(ss.toUpperCase());
+                    } else {
+                        sb.append(ch);
+                    }
+            }
+        }
+        return sb.toString();
+    }
+}
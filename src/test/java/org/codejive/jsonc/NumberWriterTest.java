@@ -0,0 +1,107 @@
+package org.codejive.jsonc;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+public class NumberWriterTest {
+
+    @Test
+    public void testLongs() {
+        long[] values = {
+            0,
+            1,
+            -1,
+            9,
+            10,
+            -99,
+            100,
+            12345,
+            Integer.MAX_VALUE,
+            Integer.MIN_VALUE,
+            Integer.MAX_VALUE + 1L,
+            999_999_999_999_999_999L,
+            1_000_000_000_000_000_000L,
+            Long.MAX_VALUE,
+            Long.MIN_VALUE
+        };
+        for (long l : values) {
+            assertThat(write(l), equalTo(Long.toString(l)));
+        }
+        Random rnd = new Random(42);
+        for (int i = 0; i < 100_000; i++) {
+            long l = rnd.nextLong() >> rnd.nextInt(64);
+            assertThat(write(l), equalTo(Long.toString(l)));
+        }
+    }
+
+    @Test
+    public void testDoubles() {
+        String[] values = {
+            "0.0",
+            "-0.0",
+            "1.0",
+            "-1.5",
+            "0.1",
+            "0.3",
+            "100.0",
+            "1234567.0",
+            "1.0E7",
+            "0.001",
+            "9.9E-4",
+            "3.141592653589793",
+            "1.0E23",
+            "2.82879384806159E17",
+            "4.9E-324",
+            "9.9E-324",
+            "1.7976931348623157E308",
+            "2.2250738585072014E-308",
+            "9.007199254740992E15",
+            "NaN",
+            "Infinity",
+            "-Infinity"
+        };
+        for (String s : values) {
+            assertThat(NumberWriter.toString(Double.parseDouble(s)), equalTo(s));
+        }
+    }
+
+    @Test
+    public void testShortestRoundTrip() {
+        Random rnd = new Random(42);
+        for (int i = 0; i < 200_000; i++) {
+            double d =
+                    i % 2 == 0
+                            ? Double.longBitsToDouble(rnd.nextLong())
+                            : rnd.nextDouble() * Math.pow(10, rnd.nextInt(30) - 10);
+            if (Double.isNaN(d) || Double.isInfinite(d)) {
+                continue;
+            }
+            String s = NumberWriter.toString(d);
+            assertThat(Double.parseDouble(s), equalTo(d));
+            // Older versions of Double.toString() sometimes write too many digits
+            assertThat(s.length(), lessThanOrEqualTo(Double.toString(d).length()));
+        }
+    }
+
+    @Test
+    public void testJsonValues() {
+        assertThat(Jsonc.number(0.1).toJSONString(), equalTo("0.1"));
+        assertThat(Jsonc.number(1e23).toJSONString(), equalTo("1.0E23"));
+        assertThat(Jsonc.number(-7L).toJSONString(), equalTo("-7"));
+        JsonArray arr = new JsonArray();
+        arr.add(1e23);
+        arr.add((short) 3);
+        arr.add(new JsonDoubleArray(new double[] {2.82879384806159E17}));
+        assertThat(Jsonc.toJSONString(arr), equalTo("[1.0E23,3,[2.82879384806159E17]]"));
+    }
+
+    private static String write(long l) {
+        char[] buf = new char[NumberWriter.MAX_LENGTH + 2];
+        int end = NumberWriter.write(l, buf, 2);
+        return new String(buf, 2, end - 2);
+    }
+}
@@ -0,0 +1,95 @@
+package org.codejive.jsonc;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.not;
+
+import java.util.Iterator;
+import java.util.List;
+import org.codejive.jsonc.parser.JsonParser;
+import org.codejive.jsonc.parser.JsonParserConfig;
+import org.junit.jupiter.api.Test;
+
+public class PrimitiveJsonArrayTest {
+    private final JsonParser parser =
+            new JsonParser(JsonParserConfig.defaults().numericArrays(true));
+    private final JsonParser plainParser = new JsonParser(JsonParserConfig.defaults());
+
+    @Test
+    public void testParseLongs() throws Exception {
+        String text = "[1, -2, 0, 9223372036854775807, -9223372036854775808]";
+        Object result = parser.parse(text);
+        assertThat(result, instanceOf(JsonLongArray.class));
+        JsonLongArray arr = (JsonLongArray) result;
+        assertThat(arr.isPrimitive(), equalTo(true));
+        assertThat(arr.getLong(3), equalTo(Long.MAX_VALUE));
+        assertThat(
+                arr.toLongArray(), equalTo(new long[] {1, -2, 0, Long.MAX_VALUE, Long.MIN_VALUE}));
+        assertThat(arr, equalTo(plainParser.parse(text)));
+        assertThat(plainParser.parse(text), equalTo(arr));
+        assertThat(arr.hashCode(), equalTo(plainParser.parse(text).hashCode()));
+        assertThat(arr.toString(), equalTo("[1,-2,0,9223372036854775807,-9223372036854775808]"));
+    }
+
+    @Test
+    public void testParseDoubles() throws Exception {
+        String text = "{\"a\": [1.5, -0.25, 1.0E10], \"b\": [1.5, 2], \"c\": [2, 1.5]}";
+        JsonObject obj = (JsonObject) parser.parse(text);
+        JsonDoubleArray a = (JsonDoubleArray) obj.get("a");
+        assertThat(a.isPrimitive(), equalTo(true));
+        assertThat(a.getDouble(2), equalTo(1.0E10));
+        assertThat(((JsonDoubleArray) obj.get("b")).isPrimitive(), equalTo(false));
+        assertThat(((JsonLongArray) obj.get("c")).isPrimitive(), equalTo(false));
+        assertThat(obj, equalTo(plainParser.parse(text)));
+        // Only the values of real numbers are kept
+        assertThat(parser.parse("[1.50, 1e3]").toString(), equalTo("[1.5,1000.0]"));
+    }
+
+    @Test
+    public void testFallback() throws Exception {
+        // Integers that would not be written back the same way, or mixed arrays
+        for (String text :
+                new String[] {
+                    "[1, \"x\"]",
+                    "[1, 01]",
+                    "[1, -0]",
+                    "[1, 9223372036854775808]",
+                    "[1.5, 2]",
+                    "[1, null, 2]"
+                }) {
+            Object result = parser.parse(text);
+            assertThat(text, ((PrimitiveJsonArray) result).isPrimitive(), equalTo(false));
+            assertThat(text, result, equalTo(plainParser.parse(text)));
+            assertThat(text, result.toString(), equalTo(plainParser.parse(text).toString()));
+        }
+        assertThat(parser.parse("[\"x\", 1]"), not(instanceOf(PrimitiveJsonArray.class)));
+        assertThat(parser.parse("[]"), not(instanceOf(PrimitiveJsonArray.class)));
+    }
+
+    @Test
+    public void testModify() throws Exception {
+        JsonLongArray arr = new JsonLongArray(new long[] {1, 2, 3, 4});
+        arr.add(5);
+        arr.add(0, new JsonPrimitive(JsonPrimitive.Type.INTEGER, "0"));
+        arr.remove(2);
+        arr.set(1, new JsonPrimitive(JsonPrimitive.Type.INTEGER, "-1"));
+        Iterator<Object> iter = arr.iterator();
+        while (iter.hasNext()) {
+            if (iter.next().toString().equals("4")) {
+                iter.remove();
+            }
+        }
+        assertThat(arr.isPrimitive(), equalTo(true));
+        assertThat(arr.toLongArray(), equalTo(new long[] {0, -1, 3, 5}));
+        assertThat(arr.indexOf(new JsonPrimitive(JsonPrimitive.Type.INTEGER, "5")), equalTo(3));
+
+        arr.add("x");
+        assertThat(arr.isPrimitive(), equalTo(false));
+        arr.add(6);
+        assertThat(arr.toString(), equalTo("[0,-1,3,5,\"x\",6]"));
+        assertThat(arr.getLong(5), equalTo(6L));
+        List<Object> sub = arr.subList(0, 2);
+        assertThat(sub.toString(), equalTo("[0, -1]"));
+    }
+}
@@ -0,0 +1,285 @@
+package org.codejive.jsonc.parser;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import org.junit.jupiter.api.Test;
+
+public class CharLexerTest {
+
+    @Test
+    public void testString() throws Exception {
+        testLexOk("\"\\/\"", string("/", "\\/"));
+    }
+
+    @Test
+    public void testEscapes() throws Exception {
+        testLexOk(
+                "\"abc\\/\\r\\b\\n\\t\\f\\\\\\u4e2d\"",
+                string("abc/\r\b\n\t\f\\中", "abc\\/\\r\\b\\n\\t\\f\\\\\\u4e2d"));
+    }
+
+    @Test
+    public void testEscapeInvalid() throws Exception {
+        testLexError("\"abc\\x\"", JsonParseException.ERROR_UNEXPECTED_CHAR, 'x', 4L);
+    }
+
+    @Test
+    public void testUnicodeEscapeInvalid() throws Exception {
+        testLexError("\"abc\\u12g4\"", JsonParseException.ERROR_UNEXPECTED_CHAR, 'u', 4L);
+    }
+
+    @Test
+    public void testEscapedNewline() throws Exception {
+        testLexError("\"abc\\\n\"", JsonParseException.ERROR_UNEXPECTED_CHAR, '\n', 4L);
+    }
+
+    @Test
+    public void testIntegerZero() throws Exception {
+        testLexOk("0", token(JsonLexer.INTEGER, "0"));
+    }
+
+    @Test
+    public void testIntegerPositive() throws Exception {
+        testLexOk("42", token(JsonLexer.INTEGER, "42"));
+    }
+
+    @Test
+    public void testIntegerNegative() throws Exception {
+        testLexOk("-123456789", token(JsonLexer.INTEGER, "-123456789"));
+    }
+
+    @Test
+    public void testReal() throws Exception {
+        testLexOk("4.2e-4", token(JsonLexer.REAL, "4.2e-4"));
+    }
+
+    @Test
+    public void testRealVariants() throws Exception {
+        testLexOk(
+                "[1.5,2E10,-3e+2,0.25]",
+                token(JsonLexer.LEFT_SQUARE, "["),
+                token(JsonLexer.REAL, "1.5"),
+                token(JsonLexer.ITEM_SEPARATOR, ","),
+                token(JsonLexer.REAL, "2E10"),
+                token(JsonLexer.ITEM_SEPARATOR, ","),
+                token(JsonLexer.REAL, "-3e+2"),
+                token(JsonLexer.ITEM_SEPARATOR, ","),
+                token(JsonLexer.REAL, "0.25"),
+                token(JsonLexer.RIGHT_SQUARE, "]"));
+    }
+
+    @Test
+    public void testIncompleteExponent() throws Exception {
+        testLexError("1e+]", JsonParseException.ERROR_UNEXPECTED_CHAR, 'e', 1L);
+    }
+
+    @Test
+    public void testMinusOnly() throws Exception {
+        testLexError("-a", JsonParseException.ERROR_UNEXPECTED_CHAR, '-', 0L);
+    }
+
+    @Test
+    public void testLiterals() throws Exception {
+        testLexOk(
+                "true false null",
+                token(JsonLexer.TRUE, "true"),
+                token(JsonLexer.FALSE, "false"),
+                token(JsonLexer.NULL, "null"));
+    }
+
+    @Test
+    public void testInvalidLiteral() throws Exception {
+        testLexError("[truth]", JsonParseException.ERROR_UNEXPECTED_CHAR, 't', 1L);
+    }
+
+    @Test
+    public void testBrackets() throws Exception {
+        testLexOk("[]", token(JsonLexer.LEFT_SQUARE, "["), token(JsonLexer.RIGHT_SQUARE, "]"));
+    }
+
+    @Test
+    public void testBraces() throws Exception {
+        testLexOk("{}", token(JsonLexer.LEFT_BRACE, "{"), token(JsonLexer.RIGHT_BRACE, "}"));
+    }
+
+    @Test
+    public void testWhitespace() throws Exception {
+        testLexOk("\t \f\n\r\n}", token(JsonLexer.RIGHT_BRACE, "}"));
+    }
+
+    @Test
+    public void testUnexpectedBackspace() throws Exception {
+        testLexError("\b{", JsonParseException.ERROR_UNEXPECTED_CHAR, '\b', 0L);
+    }
+
+    @Test
+    public void testInvalidValue() throws Exception {
+        testLexError("{a : b}", JsonParseException.ERROR_UNEXPECTED_CHAR, 'a', 1L);
+    }
+
+    @Test
+    public void testComments() throws Exception {
+        testLexOk(
+                JsonParserConfig.strictJsonc(),
+                "// line\n{ /* block\n * comment */ \"a\" /**/ : 1 // end",
+                token(JsonLexer.LEFT_BRACE, "{"),
+                string("a", "a"),
+                token(JsonLexer.PAIR_SEPARATOR, ":"),
+                token(JsonLexer.INTEGER, "1"));
+    }
+
+    @Test
+    public void testCommentsDisabled() throws Exception {
+        testLexError("{ // comment", JsonParseException.ERROR_UNEXPECTED_CHAR, '/', 2L);
+    }
+
+    @Test
+    public void testUnterminatedComment() throws Exception {
+        testLexError(
+                JsonParserConfig.strictJsonc(),
+                "{ /* comment",
+                JsonParseException.ERROR_UNEXPECTED_TOKEN,
+                "<EOF>",
+                12L);
+    }
+
+    @Test
+    public void testPosition() throws Exception {
+        CharLexer lexer = new CharLexer(JsonParserConfig.defaults());
+        lexer.reset("  [ \"abc\" ,12]");
+        lexer.next();
+        assertThat(lexer.getPosition(), equalTo(2L));
+        lexer.next();
+        assertThat(lexer.getPosition(), equalTo(4L));
+        lexer.next();
+        assertThat(lexer.getPosition(), equalTo(10L));
+        lexer.next();
+        assertThat(lexer.getPosition(), equalTo(11L));
+    }
+
+    @Test
+    public void testTokensAcrossRefills() throws Exception {
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < 5000; i++) {
+            sb.append("\"str\\u00e9ng").append(i).append("\",").append(i).append(".5e1,");
+        }
+        sb.append("true]");
+        CharLexer lexer = new CharLexer(JsonParserConfig.defaults());
+        lexer.reset(new OneCharReader(new StringReader(sb.toString())));
+        assertThat(lexer.next(), equalTo(JsonLexer.LEFT_SQUARE));
+        for (int i = 0; i < 5000; i++) {
+            assertThat(lexer.next(), equalTo(JsonLexer.STRING));
+            assertThat(lexer.value(), equalTo("stréng" + i));
+            assertThat(lexer.next(), equalTo(JsonLexer.ITEM_SEPARATOR));
+            assertThat(lexer.next(), equalTo(JsonLexer.REAL));
+            assertThat(lexer.value(), equalTo(i + ".5e1"));
+            assertThat(lexer.next(), equalTo(JsonLexer.ITEM_SEPARATOR));
+        }
+        assertThat(lexer.next(), equalTo(JsonLexer.TRUE));
+        assertThat(lexer.next(), equalTo(JsonLexer.RIGHT_SQUARE));
+        assertThat(lexer.next(), equalTo(JsonLexer.EOF));
+        assertThat(lexer.getPosition(), equalTo((long) sb.length()));
+    }
+
+    @Test
+    public void testLongString() throws Exception {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 100000; i++) {
+            sb.append((char) ('a' + i % 26));
+        }
+        CharLexer lexer = new CharLexer(JsonParserConfig.defaults());
+        lexer.reset(new StringReader("\"" + sb + "\""));
+        assertThat(lexer.next(), equalTo(JsonLexer.STRING));
+        assertThat(lexer.value(), equalTo(sb.toString()));
+    }
+
+    @Test
+    public void testSkip() throws Exception {
+        CharLexer lexer = new CharLexer(JsonParserConfig.defaults());
+        lexer.reset("[1, \"]\\\"[\", {\"a\": []}] 5");
+        assertThat(lexer.next(), equalTo(JsonLexer.LEFT_SQUARE));
+        lexer.startSkip();
+        assertThat(lexer.skip(), equalTo(JsonLexer.RIGHT_SQUARE));
+        assertThat(lexer.getPosition(), equalTo(21L));
+        assertThat(lexer.next(), equalTo(JsonLexer.INTEGER));
+        assertThat(lexer.value(), equalTo("5"));
+    }
+
+    private void testLexOk(String input, Object[]... expectedTokens) throws Exception {
+        testLexOk(JsonParserConfig.defaults(), input, expectedTokens);
+    }
+
+    private void testLexOk(JsonParserConfig config, String input, Object[]... expectedTokens)
+            throws Exception {
+        System.out.println("Lexing: " + input);
+        CharLexer lexer = new CharLexer(config);
+        lexer.reset(input);
+        for (Object[] expectedToken : expectedTokens) {
+            int token = lexer.next();
+            assertThat(token, equalTo(expectedToken[0]));
+            assertThat(lexer.value(), equalTo(expectedToken[1]));
+            assertThat(lexer.rawValue(), equalTo(expectedToken[2]));
+        }
+    }
+
+    private void testLexError(
+            String input, int expectedErrorType, Object unexpectedObject, long expectedPosition) {
+        testLexError(
+                JsonParserConfig.defaults(),
+                input,
+                expectedErrorType,
+                unexpectedObject,
+                expectedPosition);
+    }
+
+    private void testLexError(
+            JsonParserConfig config,
+            String input,
+            int expectedErrorType,
+            Object unexpectedObject,
+            long expectedPosition) {
+        System.out.println("Lexing: " + input);
+        CharLexer lexer = new CharLexer(config);
+        lexer.reset(input);
+        JsonParseException err = null;
+        try {
+            while (lexer.next() != JsonLexer.EOF) {}
+        } catch (JsonParseException e) {
+            err = e;
+            System.out.println("expected error:" + err);
+            assertThat(e.getErrorType(), equalTo(expectedErrorType));
+            assertThat(e.getMessage(), containsString(unexpectedObject.toString()));
+            assertThat(e.getPosition(), equalTo(expectedPosition));
+        } catch (IOException ie) {
+            throw new RuntimeException(ie);
+        }
+        assertTrue(err != null);
+    }
+
+    private static Object[] token(int token, String value) {
+        return new Object[] {token, value, value};
+    }
+
+    private static Object[] string(String value, String rawValue) {
+        return new Object[] {JsonLexer.STRING, value, rawValue};
+    }
+
+    /** Reader that returns at most one character per read, to exercise buffer refills. */
+    static class OneCharReader extends FilterReader {
+        OneCharReader(Reader in) {
+            super(in);
+        }
+
+        @Override
+        public int read(char[] cbuf, int off, int len) throws IOException {
+            return super.read(cbuf, off, Math.min(len, 1));
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package org.codejive.jsonc.parser;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.codejive.jsonc.JsonArray;
+import org.codejive.jsonc.JsonObject;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class JsonParserPoolTest {
+
+    @Test
+    public void testParsersAreReused() {
+        JsonParserPool pool = new JsonParserPool(JsonParserConfig.defaults(), 2);
+        JsonParser p1 = pool.acquire();
+        JsonParser p2 = pool.acquire();
+        JsonParser p3 = pool.acquire();
+        assertThat(pool.idle(), equalTo(0));
+        pool.release(p1);
+        pool.release(p2);
+        pool.release(p3);
+        assertThat(pool.idle(), equalTo(2));
+        assertThat(pool.acquire(), sameInstance(p1));
+        assertThat(pool.acquire(), sameInstance(p2));
+        assertThat(pool.acquire(), not(sameInstance(p3)));
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> new JsonParserPool(JsonParserConfig.defaults(), 0));
+    }
+
+    @Test
+    public void testReleasedParsersParseAgain() throws Exception {
+        StringBuilder large = new StringBuilder("[");
+        for (int i = 0; i < 10000; i++) {
+            large.append(i > 0 ? "," : "").append("{\"id\":").append(i).append("}");
+        }
+        String big = large.append("]").toString();
+
+        JsonParserPool pool = new JsonParserPool(JsonParserConfig.defaults(), 1);
+        for (String s : new String[] {"[1,2]", big, "{\"a\":\"b\"}", big, "[3]"}) {
+            Object expected = new JsonParser().parse(s);
+            assertThat(pool.parse(s), equalTo(expected));
+            assertThat(pool.parse(new StringReader(s)), equalTo(expected));
+            assertThat(pool.parse(s.getBytes(StandardCharsets.UTF_8)), equalTo(expected));
+        }
+        assertThat(pool.idle(), equalTo(1));
+    }
+
+    @Test
+    public void testParseFile(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("test.json");
+        Files.write(file, "{\"a\":[1,2]}".getBytes(StandardCharsets.UTF_8));
+        JsonParserPool pool = new JsonParserPool(JsonParserConfig.defaults(), 1);
+        Object expected = new JsonParser().parse(file);
+        assertThat(pool.parse(file), equalTo(expected));
+        assertThat(pool.parse(file), equalTo(expected));
+        assertThat(pool.idle(), equalTo(1));
+        Files.write(file, "[1,2".getBytes(StandardCharsets.UTF_8));
+        assertThrows(JsonParseException.class, () -> pool.parse(file));
+        assertThat(pool.idle(), equalTo(1));
+    }
+
+    @Test
+    public void testErrorsDontBreakParsers() throws Exception {
+        JsonParserPool pool = new JsonParserPool(JsonParserConfig.defaults(), 1);
+        assertThrows(JsonParseException.class, () -> pool.parse("{\"a\":[1,2"));
+        assertThrows(JsonParseException.class, () -> pool.parse("[1,2]]".getBytes()));
+        assertThat(pool.idle(), equalTo(1));
+        JsonObject obj = (JsonObject) pool.parse("{\"a\":[1,2]}");
+        assertThat(((JsonArray) obj.get("a")).size(), equalTo(2));
+    }
+
+    @Test
+    public void testConcurrentUse() throws Exception {
+        JsonParserPool pool = new JsonParserPool();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                int n = t;
+                results.add(
+                        executor.submit(
+                                () -> {
+                                    for (int i = 0; i < 500; i++) {
+                                        String s = "{\"t\":" + n + ",\"i\":[" + i + "]}";
+                                        if (!pool.parse(s).equals(new JsonParser().parse(s))) {
+                                            return false;
+                                        }
+                                    }
+                                    return true;
+                                }));
+            }
+            for (Future<Boolean> result : results) {
+                assertThat(result.get(), equalTo(true));
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -1,13 +1,26 @@
 package org.codejive.jsonc.parser;
 
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.stream.Stream;
+import org.codejive.jsonc.JsonArray;
+import org.codejive.jsonc.JsonObject;
+import org.codejive.jsonc.JsonPrimitive;
+import org.codejive.jsonc.Jsonc;
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.MethodSource;
 
@@ -46,6 +59,333 @@ public class JsonParserTest {
         System.out.println("Result (" + result.getClass() + ") = " + result);
     }
 
+    @ParameterizedTest
+    @MethodSource("jsonOrgPassPathProvider")
+    public void jsonOrgPassFilesLegacyLexer(Path testFile) throws IOException, JsonParseException {
+        Object result =
+                (new JsonParser(JsonParserConfig.strictJson().legacyLexer(true)))
+                        .parse(Files.newBufferedReader(jsonOrgRoot().resolve(testFile)));
+        Object expected =
+                (new JsonParser(JsonParserConfig.strictJson()))
+                        .parse(Files.newBufferedReader(jsonOrgRoot().resolve(testFile)));
+        assertThat(result, equalTo(expected));
+    }
+
+    @ParameterizedTest
+    @MethodSource("jsonOrgPassPathProvider")
+    public void jsonOrgPassFilesBytes(Path testFile) throws IOException, JsonParseException {
+        Path file = jsonOrgRoot().resolve(testFile);
+        Object expected =
+                (new JsonParser(JsonParserConfig.strictJson()))
+                        .parse(Files.newBufferedReader(file));
+        Object fromBytes =
+                (new JsonParser(JsonParserConfig.strictJson())).parse(Files.readAllBytes(file));
+        assertThat(fromBytes, equalTo(expected));
+        try (InputStream in = Files.newInputStream(file)) {
+            Object fromStream = (new JsonParser(JsonParserConfig.strictJson())).parse(in);
+            assertThat(fromStream, equalTo(expected));
+        }
+        Object fromFile = (new JsonParser(JsonParserConfig.strictJson())).parse(file);
+        assertThat(fromFile, equalTo(expected));
+    }
+
+    @ParameterizedTest
+    @MethodSource("jsonOrgPassPathProvider")
+    public void jsonOrgPassFilesPresized(Path testFile) throws IOException, JsonParseException {
+        Path file = jsonOrgRoot().resolve(testFile);
+        Object expected =
+                (new JsonParser(JsonParserConfig.strictJson()))
+                        .parse(Files.newBufferedReader(file));
+        JsonParser parser = new JsonParser(JsonParserConfig.strictJson().presizeContainers(true));
+        assertThat(parser.parse(Files.readAllBytes(file)), equalTo(expected));
+        assertThat(
+                parser.parse(new String(Files.readAllBytes(file), StandardCharsets.UTF_8)),
+                equalTo(expected));
+        assertThat(parser.parse(Files.newBufferedReader(file)), equalTo(expected));
+    }
+
+    @ParameterizedTest
+    @MethodSource("lenientJsonPathProvider")
+    public void lenientPassFilesPresized(Path testFile) throws IOException, JsonParseException {
+        Path file = lenientJsonRoot().resolve(testFile);
+        Object expected =
+                (new JsonParser(JsonParserConfig.lenientJson()))
+                        .parse(Files.newBufferedReader(file));
+        JsonParser parser = new JsonParser(JsonParserConfig.lenientJson().presizeContainers(true));
+        assertThat(parser.parse(Files.readAllBytes(file)), equalTo(expected));
+    }
+
+    @ParameterizedTest
+    @MethodSource("jsonOrgPassPathProvider")
+    public void jsonOrgPassFilesNumericArrays(Path testFile)
+            throws IOException, JsonParseException {
+        Path file = jsonOrgRoot().resolve(testFile);
+        Object expected =
+                (new JsonParser(JsonParserConfig.strictJson()))
+                        .parse(Files.newBufferedReader(file));
+        JsonParser parser = new JsonParser(JsonParserConfig.strictJson().numericArrays(true));
+        assertThat(parser.parse(Files.readAllBytes(file)), equalTo(expected));
+    }
+
+    @Test
+    public void presizedCapacities() throws JsonParseException {
+        List<String> capacities = new ArrayList<>();
+        TypeFactory typeFactory =
+                new JsonParser.DefaultTypeFactory() {
+                    @Override
+                    public JsonObject createObjectContainer(int capacity) {
+                        capacities.add("{" + capacity);
+                        return super.createObjectContainer(capacity);
+                    }
+
+                    @Override
+                    public JsonArray createArrayContainer(int capacity) {
+                        capacities.add("[" + capacity);
+                        return super.createArrayContainer(capacity);
+                    }
+                };
+        JsonParser parser = new JsonParser(JsonParserConfig.defaults().presizeContainers(true));
+        Object result = parser.parse("[1, {\"a\": [], \"b\": [2, 3, [4]]}, 5]", typeFactory);
+        assertThat(capacities, equalTo(Arrays.asList("[0", "[1", "[3", "{2", "[3")));
+        assertThat(result, equalTo(parser.parse("[1, {\"a\": [], \"b\": [2, 3, [4]]}, 5]")));
+    }
+
+    @ParameterizedTest
+    @MethodSource("jsoncPathProvider")
+    public void jsoncPassFiles(Path testFile) throws IOException, JsonParseException {
+        Object result =
+                (new JsonParser(JsonParserConfig.strictJsonc()))
+                        .parse(Files.newBufferedReader(jsoncRoot().resolve(testFile)));
+        System.out.println("Result (" + result.getClass() + ") = " + result);
+        assertThrows(
+                JsonParseException.class,
+                () ->
+                        (new JsonParser(JsonParserConfig.strictJson()))
+                                .parse(Files.newBufferedReader(jsoncRoot().resolve(testFile))));
+    }
+
+    @ParameterizedTest
+    @MethodSource("jsonOrgPassPathProvider")
+    public void jsonOrgPassFilesFed(Path testFile) throws IOException, JsonParseException {
+        testFed(JsonParserConfig.strictJson(), jsonOrgRoot().resolve(testFile));
+    }
+
+    @ParameterizedTest
+    @MethodSource("lenientJsonPathProvider")
+    public void lenientPassFilesFed(Path testFile) throws IOException, JsonParseException {
+        testFed(JsonParserConfig.lenientJson(), lenientJsonRoot().resolve(testFile));
+    }
+
+    @Test
+    public void feedSplitTokens() throws IOException, JsonParseException {
+        String json = "{\"k\u00e9y\": [\"h\u00e9llo 中文 😀\", -12.5e3, 123456789, true, null]}";
+        byte[] b = json.getBytes(StandardCharsets.UTF_8);
+        Object expected = new JsonParser().parse(json);
+        for (int split = 1; split < b.length; split++) {
+            JsonParser.DefaultContentHandler dch =
+                    new JsonParser.DefaultContentHandler(new JsonParser.DefaultTypeFactory());
+            JsonParser parser = new JsonParser();
+            parser.startFeed(dch);
+            parser.feed(b, 0, split);
+            parser.feed(ByteBuffer.wrap(b, split, b.length - split));
+            parser.endOfInput();
+            assertThat(dch.getResult(), equalTo(expected));
+        }
+    }
+
+    @Test
+    public void feedLargeString() throws IOException, JsonParseException {
+        String unit = "QUJDREVGR0hJSktMTU5PUFFSU1RVVldYWVo=\\n\\u00e9\u00e9\\\"/";
+        StringBuilder small = new StringBuilder("[\"");
+        for (int i = 0; i < 3; i++) {
+            small.append(unit);
+        }
+        assertFedInChunks(small.append("\"]").toString(), 1);
+
+        // Strings that are cut short continue where they were, so this doesn't take quadratic time
+        StringBuilder large = new StringBuilder("{\"data\": \"");
+        while (large.length() < 8_000_000) {
+            large.append(unit);
+        }
+        String json = large.append("\"}").toString();
+        assertFedInChunks(json, 1000);
+        assertFedInChunks(json, 1024);
+    }
+
+    private static void assertFedInChunks(String json, int chunkSize)
+            throws IOException, JsonParseException {
+        byte[] b = json.getBytes(StandardCharsets.UTF_8);
+        JsonParser.DefaultContentHandler dch =
+                new JsonParser.DefaultContentHandler(new JsonParser.DefaultTypeFactory());
+        JsonParser parser = new JsonParser();
+        parser.startFeed(dch);
+        for (int off = 0; off < b.length; off += chunkSize) {
+            parser.feed(b, off, Math.min(chunkSize, b.length - off));
+        }
+        parser.endOfInput();
+        assertThat(dch.getResult(), equalTo(new JsonParser().parse(b)));
+    }
+
+    @Test
+    public void feedFiresEventsEarly() throws IOException, JsonParseException {
+        List<String> events = new ArrayList<>();
+        JsonParser parser = new JsonParser();
+        parser.startFeed(new EventRecorder(events));
+        parser.feed("[1, {\"a\": \"b".getBytes(StandardCharsets.UTF_8));
+        assertThat(
+                events,
+                equalTo(Arrays.asList("startJSON", "startArray", "1", "startObject", "key a")));
+        parser.feed("\"}".getBytes(StandardCharsets.UTF_8));
+        assertThat(
+                events.subList(5, events.size()),
+                equalTo(Arrays.asList("b", "endEntry", "endObject")));
+        parser.feed("]".getBytes(StandardCharsets.UTF_8));
+        assertThat(events.get(events.size() - 1), equalTo("endArray"));
+        parser.endOfInput();
+        assertThat(events.get(events.size() - 1), equalTo("endJSON"));
+    }
+
+    @Test
+    public void feedIncompleteInput() throws IOException, JsonParseException {
+        JsonParser parser = new JsonParser();
+        parser.startFeed(new EventRecorder(new ArrayList<>()));
+        parser.feed("{\"a\": \"b\\u00".getBytes(StandardCharsets.UTF_8));
+        assertThrows(JsonParseException.class, parser::endOfInput);
+    }
+
+    @Test
+    public void skipFromHandler() throws IOException, JsonParseException {
+        String json =
+                "{\"a\": 1, \"skip\": {\"x\": \"}]\\\"\", /* ] */ \"y\": [1, {\"z\": 2}]},"
+                        + " \"arr\": [1, [2]], \"b\": true}";
+        List<String> expected =
+                Arrays.asList(
+                        "startJSON",
+                        "startObject",
+                        "key a",
+                        "1",
+                        "endEntry",
+                        "key skip",
+                        "endEntry",
+                        "key arr",
+                        "startArray",
+                        "endArray",
+                        "endEntry",
+                        "key b",
+                        "true",
+                        "endEntry",
+                        "endObject",
+                        "endJSON");
+        JsonParserConfig config = JsonParserConfig.strictJsonc();
+        byte[] b = json.getBytes(StandardCharsets.UTF_8);
+
+        List<String> events = new ArrayList<>();
+        JsonParser parser = new JsonParser(config);
+        parser.parse(json, new SkippingRecorder(events, parser));
+        assertThat(events, equalTo(expected));
+
+        events = new ArrayList<>();
+        parser = new JsonParser(config);
+        parser.parse(b, new SkippingRecorder(events, parser));
+        assertThat(events, equalTo(expected));
+
+        events = new ArrayList<>();
+        parser = new JsonParser(config);
+        parser.startFeed(new SkippingRecorder(events, parser));
+        for (int i = 0; i < b.length; i++) {
+            parser.feed(b, i, 1);
+        }
+        parser.endOfInput();
+        assertThat(events, equalTo(expected));
+    }
+
+    @Test
+    public void skipUnterminated() throws IOException, JsonParseException {
+        JsonParser parser = new JsonParser();
+        assertThrows(
+                JsonParseException.class,
+                () ->
+                        parser.parse(
+                                "{\"skip\": [1, [2]",
+                                new SkippingRecorder(new ArrayList<>(), parser)));
+    }
+
+    @Test
+    public void skipAtWrongTime() {
+        JsonParser parser = new JsonParser();
+        assertThrows(IllegalStateException.class, parser::skip);
+    }
+
+    @Test
+    public void deepNesting() throws Exception {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 500; i++) {
+            sb.append(i % 2 == 0 ? "[1," : "{\"k\":");
+        }
+        sb.append("true");
+        for (int i = 499; i >= 0; i--) {
+            sb.append(i % 2 == 0 ? "]" : "}");
+        }
+        String doc = sb.toString();
+        assertThat(Jsonc.toJSONString(new JsonParser().parse(doc)), equalTo(doc));
+        JsonParser parser = new JsonParser();
+        Object bytes = parser.parse(doc.getBytes(StandardCharsets.UTF_8));
+        assertThat(Jsonc.toJSONString(bytes), equalTo(doc));
+        // The same parser again, now for a document that ends too early
+        assertThrows(JsonParseException.class, () -> parser.parse(doc.substring(0, 700)));
+        assertThat(parser.parse("{\"a\": [{}]}"), equalTo(new JsonParser().parse("{\"a\":[{}]}")));
+    }
+
+    @Test
+    public void stringValues() throws Exception {
+        String doc = "[\"caf\\u00e9\", \"a\\nb\\/c\", \"plain\", {\"k\\t\": \"x\\\"y\"}]";
+        byte[] bytes = doc.getBytes(StandardCharsets.UTF_8);
+        List<String> expected = Arrays.asList("café", "a\nb/c", "plain", "x\"y");
+        JsonArray both = (JsonArray) new JsonParser().parse(doc);
+        for (JsonParserConfig.StringValues mode : JsonParserConfig.StringValues.values()) {
+            JsonParserConfig config = JsonParserConfig.defaults().stringValues(mode);
+            for (Object result :
+                    Arrays.asList(
+                            new JsonParser(config).parse(doc),
+                            new JsonParser(config).parse(bytes),
+                            new JsonParser(config).parseLazy(bytes),
+                            new JsonParser(config.legacyLexer(true)).parse(doc))) {
+                JsonArray arr = (JsonArray) result;
+                JsonObject obj = (JsonObject) arr.get(3);
+                List<String> values =
+                        Arrays.asList(
+                                arr.get(0).toString(),
+                                arr.get(1).toString(),
+                                arr.get(2).toString(),
+                                obj.get("k\t").toString());
+                assertThat(values, equalTo(expected));
+                if (mode != JsonParserConfig.StringValues.DECODED) {
+                    assertThat(arr.toJSONString(), equalTo(both.toJSONString()));
+                }
+                config.legacyLexer(false);
+            }
+            JsonTape tape = new JsonParser(config).parseTape(bytes);
+            assertThat(tape.asString(tape.get(tape.root(), 0)), equalTo("café"));
+        }
+    }
+
+    private void testFed(JsonParserConfig config, Path file)
+            throws IOException, JsonParseException {
+        Object expected = (new JsonParser(config)).parse(Files.newBufferedReader(file));
+        byte[] b = Files.readAllBytes(file);
+        for (int chunkSize : new int[] {1, 7, 4096}) {
+            JsonParser.DefaultContentHandler dch =
+                    new JsonParser.DefaultContentHandler(new JsonParser.DefaultTypeFactory());
+            JsonParser parser = new JsonParser(config);
+            parser.startFeed(dch);
+            for (int off = 0; off < b.length; off += chunkSize) {
+                parser.feed(b, off, Math.min(chunkSize, b.length - off));
+            }
+            parser.endOfInput();
+            assertThat(dch.getResult(), equalTo(expected));
+        }
+    }
+
     static Stream<Path> jsonOrgPassPathProvider() {
         return pathProvider(jsonOrgRoot())
                 .filter(p -> p.getFileName().toString().startsWith("pass"));
@@ -61,10 +401,18 @@ public class JsonParserTest {
                 .filter(p -> p.getFileName().toString().startsWith("pass"));
     }
 
+    static Stream<Path> jsoncPathProvider() {
+        return pathProvider(jsoncRoot()).filter(p -> p.getFileName().toString().startsWith("pass"));
+    }
+
     static Path jsonOrgRoot() {
         return resourceRoot("json_org_test_suite");
     }
 
+    static Path jsoncRoot() {
+        return resourceRoot("jsonc");
+    }
+
     static Path lenientJsonRoot() {
         return resourceRoot("lenient_json");
     }
@@ -85,4 +433,83 @@ public class JsonParserTest {
             throw new RuntimeException(e);
         }
     }
+
+    /** Skips all arrays and the values of entries with the key "skip". */
+    static class SkippingRecorder extends EventRecorder {
+        private final JsonParser parser;
+
+        SkippingRecorder(List<String> events, JsonParser parser) {
+            super(events);
+            this.parser = parser;
+        }
+
+        @Override
+        public boolean startObjectEntry(String key) {
+            if (key.equals("skip")) {
+                parser.skip();
+            }
+            return super.startObjectEntry(key);
+        }
+
+        @Override
+        public boolean startArray(Status status) {
+            parser.skip();
+            return super.startArray(status);
+        }
+    }
+
+    /** Records the events it receives as short descriptive strings. */
+    static class EventRecorder implements ContentHandler {
+        private final List<String> events;
+
+        EventRecorder(List<String> events) {
+            this.events = events;
+        }
+
+        @Override
+        public void startJSON() {
+            events.add("startJSON");
+        }
+
+        @Override
+        public void endJSON() {
+            events.add("endJSON");
+        }
+
+        @Override
+        public boolean startObject(Status status) {
+            return events.add("startObject");
+        }
+
+        @Override
+        public boolean endObject(Status status) {
+            return events.add("endObject");
+        }
+
+        @Override
+        public boolean startObjectEntry(String key) {
+            return events.add("key " + key);
+        }
+
+        @Override
+        public boolean endObjectEntry() {
+            return events.add("endEntry");
+        }
+
+        @Override
+        public boolean startArray(Status status) {
+            return events.add("startArray");
+        }
+
+        @Override
+        public boolean endArray(Status status) {
+            return events.add("endArray");
+        }
+
+        @Override
+        public boolean primitive(
+                Status status, JsonPrimitive.Type type, String value, String rawValue) {
+            return events.add(value);
+        }
+    }
 }
@@ -0,0 +1,150 @@
+package org.codejive.jsonc.parser;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.codejive.jsonc.JsonArray;
+import org.codejive.jsonc.JsonObject;
+import org.codejive.jsonc.JsonPrimitive;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+public class JsonReaderTest {
+
+    @Test
+    public void testEvents() throws Exception {
+        JsonReader reader = new JsonReader("{\"a\": [1, 2.5, \"x\", true, null], \"b\": {}}");
+        assertThat(reader.next(), equalTo(JsonReader.Event.START_OBJECT));
+        assertThat(reader.next(), equalTo(JsonReader.Event.KEY));
+        assertThat(reader.getString(), equalTo("a"));
+        assertThat(reader.next(), equalTo(JsonReader.Event.START_ARRAY));
+        assertThat(reader.next(), equalTo(JsonReader.Event.VALUE));
+        assertThat(reader.getType(), equalTo(JsonPrimitive.Type.INTEGER));
+        assertThat(reader.getLong(), equalTo(1L));
+        assertThat(reader.next(), equalTo(JsonReader.Event.VALUE));
+        assertThat(reader.getDouble(), equalTo(2.5));
+        assertThat(reader.next(), equalTo(JsonReader.Event.VALUE));
+        assertThat(reader.getString(), equalTo("x"));
+        assertThat(reader.next(), equalTo(JsonReader.Event.VALUE));
+        assertThat(reader.getBoolean(), equalTo(true));
+        assertThat(reader.next(), equalTo(JsonReader.Event.VALUE));
+        assertThat(reader.isNull(), equalTo(true));
+        assertThat(reader.next(), equalTo(JsonReader.Event.END_ARRAY));
+        assertThat(reader.nextKey(), equalTo("b"));
+        reader.beginObject();
+        reader.endObject();
+        reader.endObject();
+        assertThat(reader.next(), equalTo(JsonReader.Event.END_JSON));
+        assertThat(reader.next(), equalTo(JsonReader.Event.END_JSON));
+    }
+
+    @Test
+    public void testPeek() throws Exception {
+        JsonReader reader = new JsonReader("[\"a\", 42]");
+        reader.beginArray();
+        assertThat(reader.next(), equalTo(JsonReader.Event.VALUE));
+        assertThat(reader.peek(), equalTo(JsonReader.Event.VALUE));
+        assertThat(reader.getString(), equalTo("a"));
+        assertThat(reader.next(), equalTo(JsonReader.Event.VALUE));
+        assertThat(reader.getLong(), equalTo(42L));
+        reader.endArray();
+    }
+
+    @Test
+    public void testSkipValue() throws Exception {
+        JsonReader reader =
+                new JsonReader(
+                        "{\"skip\": {\"x\": [1, {\"y\": 2}]}, \"arr\": [[3], 4], \"id\": 7}");
+        reader.beginObject();
+        reader.skipValue();
+        assertThat(reader.nextKey(), equalTo("arr"));
+        reader.beginArray();
+        reader.skipValue();
+        assertThat(reader.next(), equalTo(JsonReader.Event.VALUE));
+        assertThat(reader.getLong(), equalTo(4L));
+        reader.endArray();
+        assertThat(reader.nextKey(), equalTo("id"));
+        assertThat(reader.next(), equalTo(JsonReader.Event.VALUE));
+        assertThat(reader.getLong(), equalTo(7L));
+        reader.endObject();
+    }
+
+    @Test
+    public void testUnexpectedEvent() throws Exception {
+        JsonReader reader = new JsonReader("[1]");
+        assertThrows(JsonParseException.class, reader::beginObject);
+    }
+
+    @Test
+    public void testInvalidInput() throws Exception {
+        JsonReader reader = new JsonReader("[1 : 2]");
+        reader.beginArray();
+        reader.next();
+        assertThrows(JsonParseException.class, reader::next);
+    }
+
+    @Test
+    public void testLenientConfig() throws Exception {
+        JsonReader reader = new JsonReader("[1,,2,]", JsonParserConfig.lenientJson());
+        reader.beginArray();
+        reader.next();
+        reader.next();
+        assertThat(reader.isNull(), equalTo(true));
+        reader.next();
+        assertThat(reader.getLong(), equalTo(2L));
+        reader.endArray();
+        assertThrows(
+                JsonParseException.class,
+                () -> {
+                    JsonReader strict = new JsonReader("[1,,2,]", JsonParserConfig.strictJson());
+                    strict.beginArray();
+                    strict.next();
+                    strict.next();
+                });
+    }
+
+    @ParameterizedTest
+    @MethodSource("org.codejive.jsonc.parser.JsonParserTest#jsonOrgPassPathProvider")
+    public void jsonOrgPassFiles(Path testFile) throws IOException, JsonParseException {
+        Path file = JsonParserTest.jsonOrgRoot().resolve(testFile);
+        Object expected =
+                (new JsonParser(JsonParserConfig.strictJson()))
+                        .parse(Files.newBufferedReader(file));
+        try (InputStream in = Files.newInputStream(file)) {
+            JsonReader reader = new JsonReader(in, JsonParserConfig.strictJson());
+            assertThat(readValue(reader), equalTo(expected));
+            assertThat(reader.next(), equalTo(JsonReader.Event.END_JSON));
+        }
+    }
+
+    private static Object readValue(JsonReader reader) throws IOException, JsonParseException {
+        switch (reader.next()) {
+            case START_OBJECT:
+                JsonObject obj = new JsonObject();
+                while (reader.peek() != JsonReader.Event.END_OBJECT) {
+                    String key = reader.nextKey();
+                    obj.put(key, readValue(reader));
+                }
+                reader.endObject();
+                return obj;
+            case START_ARRAY:
+                JsonArray arr = new JsonArray();
+                while (reader.peek() != JsonReader.Event.END_ARRAY) {
+                    arr.add(readValue(reader));
+                }
+                reader.endArray();
+                return arr;
+            case VALUE:
+                return new JsonPrimitive(
+                        reader.getType(), reader.getString(), reader.getRawString());
+            default:
+                throw new IllegalStateException("Unexpected event " + reader.getEvent());
+        }
+    }
+}
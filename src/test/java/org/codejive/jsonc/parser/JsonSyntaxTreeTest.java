@@ -0,0 +1,225 @@
+package org.codejive.jsonc.parser;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.StringWriter;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.codejive.jsonc.Jsonc;
+import org.junit.jupiter.api.Test;
+
+public class JsonSyntaxTreeTest {
+    private static final String CONFIG =
+            "// Server settings\n"
+                    + "{\n"
+                    + "  /* The address to listen on */\n"
+                    + "  \"host\": \"localhost\", // or 0.0.0.0\n"
+                    + "  \"port\": 8080,\n"
+                    + "\n"
+                    + "  // Enabled plugins\n"
+                    + "  \"plugins\": [\"auth\", \"cache\"],\n"
+                    + "  \"limits\": {\n"
+                    + "    \"connections\": 100 // per host\n"
+                    + "  }\n"
+                    + "}\n";
+
+    private static JsonSyntaxTree parse(String text) throws JsonParseException {
+        return new JsonParser(JsonParserConfig.lenientJsonc()).parseSyntaxTree(text);
+    }
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        String[] texts = {
+            CONFIG,
+            "[]",
+            "  { }  ",
+            "[1,2 , 3 ,]",
+            "{\"a\":1,/* c */\"b\" : [true,false,null] , }",
+            "\r\n// lead\r\n[\r\n  1, // one\r\n  -2.5e3\r\n] // trail",
+            "/* top */ \"just a string\\n\" // done",
+            "[1,,2]",
+            "{\"a\", \"b\": 2}",
+            "{\"k\\u00e9y\": {\"nested\": [[], {}, [{\"x\": \"y\"}]]}}"
+        };
+        for (String text : texts) {
+            JsonSyntaxTree tree = parse(text);
+            assertThat(tree.toString(), equalTo(text));
+            StringWriter out = new StringWriter();
+            tree.writeTo(out);
+            assertThat(out.toString(), equalTo(text));
+        }
+    }
+
+    @Test
+    public void testRead() throws Exception {
+        JsonSyntaxTree tree = parse(CONFIG);
+        JsonSyntaxTree.Node root = tree.root();
+        assertThat(root.type(), equalTo(JsonTape.Type.OBJECT));
+        assertThat(root.size(), equalTo(4));
+        assertThat(root.leadingTrivia(), equalTo("// Server settings\n"));
+        JsonSyntaxTree.Node host = root.get("host");
+        assertThat(host.key(), equalTo("host"));
+        assertThat(host.parent(), equalTo(root));
+        assertThat(host.value(), equalTo(Jsonc.string("localhost")));
+        assertThat(host.leadingTrivia(), equalTo("\n  /* The address to listen on */\n  "));
+        assertThat(host.trailingTrivia(), equalTo(" // or 0.0.0.0"));
+        assertThat(root.get("port").type(), equalTo(JsonTape.Type.INTEGER));
+        assertThat(root.get("port").trailingTrivia(), equalTo(""));
+        assertThat(root.get(2).leadingTrivia(), equalTo("\n\n  // Enabled plugins\n  "));
+        assertThat(root.get("plugins").get(1).toJSONString(), equalTo("\"cache\""));
+        assertThat(root.get("plugins").toJSONString(), equalTo("[\"auth\", \"cache\"]"));
+        assertThat(root.get("limits").get("connections").trailingTrivia(), equalTo(" // per host"));
+        assertThat(root.get("missing"), nullValue());
+        assertThat(
+                root.value(),
+                equalTo(
+                        Jsonc.parse(
+                                "{\"host\":\"localhost\",\"port\":8080,"
+                                        + "\"plugins\":[\"auth\",\"cache\"],"
+                                        + "\"limits\":{\"connections\":100}}")));
+
+        JsonSyntaxTree lenient = parse("{\"a\", \"b\": [1,,2]}");
+        assertThat(lenient.root().get("a").value(), equalTo(Jsonc.string("a")));
+        // A missing value has no text
+        assertThat(lenient.root().get("b").get(1).type(), equalTo(JsonTape.Type.NULL));
+        assertThat(lenient.root().get("b").get(1).toJSONString(), equalTo(""));
+    }
+
+    @Test
+    public void testSet() throws Exception {
+        JsonSyntaxTree tree = parse(CONFIG);
+        JsonSyntaxTree.Node root = tree.root();
+        root.set("port", 9090);
+        root.get("host").set("example.com");
+        root.get("limits").set("timeout", 30);
+        root.set("debug", true);
+        assertThat(
+                tree.toString(),
+                equalTo(
+                        "// Server settings\n"
+                                + "{\n"
+                                + "  /* The address to listen on */\n"
+                                + "  \"host\": \"example.com\", // or 0.0.0.0\n"
+                                + "  \"port\": 9090,\n"
+                                + "\n"
+                                + "  // Enabled plugins\n"
+                                + "  \"plugins\": [\"auth\", \"cache\"],\n"
+                                + "  \"limits\": {\n"
+                                + "    \"connections\": 100, // per host\n"
+                                + "    \"timeout\": 30\n"
+                                + "  },\n"
+                                + "  \"debug\": true\n"
+                                + "}\n"));
+        assertThat(root.get("port").value(), equalTo(Jsonc.number(9090)));
+        assertThat(root.get("debug").type(), equalTo(JsonTape.Type.BOOLEAN));
+        assertThat(root.get("debug").leadingTrivia(), equalTo(""));
+
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("max", 5);
+        map.put("tags", Arrays.asList("a/b", null));
+        root.set("limits", map);
+        root.get("limits").set("min", 1);
+        assertThat(
+                root.get("limits").toJSONString(),
+                equalTo("{\"max\":5,\"tags\":[\"a\\/b\",null],\"min\":1}"));
+        assertThat(root.get("limits").get("tags").get(0).value().toString(), equalTo("a/b"));
+    }
+
+    @Test
+    public void testRemove() throws Exception {
+        JsonSyntaxTree tree = parse(CONFIG);
+        JsonSyntaxTree.Node root = tree.root();
+        JsonSyntaxTree.Node host = root.remove("host");
+        assertThat(host.parent(), nullValue());
+        assertThat(root.remove("nothing"), nullValue());
+        root.remove("limits");
+        root.get("plugins").remove(0);
+        assertThat(
+                tree.toString(),
+                equalTo(
+                        "// Server settings\n"
+                                + "{\n"
+                                + "  \"port\": 8080,\n"
+                                + "\n"
+                                + "  // Enabled plugins\n"
+                                + "  \"plugins\": [\"cache\"]\n"
+                                + "}\n"));
+
+        tree = parse("{\"a\": 1, // one\n \"b\": 2 // two\n}");
+        tree.root().remove("b");
+        assertThat(tree.toString(), equalTo("{\"a\": 1 // one\n}"));
+        tree.root().remove("a");
+        assertThat(tree.toString(), equalTo("{\n}"));
+    }
+
+    @Test
+    public void testArrays() throws Exception {
+        JsonSyntaxTree tree = parse("{\"list\": [1, 2, 3,], \"empty\": []}");
+        JsonSyntaxTree.Node list = tree.root().get("list");
+        list.add(4);
+        list.add(0, 0);
+        list.remove(2);
+        tree.root().get("empty").add("x");
+        tree.root().get("empty").add(0, "w");
+        assertThat(tree.toString(), equalTo("{\"list\": [0, 1, 3, 4,], \"empty\": [\"w\",\"x\"]}"));
+
+        tree = parse("[\n    \"a\", // first\n    \"b\"\n]");
+        tree.root().add(0, "z");
+        tree.root().add("c");
+        assertThat(
+                tree.toString(),
+                equalTo("[\n    \"z\",\n    \"a\", // first\n    \"b\",\n    \"c\"\n]"));
+
+        tree = parse("[1, 2]");
+        tree.root().remove(0);
+        tree.root().add(0, 0);
+        assertThat(tree.toString(), equalTo("[0, 2]"));
+    }
+
+    @Test
+    public void testInvalidUse() throws Exception {
+        JsonSyntaxTree tree = parse("{\"a\": [1]}");
+        JsonSyntaxTree.Node a = tree.root().get("a");
+        assertThrows(IllegalStateException.class, () -> a.get("x"));
+        assertThrows(IllegalStateException.class, () -> a.set("x", 1));
+        assertThrows(IllegalStateException.class, () -> tree.root().add(1));
+        assertThrows(IllegalStateException.class, () -> a.get(0).get(0));
+        assertThrows(IllegalArgumentException.class, () -> a.add(new Object()));
+        // Values that don't turn into a single JSON value leave the tree as it was
+        assertThrows(IllegalArgumentException.class, () -> a.set(LocalDate.of(2020, 1, 2)));
+        assertThrows(IllegalArgumentException.class, () -> a.get(0).set(new Raw("1, \"x\": 2")));
+        assertThrows(IllegalArgumentException.class, () -> a.set(Jsonc.number(Double.NaN)));
+        assertThrows(IllegalArgumentException.class, () -> a.set(Arrays.asList(1, new Raw("2 3"))));
+        assertThrows(
+                IllegalArgumentException.class, () -> tree.root().set("b", new Raw("true false")));
+        assertThat(tree.root().size(), equalTo(1));
+        assertThat(a.type(), equalTo(JsonTape.Type.ARRAY));
+        tree.root().set("c", 2);
+        assertThat(tree.toString(), equalTo("{\"a\": [1],\"c\": 2}"));
+        assertThrows(
+                UnsupportedOperationException.class,
+                () ->
+                        new JsonParser(JsonParserConfig.defaults().legacyLexer(true))
+                                .parseSyntaxTree("[]"));
+        assertThrows(JsonParseException.class, () -> parse("{\"a\": }"));
+    }
+
+    /** Writes itself as the given text, without any quotes. */
+    private static class Raw {
+        private final String text;
+
+        Raw(String text) {
+            this.text = text;
+        }
+
+        @Override
+        public String toString() {
+            return text;
+        }
+    }
+}
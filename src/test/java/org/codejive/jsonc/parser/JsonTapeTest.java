@@ -0,0 +1,93 @@
+package org.codejive.jsonc.parser;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import org.codejive.jsonc.Jsonc;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+public class JsonTapeTest {
+    private static final String DOC =
+            "{\"name\": \"caf\\u00e9\", \"tags\": [\"a\", \"b\"], \"count\": 42,"
+                    + " \"big\": 12345678901234567890, \"ratio\": 1.5e3, \"neg\": -7,"
+                    + " \"ok\": true, \"none\": null, \"empty\": {}}";
+
+    @Test
+    public void testNavigation() throws Exception {
+        JsonTape tape = new JsonParser().parseTape(DOC);
+        int root = tape.root();
+        assertThat(tape.getType(root), equalTo(JsonTape.Type.OBJECT));
+        assertThat(tape.size(root), equalTo(9));
+        assertThat(tape.asString(tape.get(root, "name")), equalTo("café"));
+        int tags = tape.get(root, "tags");
+        assertThat(tape.size(tags), equalTo(2));
+        assertThat(tape.asString(tape.get(tags, 1)), equalTo("b"));
+        assertThat(tape.get(tags, 2), equalTo(-1));
+        assertThat(tape.get(root, "unknown"), equalTo(-1));
+        assertThat(tape.asLong(tape.get(root, "count")), equalTo(42L));
+        assertThat(tape.asLong(tape.get(root, "neg")), equalTo(-7L));
+        assertThat(tape.asString(tape.get(root, "big")), equalTo("12345678901234567890"));
+        assertThat(tape.asDouble(tape.get(root, "ratio")), equalTo(1500.0));
+        assertThat(tape.asBoolean(tape.get(root, "ok")), equalTo(true));
+        assertThat(tape.isNull(tape.get(root, "none")), equalTo(true));
+        assertThat(tape.first(tape.get(root, "empty")), equalTo(-1));
+    }
+
+    @Test
+    public void testIteration() throws Exception {
+        JsonTape tape = new JsonParser().parseTape("{\"a\": [1, [2, 3], {}], \"b\": 4, \"a\": 5}");
+        List<String> keys = new ArrayList<>();
+        for (int n = tape.first(tape.root()); n >= 0; n = tape.next(n)) {
+            keys.add(tape.key(n));
+        }
+        assertThat(keys, contains("a", "b", "a"));
+        assertThat(tape.asLong(tape.get(tape.root(), "a")), equalTo(5L));
+        int arr = tape.get(tape.first(tape.root()), 1);
+        assertThat(tape.asLong(tape.get(arr, 1)), equalTo(3L));
+        assertThat(tape.next(tape.get(arr, 1)), equalTo(-1));
+    }
+
+    @Test
+    public void testToplevelPrimitive() throws Exception {
+        JsonTape tape = new JsonParser().parseTape("-9223372036854775808");
+        assertThat(tape.getType(tape.root()), equalTo(JsonTape.Type.INTEGER));
+        assertThat(tape.asLong(tape.root()), equalTo(Long.MIN_VALUE));
+    }
+
+    @Test
+    public void testWrongType() throws Exception {
+        JsonTape tape = new JsonParser().parseTape("[\"x\"]");
+        assertThrows(IllegalStateException.class, () -> tape.get(tape.root(), "x"));
+        assertThrows(IllegalStateException.class, () -> tape.asLong(tape.first(tape.root())));
+        assertThrows(IllegalStateException.class, () -> tape.key(tape.first(tape.root())));
+    }
+
+    @Test
+    public void testToValue() throws Exception {
+        JsonParser parser = new JsonParser();
+        String text = "{\"a\": [1, 00, -0, 1.50, \"x\"], \"b\": {\"c\": false}}";
+        JsonTape tape = parser.parseTape(text);
+        assertThat(tape.toValue(tape.root()), equalTo(parser.parse(text)));
+    }
+
+    @ParameterizedTest
+    @MethodSource("org.codejive.jsonc.parser.JsonParserTest#jsonOrgPassPathProvider")
+    public void jsonOrgPassFiles(Path testFile) throws IOException, JsonParseException {
+        Path file = JsonParserTest.jsonOrgRoot().resolve(testFile);
+        JsonParser parser = new JsonParser(JsonParserConfig.strictJson());
+        Object expected = parser.parse(Files.newBufferedReader(file));
+        JsonTape tape = parser.parseTape(Files.readAllBytes(file));
+        assertThat(
+                Jsonc.toJSONString(tape.toValue(tape.root()), false),
+                equalTo(Jsonc.toJSONString(expected, false)));
+    }
+}
@@ -0,0 +1,107 @@
+package org.codejive.jsonc.parser;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.codejive.jsonc.JsonArray;
+import org.codejive.jsonc.JsonObject;
+import org.codejive.jsonc.JsonPrimitive;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+public class LazyDocumentTest {
+    private static final String DOC =
+            "{\"name\": \"caf\\u00e9\", \"tags\": [\"a\", \"b\\n\"],"
+                    + " \"items\": [{\"id\": 1, \"size\": 2.5}, {\"id\": 2, \"ok\": true}],"
+                    + " \"none\": null, \"empty\": {}}";
+
+    @Test
+    public void testLoadsOnAccess() throws Exception {
+        LazyJsonObject obj = (LazyJsonObject) new JsonParser().parseLazy(bytes(DOC));
+        assertThat(obj.isLoaded(), equalTo(false));
+        assertThat(obj.get("name").toString(), equalTo("café"));
+        assertThat(obj.isLoaded(), equalTo(true));
+        LazyJsonArray items = (LazyJsonArray) obj.get("items");
+        LazyJsonObject second = (LazyJsonObject) items.get(1);
+        assertThat(items.isLoaded(), equalTo(true));
+        assertThat(((LazyJsonObject) items.get(0)).isLoaded(), equalTo(false));
+        assertThat(second.get("id").toString(), equalTo("2"));
+        assertThat(((LazyJsonArray) obj.get("tags")).isLoaded(), equalTo(false));
+    }
+
+    @Test
+    public void testSameAsEager() throws Exception {
+        JsonParser parser = new JsonParser();
+        Object expected = parser.parse(DOC);
+        assertThat(parser.parseLazy(DOC), equalTo(expected));
+        assertThat(parser.parseLazy(bytes(DOC)), equalTo(expected));
+        assertThat(expected, equalTo(parser.parseLazy(DOC)));
+        assertThat(
+                ((JsonObject) parser.parseLazy(DOC)).toJSONString(),
+                equalTo(((JsonObject) expected).toJSONString()));
+    }
+
+    @Test
+    public void testLegacyLexer() throws Exception {
+        JsonParser parser = new JsonParser(JsonParserConfig.defaults().legacyLexer(true));
+        String doc = "{\"a\": \"hello\", \"b\": [1, \"x\\n\", {\"c\": true}], \"d\": 2.5}";
+        Object expected = new JsonParser().parse(doc);
+        assertThat(parser.parseLazy(doc), equalTo(expected));
+        assertThat(parser.parseLazy(DOC), equalTo(new JsonParser().parse(DOC)));
+        // The parser itself still uses the legacy lexer afterwards
+        assertThat(parser.parse(doc), equalTo(expected));
+    }
+
+    @Test
+    public void testModify() throws Exception {
+        JsonArray arr = (JsonArray) new JsonParser().parseLazy("[1, [2, 3], 4]");
+        arr.add(new JsonPrimitive(JsonPrimitive.Type.INTEGER, "5"));
+        ((JsonArray) arr.get(1)).remove(0);
+        assertThat(arr, equalTo(new JsonParser().parse("[1, [3], 4, 5]")));
+    }
+
+    @Test
+    public void testToplevelPrimitive() throws Exception {
+        assertThat(
+                new JsonParser().parseLazy(" \"x\" "),
+                equalTo(new JsonPrimitive(JsonPrimitive.Type.STRING, "x")));
+    }
+
+    @Test
+    public void testLenient() throws Exception {
+        JsonParser parser = new JsonParser(JsonParserConfig.lenientJsonc());
+        String text = "{\"a\": [1,,2,], \"b\" /* comment */ , \"c\": 3}";
+        Object lazy = parser.parseLazy(text);
+        assertThat(lazy, equalTo(parser.parse(text)));
+        assertThat(((JsonObject) lazy).get("b").toString(), equalTo("b"));
+    }
+
+    @Test
+    public void testInvalid() {
+        assertThrows(JsonParseException.class, () -> new JsonParser().parseLazy("[1, {]"));
+    }
+
+    @ParameterizedTest
+    @MethodSource("org.codejive.jsonc.parser.JsonParserTest#jsonOrgPassPathProvider")
+    public void jsonOrgPassFiles(Path testFile) throws IOException, JsonParseException {
+        Path file = JsonParserTest.jsonOrgRoot().resolve(testFile);
+        JsonParser parser = new JsonParser(JsonParserConfig.strictJson());
+        Object expected = parser.parse(Files.newBufferedReader(file));
+        Object lazy = parser.parseLazy(Files.readAllBytes(file));
+        assertThat(
+                lazy,
+                instanceOf(expected instanceof JsonObject ? JsonObject.class : JsonArray.class));
+        assertThat(lazy, equalTo(expected));
+    }
+
+    private static byte[] bytes(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+}
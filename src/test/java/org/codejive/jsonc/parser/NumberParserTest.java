@@ -0,0 +1,224 @@
+package org.codejive.jsonc.parser;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.codejive.jsonc.JsonPrimitive;
+import org.junit.jupiter.api.Test;
+
+public class NumberParserTest {
+    private static final String[] EDGE_CASES = {
+        "0",
+        "-0",
+        "0.0",
+        "-0.0e5",
+        "1.5",
+        "0.1",
+        "0.3",
+        "1E22",
+        "1E23",
+        "8.41e21",
+        "9007199254740993",
+        "9007199254740992.5",
+        "4503599627370497.5",
+        "1.00000000000000011102230246251565404236316680908203125",
+        "2.2250738585072014E-308",
+        "2.2250738585072011E-308",
+        "2.2250738585072012e-308",
+        "4.9E-324",
+        "1.7976931348623157E308",
+        "1.7976931348623158E308",
+        "1.7976931348623159E308",
+        "1e-342",
+        "1e-400",
+        "1e400",
+        "123456789012345678901234567890",
+        "18446744073709551615",
+        "18446744073709551616",
+        "-9223372036854775808",
+        "1e+0000000000000000000000001"
+    };
+
+    @Test
+    public void testParseDouble() {
+        for (String s : EDGE_CASES) {
+            assertDouble(s);
+        }
+        Random rnd = new Random(1);
+        for (int i = 0; i < 100000; i++) {
+            double d = Double.longBitsToDouble(rnd.nextLong());
+            if (!Double.isNaN(d) && !Double.isInfinite(d)) {
+                assertDouble(Double.toString(d));
+                assertDouble(String.format("%.17e", d));
+            }
+            assertDouble(
+                    rnd.nextInt(1000000)
+                            + "."
+                            + rnd.nextInt(1000000)
+                            + "e"
+                            + (rnd.nextInt(60) - 30));
+        }
+    }
+
+    @Test
+    public void testParseLong() {
+        for (String s :
+                new String[] {
+                    "0",
+                    "-1",
+                    "42",
+                    "9223372036854775807",
+                    "-9223372036854775808",
+                    "1000000000000000000"
+                }) {
+            char[] chars = s.toCharArray();
+            byte[] bytes = s.getBytes(StandardCharsets.US_ASCII);
+            assertThat(s, NumberParser.fitsLong(chars, 0, chars.length), equalTo(true));
+            assertThat(s, NumberParser.fitsLong(bytes, 0, bytes.length), equalTo(true));
+            assertThat(NumberParser.parseLong(chars, 0, chars.length), equalTo(Long.parseLong(s)));
+            assertThat(NumberParser.parseLong(bytes, 0, bytes.length), equalTo(Long.parseLong(s)));
+        }
+        for (String s :
+                new String[] {
+                    "9223372036854775808", "-9223372036854775809", "10000000000000000000"
+                }) {
+            char[] chars = s.toCharArray();
+            assertThat(s, NumberParser.fitsLong(chars, 0, chars.length), equalTo(false));
+        }
+    }
+
+    @Test
+    public void testParseNumbers() throws Exception {
+        String text = "[1, -2.5, 12345678901234567890, 1e400, {\"a\": 0.1}, \"3\"]";
+        List<Object> events = new ArrayList<>();
+        ContentHandler handler =
+                new JsonParser.DefaultContentHandler(new JsonParser.DefaultTypeFactory()) {
+                    @Override
+                    public boolean primitive(
+                            Status status, JsonPrimitive.Type type, String value, String raw) {
+                        events.add(value);
+                        return true;
+                    }
+
+                    @Override
+                    public boolean primitiveLong(Status status, long value) {
+                        events.add(value);
+                        return true;
+                    }
+
+                    @Override
+                    public boolean primitiveDouble(Status status, double value) {
+                        events.add(value);
+                        return true;
+                    }
+                };
+        JsonParser parser = new JsonParser(JsonParserConfig.defaults().parseNumbers(true));
+        List<Object> expected = Arrays.asList(1L, -2.5, "12345678901234567890", "1e400", 0.1, "3");
+        parser.parse(text, handler);
+        assertThat(events, equalTo(expected));
+        events.clear();
+        parser.parse(text.getBytes(StandardCharsets.UTF_8), handler);
+        assertThat(events, equalTo(expected));
+        events.clear();
+        new JsonParser(JsonParserConfig.defaults().parseNumbers(true).legacyLexer(true))
+                .parse(text, handler);
+        assertThat(events, equalTo(expected));
+    }
+
+    @Test
+    public void testParseNumbersDom() throws Exception {
+        JsonParser parser =
+                new JsonParser(JsonParserConfig.defaults().parseNumbers(true).numericArrays(true));
+        Object result = parser.parse("{\"a\": [1, 2], \"b\": [1.50, 2], \"c\": 3.0e0}");
+        assertThat(result.toString(), equalTo("{\"a\":[1,2],\"b\":[1.5,2],\"c\":3.0}"));
+
+        JsonTape tape =
+                new JsonParser(JsonParserConfig.defaults().parseNumbers(true))
+                        .parseTape("[1, 2.5, 1e400]");
+        int first = tape.first(tape.root());
+        assertThat(tape.asLong(first), equalTo(1L));
+        assertThat(tape.asDouble(tape.next(first)), equalTo(2.5));
+        assertThat(tape.getType(tape.next(first)), equalTo(JsonTape.Type.REAL));
+        assertThat(tape.asString(tape.next(tape.next(first))), equalTo("1e400"));
+
+        JsonReader reader =
+                new JsonReader("[7, 0.25]", JsonParserConfig.defaults().parseNumbers(true));
+        reader.beginArray();
+        reader.next();
+        assertThat(reader.getLong(), equalTo(7L));
+        reader.next();
+        assertThat(reader.getDouble(), equalTo(0.25));
+        assertThat(reader.getString(), equalTo("0.25"));
+    }
+
+    @Test
+    public void testParseNumbersShortestText() throws Exception {
+        // Double.toString() of Java 8 writes these as 0.0020 and 2.82879384806159008E17
+        String text = "[2.0E-3, 2.82879384806159E17]";
+        List<String> expected = Arrays.asList("0.002", "2.82879384806159E17");
+        JsonParserConfig config = JsonParserConfig.defaults().parseNumbers(true);
+
+        assertThat(
+                new JsonParser(config).parse(text).toString(),
+                equalTo("[0.002,2.82879384806159E17]"));
+
+        // Handlers and type factories that don't handle doubles themselves get them as text
+        List<String> events = new ArrayList<>();
+        new JsonParser(config).parse(text, new JsonParserTest.EventRecorder(events));
+        assertThat(events.subList(2, 4), equalTo(expected));
+        TypeFactory factory =
+                new TypeFactory() {
+                    @Override
+                    public Map<String, Object> createObjectContainer() {
+                        return new HashMap<>();
+                    }
+
+                    @Override
+                    public List<Object> createArrayContainer() {
+                        return new ArrayList<>();
+                    }
+
+                    @Override
+                    public Object createPrimitive(
+                            JsonPrimitive.Type type, String value, String rawValue) {
+                        return rawValue;
+                    }
+                };
+        assertThat(new JsonParser(config).parse(text, factory), equalTo(expected));
+
+        JsonTape tape = new JsonParser(config).parseTape(text);
+        int first = tape.first(tape.root());
+        assertThat(
+                Arrays.asList(tape.asString(first), tape.asString(tape.next(first))),
+                equalTo(expected));
+
+        JsonReader reader = new JsonReader(text, config);
+        reader.beginArray();
+        List<String> strings = new ArrayList<>();
+        while (reader.next() == JsonReader.Event.VALUE) {
+            strings.add(reader.getString());
+        }
+        assertThat(strings, equalTo(expected));
+    }
+
+    private static void assertDouble(String s) {
+        double expected = Double.parseDouble(s);
+        char[] chars = s.toCharArray();
+        byte[] bytes = s.getBytes(StandardCharsets.US_ASCII);
+        assertThat(
+                s,
+                Double.doubleToRawLongBits(NumberParser.parseDouble(chars, 0, chars.length)),
+                equalTo(Double.doubleToRawLongBits(expected)));
+        assertThat(
+                s,
+                Double.doubleToRawLongBits(NumberParser.parseDouble(bytes, 0, bytes.length)),
+                equalTo(Double.doubleToRawLongBits(expected)));
+    }
+}
@@ -0,0 +1,86 @@
+package org.codejive.jsonc.parser;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.charset.StandardCharsets;
+import org.junit.jupiter.api.Test;
+
+public class PathFilterTest {
+    private static final String DOC =
+            "{\"meta\": {\"version\": \"1.2\", \"tags\": [\"a\", \"b\"]},"
+                    + " \"items\": [{\"id\": 1, \"name\": \"x\"}, {\"id\": 2, \"data\": [1, 2]},"
+                    + " {\"name\": \"z\"}],"
+                    + " \"a/b\": {\"c~d\": true}}";
+
+    @Test
+    public void testPointer() throws Exception {
+        assertFiltered("{\"meta\":{\"version\":\"1.2\"}}", "/meta/version");
+    }
+
+    @Test
+    public void testPointerIndex() throws Exception {
+        assertFiltered("{\"items\":[{\"id\":2,\"data\":[1,2]}]}", "/items/1");
+    }
+
+    @Test
+    public void testPointerEscapes() throws Exception {
+        assertFiltered("{\"a/b\":{\"c~d\":true}}", "/a~1b/c~0d");
+    }
+
+    @Test
+    public void testJsonPathWildcard() throws Exception {
+        assertFiltered("{\"items\":[{\"id\":1},{\"id\":2},{}]}", "$.items[*].id");
+    }
+
+    @Test
+    public void testJsonPathBrackets() throws Exception {
+        assertFiltered("{\"meta\":{\"tags\":[\"b\"]}}", "$['meta'].tags[1]");
+    }
+
+    @Test
+    public void testMultiplePaths() throws Exception {
+        assertFiltered(
+                "{\"meta\":{\"version\":\"1.2\"},\"items\":[{\"name\":\"x\"},{},{\"name\":\"z\"}]}",
+                "/meta/version",
+                "$.items.*.name");
+    }
+
+    @Test
+    public void testRoot() throws Exception {
+        JsonParser parser = new JsonParser();
+        assertThat(parser.parse(DOC, PathFilter.compile("$")), equalTo(parser.parse(DOC)));
+        assertThat(parser.parse(DOC, PathFilter.compile("")), equalTo(parser.parse(DOC)));
+    }
+
+    @Test
+    public void testNoMatch() throws Exception {
+        assertFiltered("{}", "/unknown");
+        assertThat(new JsonParser().parse("42", PathFilter.compile("/a")), nullValue());
+    }
+
+    @Test
+    public void testBytes() throws Exception {
+        JsonParser parser = new JsonParser();
+        Object result =
+                parser.parse(
+                        DOC.getBytes(StandardCharsets.UTF_8), PathFilter.compile("$.items[0]"));
+        assertThat(result, equalTo(parser.parse("{\"items\":[{\"id\": 1, \"name\": \"x\"}]}")));
+    }
+
+    @Test
+    public void testInvalidPaths() {
+        assertThrows(IllegalArgumentException.class, () -> PathFilter.compile("items"));
+        assertThrows(IllegalArgumentException.class, () -> PathFilter.compile("$.items[x]"));
+        assertThrows(IllegalArgumentException.class, () -> PathFilter.compile("$.items[0"));
+        assertThrows(IllegalArgumentException.class, () -> PathFilter.compile("$..id"));
+    }
+
+    private static void assertFiltered(String expected, String... paths) throws Exception {
+        JsonParser parser = new JsonParser();
+        Object result = parser.parse(DOC, PathFilter.compile(paths));
+        assertThat(result, equalTo(parser.parse(expected)));
+    }
+}
@@ -0,0 +1,113 @@
+package org.codejive.jsonc.parser;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+public class SymbolTableTest {
+    private static final String DOC =
+            "[{\"id\": 1, \"caf\\u00e9\": \"x\", \"naïve\": 2, \"id\\u0031\": 3},"
+                    + " {\"id\": 4, \"caf\\u00e9\": \"y\", \"naïve\": 5, \"id\\u0031\": 6}]";
+
+    @Test
+    public void testIntern() {
+        SymbolTable symbols = new SymbolTable(100);
+        assertThat(symbols.capacity(), equalTo(128));
+        String key = symbols.intern(new String("key"));
+        assertThat(symbols.intern(new String("key")), sameInstance(key));
+        assertThat(symbols.intern("key".toCharArray(), 0, 3), sameInstance(key));
+        assertThat(
+                symbols.intern("a key!".getBytes(StandardCharsets.UTF_8), 2, 5), sameInstance(key));
+        assertThat(symbols.intern("kez".toCharArray(), 0, 3), equalTo("kez"));
+
+        char[] chars = new char[SymbolTable.MAX_LENGTH + 1];
+        String s1 = symbols.intern(chars, 0, chars.length);
+        String s2 = symbols.intern(chars, 0, chars.length);
+        assertThat(s1, equalTo(s2));
+        assertThat(s1, not(sameInstance(s2)));
+    }
+
+    @Test
+    public void testCollisions() {
+        // With a single slot every key replaces the previous one, but the values are always right
+        SymbolTable symbols = new SymbolTable(1);
+        for (int i = 0; i < 100; i++) {
+            String s = "key" + (i % 7);
+            assertThat(symbols.intern(s.toCharArray(), 0, s.length()), equalTo(s));
+        }
+    }
+
+    @Test
+    public void testParseString() throws Exception {
+        JsonParserConfig config = JsonParserConfig.defaults().symbolTable(new SymbolTable());
+        assertSharedKeys(new JsonParser(config).parse(DOC));
+        assertSharedKeys(new JsonParser(config).parse(new StringReader(DOC)));
+    }
+
+    @Test
+    public void testParseBytes() throws Exception {
+        JsonParserConfig config = JsonParserConfig.defaults().symbolTable(new SymbolTable());
+        assertSharedKeys(new JsonParser(config).parse(DOC.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    public void testParseLegacy() throws Exception {
+        JsonParserConfig config =
+                JsonParserConfig.defaults().legacyLexer(true).symbolTable(new SymbolTable());
+        assertSharedKeys(new JsonParser(config).parse(new StringReader(DOC)));
+    }
+
+    @Test
+    public void testParseLazy() throws Exception {
+        JsonParserConfig config = JsonParserConfig.defaults().symbolTable(new SymbolTable());
+        assertSharedKeys(new JsonParser(config).parseLazy(DOC.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    public void testSharedAcrossParses() throws Exception {
+        SymbolTable symbols = new SymbolTable();
+        List<String> first =
+                keys(
+                        new JsonParser(JsonParserConfig.defaults().symbolTable(symbols)).parse(DOC),
+                        0);
+        List<String> second =
+                keys(
+                        new JsonParser(JsonParserConfig.lenientJson().symbolTable(symbols))
+                                .parse(DOC.getBytes(StandardCharsets.UTF_8)),
+                        1);
+        for (int i = 0; i < first.size(); i++) {
+            assertThat(second.get(i), sameInstance(first.get(i)));
+        }
+    }
+
+    @Test
+    public void testDisabled() throws Exception {
+        Object result = new JsonParser().parse(DOC);
+        assertThat(keys(result, 0).get(0), not(sameInstance(keys(result, 1).get(0))));
+    }
+
+    private static void assertSharedKeys(Object result) {
+        List<String> first = keys(result, 0);
+        List<String> second = keys(result, 1);
+        assertThat(first, containsInAnyOrder("id", "café", "naïve", "id1"));
+        assertThat(second, equalTo(first));
+        for (int i = 0; i < first.size(); i++) {
+            assertThat(second.get(i), sameInstance(first.get(i)));
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<String> keys(Object result, int index) {
+        Map<String, Object> obj = (Map<String, Object>) ((List<Object>) result).get(index);
+        return new ArrayList<>(obj.keySet());
+    }
+}
@@ -0,0 +1,356 @@
+package org.codejive.jsonc.parser;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+public class Utf8LexerTest {
+
+    @Test
+    public void testString() throws Exception {
+        testLexOk("\"\\/\"", string("/", "\\/"));
+    }
+
+    @Test
+    public void testEscapes() throws Exception {
+        testLexOk(
+                "\"abc\\/\\r\\b\\n\\t\\f\\\\\\u4e2d\"",
+                string("abc/\r\b\n\t\f\\中", "abc\\/\\r\\b\\n\\t\\f\\\\\\u4e2d"));
+    }
+
+    @Test
+    public void testMultiByteCharacters() throws Exception {
+        testLexOk("\"héllo 中文 😀\"", string("héllo 中文 😀", null));
+    }
+
+    @Test
+    public void testMultiByteCharactersWithEscapes() throws Exception {
+        testLexOk("\"é\\n中\\t😀\\u0041\"", string("é\n中\t😀A", "é\\n中\\t😀\\u0041"));
+    }
+
+    @Test
+    public void testMalformedUtf8() throws Exception {
+        Utf8Lexer lexer = new Utf8Lexer(JsonParserConfig.defaults());
+        byte[] b = {'"', 'a', (byte) 0xC3, '\\', 'n', '"'};
+        lexer.reset(b, 0, b.length);
+        assertThat(lexer.next(), equalTo(JsonLexer.STRING));
+        assertThat(lexer.value(), equalTo("a\uFFFD\n"));
+    }
+
+    @Test
+    public void testMalformedUtf8SameWithEscapes() throws Exception {
+        int[][] sequences = {
+            {0xC0, 0xAF},
+            {0xC1, 0xBF},
+            {0xE0, 0x80, 0xAF},
+            {0xE0, 0x9F, 0xBF},
+            {0xED, 0xA0, 0x80},
+            {0xED, 0xBF, 0xBF},
+            {0xED, 0xA0},
+            {0xF0, 0x80, 0x80, 0xAF},
+            {0xF0, 0x8F, 0xBF, 0xBF},
+            {0xF4, 0x90, 0x80, 0x80},
+            {0xF5, 0x80, 0x80, 0x80},
+            {0xF8, 0x88, 0x80, 0x80, 0x80},
+            {0xFF},
+            {0x80},
+            {0xBF, 0x80},
+            {0xC3},
+            {0xE2, 0x82},
+            {0xE2, 0x28, 0xA1},
+            {0xF0, 0x9F, 0x98},
+            {0xF0, 0x9F},
+            {0xF0, 0x28, 0x8C, 0xBC},
+            {0xF0, 0x90, 0x28, 0xBC},
+            {0xF0, 0x9F, 0x98, 0x41},
+            {0xE0, 0xA0, 0x80},
+            {0xF4, 0x8F, 0xBF, 0xBF}
+        };
+        for (int[] sequence : sequences) {
+            byte[] b = new byte[sequence.length];
+            for (int i = 0; i < b.length; i++) {
+                b[i] = (byte) sequence[i];
+            }
+            assertSameDecoding(b);
+        }
+        Random rnd = new Random(42);
+        for (int i = 0; i < 10000; i++) {
+            byte[] b = new byte[rnd.nextInt(8) + 1];
+            for (int j = 0; j < b.length; j++) {
+                b[j] =
+                        (byte)
+                                (rnd.nextInt(8) == 0
+                                        ? 'a' + rnd.nextInt(26)
+                                        : 0x80 + rnd.nextInt(128));
+            }
+            assertSameDecoding(b);
+        }
+    }
+
+    // Checks that the bytes decode the same as the JDK does them, with and without an escape
+    private static void assertSameDecoding(byte[] b) throws Exception {
+        String expected = new String(b, StandardCharsets.UTF_8);
+        for (boolean escaped : new boolean[] {false, true}) {
+            for (boolean atEnd : new boolean[] {false, true}) {
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                out.write('"');
+                out.write(escaped ? '\\' : 'x');
+                out.write(escaped ? 't' : 'x');
+                out.write(b);
+                if (!atEnd) {
+                    out.write('z');
+                }
+                out.write('"');
+                byte[] input = out.toByteArray();
+                Utf8Lexer lexer = new Utf8Lexer(JsonParserConfig.defaults());
+                lexer.reset(input, 0, input.length);
+                assertThat(lexer.next(), equalTo(JsonLexer.STRING));
+                assertThat(
+                        lexer.value(),
+                        equalTo((escaped ? "\t" : "xx") + expected + (atEnd ? "" : "z")));
+            }
+        }
+    }
+
+    @Test
+    public void testEscapeInvalid() throws Exception {
+        testLexError("\"abc\\x\"", 'x', 4L);
+    }
+
+    @Test
+    public void testIntegerNegative() throws Exception {
+        testLexOk("-123456789", token(JsonLexer.INTEGER, "-123456789"));
+    }
+
+    @Test
+    public void testReal() throws Exception {
+        testLexOk("4.2e-4", token(JsonLexer.REAL, "4.2e-4"));
+    }
+
+    @Test
+    public void testLiterals() throws Exception {
+        testLexOk(
+                "[true,false,null]",
+                token(JsonLexer.LEFT_SQUARE, "["),
+                token(JsonLexer.TRUE, "true"),
+                token(JsonLexer.ITEM_SEPARATOR, ","),
+                token(JsonLexer.FALSE, "false"),
+                token(JsonLexer.ITEM_SEPARATOR, ","),
+                token(JsonLexer.NULL, "null"),
+                token(JsonLexer.RIGHT_SQUARE, "]"));
+    }
+
+    @Test
+    public void testUnexpectedNonAscii() throws Exception {
+        testLexError("{é}", 'é', 1L);
+    }
+
+    @Test
+    public void testByteOrderMark() throws Exception {
+        Utf8Lexer lexer = new Utf8Lexer(JsonParserConfig.defaults());
+        byte[] b = {(byte) 0xEF, (byte) 0xBB, (byte) 0xBF, '{', '}'};
+        lexer.reset(b, 0, b.length);
+        assertThat(lexer.next(), equalTo(JsonLexer.LEFT_BRACE));
+        assertThat(lexer.getPosition(), equalTo(3L));
+    }
+
+    @Test
+    public void testComments() throws Exception {
+        Utf8Lexer lexer = new Utf8Lexer(JsonParserConfig.strictJsonc());
+        byte[] b = utf8("/* é */ [ // 中\n 1]");
+        lexer.reset(b, 0, b.length);
+        assertThat(lexer.next(), equalTo(JsonLexer.LEFT_SQUARE));
+        assertThat(lexer.next(), equalTo(JsonLexer.INTEGER));
+        assertThat(lexer.next(), equalTo(JsonLexer.RIGHT_SQUARE));
+        assertThat(lexer.next(), equalTo(JsonLexer.EOF));
+    }
+
+    @Test
+    public void testPositionsAreByteOffsets() throws Exception {
+        Utf8Lexer lexer = new Utf8Lexer(JsonParserConfig.defaults());
+        byte[] b = utf8("[\"中\",1]");
+        lexer.reset(b, 0, b.length);
+        lexer.next();
+        lexer.next();
+        assertThat(lexer.getPosition(), equalTo(1L));
+        lexer.next();
+        assertThat(lexer.getPosition(), equalTo(6L));
+    }
+
+    @Test
+    public void testArraySlice() throws Exception {
+        Utf8Lexer lexer = new Utf8Lexer(JsonParserConfig.defaults());
+        byte[] b = utf8("xx[42]xx");
+        lexer.reset(b, 2, 4);
+        assertThat(lexer.next(), equalTo(JsonLexer.LEFT_SQUARE));
+        assertThat(lexer.getPosition(), equalTo(0L));
+        assertThat(lexer.next(), equalTo(JsonLexer.INTEGER));
+        assertThat(lexer.value(), equalTo("42"));
+        assertThat(lexer.next(), equalTo(JsonLexer.RIGHT_SQUARE));
+        assertThat(lexer.next(), equalTo(JsonLexer.EOF));
+    }
+
+    @Test
+    public void testTokensAcrossRefills() throws Exception {
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < 5000; i++) {
+            sb.append("\"str\\u00e9ng中").append(i).append("\",").append(i).append(".5e1,");
+        }
+        sb.append("true]");
+        byte[] b = utf8(sb.toString());
+        Utf8Lexer lexer = new Utf8Lexer(JsonParserConfig.defaults());
+        lexer.reset(new OneByteInputStream(new ByteArrayInputStream(b)));
+        assertThat(lexer.next(), equalTo(JsonLexer.LEFT_SQUARE));
+        for (int i = 0; i < 5000; i++) {
+            assertThat(lexer.next(), equalTo(JsonLexer.STRING));
+            assertThat(lexer.value(), equalTo("stréng中" + i));
+            assertThat(lexer.next(), equalTo(JsonLexer.ITEM_SEPARATOR));
+            assertThat(lexer.next(), equalTo(JsonLexer.REAL));
+            assertThat(lexer.value(), equalTo(i + ".5e1"));
+            assertThat(lexer.next(), equalTo(JsonLexer.ITEM_SEPARATOR));
+        }
+        assertThat(lexer.next(), equalTo(JsonLexer.TRUE));
+        assertThat(lexer.next(), equalTo(JsonLexer.RIGHT_SQUARE));
+        assertThat(lexer.next(), equalTo(JsonLexer.EOF));
+        assertThat(lexer.getPosition(), equalTo((long) b.length));
+    }
+
+    @Test
+    public void testDirectByteBuffer() throws Exception {
+        byte[] b = utf8("{\"naïve\": [1, 2.5, \"中\"]}");
+        ByteBuffer bb = ByteBuffer.allocateDirect(b.length);
+        bb.put(b);
+        bb.flip();
+        Utf8Lexer lexer = new Utf8Lexer(JsonParserConfig.defaults());
+        lexer.reset(bb);
+        assertThat(lexer.next(), equalTo(JsonLexer.LEFT_BRACE));
+        assertThat(lexer.next(), equalTo(JsonLexer.STRING));
+        assertThat(lexer.value(), equalTo("naïve"));
+        assertThat(lexer.next(), equalTo(JsonLexer.PAIR_SEPARATOR));
+        assertThat(lexer.next(), equalTo(JsonLexer.LEFT_SQUARE));
+        assertThat(lexer.next(), equalTo(JsonLexer.INTEGER));
+        assertThat(lexer.next(), equalTo(JsonLexer.ITEM_SEPARATOR));
+        assertThat(lexer.next(), equalTo(JsonLexer.REAL));
+        assertThat(lexer.next(), equalTo(JsonLexer.ITEM_SEPARATOR));
+        assertThat(lexer.next(), equalTo(JsonLexer.STRING));
+        assertThat(lexer.value(), equalTo("中"));
+        assertThat(lexer.next(), equalTo(JsonLexer.RIGHT_SQUARE));
+        assertThat(lexer.next(), equalTo(JsonLexer.RIGHT_BRACE));
+        assertThat(lexer.next(), equalTo(JsonLexer.EOF));
+        assertThat(bb.position(), equalTo(0));
+    }
+
+    @Test
+    public void testMappedFileChunks() throws Exception {
+        Path file = Files.createTempFile("utf8lexer", ".json");
+        try {
+            Files.write(file, utf8("[\"héllo 中文\", 12345.5, {\"k\": true}]"));
+            try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+                Utf8Lexer lexer = new Utf8Lexer(JsonParserConfig.defaults());
+                lexer.reset(ch, 3);
+                assertThat(lexer.next(), equalTo(JsonLexer.LEFT_SQUARE));
+                assertThat(lexer.next(), equalTo(JsonLexer.STRING));
+                assertThat(lexer.value(), equalTo("héllo 中文"));
+                assertThat(lexer.next(), equalTo(JsonLexer.ITEM_SEPARATOR));
+                assertThat(lexer.next(), equalTo(JsonLexer.REAL));
+                assertThat(lexer.value(), equalTo("12345.5"));
+                assertThat(lexer.next(), equalTo(JsonLexer.ITEM_SEPARATOR));
+                assertThat(lexer.next(), equalTo(JsonLexer.LEFT_BRACE));
+                assertThat(lexer.next(), equalTo(JsonLexer.STRING));
+                assertThat(lexer.next(), equalTo(JsonLexer.PAIR_SEPARATOR));
+                assertThat(lexer.next(), equalTo(JsonLexer.TRUE));
+                assertThat(lexer.next(), equalTo(JsonLexer.RIGHT_BRACE));
+                assertThat(lexer.next(), equalTo(JsonLexer.RIGHT_SQUARE));
+                assertThat(lexer.next(), equalTo(JsonLexer.EOF));
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testSkip() throws Exception {
+        Utf8Lexer lexer = new Utf8Lexer(JsonParserConfig.defaults());
+        byte[] b = utf8("[1, \"]\\\"[\", {\"a\": []}] 5");
+        lexer.reset(b, 0, b.length);
+        assertThat(lexer.next(), equalTo(JsonLexer.LEFT_SQUARE));
+        lexer.startSkip();
+        assertThat(lexer.skip(), equalTo(JsonLexer.RIGHT_SQUARE));
+        assertThat(lexer.getPosition(), equalTo(21L));
+        assertThat(lexer.next(), equalTo(JsonLexer.INTEGER));
+        assertThat(lexer.value(), equalTo("5"));
+    }
+
+    private void testLexOk(String input, Object[]... expectedTokens) throws Exception {
+        System.out.println("Lexing: " + input);
+        Utf8Lexer lexer = new Utf8Lexer(JsonParserConfig.defaults());
+        byte[] b = utf8(input);
+        lexer.reset(b, 0, b.length);
+        for (Object[] expectedToken : expectedTokens) {
+            int token = lexer.next();
+            assertThat(token, equalTo(expectedToken[0]));
+            assertThat(lexer.value(), equalTo(expectedToken[1]));
+            Object raw = expectedToken[2] != null ? expectedToken[2] : expectedToken[1];
+            assertThat(lexer.rawValue(), equalTo(raw));
+        }
+    }
+
+    private void testLexError(String input, char unexpectedChar, long expectedPosition) {
+        System.out.println("Lexing: " + input);
+        Utf8Lexer lexer = new Utf8Lexer(JsonParserConfig.defaults());
+        byte[] b = utf8(input);
+        lexer.reset(b, 0, b.length);
+        JsonParseException err = null;
+        try {
+            while (lexer.next() != JsonLexer.EOF) {}
+        } catch (JsonParseException e) {
+            err = e;
+            System.out.println("expected error:" + err);
+            assertThat(e.getErrorType(), equalTo(JsonParseException.ERROR_UNEXPECTED_CHAR));
+            assertThat(e.getMessage(), containsString(String.valueOf(unexpectedChar)));
+            assertThat(e.getPosition(), equalTo(expectedPosition));
+        } catch (IOException ie) {
+            throw new RuntimeException(ie);
+        }
+        assertTrue(err != null);
+    }
+
+    private static byte[] utf8(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static Object[] token(int token, String value) {
+        return new Object[] {token, value, value};
+    }
+
+    private static Object[] string(String value, String rawValue) {
+        return new Object[] {JsonLexer.STRING, value, rawValue};
+    }
+
+    /** Stream that returns at most one byte per read, to exercise buffer refills. */
+    static class OneByteInputStream extends FilterInputStream {
+        OneByteInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            return super.read(b, off, Math.min(len, 1));
+        }
+    }
+}